@@ -0,0 +1,179 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.driver.coordinator.ArrivalEstimationException;
+import aim4.driver.coordinator.ArrivalEstimationResult;
+import aim4.driver.coordinator.MaxAccelReservationCheck;
+import aim4.driver.coordinator.ReservationCheckException;
+import aim4.driver.coordinator.VelocityFirstArrivalEstimation;
+import aim4.vehicle.AccelSchedule;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The cost of the computations of a driver when it prepares a request
+ * (the arrival estimation) and when it receives a confirmation (the
+ * reservation check).  The parameters are random but fixed: vehicles of
+ * the standard specifications approaching an intersection at most 150
+ * meters away on a road with a speed limit of 25 m/s.  The confirmed
+ * arrival times are up to 3 seconds later than the estimated ones, so that
+ * some of the checks fail as they do in the simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CoordinatorBenchmark {
+
+  /** The number of distinct parameter sets */
+  private static final int NUM_OF_CASES = 1024;
+  /** The speed limit of the road */
+  private static final double V_TOP = 25.0;
+
+  /** The initial velocities */
+  private double[] v1s;
+  /** The distances to the intersection */
+  private double[] dTotals;
+  /** The maximum arrival velocities */
+  private double[] vEndMaxs;
+  /** The maximum accelerations */
+  private double[] accels;
+  /** The maximum decelerations */
+  private double[] decels;
+  /** The confirmed arrival times */
+  private double[] timeEnds;
+  /** The confirmed arrival velocities */
+  private double[] vEnds;
+  /** The index of the next parameter set */
+  private int next;
+
+  /**
+   * Create the parameter sets.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(Scenarios.SEED);
+    v1s = new double[NUM_OF_CASES];
+    dTotals = new double[NUM_OF_CASES];
+    vEndMaxs = new double[NUM_OF_CASES];
+    accels = new double[NUM_OF_CASES];
+    decels = new double[NUM_OF_CASES];
+    timeEnds = new double[NUM_OF_CASES];
+    vEnds = new double[NUM_OF_CASES];
+    for(int i = 0; i < NUM_OF_CASES; i++) {
+      VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(
+        random.nextInt(VehicleSpecDatabase.getNumOfSpec()));
+      v1s[i] = V_TOP * random.nextDouble();
+      dTotals[i] = 1.0 + 149.0 * random.nextDouble();
+      vEndMaxs[i] = V_TOP * random.nextDouble();
+      accels[i] = spec.getMaxAcceleration();
+      decels[i] = spec.getMaxDeceleration();
+      ArrivalEstimationResult result = estimateCase(i);
+      if (result != null) {
+        timeEnds[i] = result.getArrivalTime() + 3.0 * random.nextDouble();
+        vEnds[i] = result.getArrivalVelocity();
+      } else {
+        timeEnds[i] = dTotals[i] / V_TOP;
+        vEnds[i] = vEndMaxs[i];
+      }
+    }
+    next = 0;
+  }
+
+  /**
+   * Estimate the arrival of the next parameter set.
+   *
+   * @return the arrival estimation; null if there is no solution
+   */
+  @Benchmark
+  public ArrivalEstimationResult estimate() {
+    int i = next;
+    next = (next + 1) % NUM_OF_CASES;
+    return estimateCase(i);
+  }
+
+  /**
+   * Check whether the vehicle of the next parameter set can meet its
+   * confirmed arrival time and velocity.
+   *
+   * @return the acceleration schedule; null if the check fails
+   */
+  @Benchmark
+  public AccelSchedule check() {
+    int i = next;
+    next = (next + 1) % NUM_OF_CASES;
+    try {
+      return MaxAccelReservationCheck.check(0.0, v1s[i],
+                                            timeEnds[i], vEnds[i],
+                                            dTotals[i],
+                                            V_TOP,
+                                            accels[i], decels[i]);
+    } catch(ReservationCheckException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Estimate the arrival of a parameter set.
+   *
+   * @param i  the index of the parameter set
+   * @return the arrival estimation; null if there is no solution
+   */
+  private ArrivalEstimationResult estimateCase(int i) {
+    try {
+      return VelocityFirstArrivalEstimation.estimate(0.0, v1s[i],
+                                                     dTotals[i],
+                                                     V_TOP,
+                                                     vEndMaxs[i],
+                                                     accels[i], decels[i]);
+    } catch(ArrivalEstimationException e) {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,171 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.im.v2i.reservation.ReservationArray;
+import aim4.im.v2i.reservation.ReservationArray.TimeTile;
+
+/**
+ * The cost of the operations of a reservation array that holds the
+ * reservations of the vehicles crossing an intersection in the next 12
+ * seconds.  A reservation is a block of tiles that moves across the grid
+ * over 60 time steps, about 600 time-tiles in total.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReservationArrayBenchmark {
+
+  /** The number of discrete time steps covered by the reservations */
+  private static final int TIME_WINDOW = 600;
+  /** The number of time steps of a reservation */
+  private static final int RESERVATION_STEPS = 60;
+  /** The number of reservations in the array */
+  private static final int NUM_OF_BACKGROUND_RESERVATIONS = 200;
+  /** The number of distinct reservations that are reserved and cancelled */
+  private static final int NUM_OF_RESERVATIONS = 256;
+  /** The first reservation ID of the reservations that are reserved */
+  private static final int FIRST_RID = 1000000;
+
+  /** The number of tiles in each row and each column of the grid */
+  @Param({"20", "100"})
+  public int gridSide;
+
+  /** The reservation array */
+  private ReservationArray array;
+  /** The working lists of the reservations that are reserved */
+  private List<List<TimeTile>> workingLists;
+  /** The index of the next working list */
+  private int next;
+
+  /**
+   * Create the reservation array, reserve the background reservations and
+   * create the working lists.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    Random random = new Random(Scenarios.SEED);
+    array = new ReservationArray(gridSide * gridSide);
+    for(int rid = 0; rid < NUM_OF_BACKGROUND_RESERVATIONS; rid++) {
+      // some of them conflict with earlier ones and are not reserved
+      array.reserve(rid, makeWorkingList(random));
+    }
+    workingLists = new ArrayList<List<TimeTile>>(NUM_OF_RESERVATIONS);
+    for(int i = 0; i < NUM_OF_RESERVATIONS; i++) {
+      workingLists.add(makeWorkingList(random));
+    }
+    next = 0;
+  }
+
+  /**
+   * Try to reserve the next working list and cancel the reservation again.
+   *
+   * @return whether the working list could be reserved
+   */
+  @Benchmark
+  public boolean reserveAndCancel() {
+    int i = next;
+    next = (next + 1) % NUM_OF_RESERVATIONS;
+    boolean isReserved = array.reserve(FIRST_RID + i, workingLists.get(i));
+    array.cancel(FIRST_RID + i);
+    return isReserved;
+  }
+
+  /**
+   * Check whether any time-tile of the next working list is reserved, the
+   * way a reservation query probes the array.
+   *
+   * @return the number of reserved time-tiles
+   */
+  @Benchmark
+  public int isReserved() {
+    int i = next;
+    next = (next + 1) % NUM_OF_RESERVATIONS;
+    int n = 0;
+    for(TimeTile timeTile : workingLists.get(i)) {
+      if (array.isReserved(timeTile.getDiscreteTime(),
+                           timeTile.getTileId())) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Make the working list of a block of 2x5 tiles that moves one tile every
+   * 6 time steps in a random direction from a random start.
+   *
+   * @param random  the random number generator
+   * @return the working list
+   */
+  private List<TimeTile> makeWorkingList(Random random) {
+    int startDt = random.nextInt(TIME_WINDOW - RESERVATION_STEPS);
+    int x0 = random.nextInt(gridSide);
+    int y0 = random.nextInt(gridSide);
+    boolean isHorizontal = random.nextBoolean();
+    List<TimeTile> workingList =
+      new ArrayList<TimeTile>(RESERVATION_STEPS * 10);
+    for(int step = 0; step < RESERVATION_STEPS; step++) {
+      int shift = step / 6;
+      for(int i = 0; i < 2; i++) {
+        for(int j = 0; j < 5; j++) {
+          int x = isHorizontal ? x0 + shift + j : x0 + i;
+          int y = isHorizontal ? y0 + i : y0 + shift + j;
+          workingList.add(new TimeTile(startDt + step,
+                                       (y % gridSide) * gridSide
+                                         + (x % gridSide)));
+        }
+      }
+    }
+    return workingList;
+  }
+}
@@ -0,0 +1,166 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.config.Constants.TurnDirection;
+import aim4.im.Intersection;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.reservation.ReservationGridManager;
+import aim4.map.lane.Lane;
+import aim4.msg.v2i.Request;
+import aim4.sim.Simulator;
+import aim4.sim.setup.AutoDriverOnlySimSetup;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+import aim4.vehicle.VehicleUtil;
+
+/**
+ * The cost of a reservation grid query, that is, of the internal simulation
+ * of a test vehicle against the reservations of a 1x1 grid in a steady
+ * state.  The queries cover all lane pairs that vehicles use, with random
+ * arrival times, velocities and vehicle specifications; some of them
+ * succeed and some of them hit reserved tiles.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ReservationQueryBenchmark {
+
+  /** The number of distinct queries */
+  private static final int NUM_OF_QUERIES = 256;
+
+  /** The maximum number of footprints in the footprint cache */
+  @Param({"0", "1024"})
+  public int footprintCacheSize;
+
+  /** The reservation grid manager */
+  private ReservationGridManager gridManager;
+  /** The queries */
+  private ReservationGridManager.Query[] queries;
+  /** The index of the next query */
+  private int next;
+
+  /**
+   * Create a 1x1 grid in a steady state and the queries.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    AutoDriverOnlySimSetup simSetup = Scenarios.makeSimSetup(1, 0.28);
+    simSetup.setFootprintCache(footprintCacheSize, 0.0, 0.0);
+    Simulator sim = Scenarios.makeWarmSimulator(simSetup);
+    V2IManager im = Scenarios.getFirstV2IManager(sim);
+    gridManager = im.getReservationGridManager();
+
+    // the lane pairs: going straight and turning into the lane with the
+    // same index on the departure road
+    Intersection intersection = im.getIntersection();
+    List<Lane[]> lanePairs = new ArrayList<Lane[]>();
+    for(Lane arrivalLane : intersection.getEntryLanes()) {
+      for(Lane departureLane : intersection.getExitLanes()) {
+        if (intersection.calcTurnDirection(arrivalLane, departureLane)
+              != TurnDirection.U_TURN
+            && laneIndex(intersection, arrivalLane)
+                 == laneIndex(intersection, departureLane)) {
+          lanePairs.add(new Lane[] { arrivalLane, departureLane });
+        }
+      }
+    }
+
+    Random random = new Random(Scenarios.SEED);
+    queries = new ReservationGridManager.Query[NUM_OF_QUERIES];
+    for(int i = 0; i < NUM_OF_QUERIES; i++) {
+      Lane[] lanePair = lanePairs.get(random.nextInt(lanePairs.size()));
+      VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(
+        random.nextInt(VehicleSpecDatabase.getNumOfSpec()));
+      double maxTurnVelocity =
+        VehicleUtil.maxTurnVelocity(spec, lanePair[0], lanePair[1], im);
+      double arrivalVelocity =
+        Math.min(maxTurnVelocity, 5.0 + 20.0 * random.nextDouble());
+      double arrivalTime =
+        sim.getSimulationTime() + 1.0 + 5.0 * random.nextDouble();
+      queries[i] =
+        new ReservationGridManager.Query(1000000 + i,
+                                         arrivalTime,
+                                         arrivalVelocity,
+                                         lanePair[0].getId(),
+                                         lanePair[1].getId(),
+                                         new Request.VehicleSpecForRequestMsg(
+                                           spec),
+                                         maxTurnVelocity,
+                                         true);
+    }
+    next = 0;
+  }
+
+  /**
+   * Run the next query.
+   *
+   * @return the reservation plan; null if the query fails
+   */
+  @Benchmark
+  public ReservationGridManager.Plan query() {
+    ReservationGridManager.Query q = queries[next];
+    next = (next + 1) % NUM_OF_QUERIES;
+    return gridManager.query(q);
+  }
+
+  /**
+   * Get the index of a lane on its road.
+   *
+   * @param intersection  the intersection
+   * @param lane          the lane
+   * @return the index of the lane on its road
+   */
+  private static int laneIndex(Intersection intersection, Lane lane) {
+    return intersection.getRoad(lane).getLanes().indexOf(lane);
+  }
+}
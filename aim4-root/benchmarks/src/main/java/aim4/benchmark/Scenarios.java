@@ -0,0 +1,154 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.util.List;
+
+import aim4.config.SimConfig;
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.sim.Simulator;
+import aim4.sim.setup.AutoDriverOnlySimSetup;
+import aim4.sim.setup.BasicSimSetup;
+import aim4.sim.setup.SimFactory;
+
+/**
+ * The simulation scenarios shared by the benchmarks.  All scenarios use the
+ * default settings of the GUI and a fixed random seed, so that the results
+ * of different releases can be compared.
+ */
+public final class Scenarios {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The random seed of the scenarios. {@value} */
+  public static final long SEED = 20110101L;
+
+  /**
+   * The simulation time, in seconds, after which a scenario is in a steady
+   * state. {@value} seconds.
+   */
+  public static final double WARM_UP_TIME = 60.0;
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Make the setup of a square grid of FCFS intersections with uniform
+   * random traffic.
+   *
+   * @param gridSize      the number of columns and rows
+   * @param trafficLevel  the traffic level
+   * @return the simulation setup
+   */
+  public static AutoDriverOnlySimSetup makeSimSetup(int gridSize,
+                                                    double trafficLevel) {
+    BasicSimSetup basicSimSetup =
+      new BasicSimSetup(gridSize, // columns
+                        gridSize, // rows
+                        4,        // lane width
+                        25.0,     // speed limit
+                        3,        // lanes per road
+                        1,        // median size
+                        150,      // distance between
+                        trafficLevel,
+                        1.0);     // stop distance before intersection
+    AutoDriverOnlySimSetup simSetup =
+      new AutoDriverOnlySimSetup(basicSimSetup);
+    simSetup.setUniformRandomTraffic(trafficLevel);
+    return simSetup;
+  }
+
+  /**
+   * Make a simulator of a square grid of FCFS intersections.
+   *
+   * @param gridSize      the number of columns and rows
+   * @param trafficLevel  the traffic level
+   * @return the simulator
+   */
+  public static Simulator makeSimulator(int gridSize, double trafficLevel) {
+    return SimFactory.makeSimulator(makeSimSetup(gridSize, trafficLevel),
+                                    SEED);
+  }
+
+  /**
+   * Make a simulator of a square grid of FCFS intersections and run it
+   * until it is in a steady state.
+   *
+   * @param gridSize      the number of columns and rows
+   * @param trafficLevel  the traffic level
+   * @return the simulator
+   */
+  public static Simulator makeWarmSimulator(int gridSize,
+                                            double trafficLevel) {
+    return makeWarmSimulator(makeSimSetup(gridSize, trafficLevel));
+  }
+
+  /**
+   * Make a simulator and run it until it is in a steady state.
+   *
+   * @param simSetup  the simulation setup
+   * @return the simulator
+   */
+  public static Simulator makeWarmSimulator(AutoDriverOnlySimSetup simSetup) {
+    Simulator sim = SimFactory.makeSimulator(simSetup, SEED);
+    while(sim.getSimulationTime() < WARM_UP_TIME) {
+      sim.step(SimConfig.TIME_STEP);
+    }
+    return sim;
+  }
+
+  /**
+   * Get the first V2I intersection manager of a simulator.
+   *
+   * @param sim  the simulator
+   * @return the first V2I intersection manager
+   */
+  public static V2IManager getFirstV2IManager(Simulator sim) {
+    List<IntersectionManager> ims = sim.getMap().getIntersectionManagers();
+    for(IntersectionManager im : ims) {
+      if (im instanceof V2IManager) {
+        return (V2IManager) im;
+      }
+    }
+    throw new IllegalStateException("The map has no V2I manager");
+  }
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /** This class should never be instantiated. */
+  private Scenarios() {}
+}
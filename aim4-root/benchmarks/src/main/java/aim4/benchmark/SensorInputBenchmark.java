@@ -0,0 +1,224 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.config.SimConfig;
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.sim.LaneOccupancyIndex;
+import aim4.sim.Simulator;
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * The old and the new ways in which the simulator orders the vehicles on
+ * the lanes when it provides the sensor input.  The old way builds a
+ * sorted map for every lane in every step, merges the maps of chained lanes
+ * and derives a map from vehicles to next vehicles; the new way updates a
+ * {@link LaneOccupancyIndex}.  Both benchmarks look up the next vehicle of
+ * every vehicle, as the intervalometers do.  The rest of the sensor input
+ * is the same in both ways and is not measured.
+ * <p>
+ * The simulator advances by one step before each invocation, so that the
+ * vehicles move between the updates as they do in a run.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class SensorInputBenchmark {
+
+  /** The number of columns and rows of the grid */
+  @Param({"1", "3"})
+  public int gridSize;
+
+  /** The traffic level */
+  @Param({"0.28", "0.5"})
+  public double trafficLevel;
+
+  /** The simulator */
+  private Simulator sim;
+  /** The map */
+  private BasicMap map;
+  /** The active vehicles after the last step */
+  private Set<VehicleSimView> vehicles;
+  /** The index of the vehicles on the lanes */
+  private LaneOccupancyIndex laneIndex;
+
+  /**
+   * Create a simulator in a steady state and the index of its vehicles.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    sim = Scenarios.makeWarmSimulator(gridSize, trafficLevel);
+    map = sim.getMap();
+    vehicles = sim.getActiveVehicles();
+    laneIndex = new LaneOccupancyIndex(map);
+    laneIndex.update(vehicles);
+  }
+
+  /**
+   * Advance the simulation by one time step.
+   */
+  @Setup(Level.Invocation)
+  public void step() {
+    sim.step(SimConfig.TIME_STEP);
+    vehicles = sim.getActiveVehicles();
+  }
+
+  /**
+   * Order the vehicles on the lanes in the old way and find the next
+   * vehicle of every vehicle.
+   *
+   * @return the number of vehicles that have a next vehicle
+   */
+  @Benchmark
+  public int oldOrdering() {
+    Map<VehicleSimView,VehicleSimView> nextVehicle =
+      computeNextVehicle(computeVehicleLists());
+    int n = 0;
+    for(VehicleSimView vehicle : vehicles) {
+      if (nextVehicle.get(vehicle) != null) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Update the lane index and find the next vehicle of every vehicle.
+   *
+   * @return the number of vehicles that have a next vehicle
+   */
+  @Benchmark
+  public int newOrdering() {
+    laneIndex.update(vehicles);
+    int n = 0;
+    for(VehicleSimView vehicle : vehicles) {
+      if (laneIndex.getNextVehicle(vehicle) != null) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Compute the lists of vehicles of all lanes, as the simulator did before
+   * it kept a lane index.
+   *
+   * @return a mapping from lanes to lists of vehicles sorted by their
+   *         distance on their lanes
+   */
+  private Map<Lane,SortedMap<Double,VehicleSimView>> computeVehicleLists() {
+    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists =
+      new HashMap<Lane,SortedMap<Double,VehicleSimView>>();
+    for(Road road : map.getRoads()) {
+      for(Lane lane : road.getLanes()) {
+        vehicleLists.put(lane, new TreeMap<Double,VehicleSimView>());
+      }
+    }
+    for(VehicleSimView vehicle : vehicles) {
+      Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
+      for(Lane lane : lanes) {
+        IntersectionManager im =
+          lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
+        if(lane.getLaneIM().distanceToNextIntersection(vehicle.getPosition())>0
+            || im == null || !im.intersects(vehicle.getShape().getBounds2D())) {
+          double dst = lane.distanceAlongLane(vehicle.getPosition());
+          vehicleLists.get(lane).put(dst, vehicle);
+        }
+      }
+    }
+    for(Road road : map.getRoads()) {
+      for(Lane lane : road.getLanes()) {
+        if(vehicleLists.containsKey(lane)) {
+          Lane currLane = lane;
+          while(currLane.hasNextLane()) {
+            currLane = currLane.getNextLane();
+            vehicleLists.get(lane).putAll(vehicleLists.remove(currLane));
+          }
+        }
+      }
+    }
+    return vehicleLists;
+  }
+
+  /**
+   * Compute the next vehicles of all vehicles, as the simulator did before
+   * it kept a lane index.
+   *
+   * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
+   *                      their distance on their lanes
+   * @return a mapping from vehicles to next vehicles
+   */
+  private static Map<VehicleSimView,VehicleSimView> computeNextVehicle(
+    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists) {
+    Map<VehicleSimView,VehicleSimView> nextVehicle =
+      new HashMap<VehicleSimView,VehicleSimView>();
+    for(SortedMap<Double,VehicleSimView> vehicleList : vehicleLists.values()) {
+      VehicleSimView lastVehicle = null;
+      for(VehicleSimView currVehicle : vehicleList.values()) {
+        if(lastVehicle != null) {
+          nextVehicle.put(lastVehicle, currVehicle);
+        }
+        lastVehicle = currVehicle;
+      }
+    }
+    return nextVehicle;
+  }
+}
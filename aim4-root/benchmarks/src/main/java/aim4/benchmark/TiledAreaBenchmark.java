@@ -0,0 +1,152 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.awt.Shape;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.im.v2i.V2IManager;
+import aim4.util.GeomUtil;
+import aim4.util.TiledArea;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The cost of finding the tiles occupied by the footprint of a vehicle in
+ * the intersection of a 1x1 grid, with the corner-based method used by the
+ * reservation grid manager and with the older shape-based method.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class TiledAreaBenchmark {
+
+  /** The number of distinct footprints */
+  private static final int NUM_OF_FOOTPRINTS = 1024;
+  /** The static buffer around the vehicles, as in the default setup */
+  private static final double STATIC_BUFFER_SIZE = 0.25;
+
+  /** The side length of the tiles */
+  @Param({"1.0", "0.5", "0.25"})
+  public double tileLength;
+
+  /** The tiled area of the intersection */
+  private TiledArea tiledArea;
+  /** The x-coordinates of the corners of the footprints */
+  private double[][] xs;
+  /** The y-coordinates of the corners of the footprints */
+  private double[][] ys;
+  /** The footprints as shapes */
+  private Shape[] shapes;
+  /** The buffer of the IDs of the occupied tiles */
+  private int[] tileIds;
+  /** The index of the next footprint */
+  private int next;
+
+  /**
+   * Create the tiled area and the footprints.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    V2IManager im =
+      Scenarios.getFirstV2IManager(Scenarios.makeSimulator(1, 0.28));
+    tiledArea = new TiledArea(im.getIntersection().getArea(), tileLength);
+    tileIds = new int[tiledArea.getNumberOfTiles()];
+
+    Rectangle2D bounds = im.getIntersection().getArea().getBounds2D();
+    Random random = new Random(Scenarios.SEED);
+    xs = new double[NUM_OF_FOOTPRINTS][4];
+    ys = new double[NUM_OF_FOOTPRINTS][4];
+    shapes = new Shape[NUM_OF_FOOTPRINTS];
+    for(int i = 0; i < NUM_OF_FOOTPRINTS; i++) {
+      VehicleSpec spec = VehicleSpecDatabase.getVehicleSpecById(
+        random.nextInt(VehicleSpecDatabase.getNumOfSpec()));
+      Point2D pos =
+        new Point2D.Double(bounds.getMinX()
+                             + bounds.getWidth() * random.nextDouble(),
+                           bounds.getMinY()
+                             + bounds.getHeight() * random.nextDouble());
+      double heading = 2.0 * Math.PI * random.nextDouble();
+      spec.getCornerPoints(STATIC_BUFFER_SIZE, pos, heading, xs[i], ys[i]);
+      for(int j = 0; j < 4; j++) {
+        xs[i][j] = (float)xs[i][j];
+        ys[i][j] = (float)ys[i][j];
+      }
+      shapes[i] = GeomUtil.convertPointsToShape(
+                    spec.getCornerPoints(STATIC_BUFFER_SIZE, pos, heading));
+    }
+    next = 0;
+  }
+
+  /**
+   * Find the tiles occupied by the next footprint given by its corners.
+   *
+   * @return the number of occupied tiles
+   */
+  @Benchmark
+  public int corners() {
+    int i = next;
+    next = (next + 1) % NUM_OF_FOOTPRINTS;
+    return tiledArea.findOccupiedTiles(xs[i], ys[i], tileIds);
+  }
+
+  /**
+   * Find the tiles occupied by the next footprint given by its shape.
+   *
+   * @return the occupied tiles
+   */
+  @Benchmark
+  public List<TiledArea.Tile> shape() {
+    int i = next;
+    next = (next + 1) % NUM_OF_FOOTPRINTS;
+    return tiledArea.findOccupiedTiles(shapes[i]);
+  }
+}
@@ -0,0 +1,216 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.map.BasicMap;
+import aim4.map.SpawnPoint;
+import aim4.map.lane.Lane;
+import aim4.sim.LaneOccupancyIndex;
+import aim4.sim.Simulator;
+import aim4.sim.VehicleSpatialIndex;
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * The cost of the per-step maintenance and the queries of the vehicle
+ * indexes of the simulator, on the vehicles of a grid in a steady state
+ * with heavy traffic.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VehicleIndexBenchmark {
+
+  /** The number of distinct points for the nearest lane queries */
+  private static final int NUM_OF_POINTS = 256;
+
+  /** The number of columns and rows of the grid */
+  @Param({"1", "3", "10"})
+  public int gridSize;
+
+  /** The active vehicles, in the order of their VINs */
+  private List<VehicleSimView> vehicles;
+  /** The no-vehicle zones of the spawn points */
+  private List<Rectangle2D> noVehicleZones;
+  /** The points for the nearest lane queries */
+  private Point2D[] points;
+  /** The index of the vehicles on the lanes */
+  private LaneOccupancyIndex laneIndex;
+  /** The spatial index of the vehicles */
+  private VehicleSpatialIndex spatialIndex;
+  /** The index of the next point */
+  private int next;
+
+  /**
+   * Create a grid in a steady state and the indexes of its vehicles.
+   */
+  @Setup(Level.Trial)
+  public void setUp() {
+    Simulator sim = Scenarios.makeWarmSimulator(gridSize, 0.5);
+    BasicMap map = sim.getMap();
+
+    vehicles = new ArrayList<VehicleSimView>(sim.getActiveVehicles());
+    Collections.sort(vehicles, new Comparator<VehicleSimView>() {
+      @Override
+      public int compare(VehicleSimView v1, VehicleSimView v2) {
+        return v1.getVIN() - v2.getVIN();
+      }
+    });
+    noVehicleZones = new ArrayList<Rectangle2D>();
+    for(SpawnPoint spawnPoint : map.getSpawnPoints()) {
+      noVehicleZones.add(spawnPoint.getNoVehicleZone());
+    }
+    Rectangle2D bounds = map.getDimensions();
+    Random random = new Random(Scenarios.SEED);
+    points = new Point2D[NUM_OF_POINTS];
+    for(int i = 0; i < NUM_OF_POINTS; i++) {
+      points[i] =
+        new Point2D.Double(bounds.getMinX()
+                             + bounds.getWidth() * random.nextDouble(),
+                           bounds.getMinY()
+                             + bounds.getHeight() * random.nextDouble());
+    }
+
+    laneIndex = new LaneOccupancyIndex(map);
+    laneIndex.update(vehicles);
+    spatialIndex = new VehicleSpatialIndex(map);
+    for(VehicleSimView vehicle : vehicles) {
+      spatialIndex.add(vehicle);
+    }
+    next = 0;
+  }
+
+  /**
+   * Update the lane index, as the simulator does when it provides the
+   * sensor input.  The vehicles do not move between the updates, so this
+   * is the cost of a step in which no vehicle changes its order.
+   *
+   * @return the lane index
+   */
+  @Benchmark
+  public LaneOccupancyIndex updateLaneIndex() {
+    laneIndex.update(vehicles);
+    return laneIndex;
+  }
+
+  /**
+   * Rebuild the spatial index, as the simulator does after moving the
+   * vehicles.
+   *
+   * @return the spatial index
+   */
+  @Benchmark
+  public VehicleSpatialIndex rebuildSpatialIndex() {
+    spatialIndex.clear();
+    for(VehicleSimView vehicle : vehicles) {
+      spatialIndex.add(vehicle);
+    }
+    return spatialIndex;
+  }
+
+  /**
+   * Check whether the spawn points can spawn vehicles.
+   *
+   * @return the number of spawn points that can spawn vehicles
+   */
+  @Benchmark
+  public int canSpawn() {
+    int n = 0;
+    for(Rectangle2D zone : noVehicleZones) {
+      if (!spatialIndex.isAnyVehicleIn(zone)) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Check whether the spawn points can spawn vehicles by testing the shape
+   * of every vehicle against every no-vehicle zone, as the simulator did
+   * before it kept a spatial index.
+   *
+   * @return the number of spawn points that can spawn vehicles
+   */
+  @Benchmark
+  public int canSpawnByScan() {
+    int n = 0;
+    for(Rectangle2D zone : noVehicleZones) {
+      boolean isClear = true;
+      for(VehicleSimView vehicle : vehicles) {
+        if (vehicle.getShape().intersects(zone)) {
+          isClear = false;
+          break;
+        }
+      }
+      if (isClear) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Find the nearest lane of the next point, as the simulator does when it
+   * adds a proxy vehicle.
+   *
+   * @return the nearest lane
+   */
+  @Benchmark
+  public Lane findNearestLane() {
+    Point2D p = points[next];
+    next = (next + 1) % NUM_OF_POINTS;
+    return spatialIndex.findNearestLane(p);
+  }
+}
@@ -0,0 +1,100 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.benchmark;
+
+import java.awt.geom.Point2D;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import aim4.config.SimConfig;
+import aim4.vehicle.BasicAutoVehicle;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The cost of moving a vehicle by one time step, including the update of
+ * its gauges and memoized shapes.  The vehicle accelerates from 10 m/s
+ * towards 25 m/s, either straight or with a fixed steering angle.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class VehicleMoveBenchmark {
+
+  /** The steering angle of the vehicle */
+  @Param({"0.0", "0.1"})
+  public double steeringAngle;
+
+  /** The vehicle */
+  private BasicAutoVehicle vehicle;
+
+  /**
+   * Create the vehicle.  A new vehicle is created for every iteration so
+   * that all iterations start from the same state.
+   */
+  @Setup(Level.Iteration)
+  public void setUp() {
+    vehicle =
+      new BasicAutoVehicle(VehicleSpecDatabase.getVehicleSpecByName("SEDAN"),
+                           new Point2D.Double(0.0, 0.0),
+                           0.0,   // heading
+                           steeringAngle,
+                           10.0,  // velocity
+                           25.0,  // target velocity
+                           2.0,   // acceleration
+                           0.0);  // current time
+  }
+
+  /**
+   * Move the vehicle by one time step.
+   *
+   * @return the vehicle
+   */
+  @Benchmark
+  public BasicAutoVehicle move() {
+    vehicle.move(SimConfig.TIME_STEP);
+    return vehicle;
+  }
+}
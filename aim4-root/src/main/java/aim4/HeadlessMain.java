@@ -0,0 +1,513 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.reservation.FootprintCache;
+import aim4.im.v2i.reservation.ReservationGridManager;
+import aim4.sim.HeadlessRunner;
+import aim4.sim.Simulator;
+import aim4.sim.SweepRunner;
+import aim4.sim.setup.ApproxNPhasesTrafficSignalSimSetup;
+import aim4.sim.setup.ApproxStopSignSimSetup;
+import aim4.sim.setup.AutoDriverOnlySimSetup;
+import aim4.sim.setup.BasicSimSetup;
+import aim4.sim.setup.SimFactory;
+import aim4.sim.setup.SimSetup;
+import aim4.util.Util;
+
+/**
+ * The main class to run a simulation without the GUI.
+ * <p>
+ * The settings are read from an optional properties file given by
+ * <code>--config FILE</code> and can be overridden by command-line options of
+ * the form <code>--key value</code> or <code>--key=value</code>.  The keys
+ * are:
+ * <pre>
+ *   columns, rows, laneWidth, speedLimit, lanesPerRoad, medianSize,
+ *   distanceBetween, trafficLevel, stopDist   the basic simulator setup
+ *   policy         fcfs, batch, stop-sign or signal
+ *   traffic        uniform-random or uniform-turnbased
+ *   trafficVolume  the traffic volume file
+ *   arrivalTrace   the arrival trace file to replay instead of generating
+ *                  the traffic (see aim4.map.ArrivalTraceReader)
+ *   footprintCacheSize, footprintVelocityQuantum, footprintPhaseQuantum
+ *                  the footprint caches of the reservation grid managers
+ *                  (fcfs and batch policies only); both quanta 0 turn
+ *                  the caches off and reserve the exact footprints
+ *   footprintMethod
+ *                  simulation, analytic or validation: how the reservation
+ *                  grid managers find the footprints of the test vehicles
+ *                  (fcfs and batch policies only)
+ *   stepThreads    the number of threads that execute the driver and the
+ *                  intersection manager phases of a simulation step
+ *   proposalThreads
+ *                  the number of threads that evaluate the proposals of a
+ *                  request at each intersection manager (fcfs and batch
+ *                  policies only)
+ *   signalPhases   the signal phase file (signal policy only)
+ *   simTime        the simulation time at which the run stops (0: none)
+ *   vehicles       the number of completed vehicles at which the run stops
+ *                  (0: none)
+ *   seed           the random seed
+ *   repeat         the number of runs; run i uses the random seed seed+i
+ *   threads        the number of runs that are executed concurrently
+ *   dclOutput      the output file of the data collection lines
+ *   imOutput       the prefix of the output files of the intersection managers
+ *   arrivalOutput  the output file of the arrivals at the spawn points, which
+ *                  can be replayed by arrivalTrace
+ * </pre>
+ * When there is more than one run, the index of a run is appended to the
+ * names of its output files.
+ */
+public class HeadlessMain {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The default settings, which are the same as the ones of the GUI */
+  private static final String[][] DEFAULT_SETTINGS = {
+    {"columns", "1"},
+    {"rows", "1"},
+    {"laneWidth", "4"},
+    {"speedLimit", "25.0"},
+    {"lanesPerRoad", "3"},
+    {"medianSize", "1"},
+    {"distanceBetween", "150"},
+    {"trafficLevel", "0.28"},
+    {"stopDist", "1.0"},
+    {"policy", "fcfs"},
+    {"traffic", "uniform-random"},
+    {"signalPhases", "/SignalPhases/AIM4Phases.csv"},
+    {"simTime", "1800"},
+    {"vehicles", "0"},
+    {"repeat", "1"},
+    {"threads", "1"},
+    {"footprintCacheSize", "1024"},
+    {"footprintVelocityQuantum", "0.25"},
+    {"footprintPhaseQuantum", "0.02"},
+    {"footprintMethod", "simulation"},
+    {"proposalThreads", "1"},
+    {"stepThreads", "1"},
+  };
+
+  /////////////////////////////////
+  // THE MAIN FUNCTION
+  /////////////////////////////////
+
+  /**
+   * The main function of the headless simulator.
+   *
+   * @param args  the command-line arguments
+   */
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+
+    Properties settings;
+    SimSetup simSetup;
+    double simTime;
+    int vehicles;
+    long randSeed;
+    int repeat;
+    int threads;
+    try {
+      settings = parseArguments(args);
+      simSetup = makeSimSetup(settings);
+      simTime = getDouble(settings, "simTime");
+      vehicles = getInt(settings, "vehicles");
+      if (settings.getProperty("seed") != null) {
+        randSeed = getLong(settings, "seed");
+      } else {
+        randSeed = Util.makeRandomSeed();
+      }
+      repeat = getInt(settings, "repeat");
+      threads = getInt(settings, "threads");
+      if (repeat < 1 || threads < 1) {
+        throw new IllegalArgumentException("repeat and threads must be "
+                                           + "positive");
+      }
+    } catch(IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      printUsage();
+      System.exit(1);
+      return;
+    }
+    System.err.println("randSeed = " + randSeed + "L");
+
+    if (repeat == 1) {
+      Simulator sim = SimFactory.makeSimulator(simSetup, randSeed);
+      HeadlessRunner runner = new HeadlessRunner(sim, simTime, vehicles);
+      if (settings.getProperty("dclOutput") != null) {
+        runner.streamDataCollectionLinesData(settings.getProperty("dclOutput"));
+      }
+      if (settings.getProperty("arrivalOutput") != null) {
+        runner.recordArrivals(settings.getProperty("arrivalOutput"));
+      }
+      HeadlessRunner.Result result = runner.run();
+      runner.printData(null, settings.getProperty("imOutput"));
+
+      System.out.println("seed=" + randSeed + " " + result);
+      printFootprintStats(sim);
+      sim.close();
+    } else {
+      runSweep(settings, simSetup, simTime, vehicles, randSeed, repeat,
+               threads);
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Parse the command-line arguments into the settings of a run.
+   *
+   * @param args  the command-line arguments
+   * @return the settings, including the default values of the settings that
+   *         are not given
+   * @throws IllegalArgumentException if the arguments are malformed or the
+   *                                  configuration file cannot be read
+   */
+  public static Properties parseArguments(String[] args) {
+    Properties defaults = new Properties();
+    for(String[] kv : DEFAULT_SETTINGS) {
+      defaults.setProperty(kv[0], kv[1]);
+    }
+    Properties fileSettings = new Properties(defaults);
+    Properties settings = new Properties(fileSettings);
+
+    for(int i = 0; i < args.length; i++) {
+      if (!args[i].startsWith("--")) {
+        throw new IllegalArgumentException("Unknown argument: " + args[i]);
+      }
+      String key = args[i].substring(2);
+      String value;
+      int eq = key.indexOf('=');
+      if (eq >= 0) {
+        value = key.substring(eq + 1);
+        key = key.substring(0, eq);
+      } else if (i + 1 < args.length) {
+        value = args[++i];
+      } else {
+        throw new IllegalArgumentException("Missing value of --" + key);
+      }
+      if (key.equals("config")) {
+        loadProperties(fileSettings, value);
+      } else {
+        settings.setProperty(key, value);
+      }
+    }
+    return settings;
+  }
+
+  /**
+   * Make a simulation setup according to the settings.
+   *
+   * @param settings  the settings
+   * @return the simulation setup
+   * @throws IllegalArgumentException if the policy or the traffic type is
+   *                                  unknown, or the arrival trace cannot
+   *                                  be opened
+   */
+  public static SimSetup makeSimSetup(Properties settings) {
+    BasicSimSetup basicSimSetup =
+      new BasicSimSetup(getInt(settings, "columns"),
+                        getInt(settings, "rows"),
+                        getDouble(settings, "laneWidth"),
+                        getDouble(settings, "speedLimit"),
+                        getInt(settings, "lanesPerRoad"),
+                        getDouble(settings, "medianSize"),
+                        getDouble(settings, "distanceBetween"),
+                        getDouble(settings, "trafficLevel"),
+                        getDouble(settings, "stopDist"));
+    basicSimSetup.setStepThreads(getInt(settings, "stepThreads"));
+    String policy = settings.getProperty("policy");
+    String trafficVolume = settings.getProperty("trafficVolume");
+    String arrivalTrace = settings.getProperty("arrivalTrace");
+    if (arrivalTrace != null && !new File(arrivalTrace).isFile()) {
+      throw new IllegalArgumentException("Cannot open file " + arrivalTrace);
+    }
+
+    if (policy.equals("fcfs") || policy.equals("batch")) {
+      AutoDriverOnlySimSetup simSetup =
+        new AutoDriverOnlySimSetup(basicSimSetup);
+      simSetup.setIsBatchMode(policy.equals("batch"));
+      simSetup.setFootprintCache(getInt(settings, "footprintCacheSize"),
+                                 getDouble(settings,
+                                           "footprintVelocityQuantum"),
+                                 getDouble(settings,
+                                           "footprintPhaseQuantum"));
+      simSetup.setFootprintMethod(getFootprintMethod(settings));
+      simSetup.setProposalThreads(getInt(settings, "proposalThreads"));
+      if (arrivalTrace != null) {
+        simSetup.setArrivalTrace(arrivalTrace);
+      } else if (trafficVolume != null) {
+        simSetup.setTrafficVolume(trafficVolume);
+      } else {
+        String traffic = settings.getProperty("traffic");
+        if (traffic.equals("uniform-random")) {
+          simSetup.setUniformRandomTraffic(basicSimSetup.getTrafficLevel());
+        } else if (traffic.equals("uniform-turnbased")) {
+          simSetup.setUniformTurnBasedTraffic(
+            basicSimSetup.getTrafficLevel());
+        } else {
+          throw new IllegalArgumentException("Unknown traffic: " + traffic);
+        }
+      }
+      return simSetup;
+    } else if (policy.equals("stop-sign")) {
+      ApproxStopSignSimSetup simSetup =
+        new ApproxStopSignSimSetup(basicSimSetup);
+      if (trafficVolume != null) {
+        simSetup.setTrafficVolume(trafficVolume);
+      }
+      if (arrivalTrace != null) {
+        simSetup.setArrivalTrace(arrivalTrace);
+      }
+      return simSetup;
+    } else if (policy.equals("signal")) {
+      ApproxNPhasesTrafficSignalSimSetup simSetup =
+        new ApproxNPhasesTrafficSignalSimSetup(
+          basicSimSetup, settings.getProperty("signalPhases"));
+      if (trafficVolume != null) {
+        simSetup.setTrafficVolume(trafficVolume);
+      }
+      if (arrivalTrace != null) {
+        simSetup.setArrivalTrace(arrivalTrace);
+      }
+      return simSetup;
+    } else {
+      throw new IllegalArgumentException("Unknown policy: " + policy);
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Run a sweep of simulations and print the result of each run and the
+   * overall throughput.
+   *
+   * @param settings  the settings
+   * @param simSetup  the simulation setup
+   * @param simTime   the simulation time at which each run stops
+   * @param vehicles  the number of completed vehicles at which each run stops
+   * @param randSeed  the random seed of the first run
+   * @param repeat    the number of runs
+   * @param threads   the number of threads
+   */
+  private static void runSweep(Properties settings, SimSetup simSetup,
+                               double simTime, int vehicles, long randSeed,
+                               int repeat, int threads) {
+    SweepRunner sweepRunner =
+      new SweepRunner(simSetup, simTime, vehicles, threads);
+    sweepRunner.setOutput(settings.getProperty("dclOutput"),
+                          settings.getProperty("imOutput"));
+    sweepRunner.setArrivalOutput(settings.getProperty("arrivalOutput"));
+    List<Long> randSeeds = new ArrayList<Long>(repeat);
+    for(int i = 0; i < repeat; i++) {
+      randSeeds.add(randSeed + i);
+    }
+
+    long startTime = System.nanoTime();
+    List<HeadlessRunner.Result> results = sweepRunner.run(randSeeds);
+    double wallTime = (System.nanoTime() - startTime) / 1e9;
+
+    long numOfSteps = 0;
+    for(int i = 0; i < results.size(); i++) {
+      System.out.println("run=" + i + " seed=" + randSeeds.get(i) + " "
+                         + results.get(i));
+      numOfSteps += results.get(i).getNumOfSteps();
+    }
+    System.out.println(String.format("runs=%d threads=%d wallTime=%.3fs "
+                                     + "stepsPerSec=%.1f",
+                                     repeat, threads, wallTime,
+                                     numOfSteps / wallTime));
+  }
+
+  /**
+   * Print the hits and the misses of the footprint caches of the
+   * reservation grid managers of a simulator and the differences between
+   * the simulated and the analytic footprints, if any.
+   *
+   * @param sim  the simulator
+   */
+  private static void printFootprintStats(Simulator sim) {
+    long hits = 0;
+    long misses = 0;
+    long footprints = 0;
+    long mismatchedFootprints = 0;
+    long timeTiles = 0;
+    long mismatchedTimeTiles = 0;
+    for(IntersectionManager im : sim.getMap().getIntersectionManagers()) {
+      if (im instanceof V2IManager) {
+        ReservationGridManager manager =
+          ((V2IManager) im).getReservationGridManager();
+        FootprintCache cache = manager.getFootprintCache();
+        hits += cache.getHits();
+        misses += cache.getMisses();
+        footprints += manager.getNumOfValidatedFootprints();
+        mismatchedFootprints += manager.getNumOfMismatchedFootprints();
+        timeTiles += manager.getNumOfValidatedTimeTiles();
+        mismatchedTimeTiles += manager.getNumOfMismatchedTimeTiles();
+      }
+    }
+    if (hits + misses > 0) {
+      System.err.println(String.format("footprintCache hits=%d misses=%d "
+                                       + "hitRate=%.3f",
+                                       hits, misses,
+                                       (double) hits / (hits + misses)));
+    }
+    if (footprints > 0) {
+      System.err.println(String.format("footprintValidation footprints=%d "
+                                       + "mismatched=%d timeTiles=%d "
+                                       + "mismatchedTimeTiles=%d",
+                                       footprints, mismatchedFootprints,
+                                       timeTiles, mismatchedTimeTiles));
+    }
+  }
+
+  /**
+   * Get the method of finding the footprints of the test vehicles.
+   *
+   * @param settings  the settings
+   * @return the method of finding the footprints
+   * @throws IllegalArgumentException if the method is unknown
+   */
+  private static ReservationGridManager.FootprintMethod getFootprintMethod(
+                                                       Properties settings) {
+    String method = settings.getProperty("footprintMethod");
+    if (method.equals("simulation")) {
+      return ReservationGridManager.FootprintMethod.SIMULATION;
+    } else if (method.equals("analytic")) {
+      return ReservationGridManager.FootprintMethod.ANALYTIC;
+    } else if (method.equals("validation")) {
+      return ReservationGridManager.FootprintMethod.VALIDATION;
+    } else {
+      throw new IllegalArgumentException("Unknown footprint method: "
+                                         + method);
+    }
+  }
+
+  /**
+   * Load the settings in a properties file.
+   *
+   * @param settings  the settings to which the file content is added
+   * @param fileName  the name of the properties file
+   */
+  private static void loadProperties(Properties settings, String fileName) {
+    InputStream in = null;
+    try {
+      in = new FileInputStream(fileName);
+      settings.load(in);
+    } catch(IOException e) {
+      throw new IllegalArgumentException("Cannot read config file "
+                                         + fileName);
+    } finally {
+      if (in != null) {
+        try {
+          in.close();
+        } catch(IOException e) {
+          // ignore
+        }
+      }
+    }
+  }
+
+  /**
+   * Get an integer setting.
+   *
+   * @param settings  the settings
+   * @param key       the key of the setting
+   * @return the value of the setting
+   */
+  private static int getInt(Properties settings, String key) {
+    try {
+      return Integer.parseInt(settings.getProperty(key));
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of " + key + ": "
+                                         + settings.getProperty(key));
+    }
+  }
+
+  /**
+   * Get a long integer setting.
+   *
+   * @param settings  the settings
+   * @param key       the key of the setting
+   * @return the value of the setting
+   */
+  private static long getLong(Properties settings, String key) {
+    try {
+      return Long.parseLong(settings.getProperty(key));
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of " + key + ": "
+                                         + settings.getProperty(key));
+    }
+  }
+
+  /**
+   * Get a double setting.
+   *
+   * @param settings  the settings
+   * @param key       the key of the setting
+   * @return the value of the setting
+   */
+  private static double getDouble(Properties settings, String key) {
+    try {
+      return Double.parseDouble(settings.getProperty(key));
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of " + key + ": "
+                                         + settings.getProperty(key));
+    }
+  }
+
+  /**
+   * Print the usage of the headless simulator.
+   */
+  private static void printUsage() {
+    System.err.println("Usage: java -cp aim4.jar aim4.HeadlessMain "
+                       + "[--config FILE] [--key value]...");
+    System.err.println("See the documentation of aim4.HeadlessMain for "
+                       + "the list of keys.");
+  }
+}
@@ -0,0 +1,390 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Properties;
+
+import aim4.config.Debug;
+import aim4.config.SimConfig;
+import aim4.sim.RealVehicleFleet;
+import aim4.sim.Simulator;
+import aim4.sim.UdpListener;
+import aim4.sim.setup.SimFactory;
+import aim4.sim.setup.SimSetup;
+import aim4.util.Util;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The main class to load-test the proxy vehicles of a simulator with a
+ * fleet of emulated real vehicles over localhost UDP.
+ * <p>
+ * For each fleet size, a simulator is created and stepped in real time,
+ * a {@link UdpListener} is started on the given port, and a
+ * {@link RealVehicleFleet} of that size talks to the proxy vehicles for
+ * the given duration.  One line of statistics is printed per fleet size:
+ * the round-trip latencies of the requests, the lost requests, the
+ * messages dropped by the listener and the steps that fell behind real
+ * time.  The capacity of the proxy path is reached when the steps fall
+ * behind or the requests start to get lost.  The debug messages of the
+ * proxy vehicles and the UDP listener
+ * ({@link Debug#SHOW_PROXY_VEHICLE_DEBUG_MSG}) are turned off unless
+ * <code>proxyDebug</code> is true, since printing them for every message
+ * would distort the measurements.
+ * <p>
+ * The settings are given in the same way as the ones of
+ * {@link HeadlessMain}, which also accepts the keys of the simulator
+ * setup.  The traffic level is zero by default.  The additional keys are:
+ * <pre>
+ *   fleet          the comma-separated fleet sizes
+ *   duration       the wall-clock duration of each fleet size (seconds)
+ *   port           the UDP port of the listener
+ *   rate           the number of PV updates per second of a vehicle
+ *   velocity       the velocity of the vehicles (m/s)
+ *   requestPeriod  the time between the requests of a vehicle (seconds)
+ *   requestTimeout the time after which a request without a reply is
+ *                  lost (seconds)
+ *   proxyDebug     true or false: whether the proxy vehicles print their
+ *                  debug messages
+ * </pre>
+ */
+public class ProxyLoadMain {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The default settings, which precede the command-line arguments */
+  private static final String[] DEFAULT_ARGS = {
+    "--trafficLevel", "0",
+    "--fleet", "10,20,50,100",
+    "--duration", "10",
+    "--port", "46000",
+    "--rate", Double.toString(RealVehicleFleet.DEFAULT_PV_UPDATE_RATE),
+    "--velocity", Double.toString(RealVehicleFleet.DEFAULT_VELOCITY),
+    "--requestPeriod",
+      Double.toString(RealVehicleFleet.DEFAULT_REQUEST_PERIOD),
+    "--requestTimeout",
+      Double.toString(RealVehicleFleet.DEFAULT_REQUEST_TIMEOUT),
+    "--proxyDebug", "false",
+  };
+
+  /**
+   * The number of steps after a fleet stops for the simulator to process
+   * the last messages of the fleet
+   */
+  private static final int NUM_OF_DRAIN_STEPS = 10;
+
+  /////////////////////////////////
+  // THE MAIN FUNCTION
+  /////////////////////////////////
+
+  /**
+   * The main function of the load test.
+   *
+   * @param args  the command-line arguments
+   */
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+
+    String[] allArgs = new String[DEFAULT_ARGS.length + args.length];
+    System.arraycopy(DEFAULT_ARGS, 0, allArgs, 0, DEFAULT_ARGS.length);
+    System.arraycopy(args, 0, allArgs, DEFAULT_ARGS.length, args.length);
+
+    Properties settings;
+    int[] fleetSizes;
+    long randSeed;
+    try {
+      settings = HeadlessMain.parseArguments(allArgs);
+      // check the simulator setup once before running the fleets
+      HeadlessMain.makeSimSetup(settings);
+      String[] sizes = settings.getProperty("fleet").split(",");
+      fleetSizes = new int[sizes.length];
+      for(int i = 0; i < sizes.length; i++) {
+        try {
+          fleetSizes[i] = Integer.parseInt(sizes[i].trim());
+        } catch(NumberFormatException e) {
+          throw new IllegalArgumentException("Invalid value of fleet: "
+                                             + settings.getProperty("fleet"));
+        }
+      }
+      String proxyDebug = settings.getProperty("proxyDebug");
+      if (!proxyDebug.equals("true") && !proxyDebug.equals("false")) {
+        throw new IllegalArgumentException("Invalid value of proxyDebug: "
+                                           + proxyDebug);
+      }
+      Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG = proxyDebug.equals("true");
+      if (settings.getProperty("seed") != null) {
+        randSeed = getLong(settings, "seed");
+      } else {
+        randSeed = Util.makeRandomSeed();
+      }
+    } catch(IllegalArgumentException e) {
+      System.err.println(e.getMessage());
+      printUsage();
+      System.exit(1);
+      return;
+    }
+    registerProxyVehicleSpec();
+
+    for(int fleetSize : fleetSizes) {
+      try {
+        runFleet(settings, fleetSize, randSeed);
+      } catch(IllegalArgumentException e) {
+        System.err.println(e.getMessage());
+        printUsage();
+        System.exit(1);
+        return;
+      } catch(IOException e) {
+        System.err.println("Error: cannot open the UDP sockets of the "
+                           + "fleet: " + e.getMessage());
+        System.exit(1);
+        return;
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Run a fleet against a new simulator stepped in real time, and print
+   * the statistics of the run.
+   *
+   * @param settings   the settings
+   * @param fleetSize  the number of vehicles
+   * @param randSeed   the random seed of the simulator
+   * @throws IOException if the channels of the fleet cannot be opened
+   */
+  private static void runFleet(Properties settings, int fleetSize,
+                               long randSeed) throws IOException {
+    SimSetup simSetup = HeadlessMain.makeSimSetup(settings);
+    int port = getInt(settings, "port");
+    double duration = getDouble(settings, "duration");
+
+    Simulator sim = SimFactory.makeSimulator(simSetup, randSeed);
+    RealVehicleFleet fleet =
+      new RealVehicleFleet(sim.getMap(), fleetSize,
+                           new InetSocketAddress("127.0.0.1", port));
+    fleet.setPVUpdateRate(getDouble(settings, "rate"));
+    fleet.setVelocity(getDouble(settings, "velocity"));
+    fleet.setRequestPeriod(getDouble(settings, "requestPeriod"));
+    fleet.setRequestTimeout(getDouble(settings, "requestTimeout"));
+
+    UdpListener listener = new UdpListener(port, sim);
+    // the vehicles of the fleet share one host
+    listener.setVehicleUdpPort(0);
+    listener.start();
+    try {
+      fleet.start();
+    } catch(IOException e) {
+      listener.stop();
+      sim.close();
+      throw e;
+    }
+
+    long period = (long)(SimConfig.TIME_STEP * 1e9);
+    long[] stepTimes = new long[(int)(duration / SimConfig.TIME_STEP) + 1];
+    int numOfSteps = 0;
+    int numOfLateSteps = 0;
+    long numOfDroppedMessages;
+    long numOfCoalescedPVUpdates;
+    try {
+      long startTime = System.nanoTime();
+      long endTime = startTime + (long)(duration * 1e9);
+      long nextStepTime = startTime;
+      while (nextStepTime < endTime) {
+        long stepStartTime = System.nanoTime();
+        sim.step(SimConfig.TIME_STEP);
+        long stepEndTime = System.nanoTime();
+        if (numOfSteps < stepTimes.length) {
+          stepTimes[numOfSteps++] = stepEndTime - stepStartTime;
+        }
+        nextStepTime += period;
+        if (stepEndTime > nextStepTime) {
+          // the simulator has fallen behind real time; don't catch up
+          numOfLateSteps++;
+          nextStepTime = stepEndTime;
+        } else {
+          sleepUntil(nextStepTime);
+        }
+      }
+
+      fleet.stop();
+      for(int i = 0; i < NUM_OF_DRAIN_STEPS; i++) {
+        sleepUntil(System.nanoTime() + period);
+        sim.step(SimConfig.TIME_STEP);
+      }
+      numOfDroppedMessages = listener.getNumOfDroppedMessages();
+      numOfCoalescedPVUpdates = listener.getNumOfCoalescedPVUpdates();
+    } finally {
+      if (fleet.isRunning()) {
+        fleet.stop();
+      }
+      listener.stop();
+      sim.close();
+    }
+
+    long numOfRequests = fleet.getNumOfRequests();
+    System.out.println(String.format(
+      "fleet=%d pvUpdates=%d requests=%d confirms=%d rejects=%d "
+      + "cancels=%d dones=%d lost=%d lossRate=%.4f lateReplies=%d "
+      + "rttP50=%.2fms rttP90=%.2fms rttP99=%.2fms rttMax=%.2fms "
+      + "steps=%d lateSteps=%d stepP99=%.2fms "
+      + "droppedMsgs=%d coalescedPVUpdates=%d sendFailures=%d "
+      + "missedPeriods=%d",
+      fleetSize,
+      fleet.getNumOfPVUpdates(),
+      numOfRequests,
+      fleet.getNumOfConfirms(),
+      fleet.getNumOfRejects(),
+      fleet.getNumOfCancels(),
+      fleet.getNumOfDones(),
+      fleet.getNumOfLostRequests(),
+      (numOfRequests > 0)
+        ? (double)fleet.getNumOfLostRequests() / numOfRequests : 0.0,
+      fleet.getNumOfLateReplies(),
+      fleet.getLatencyPercentile(50) * 1000.0,
+      fleet.getLatencyPercentile(90) * 1000.0,
+      fleet.getLatencyPercentile(99) * 1000.0,
+      fleet.getLatencyPercentile(100) * 1000.0,
+      numOfSteps,
+      numOfLateSteps,
+      (numOfSteps > 0)
+        ? Util.percentile(stepTimes, numOfSteps, 99) / 1e6 : 0.0,
+      numOfDroppedMessages,
+      numOfCoalescedPVUpdates,
+      fleet.getNumOfSendFailures(),
+      fleet.getNumOfMissedPeriods()));
+  }
+
+  /**
+   * Sleep until a given time.
+   *
+   * @param time  the time (nanoseconds, as in System.nanoTime())
+   */
+  private static void sleepUntil(long time) {
+    long delay = time - System.nanoTime();
+    if (delay > 0) {
+      try {
+        Thread.sleep(delay / 1000000L, (int)(delay % 1000000L));
+      } catch(InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Register the vehicle specification of the proxy vehicles if it has not
+   * been registered.  The specification is the one of Marvin, which is not
+   * registered by default so that the simulated vehicles do not use it.
+   */
+  private static void registerProxyVehicleSpec() {
+    if (VehicleSpecDatabase.getVehicleSpecByName("MARVIN") == null) {
+      VehicleSpecDatabase.registerSpec(
+        new VehicleSpec("MARVIN",
+                         1.01,        // maxAcceleration (m/s/s)
+                       -13.0,         // maxDeceleration (m/s/s)
+                        25.0,         // maxVelocity (m/s)
+                        -0.1,         // minVelocity (m/s)
+                         5.131,       // length (meters)
+                         2.0,         // width (meters)
+                         1.18,        // frontAxleDisplacement (meters)
+                         4.126,       // rearAxleDisplacement (meters)
+                       (2.0-0.33)/2,  // wheelSpan (meters)
+                         0.375,       // wheelRadius (meters)
+                         0.33,        // wheelWidth (meters)
+                       Math.PI/3,     // maxSteeringAngle (radian)
+                       Math.PI/3));   // maxTurnPerSecond (radian)
+    }
+  }
+
+  /**
+   * Get an integer setting.
+   *
+   * @param settings  the settings
+   * @param key       the key of the setting
+   * @return the value of the setting
+   */
+  private static int getInt(Properties settings, String key) {
+    try {
+      return Integer.parseInt(settings.getProperty(key));
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of " + key + ": "
+                                         + settings.getProperty(key));
+    }
+  }
+
+  /**
+   * Get a long integer setting.
+   *
+   * @param settings  the settings
+   * @param key       the key of the setting
+   * @return the value of the setting
+   */
+  private static long getLong(Properties settings, String key) {
+    try {
+      return Long.parseLong(settings.getProperty(key));
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of " + key + ": "
+                                         + settings.getProperty(key));
+    }
+  }
+
+  /**
+   * Get a double setting.
+   *
+   * @param settings  the settings
+   * @param key       the key of the setting
+   * @return the value of the setting
+   */
+  private static double getDouble(Properties settings, String key) {
+    try {
+      return Double.parseDouble(settings.getProperty(key));
+    } catch(NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid value of " + key + ": "
+                                         + settings.getProperty(key));
+    }
+  }
+
+  /**
+   * Print the usage of the load test.
+   */
+  private static void printUsage() {
+    System.err.println("Usage: java -cp aim4.jar aim4.ProxyLoadMain "
+                       + "[--config FILE] [--key value]...");
+    System.err.println("See the documentation of aim4.ProxyLoadMain for "
+                       + "the list of keys.");
+  }
+}
@@ -30,25 +30,16 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.config;
 
-import java.awt.Color;
-import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 
 import aim4.gui.ViewerDebugView;
-import aim4.map.BasicMap;
 
 /**
  * The configuration for debugging purposes.
  */
 public class Debug {
 
-  /**
-   * A global variable referring to the global map.
-   */
-  public static BasicMap currentMap;
-
   /**
    * A global variable referring to the GUI object.
    */
@@ -238,9 +229,11 @@ public class Debug {
   public static final boolean PRINT_SIMULATOR_STAGE = false;
 
   /**
-   * Whether or not the proxy vehicle shows the debug message.
+   * Whether or not the proxy vehicle shows the debug message.  It is not
+   * final so that tools such as {@link aim4.ProxyLoadMain} can turn the
+   * messages off; it should be set before the UDP listener starts.
    */
-  public static final boolean SHOW_PROXY_VEHICLE_DEBUG_MSG = true;
+  public static boolean SHOW_PROXY_VEHICLE_DEBUG_MSG = true;
 
   /**
    * Whether or not to show the PVUpdate message.
@@ -296,7 +289,7 @@ public class Debug {
    *
    * @param dp  a new long-term debug point.
    */
-  public static void addLongTermDebugPoint(DebugPoint dp) {
+  public static synchronized void addLongTermDebugPoint(DebugPoint dp) {
     longTermDebugPoints.add(dp);
   }
 
@@ -321,49 +314,10 @@ public class Debug {
    *
    * @param dp  a new short-term debug point
    */
-  public static void addShortTermDebugPoint(DebugPoint dp) {
+  public static synchronized void addShortTermDebugPoint(DebugPoint dp) {
     shortTermDebugPoints.add(dp);
   }
 
-  /////////////////////////////////
-  // VEHICLE COLORING
-  /////////////////////////////////
-
-  /**
-   * A mapping from vehicle's VINs to the color of the vehicles.
-   */
-  private static Map<Integer,Color> vinToVehicleColor =
-    new HashMap<Integer,Color>();
-
-  /**
-   * Get the color of a vehicle.
-   *
-   * @param vin the VIN number of the vehicle
-   * @return the color of the vehicle
-   */
-  public static Color getVehicleColor(int vin) {
-    return vinToVehicleColor.get(vin);
-  }
-
-  /**
-   * Set the color of a vehicle.
-   *
-   * @param vin   the VIN number of the vehicle
-   * @param color the color of the vehicle
-   */
-  public static void setVehicleColor(int vin, Color color) {
-    vinToVehicleColor.put(vin, color);
-  }
-
-  /**
-   * Remove the color assignment of a vehicle.
-   *
-   * @param vin the VIN number of the vehicle
-   */
-  public static void removeVehicleColor(int vin) {
-    vinToVehicleColor.remove(vin);
-  }
-
   /////////////////////////////////
   // PRIVATE METHODS
   /////////////////////////////////
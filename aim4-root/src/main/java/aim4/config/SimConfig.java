@@ -57,20 +57,10 @@ public class SimConfig {
    */
   public static final double GRID_TIME_STEP = TIME_STEP;
 
-  /**
-   * How often the simulator should consider spawning vehicles.
-   */
-  public static final double SPAWN_TIME_STEP = TIME_STEP / 5.0;
-
-  /**
-   * Whether or not the vehicle must stop before an intersection
-   */
-  public static boolean MUST_STOP_BEFORE_INTERSECTION = false;
-
   /**
    * The distance before the stopping distance before an intersection
-   * such that a vehicle can consider moving again when
-   * MUST_STOP_BEFORE_INTERSECTION is true.
+   * such that a vehicle can consider moving again when the vehicle must stop
+   * before an intersection (see SimContext).
    */
   public static final double ADDITIONAL_STOP_DIST_BEFORE_INTERSECTION = 0.01;
 }
@@ -136,6 +136,15 @@ public class AutoDriver extends Driver
   }
 
 
+  /**
+   * Get the map in which the vehicle is driving.
+   *
+   * @return the map in which the vehicle is driving
+   */
+  public BasicMap getBasicMap() {
+    return basicMap;
+  }
+
   /**
    * Get the current coordinator of the vehicle.
    *
@@ -32,8 +32,8 @@ package aim4.driver;
 
 import java.awt.geom.Point2D;
 
-import aim4.config.Debug;
 import aim4.driver.pilot.V2IPilot;
+import aim4.im.Intersection;
 import aim4.map.lane.Lane;
 import aim4.vehicle.AutoVehicleDriverView;
 
@@ -52,6 +52,9 @@ public class CrashTestDummy extends Driver {
   /** The Lane in which the vehicle should exit the intersection. */
   private Lane departureLane;
 
+  /** The intersection the vehicle traverses */
+  private Intersection intersection;
+
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -62,14 +65,17 @@ public class CrashTestDummy extends Driver {
    * an intersection.
    *
    * @param vehicle       the simulated vehicle to pilot
+   * @param intersection  the intersection the vehicle traverses
    * @param arrivalLane   the Lane in which the vehicle should enter the
    *                      intersection
    * @param departureLane the Lane in which the vehicle should depart the
    *                      intersection
    */
   public CrashTestDummy(AutoVehicleDriverView vehicle,
+                        Intersection intersection,
                         Lane arrivalLane, Lane departureLane) {
     this.vehicle = vehicle;
+    this.intersection = intersection;
     setCurrentLane(arrivalLane);
     this.departureLane = departureLane;
   }
@@ -88,7 +94,8 @@ public class CrashTestDummy extends Driver {
     // If we're not already in the departure lane
     if(getCurrentLane() != departureLane) {
       // If we're changing to a different Road
-      if(Debug.currentMap.getRoad(getCurrentLane()) != Debug.currentMap.getRoad(departureLane)) {
+      if(intersection.getRoad(getCurrentLane()) !=
+         intersection.getRoad(departureLane)) {
         // If we're close enough...
         if(departureLane.nearestDistance(getVehicle().gaugePosition()) <
            calculateTraversingLaneChangeDistance()) {
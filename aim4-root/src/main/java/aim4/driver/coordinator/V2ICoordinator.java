@@ -33,7 +33,6 @@ package aim4.driver.coordinator;
 import java.util.ArrayList;
 import java.util.EnumMap;
 import java.util.List;
-import java.util.Queue;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
@@ -57,6 +56,7 @@ import aim4.msg.v2i.Cancel;
 import aim4.msg.v2i.Done;
 import aim4.msg.v2i.Request;
 import aim4.util.Util;
+import aim4.vehicle.AccelProfileQueue;
 import aim4.vehicle.AccelSchedule;
 import aim4.vehicle.AutoVehicleDriverView;
 import aim4.vehicle.VehicleUtil;
@@ -499,7 +499,7 @@ public class V2ICoordinator implements Coordinator {
     private TurnDirection getTurnDirection(Navigator navigator) {
       IntersectionManager im = driver.nextIntersectionManager();
       Lane currentLane = driver.getCurrentLane();
-      Road currentRoad = Debug.currentMap.getRoad(currentLane);
+      Road currentRoad = im.getIntersection().getRoad(currentLane);
       Road departureRoad =
         navigator.navigate(currentRoad, im, driver.getDestination());
       Lane departureLane = departureRoad.getIndexLane();
@@ -696,7 +696,7 @@ public class V2ICoordinator implements Coordinator {
      * cross the intersection safely.  If empty or null, the vehicle should
      * accelerate to top speed or the speed limit, whichever is lower.
      */
-    private Queue<double[]> accelerationProfile;
+    private AccelProfileQueue accelerationProfile;
 
     /////////////////////////////////
     // CONSTRUCTORS
@@ -704,12 +704,15 @@ public class V2ICoordinator implements Coordinator {
 
     /**
      * Create a reservation parameter object
+     *
+     * @param msg       the confirm message
+     * @param basicMap  the map
      */
-    public ReservationParameter(Confirm msg) {
+    public ReservationParameter(Confirm msg, BasicMap basicMap) {
       this.arrivalLane =
-        Debug.currentMap.getLaneRegistry().get(msg.getArrivalLaneID());
+        basicMap.getLaneRegistry().get(msg.getArrivalLaneID());
       this.departureLane =
-        Debug.currentMap.getLaneRegistry().get(msg.getDepartureLaneID());
+        basicMap.getLaneRegistry().get(msg.getDepartureLaneID());
 //      this.arrivalLane = LaneRegistry.getLaneFromId(msg.getArrivalLaneID());
 //      this.departureLane = LaneRegistry.getLaneFromId(msg.getDepartureLaneID());
       this.arrivalTime = msg.getArrivalTime();
@@ -815,7 +818,7 @@ public class V2ICoordinator implements Coordinator {
      * @return the acceleration profile of the reservation this driver agent
      *         is currently holding
      */
-    public Queue<double[]> getAccelerationProfile() {
+    public AccelProfileQueue getAccelerationProfile() {
       return accelerationProfile;
     }
 
@@ -833,6 +836,9 @@ public class V2ICoordinator implements Coordinator {
   /** The driver of which this coordinator is a part. */
   private AutoDriverCoordinatorView driver;
 
+  /** The map */
+  private BasicMap basicMap;
+
   /** The navigator that will choose which way to go. */
   private Navigator navigator;
 
@@ -880,6 +886,12 @@ public class V2ICoordinator implements Coordinator {
    */
   private int nextRequestId;
 
+  /**
+   * The vehicle specification sent with every request message.  It is
+   * immutable, so all requests of the vehicle share it.
+   */
+  private Request.VehicleSpecForRequestMsg specForRequestMsg;
+
   /**
    * The next time at which the vehicle is allowed to send out request messages
    */
@@ -914,6 +926,7 @@ public class V2ICoordinator implements Coordinator {
                         BasicMap basicMap) {
     this.vehicle = vehicle;
     this.driver = driver;
+    this.basicMap = basicMap;
     this.pilot = new V2IPilot(vehicle, driver);
     this.navigator = new BasicNavigator(vehicle.getSpec(), basicMap);
 
@@ -936,6 +949,7 @@ public class V2ICoordinator implements Coordinator {
     latestReservationNumber = -1;
     // next request id is 0
     nextRequestId = 0;
+    specForRequestMsg = new Request.VehicleSpecForRequestMsg(vehicle.getSpec());
 
     // Set the intial state
     setState(State.V2I_PLANNING);
@@ -1305,9 +1319,9 @@ public class V2ICoordinator implements Coordinator {
         }  // else fall through
       }  // else fall through
       if (vehicle.gaugeTime() >= nextAllowedSendingRequestTime) {
-        if (!SimConfig.MUST_STOP_BEFORE_INTERSECTION ||
+        if (!basicMap.getContext().isMustStopBeforeIntersection() ||
             driver.distanceToNextIntersection() <=
-            V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION +
+            pilot.getStopDistanceBeforeIntersection() +
             SimConfig.ADDITIONAL_STOP_DIST_BEFORE_INTERSECTION) {
           // prepare reservation
           setState(State.V2I_PREPARING_RESERVATION);
@@ -1582,7 +1596,7 @@ public class V2ICoordinator implements Coordinator {
       List<Lane> departureLanes =
         new ArrayList<Lane>(MAX_LANES_TO_TRY_PER_ROAD);
       Road departureRoad =
-        navigator.navigate(Debug.currentMap.getRoad(driver.getCurrentLane()),
+        navigator.navigate(basicMap.getRoad(driver.getCurrentLane()),
                            driver.getCurrentIM(),
                            driver.getDestination());
       // Let's just take the highest priority Lane from each Road
@@ -1629,7 +1643,7 @@ public class V2ICoordinator implements Coordinator {
         if (isDebugging) {
           double dTotal =
             driver.distanceToNextIntersection()
-            - V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+            - pilot.getStopDistanceBeforeIntersection();
           if (dTotal < 0.0) {
             System.err.printf("vin %d passed point of no return\n",
                               vehicle.getVIN());
@@ -1916,7 +1930,7 @@ public class V2ICoordinator implements Coordinator {
       new Request(vehicle.getVIN(),  // sourceID
                   driver.getCurrentIM().getId(), // destinationID
                   nextRequestId,
-                  new Request.VehicleSpecForRequestMsg(vehicle.getSpec()),
+                  specForRequestMsg,
                   proposals);
     // If so, we put the message in the outbox to be delivered to the
     // IntersectionManager
@@ -1980,7 +1994,7 @@ public class V2ICoordinator implements Coordinator {
    * @param msg  the confirm message
    */
   private void setReservationParameter(Confirm msg) {
-    rparameter = new ReservationParameter(msg);
+    rparameter = new ReservationParameter(msg, basicMap);
   }
 
   /**
@@ -2038,7 +2052,7 @@ public class V2ICoordinator implements Coordinator {
     double d2 = VehicleUtil.distanceToCarInFront(vehicle);
     if (d2 >= Double.MAX_VALUE) return true;  // no car in front
     double d3 = d1 - d2;
-    return (d3 <= V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION);
+    return (d3 <= pilot.getStopDistanceBeforeIntersection());
   }
 
 
@@ -2055,7 +2069,7 @@ public class V2ICoordinator implements Coordinator {
     // stop at the buffer distance before intersection
     double dTotal =
       driver.distanceToNextIntersection()
-      - V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+      - pilot.getStopDistanceBeforeIntersection();
 
     if (dTotal > 0.0) {
       double time1 = vehicle.gaugeTime();
@@ -34,11 +34,12 @@ import java.awt.geom.Point2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Set;
 
-import aim4.config.Debug;
 import aim4.im.IntersectionManager;
 import aim4.map.BasicMap;
 import aim4.map.Road;
@@ -202,7 +203,16 @@ public class BasicNavigator implements Navigator {
      * @return the road of the last node
      */
     public Road getLastRoad() {
-      return Debug.currentMap.getRoad(path.get(path.size() - 1));
+      return basicMap.getRoad(path.get(path.size() - 1));
+    }
+
+    /**
+     * Get the ID of the lane of the last node.
+     *
+     * @return the ID of the lane of the last node
+     */
+    public int getLastLaneId() {
+      return path.get(path.size() - 1);
     }
 
     /**
@@ -294,7 +304,7 @@ public class BasicNavigator implements Navigator {
         List<Integer> currKey =
           Arrays.asList(path.get(i-1), pathIMs.get(i-1),
                         destinationRoad.getIndexLane().getId());
-        fastestMap.put(currKey, Debug.currentMap.getRoad(path.get(i)));
+        fastestMap.put(currKey, basicMap.getRoad(path.get(i)));
       }
     }
     return fastestMap.get(key);
@@ -329,12 +339,20 @@ public class BasicNavigator implements Navigator {
                                 estMeas);   // remaining estimate
     // kick off
     queue.add(initialNode);
+    // the pairs of lane ID and IM ID that have been expanded.  The nodes
+    // are polled in the order of their actual measures, so a pair that is
+    // reached again cannot lead to a faster path.
+    Set<List<Integer>> expanded = new HashSet<List<Integer>>();
 
     // Now we just do A* search. We remove items from the Queue.  If they are
     // complete, then YAY we have found the path.  If not, we explore the
     // neighbors, update and add them all.
     while(!queue.isEmpty() && !queue.peek().isComplete()) {
       Node node = queue.poll();  // the current node
+      if (!expanded.add(Arrays.asList(node.getLastLaneId(),
+                                      node.getLastIMid()))) {
+        continue;  // skip this node
+      }
       IntersectionManager nodeIM =
         basicMap.getImRegistry().get(node.getLastIMid());
       Road nodeRoad = node.getLastRoad();
@@ -30,14 +30,12 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.driver.pilot;
 
-import java.util.Iterator;
-import java.util.Queue;
-
 import aim4.config.Debug;
 import aim4.config.SimConfig;
 import aim4.driver.AutoDriver;
 import aim4.driver.DriverUtil;
 import aim4.driver.coordinator.V2ICoordinator.ReservationParameter;
+import aim4.vehicle.AccelProfileQueue;
 import aim4.vehicle.AutoVehicleDriverView;
 import aim4.vehicle.VehicleUtil;
 
@@ -62,7 +60,7 @@ public class V2IPilot extends BasicPilot {
    * The default shortest distance before an intersection at which the vehicle
    * stops if the vehicle can't enter the intersection immediately.
    */
-  public static double DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION = 1.0;
+  public static final double DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION = 1.0;
 
   /**
    * The distance, expressed in units of the Vehicle's velocity, at which to
@@ -74,6 +72,10 @@ public class V2IPilot extends BasicPilot {
   // PRIVATE FIELDS
   // ///////////////////////////////
 
+  /**
+   * The shortest distance before an intersection at which the vehicle stops
+   * if the vehicle can't enter the intersection immediately.
+   */
   private double stopDistanceBeforeIntersection;
 
   private AutoVehicleDriverView vehicle;
@@ -94,7 +96,8 @@ public class V2IPilot extends BasicPilot {
   public V2IPilot(AutoVehicleDriverView vehicle, AutoDriver driver) {
     this.vehicle = vehicle;
     this.driver = driver;
-    stopDistanceBeforeIntersection = DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+    stopDistanceBeforeIntersection =
+      driver.getBasicMap().getContext().getStopDistBeforeIntersection();
   }
 
   // ///////////////////////////////
@@ -118,6 +121,16 @@ public class V2IPilot extends BasicPilot {
     return driver;
   }
 
+  /**
+   * Get the shortest distance before an intersection at which the vehicle
+   * stops if the vehicle can't enter the intersection immediately.
+   *
+   * @return the stopping distance before intersection
+   */
+  public double getStopDistanceBeforeIntersection() {
+    return stopDistanceBeforeIntersection;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -131,8 +144,8 @@ public class V2IPilot extends BasicPilot {
     // If we're not already in the departure lane
     if (driver.getCurrentLane() != rp.getDepartureLane()) {
       // If we're changing to a different Road
-      if (Debug.currentMap.getRoad(driver.getCurrentLane()) !=
-        Debug.currentMap.getRoad(rp.getDepartureLane())) {
+      if (driver.getBasicMap().getRoad(driver.getCurrentLane()) !=
+        driver.getBasicMap().getRoad(rp.getDepartureLane())) {
         // Find out how far from it we are
         double distToLane =
           rp.getDepartureLane().nearestDistance(vehicle.gaugePosition());
@@ -162,7 +175,7 @@ public class V2IPilot extends BasicPilot {
    * TODO: do not modify the acceleration profile
    */
   public void followAccelerationProfile(ReservationParameter rp) {
-    Queue<double[]> accelProf = rp.getAccelerationProfile();
+    AccelProfileQueue accelProf = rp.getAccelerationProfile();
     // If we have no profile or we have finished with it, then just do our
     // best to maintain a cruising speed
     if ((accelProf == null) || (accelProf.isEmpty())) {
@@ -172,49 +185,50 @@ public class V2IPilot extends BasicPilot {
     } else {
       // Otherwise, we need to figure out what the next directive in the
       // profile is - peek at the front of the list
-      double[] currentDirective = accelProf.element();
+      double accel = accelProf.getFirstAcceleration();
+      double duration = accelProf.getFirstDuration();
       // Now, we have three cases. Either there is more than enough duration
       // left at this acceleration to do only this acceleration:
-      if (currentDirective[1] > SimConfig.TIME_STEP) {
+      if (duration > SimConfig.TIME_STEP) {
         // This is easy, just do the requested acceleration and decrement
         // the duration
-        vehicle
-          .setAccelWithMaxTargetVelocity(currentDirective[0]);
-        currentDirective[1] -= SimConfig.TIME_STEP;
-      } else if (currentDirective[1] < SimConfig.TIME_STEP) {
+        vehicle.setAccelWithMaxTargetVelocity(accel);
+        accelProf.consumeFirst(SimConfig.TIME_STEP);
+      } else if (duration < SimConfig.TIME_STEP) {
         // Or we have to do a weighted average
         double totalAccel = 0.0;
         double remainingWeight = SimConfig.TIME_STEP;
         // Go through each of the acceleration, duration pairs and do a
         // weighted average of the first time step's worth of accelerations
-        for (Iterator<double[]> iter = accelProf.iterator(); iter.hasNext();) {
-          currentDirective = iter.next();
-          if (currentDirective[1] > remainingWeight) {
+        while (!accelProf.isEmpty()) {
+          accel = accelProf.getFirstAcceleration();
+          duration = accelProf.getFirstDuration();
+          if (duration > remainingWeight) {
             // Yay! More than enough here to finish out
-            totalAccel += remainingWeight * currentDirective[0];
+            totalAccel += remainingWeight * accel;
             // Make sure to record the fact that we used up some of it
-            currentDirective[1] -= remainingWeight;
+            accelProf.consumeFirst(remainingWeight);
             // And that we satisfied the whole time step
             remainingWeight = 0.0;
             break;
-          } else if (currentDirective[1] < remainingWeight) {
+          } else if (duration < remainingWeight) {
             // Ugh, we have to do it again
-            totalAccel += currentDirective[1] * currentDirective[0];
-            remainingWeight -= currentDirective[1];
-            iter.remove(); // done with this one
-          } else { // currentDirective[1] == remainingWeight
+            totalAccel += duration * accel;
+            remainingWeight -= duration;
+            accelProf.removeFirst(); // done with this one
+          } else { // duration == remainingWeight
             // This finishes off the list perfectly
-            totalAccel += currentDirective[1] * currentDirective[0];
+            totalAccel += duration * accel;
             // And completes our requirements for a whole time step
             remainingWeight = 0.0;
-            iter.remove(); // done with this oneo
+            accelProf.removeFirst(); // done with this one
             break;
           }
         }
         // Take care of the case in which we didn't have enough for the
         // whole time step
         if (remainingWeight > 0.0) {
-          totalAccel += remainingWeight * currentDirective[0];
+          totalAccel += remainingWeight * accel;
         }
         // Okay, totalAccel should now have our total acceleration in it
         // So we need to divide by the total weight to get an actual
@@ -223,10 +237,9 @@ public class V2IPilot extends BasicPilot {
           / SimConfig.TIME_STEP);
       } else { // Or things work out perfectly and we use this one up
         // This is easy, just do the requested acceleration and remove the
-        // element from the queue
-        accelProf.remove();
-        vehicle
-          .setAccelWithMaxTargetVelocity(currentDirective[0]);
+        // element from the profile
+        accelProf.removeFirst();
+        vehicle.setAccelWithMaxTargetVelocity(accel);
       }
     }
   }
@@ -280,7 +293,7 @@ public class V2IPilot extends BasicPilot {
 //      VehicleUtil.calcDistanceToStop(vehicle.gaugeVelocity(),
 //                                     vehicle.getSpec().getMaxDeceleration());
     double minDistanceToIntersection =
-      stoppingDistance + DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+      stoppingDistance + stopDistanceBeforeIntersection;
     if (vehicle.getDriver().distanceToNextIntersection() <
         minDistanceToIntersection) {
 //      if (Debug.isTargetVIN(vehicle.getVIN())) {
@@ -56,7 +56,6 @@ import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
-import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -66,13 +65,8 @@ import javax.swing.SwingUtilities;
 
 import aim4.config.Debug;
 import aim4.config.DebugPoint;
-import aim4.driver.AutoDriver;
-import aim4.driver.coordinator.V2ICoordinator;
 import aim4.im.IntersectionManager;
 import aim4.im.v2i.V2IManager;
-import aim4.im.v2i.RequestHandler.TrafficSignalRequestHandler;
-import aim4.im.v2i.policy.BasePolicy;
-import aim4.im.v2i.policy.Policy;
 import aim4.map.DataCollectionLine;
 import aim4.map.BasicMap;
 import aim4.map.Road;
@@ -82,12 +76,9 @@ import aim4.map.track.LineTrack;
 import aim4.map.track.PathTrack;
 import aim4.map.track.TrackPosition;
 import aim4.map.track.WayPoint;
-import aim4.msg.v2i.Request;
-import aim4.msg.v2i.V2IMessage;
+import aim4.sim.SimFrame;
 import aim4.sim.Simulator;
 import aim4.util.Util;
-import aim4.vehicle.AutoVehicleSimView;
-import aim4.vehicle.VehicleSimView;
 import java.io.InputStream;
 
 /**
@@ -714,7 +705,9 @@ public class Canvas extends JPanel implements ComponentListener,
   }
 
   /**
-   * Update the canvas to visualize the current state of simulation.
+   * Update the canvas to visualize the latest snapshot of the simulation.
+   * It does not lock the simulator, so it can be called while the
+   * simulation thread is executing a step.
    */
   private synchronized void updateCanvas() {
     // reset the affine transform
@@ -723,38 +716,32 @@ public class Canvas extends JPanel implements ComponentListener,
     paintEntireBuffer(displayBuffer, BACKGROUND_COLOR);
     // draw the map
     drawImageOnBuffer(displayBuffer, getMapImageTable(scaleIndex));
-    // Get the simulator
+    // Get the latest snapshot of the simulator
     Simulator sim = viewer.getSimulator();
-    // if the simulator exists, draw the current view
-    if (sim != null) {
-      Collection<IntersectionManager> ims =
-          sim.getMap().getIntersectionManagers();
+    SimFrame frame = (sim != null) ? sim.getLatestFrame() : null;
+    // if the snapshot exists, draw the current view
+    if (frame != null) {
       // draw the intersection managers' debug shapes
       if (isShowIMDebugShapes) {
-        for (IntersectionManager im : ims) {
-          drawIMDebugShapes(displayBuffer, im);
-        }
+        drawIMDebugShapes(displayBuffer, frame);
       }
       // draw the vehicles
-      for (VehicleSimView v : sim.getActiveVehicles()) {
-        drawVehicle(displayBuffer, v, sim.getSimulationTime());
+      for (int i = 0; i < frame.getNumOfVehicles(); i++) {
+        drawVehicle(displayBuffer, frame, i);
       }
       // draw the traffic lights
-      for (IntersectionManager im : ims) {
-        drawTrafficLights(displayBuffer, im);
-      }
+      drawTrafficLights(displayBuffer, frame);
       // draw simulation time.
       if (isShowSimulationTime) {
-        drawSimulationTime(displayBuffer, sim.getSimulationTime());
+        drawSimulationTime(displayBuffer, frame.getSimulationTime());
       }
       // draw the debug points
-      drawDebugPoints(displayBuffer, Debug.getLongTermDebugPoints());
-      drawDebugPoints(displayBuffer, Debug.getShortTermDebugPoints());
+      drawDebugPoints(displayBuffer, frame.getDebugPoints());
       // draw tracks
       // drawTracks(displayBuffer);
       // lastly, draw the vehicles' information string
-      for (VehicleSimView v : sim.getActiveVehicles()) {
-        drawVehicleInfoString(displayBuffer, v, sim.getSimulationTime());
+      for (int i = 0; i < frame.getNumOfVehicles(); i++) {
+        drawVehicleInfoString(displayBuffer, frame, i);
       }
       // Finally display the new image
       repaint();
@@ -795,39 +782,30 @@ public class Canvas extends JPanel implements ComponentListener,
    * Draw an individual Vehicle, and any associated debug information, if this
    * Vehicle is a debug Vehicle.
    *
-   * @param buffer       the display buffer
-   * @param vehicle      the Vehicle to draw now
-   * @param currentTime  the current simulated time
+   * @param buffer  the display buffer
+   * @param frame   the snapshot of the simulation
+   * @param i       the index of the vehicle in the snapshot
    */
-  private void drawVehicle(Graphics2D buffer,
-                           VehicleSimView vehicle,
-                           double currentTime) {
+  private void drawVehicle(Graphics2D buffer, SimFrame frame, int i) {
+    int vin = frame.getVIN(i);
     // whether the vehicle is selected
-    boolean selectedVehicle = (Debug.getTargetVIN() == vehicle.getVIN());
+    boolean selectedVehicle = (Debug.getTargetVIN() == vin);
     // check to see if we use another color
     if (selectedVehicle) {
       buffer.setPaint(VEHICLE_SELECTED_COLOR);
-    } else if (vehicle.getVIN() == MARVIN_VEHICLE_VIN) {
+    } else if (vin == MARVIN_VEHICLE_VIN) {
       buffer.setPaint(MARVIN_VEHICLE_COLOR);
-    } else if (Debug.getVehicleColor(vehicle.getVIN()) != null) {
-      buffer.setPaint(Debug.getVehicleColor(vehicle.getVIN()));
+    } else if (basicMap.getContext().getVehicleColor(vin) != null) {
+      buffer.setPaint(basicMap.getContext().getVehicleColor(vin));
     } else if (Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE) {
-      if (vehicle.getDriver() instanceof AutoDriver) {
-        AutoDriver autoDriver = (AutoDriver) vehicle.getDriver();
-        if (autoDriver.getCurrentCoordinator() instanceof V2ICoordinator) {
-          V2ICoordinator coordinator =
-              (V2ICoordinator) autoDriver.getCurrentCoordinator();
-          if (coordinator.isAwaitingResponse()) {
-            buffer.setPaint(VEHICLE_WAITING_FOR_RESPONSE_COLOR);
-          } else if (coordinator.getReservationParameter() != null) {
-            buffer.setPaint(VEHICLE_HAS_RESERVATION_COLOR);
-          } else {
-            buffer.setPaint(VEHICLE_COLOR);  // the default color
-          }
-        } else {
-          buffer.setPaint(VEHICLE_COLOR);  // the default color
-        }
-      } else {
+      switch (frame.getState(i)) {
+      case WAITING_FOR_RESPONSE:
+        buffer.setPaint(VEHICLE_WAITING_FOR_RESPONSE_COLOR);
+        break;
+      case HAS_RESERVATION:
+        buffer.setPaint(VEHICLE_HAS_RESERVATION_COLOR);
+        break;
+      default:
         buffer.setPaint(VEHICLE_COLOR);  // the default color
       }
     } else {
@@ -837,12 +815,13 @@ public class Canvas extends JPanel implements ComponentListener,
     buffer.setStroke(VEHICLE_STROKE);
 
     // Now draw the vehicle's shape
-    buffer.fill(vehicle.getShape());
+    buffer.fill(frame.getShape(i));
     // Draw wheels and stuff if needed
-    if (selectedVehicle) {
+    Shape[] wheels = frame.getWheelShapes(i);
+    if (selectedVehicle && wheels != null) {
       buffer.setPaint(TIRE_COLOR);
       buffer.setStroke(TIRE_STROKE);
-      for (Shape wheel : vehicle.getWheelShapes()) {
+      for (Shape wheel : wheels) {
         buffer.fill(wheel);
       }
     }
@@ -851,78 +830,48 @@ public class Canvas extends JPanel implements ComponentListener,
   /**
    * Draw the information string of the vehicle on screen
    *
-   * @param buffer       the display buffer
-   * @param vehicle      the vehicle
-   * @param currentTime  the current simulated time
+   * @param buffer  the display buffer
+   * @param frame   the snapshot of the simulation
+   * @param i       the index of the vehicle in the snapshot
    */
-  private void drawVehicleInfoString(Graphics2D buffer,
-                                     VehicleSimView vehicle,
-                                     double currentTime) {
+  private void drawVehicleInfoString(Graphics2D buffer, SimFrame frame,
+                                     int i) {
     List<String> infos = new LinkedList<String>();
 
     // display the vin
     if (isShowVin) {
-      infos.add(Integer.toString(vehicle.getVIN()));
+      infos.add(Integer.toString(frame.getVIN(i)));
     }
 
-    if (vehicle instanceof AutoVehicleSimView
-        && vehicle.getDriver() instanceof AutoDriver) {
-      AutoDriver da = (AutoDriver) vehicle.getDriver();
-      if (da.getCurrentCoordinator() instanceof V2ICoordinator) {
-        V2ICoordinator coordinator =
-            (V2ICoordinator) da.getCurrentCoordinator();
-
-        // display the arrival time of the request (if any)
-        if (Debug.SHOW_ARRIVAL_TIME) {
-          if (coordinator.isAwaitingResponse()
-              || coordinator.getReservationParameter() != null) {
-            V2IMessage msg =
-                ((AutoVehicleSimView) vehicle).getLastV2IMessage();
-            if (msg instanceof Request) {
-              Request request = (Request) msg;
-              if (request.getProposals().size() > 0) {
-                // one arrival time is enough.
-                double arrival_time =
-                    request.getProposals().get(0).getArrivalTime();
-                infos.add(String.format("%.2f", arrival_time));
-              } else {
-                infos.add("No Proposals");
-              }
-            } // else ignore other types of messages
-          }
+    // the arrival time of the request (if any)
+    double arrivalTime = frame.getArrivalTime(i);
+    if (!Double.isNaN(arrivalTime)) {
+      if (Debug.SHOW_ARRIVAL_TIME) {
+        if (arrivalTime != SimFrame.NO_PROPOSALS) {
+          infos.add(String.format("%.2f", arrivalTime));
+        } else {
+          infos.add("No Proposals");
         }
-
-        if (Debug.SHOW_REMAINING_ARRIVAL_TIME) {
-          if (coordinator.isAwaitingResponse()
-              || coordinator.getReservationParameter() != null) {
-            V2IMessage msg =
-                ((AutoVehicleSimView) vehicle).getLastV2IMessage();
-            if (msg instanceof Request) {
-              Request request = (Request) msg;
-              if (request.getProposals().size() > 0) {
-                // one arrival time is enough.
-                double arrival_time =
-                    request.getProposals().get(0).getArrivalTime();
-                if (coordinator.getReservationParameter() == null
-                    || arrival_time - currentTime >= 0) {
-                  infos.add(String.format("%.2f", arrival_time - currentTime));
-                }
-              } else {
-                infos.add("No Proposals");
-              }
-            } // else ignore other types of messages
+      }
+      if (Debug.SHOW_REMAINING_ARRIVAL_TIME) {
+        if (arrivalTime != SimFrame.NO_PROPOSALS) {
+          double currentTime = frame.getSimulationTime();
+          if (frame.getState(i) != SimFrame.VehicleState.HAS_RESERVATION
+              || arrivalTime - currentTime >= 0) {
+            infos.add(String.format("%.2f", arrivalTime - currentTime));
           }
+        } else {
+          infos.add("No Proposals");
         }
       }
     }
 
     if (infos.size() > 0) {
-      Point2D centerPoint = vehicle.getCenterPoint();
       buffer.setColor(VEHICLE_INFO_STRING_COLOR);
       buffer.setFont(VEHICLE_INFO_STRING_FONT);
       buffer.drawString(Util.concatenate(infos, ","),
-          (float) centerPoint.getX(),
-          (float) centerPoint.getY());
+          (float) frame.getCenterX(i),
+          (float) frame.getCenterY(i));
     }
   }
 
@@ -930,49 +879,39 @@ public class Canvas extends JPanel implements ComponentListener,
    * Draw the current state of the lights for all IntersectionManagers.
    *
    * @param buffer  the display buffer
-   * @param im      the intersection manager whose traffic lights to draw
-   */
-  private void drawTrafficLights(Graphics2D buffer, IntersectionManager im) {
-    if (im instanceof V2IManager) {
-      Policy policy = ((V2IManager) im).getPolicy();
-      if (policy instanceof BasePolicy) {
-        BasePolicy basePolicy = (BasePolicy) policy;
-        if (basePolicy.getRequestHandler() instanceof TrafficSignalRequestHandler) {
-          TrafficSignalRequestHandler requestHandler =
-              (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
-          for (Lane entryLane : im.getIntersection().getEntryLanes()) {
-            switch (requestHandler.getSignal(entryLane.getId())) {
-            case GREEN:
-              buffer.setPaint(Color.GREEN);
-              break;
-            case YELLOW:
-              buffer.setPaint(Color.YELLOW);
-              break;
-            case RED:
-              buffer.setPaint(Color.RED);
-              break;
-            default:
-              throw new RuntimeException("Unknown traffic signals.\n");
-            }
-            // Now create the shape we will use to draw the light
-            // For some reason, Java's angles increase to the right instead of
-            // to the left
-            // TODO: cache it
-            Arc2D lightShape =
-                new Arc2D.Double(im.getIntersection().getEntryPoint(entryLane).getX()
-                - TRAFFIC_LIGHT_RADIUS, // x
-                im.getIntersection().getEntryPoint(entryLane).getY()
-                - TRAFFIC_LIGHT_RADIUS, // y
-                TRAFFIC_LIGHT_RADIUS * 2, // width
-                TRAFFIC_LIGHT_RADIUS * 2, // height
-                90 - // start
-                Math.toDegrees(im.getIntersection().getEntryHeading(entryLane)), 180.0, // extent
-                Arc2D.PIE); // type
-            // Now draw it!
-            buffer.fill(lightShape);
-          }
-        }
+   * @param frame   the snapshot of the simulation
+   */
+  private void drawTrafficLights(Graphics2D buffer, SimFrame frame) {
+    for (int i = 0; i < frame.getNumOfTrafficLights(); i++) {
+      switch (frame.getTrafficSignal(i)) {
+      case GREEN:
+        buffer.setPaint(Color.GREEN);
+        break;
+      case YELLOW:
+        buffer.setPaint(Color.YELLOW);
+        break;
+      case RED:
+        buffer.setPaint(Color.RED);
+        break;
+      default:
+        throw new RuntimeException("Unknown traffic signals.\n");
       }
+      // Now create the shape we will use to draw the light
+      // For some reason, Java's angles increase to the right instead of
+      // to the left
+      // TODO: cache it
+      Arc2D lightShape =
+          new Arc2D.Double(frame.getTrafficLightX(i)
+          - TRAFFIC_LIGHT_RADIUS, // x
+          frame.getTrafficLightY(i)
+          - TRAFFIC_LIGHT_RADIUS, // y
+          TRAFFIC_LIGHT_RADIUS * 2, // width
+          TRAFFIC_LIGHT_RADIUS * 2, // height
+          90 - // start
+          Math.toDegrees(frame.getTrafficLightHeading(i)), 180.0, // extent
+          Arc2D.PIE); // type
+      // Now draw it!
+      buffer.fill(lightShape);
     }
   }
 
@@ -982,10 +921,10 @@ public class Canvas extends JPanel implements ComponentListener,
    * current heuristic values and so forth.
    *
    * @param buffer  the display buffer
-   * @param im      the intersection manager whose debug shapes to draw
+   * @param frame   the snapshot of the simulation
    */
-  private void drawIMDebugShapes(Graphics2D buffer, IntersectionManager im) {
-    for (Shape s : im.getDebugShapes()) {
+  private void drawIMDebugShapes(Graphics2D buffer, SimFrame frame) {
+    for (Shape s : frame.getIMDebugShapes()) {
       buffer.setPaint(IM_DEBUG_SHAPE_COLOR);
       buffer.fill(s);
     }
@@ -1324,12 +1263,13 @@ public class Canvas extends JPanel implements ComponentListener,
    */
   public void highlightVehicle(int vin) {
     Simulator sim = viewer.getSimulator();
-    if (sim != null) {
-      VehicleSimView vehicle = sim.getActiveVehicle(vin);
-      if (vehicle != null) {
+    SimFrame frame = (sim != null) ? sim.getLatestFrame() : null;
+    if (frame != null) {
+      int i = frame.indexOfVIN(vin);
+      if (i >= 0) {
         displayBuffer.setPaint(HIGHLIGHTED_VEHICLE_COLOR);
         displayBuffer.setStroke(HIGHLIGHTED_VEHICLE_STROKE);
-        displayBuffer.fill(vehicle.getShape());
+        displayBuffer.fill(frame.getShape(i));
         repaint();
       }
     }
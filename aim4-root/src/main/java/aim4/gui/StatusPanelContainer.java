@@ -84,7 +84,7 @@ public class StatusPanelContainer extends JTabbedPane
     add("System", systemPanel);
     consolePanel = new ConsolePanel();
     add("Console", consolePanel);
-    vehicleInfoPanel = new VehicleInfoPanel();
+    vehicleInfoPanel = new VehicleInfoPanel(viewer);
     add("Vehicle", vehicleInfoPanel);
     adminControlPanel = new AdminControlPanel(viewer);
     add("Admin", adminControlPanel);
@@ -46,6 +46,7 @@ import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
 import java.awt.geom.Point2D;
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javax.swing.GroupLayout;
 import javax.swing.JButton;
@@ -56,6 +57,7 @@ import javax.swing.JMenu;
 import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 
 import aim4.config.Constants;
 import aim4.config.Debug;
@@ -64,6 +66,7 @@ import aim4.gui.frame.VehicleInfoFrame;
 import aim4.im.IntersectionManager;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
+import aim4.sim.SimFrame;
 import aim4.sim.Simulator;
 import aim4.sim.UdpListener;
 import aim4.sim.AutoDriverOnlySimulator.AutoDriverOnlySimStepResult;
@@ -391,6 +394,17 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   private double targetFrameRate;
   /** The time of the next screen update in millisecond */
   private long nextFrameTime;
+  /** Whether a screen update has been scheduled but not yet performed */
+  private final AtomicBoolean isScreenUpdatePending = new AtomicBoolean();
+  /** The screen update performed by the event dispatch thread */
+  private final Runnable screenUpdater = new Runnable() {
+    @Override
+    public void run() {
+      isScreenUpdatePending.set(false);
+      canvas.update();
+      statusPanel.update();
+    }
+  };
   // recording
   // TODO: reset imageCounter after reset the simulator
   /** Whether or not to save the screen during simulation */
@@ -880,6 +894,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
 
     // create the simulator
     sim = SimFactory.makeSimulator(initSimSetup);
+    // let the simulator publish the snapshots the GUI draws
+    sim.setFramePublishing(true);
     // create the simulation thread
     createSimThread();
     // initialize the GUI
@@ -946,6 +962,7 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       simThread.resume();
     }
     simThread = null;
+    sim.close();
     sim = null;
 
     if (udpListener != null) {
@@ -1056,7 +1073,7 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       AutoDriverOnlySimStepResult simStepResult2 =
           (AutoDriverOnlySimStepResult) simStepResult;
       for (int vin : simStepResult2.getCompletedVINs()) {
-        Debug.removeVehicleColor(vin);
+        sim.getMap().getContext().removeVehicleColor(vin);
       }
     }
   }
@@ -1107,11 +1124,15 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
   // //////////////////////////////////////////////////
 
   /**
-   * Update the screen
+   * Update the screen.  The screen is drawn by the event dispatch thread
+   * from the latest snapshot of the simulation, so the simulation thread
+   * does not wait for the drawing.  Updates that are requested while one is
+   * pending are merged into it.
    */
   private void updateScreen() {
-    canvas.update();
-    statusPanel.update();
+    if (isScreenUpdatePending.compareAndSet(false, true)) {
+      SwingUtilities.invokeLater(screenUpdater);
+    }
   }
 
   /**
@@ -1122,6 +1143,8 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       String outFileName =
           imageDir + "/" + Constants.LEADING_ZEROES.format(imageCounter++)
           + ".png";
+      // every step needs its own image, so draw it now
+      canvas.update();
       canvas.saveScreenShot(outFileName);
     }
   }
@@ -1277,8 +1300,11 @@ public class Viewer extends JFrame implements ActionListener, KeyListener,
       if (sim != null) {
         Point2D leftClickPoint = canvas.getMapPosition(e.getX(), e.getY());
         // See if we hit any vehicles
-        for (VehicleSimView vehicle : sim.getActiveVehicles()) {
-          if (vehicle.getShape().contains(leftClickPoint)) {
+        SimFrame frame = sim.getLatestFrame();
+        int i = (frame != null) ? frame.indexOfVehicleAt(leftClickPoint) : -1;
+        if (i >= 0) {
+          VehicleSimView vehicle = sim.getActiveVehicle(frame.getVIN(i));
+          if (vehicle != null) {
             if (Debug.getTargetVIN() != vehicle.getVIN()) {
               Debug.setTargetVIN(vehicle.getVIN());
               if (vehicleInfoFrame == null) {
@@ -39,6 +39,7 @@ import aim4.config.Constants;
 import aim4.gui.StatusPanelInterface;
 import aim4.gui.Viewer;
 import aim4.gui.component.FormattedLabel;
+import aim4.sim.SimFrame;
 import aim4.sim.Simulator;
 
 /**
@@ -117,17 +118,18 @@ public class StatPanel extends JPanel
   @Override
   public void update() {
     Simulator sim = viewer.getSimulator();
-    if (sim != null) {
+    SimFrame frame = (sim != null) ? sim.getLatestFrame() : null;
+    if (frame != null) {
       // Current Time
-      currentTimeLabel.update(sim.getSimulationTime());
+      currentTimeLabel.update(frame.getSimulationTime());
       // Completed Vehicles
-      overallCompletedVehiclesLabel.update(sim.getNumCompletedVehicles());
+      overallCompletedVehiclesLabel.update(frame.getNumCompletedVehicles());
       // Average Data Transmitted
-      overallAverageTransmittedLabel.update(sim
+      overallAverageTransmittedLabel.update(frame
         .getAvgBitsTransmittedByCompletedVehicles()
         / Constants.BITS_PER_KB);
       // Average Data Received
-      overallAverageReceivedLabel.update(sim
+      overallAverageReceivedLabel.update(frame
         .getAvgBitsReceivedByCompletedVehicles()
         / Constants.BITS_PER_KB);
     } else {
@@ -38,10 +38,11 @@ import javax.swing.JPanel;
 import aim4.config.Constants;
 import aim4.config.Debug;
 import aim4.gui.StatusPanelInterface;
+import aim4.gui.Viewer;
 import aim4.gui.component.FormattedLabel;
-import aim4.vehicle.AutoVehicleSimView;
-import aim4.vehicle.VehicleSimView;
-import aim4.vehicle.VinRegistry;
+import aim4.sim.SimFrame;
+import aim4.sim.Simulator;
+import aim4.vehicle.VehicleSpecDatabase;
 
 /**
  * The Vehicle Information Panel
@@ -79,14 +80,21 @@ public class VehicleInfoPanel extends JPanel
   private FormattedLabel vehicleReceivedLabel =
     new FormattedLabel("Data received: ", "%5.2f kB", 8);
 
+  /** The viewer object */
+  private Viewer viewer;
+
   // ///////////////////////////////
   // CONSTRUCTORS
   // ///////////////////////////////
 
   /**
    * Create a vehicle information panel.
+   *
+   * @param viewer  the viewer object
    */
-  public VehicleInfoPanel() {
+  public VehicleInfoPanel(Viewer viewer) {
+    this.viewer = viewer;
+
     GridBagLayout gridbag = new GridBagLayout();
     setLayout(gridbag);
 
@@ -130,26 +138,28 @@ public class VehicleInfoPanel extends JPanel
    */
   @Override
   public void update() {
-    VehicleSimView v = VinRegistry.getVehicleFromVIN(Debug.getTargetVIN());
-    if (v != null) {
+    Simulator sim = viewer.getSimulator();
+    SimFrame frame = (sim != null) ? sim.getLatestFrame() : null;
+    int i = (frame != null) ? frame.indexOfVIN(Debug.getTargetVIN()) : -1;
+    if (i >= 0) {
       // Vehicle ID Number
-      vehicleVINLabel.update(v.getVIN());
+      vehicleVINLabel.update(frame.getVIN(i));
       // Vehicle Type
-      vehicleSpecLabel.update(v.getSpec().getName());
+      if (frame.getSpecId(i) >= 0) {
+        vehicleSpecLabel.update(
+          VehicleSpecDatabase.getVehicleSpecById(frame.getSpecId(i))
+            .getName());
+      }
       // Velocity
-      vehicleVelocityLabel.update(v.getVelocity());
+      vehicleVelocityLabel.update(frame.getVelocity(i));
       // Acceleration
-      vehicleAccelerationLabel.update(v.getAcceleration());
-
-      if (v instanceof AutoVehicleSimView) {
-        AutoVehicleSimView v2 = (AutoVehicleSimView) v;
-        // Data Transmitted
-        vehicleTransmittedLabel.update(v2.getBitsTransmitted()
-          / (double) (Constants.BITS_PER_BYTE * Constants.BYTES_PER_KB));
-        // Data Received
-        vehicleReceivedLabel.update(v2.getBitsReceived()
-          / (double) (Constants.BITS_PER_BYTE * Constants.BYTES_PER_KB));
-      }
+      vehicleAccelerationLabel.update(frame.getAcceleration(i));
+      // Data Transmitted
+      vehicleTransmittedLabel.update(frame.getBitsTransmitted(i)
+        / (double) (Constants.BITS_PER_BYTE * Constants.BYTES_PER_KB));
+      // Data Received
+      vehicleReceivedLabel.update(frame.getBitsReceived(i)
+        / (double) (Constants.BITS_PER_BYTE * Constants.BYTES_PER_KB));
     } else { // No vehicle selected, clear everything
       clear();
     }
@@ -90,6 +90,24 @@ public interface Intersection {
    */
   List<Lane> getLanes();
 
+  /**
+   * Given a Lane incident to the intersection, get the Road of which that
+   * Lane is a part.
+   *
+   * @param lane  the Lane incident to the intersection
+   * @return the Road of which the given Lane is a part; null if the Lane
+   *         is not incident to the intersection
+   */
+  Road getRoad(Lane lane);
+
+  /**
+   * Given the ID of a Lane incident to the intersection, get the Lane.
+   *
+   * @param laneId  the ID of the Lane
+   * @return the Lane; null if the Lane is not incident to the intersection
+   */
+  Lane getLane(int laneId);
+
 
   // entry points
 
@@ -30,6 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im;
 
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Area;
 import java.awt.geom.GeneralPath;
 import java.awt.geom.Line2D;
@@ -47,12 +48,13 @@ import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
-import aim4.config.Debug;
 import aim4.config.Constants.TurnDirection;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
+import aim4.map.lane.LineSegmentLane;
 import aim4.map.track.WayPoint;
 import aim4.util.GeomMath;
+import aim4.util.GeometryKey;
 import aim4.util.Util;
 
 
@@ -78,6 +80,99 @@ public class RoadBasedIntersection implements Intersection {
    */
   private static final double AREA_PLUS_OFFSET = 0.000001;
 
+  /**
+   * The maximum number of intersection geometries that are kept for
+   * sharing.
+   */
+  private static final int MAX_SHARED_GEOMETRIES = 64;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The geometry of an intersection that can be translated to the
+   * intersections of roads with the same local layout.  The lanes are
+   * identified by the index of their road and their index in the road.
+   */
+  private static class Geometry {
+    /** The point at which the first two crossing roads meet */
+    private final Point2D anchor;
+    /** The area */
+    private final Area area;
+    /** The slightly larger area */
+    private final Area areaPlus;
+    /** The centroid */
+    private final Point2D centroid;
+    /** The edges */
+    private final List<Path2D> edges;
+    /** The indices of the roads of the intersecting lanes */
+    private final int[] roadIndices;
+    /** The indices of the intersecting lanes in their roads */
+    private final int[] laneIndices;
+    /** The entry points of the intersecting lanes */
+    private final Point2D[] entryPoints;
+    /** The entry headings of the intersecting lanes */
+    private final double[] entryHeadings;
+    /** The exit points of the intersecting lanes */
+    private final Point2D[] exitPoints;
+    /** The exit headings of the intersecting lanes */
+    private final double[] exitHeadings;
+
+    /**
+     * Record the geometry of an intersection.
+     *
+     * @param intersection  the intersection, every lane of which has an
+     *                      entry point and an exit point
+     * @param anchor        the point at which the first two crossing roads
+     *                      of the intersection meet
+     */
+    Geometry(RoadBasedIntersection intersection, Point2D anchor) {
+      this.anchor = anchor;
+      this.area = new Area(intersection.area);
+      this.areaPlus = new Area(intersection.areaPlus);
+      this.centroid = intersection.centroid;
+      this.edges = new ArrayList<Path2D>(intersection.edges);
+      int n = intersection.lanes.size();
+      roadIndices = new int[n];
+      laneIndices = new int[n];
+      entryPoints = new Point2D[n];
+      entryHeadings = new double[n];
+      exitPoints = new Point2D[n];
+      exitHeadings = new double[n];
+      for(int k = 0; k < n; k++) {
+        Lane lane = intersection.lanes.get(k);
+        Road road = intersection.laneToRoad.get(lane);
+        roadIndices[k] = intersection.roads.indexOf(road);
+        laneIndices[k] = road.getLanes().indexOf(lane);
+        entryPoints[k] = intersection.entryPoints.get(lane);
+        entryHeadings[k] = intersection.entryHeadings.get(lane);
+        exitPoints[k] = intersection.exitPoints.get(lane);
+        exitHeadings[k] = intersection.exitHeadings.get(lane);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC FIELDS
+  /////////////////////////////////
+
+  /**
+   * The geometries of the intersections seen so far, in the order of
+   * access.  All the intersections of a grid map have the same local
+   * layout of roads, so only the first one is computed from the shapes of
+   * the lanes.
+   */
+  private static final Map<GeometryKey, Geometry> sharedGeometries =
+    new LinkedHashMap<GeometryKey, Geometry>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<GeometryKey, Geometry> eldest) {
+        return size() > MAX_SHARED_GEOMETRIES;
+      }
+    };
+
 
   /////////////////////////////////
   // PRIVATE FIELDS
@@ -129,6 +224,12 @@ public class RoadBasedIntersection implements Intersection {
   /** The lanes incident to this intersection. */
   private List<Lane> lanes = new ArrayList<Lane>();
 
+  /** A mapping from the lanes incident to this intersection to their roads */
+  private Map<Lane,Road> laneToRoad = new HashMap<Lane,Road>();
+
+  /** A mapping from the IDs of the lanes incident to this intersection */
+  private Map<Integer,Lane> idToLane = new HashMap<Integer,Lane>();
+
   // points
 
   /**
@@ -184,16 +285,35 @@ public class RoadBasedIntersection implements Intersection {
     this.roads = roads;
     // Get the list of Lanes we are using.
     extractLanes(roads);
-    // Now get the entry and exit points for each of the lanes.
-    establishEntryAndExitPoints(findStrictIntersectionArea(roads));
-    // Find the centroid of the intersection
-    centroid = GeomMath.polygonalShapeCentroid(area);
-    // Calculate the waypoints.
-    calcWayPoints();
-    // calculate the edges
-    calcEdges();
-    // Now build a GeneralPath using the waypoints.
-    addWayPointsPath();
+    // Reuse the geometry of an intersection with the same local layout of
+    // roads, if any
+    Point2D anchor = findAnchor(roads);
+    GeometryKey key = (anchor != null) ? makeGeometryKey(roads, anchor) : null;
+    Geometry geometry = null;
+    if (key != null) {
+      synchronized(sharedGeometries) {
+        geometry = sharedGeometries.get(key);
+      }
+    }
+    if (geometry == null || !translateGeometry(geometry, anchor)) {
+      // Now get the entry and exit points for each of the lanes.
+      boolean isTranslatable =
+        establishEntryAndExitPoints(findStrictIntersectionArea(roads));
+      // Find the centroid of the intersection
+      centroid = GeomMath.polygonalShapeCentroid(area);
+      // Calculate the waypoints.
+      calcWayPoints();
+      // calculate the edges
+      calcEdges();
+      // Now build a GeneralPath using the waypoints.
+      addWayPointsPath();
+      if (key != null && geometry == null && isTranslatable) {
+        geometry = new Geometry(this, anchor);
+        synchronized(sharedGeometries) {
+          sharedGeometries.put(key, geometry);
+        }
+      }
+    }
     // Calculate the bounding box
     boundingBox = area.getBounds2D();
 
@@ -214,6 +334,8 @@ public class RoadBasedIntersection implements Intersection {
     for(Road road : roads) {
       for(Lane lane : road.getLanes()) {
         lanes.add(lane);
+        laneToRoad.put(lane, road);
+        idToLane.put(lane.getId(), lane);
       }
     }
   }
@@ -267,8 +389,14 @@ public class RoadBasedIntersection implements Intersection {
    * and record them, along with the headings of the Lanes at those points.
    * Also, extend the space governed by the IntersectionManager to include
    * the each Lane out to these points.
+   *
+   * @param strictIntersection  the area in which the roads intersect
+   * @return whether every lane has an entry point and an exit point that
+   *         are not its end points, so that the geometry does not depend
+   *         on the lengths of the lanes
    */
-  private void establishEntryAndExitPoints(Area strictIntersection) {
+  private boolean establishEntryAndExitPoints(Area strictIntersection) {
+    boolean isTranslatable = true;
     Map<Lane,Double> entryFractions = new HashMap<Lane,Double>();
     Map<Lane,Double> exitFractions = new HashMap<Lane,Double>();
     List<Lane> intersectingLanes = new LinkedList<Lane>();
@@ -339,8 +467,10 @@ public class RoadBasedIntersection implements Intersection {
       // entry point
       if (strictIntersection.contains(lane.getStartPoint())) {
         entryFrac = 0;
+        isTranslatable = false;
       } else {
         entryFrac = Math.max(0, entryFractions.get(lane) - expansionOffset);
+        isTranslatable &= (entryFrac > 0);
         this.entryPoints.put(lane,
           new WayPoint(lane.getPointAtNormalizedDistance(entryFrac)));
         this.entryHeadings.put(lane,
@@ -350,8 +480,10 @@ public class RoadBasedIntersection implements Intersection {
       // exit point.
       if(strictIntersection.contains(lane.getEndPoint())) {
         exitFrac = 1;
+        isTranslatable = false;
       } else {
         exitFrac = Math.min(1, exitFractions.get(lane) + expansionOffset);
+        isTranslatable &= (exitFrac < 1);
         this.exitPoints.put(lane,
           new WayPoint(lane.getPointAtNormalizedDistance(exitFrac)));
         this.exitHeadings.put(lane,
@@ -365,6 +497,156 @@ public class RoadBasedIntersection implements Intersection {
     // Fill in any of the holes
     area = GeomMath.filledArea(area);
     areaPlus = GeomMath.filledArea(areaPlus);
+    return isTranslatable;
+  }
+
+  /**
+   * Find the point at which the center line of the first lane of the first
+   * road meets the center line of the first lane of the first road that is
+   * not parallel to it.  The point moves with the roads, so it serves as
+   * the origin of their local layout.
+   *
+   * @param roads  a list of Roads
+   * @return the point; null if there are no crossing roads or the lanes
+   *         are not line segments
+   */
+  private static Point2D findAnchor(List<Road> roads) {
+    if (roads.isEmpty() || roads.get(0).getLanes().isEmpty()) {
+      return null;
+    }
+    Lane lane0 = roads.get(0).getLanes().get(0);
+    if (!(lane0 instanceof LineSegmentLane)) {
+      return null;
+    }
+    Point2D s0 = lane0.getStartPoint();
+    double[] d0 = direction(lane0);
+    for(Road road : roads) {
+      if (road.getLanes().isEmpty()
+          || !(road.getLanes().get(0) instanceof LineSegmentLane)) {
+        continue;
+      }
+      Lane lane = road.getLanes().get(0);
+      double[] d = direction(lane);
+      double cross = d0[0] * d[1] - d0[1] * d[0];
+      if (Math.abs(cross) > 1e-6) {
+        Point2D s = lane.getStartPoint();
+        double t = ((s.getX() - s0.getX()) * d[1]
+                    - (s.getY() - s0.getY()) * d[0]) / cross;
+        return new Point2D.Double(s0.getX() + t * d0[0],
+                                  s0.getY() + t * d0[1]);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the unit vector in the direction of a line segment lane.  It is
+   * computed from the end points of the lane rather than its heading, so
+   * that it is exact for lanes parallel to the axes.
+   *
+   * @param lane  a line segment lane
+   * @return the x- and y-components of the unit vector
+   */
+  private static double[] direction(Lane lane) {
+    Point2D s = lane.getStartPoint();
+    Point2D e = lane.getEndPoint();
+    double length = s.distance(e);
+    return new double[] { (e.getX() - s.getX()) / length,
+                          (e.getY() - s.getY()) / length };
+  }
+
+  /**
+   * Make the key of the local layout of a list of roads, which determines
+   * the geometry of their intersection as long as the lanes begin and end
+   * outside of it.
+   *
+   * @param roads   a list of Roads
+   * @param anchor  the origin of the local layout
+   * @return the key; null if some lanes are not line segments
+   */
+  private static GeometryKey makeGeometryKey(List<Road> roads,
+                                             Point2D anchor) {
+    GeometryKey.Builder key = new GeometryKey.Builder();
+    key.add(roads.size());
+    for(Road road : roads) {
+      key.add(roads.indexOf(road.getDual()));
+      key.add(road.getLanes().size());
+      for(Lane lane : road.getLanes()) {
+        if (!(lane instanceof LineSegmentLane)) {
+          return null;
+        }
+        double[] d = direction(lane);
+        Point2D s = lane.getStartPoint();
+        key.addDirection(d[0]);
+        key.addDirection(d[1]);
+        key.addLength(lane.getWidth());
+        // the slightly larger area is offset by a fraction of the length
+        key.addLength(lane.getLength());
+        // the signed distance of the center line from the anchor
+        key.addLength((s.getY() - anchor.getY()) * d[0]
+                      - (s.getX() - anchor.getX()) * d[1]);
+      }
+    }
+    return key.build();
+  }
+
+  /**
+   * Set up this intersection by translating the geometry of an intersection
+   * with the same local layout of roads.  Nothing is changed if some
+   * translated entry or exit point does not lie strictly inside its lane.
+   *
+   * @param geometry  the geometry of the other intersection
+   * @param anchor    the origin of the local layout of the roads of this
+   *                  intersection
+   * @return whether the geometry has been translated
+   */
+  private boolean translateGeometry(Geometry geometry, Point2D anchor) {
+    double dx = anchor.getX() - geometry.anchor.getX();
+    double dy = anchor.getY() - geometry.anchor.getY();
+    int n = geometry.roadIndices.length;
+    List<Lane> translatedLanes = new ArrayList<Lane>(n);
+    WayPoint[] translatedEntryPoints = new WayPoint[n];
+    WayPoint[] translatedExitPoints = new WayPoint[n];
+
+    for(int k = 0; k < n; k++) {
+      Lane lane = roads.get(geometry.roadIndices[k]).getLanes()
+                       .get(geometry.laneIndices[k]);
+      translatedEntryPoints[k] =
+        new WayPoint(geometry.entryPoints[k].getX() + dx,
+                     geometry.entryPoints[k].getY() + dy);
+      translatedExitPoints[k] =
+        new WayPoint(geometry.exitPoints[k].getX() + dx,
+                     geometry.exitPoints[k].getY() + dy);
+      double entryFrac =
+        lane.normalizedDistanceAlongLane(translatedEntryPoints[k]);
+      double exitFrac =
+        lane.normalizedDistanceAlongLane(translatedExitPoints[k]);
+      if (entryFrac <= 0 || exitFrac >= 1) {
+        return false;
+      }
+      translatedLanes.add(lane);
+
+    }
+    lanes = translatedLanes;
+    for(int k = 0; k < n; k++) {
+      Lane lane = translatedLanes.get(k);
+      entryPoints.put(lane, translatedEntryPoints[k]);
+      entryHeadings.put(lane, geometry.entryHeadings[k]);
+      exitPoints.put(lane, translatedExitPoints[k]);
+      exitHeadings.put(lane, geometry.exitHeadings[k]);
+    }
+    AffineTransform translation = AffineTransform.getTranslateInstance(dx, dy);
+    // The shapes of lanes have single precision coordinates, so round the
+    // translated areas the same way
+    area = new Area(new Path2D.Float(geometry.area, translation));
+    areaPlus = new Area(new Path2D.Float(geometry.areaPlus, translation));
+    centroid = new Point2D.Double(geometry.centroid.getX() + dx,
+                                  geometry.centroid.getY() + dy);
+    calcWayPoints();
+    for(Path2D edge : geometry.edges) {
+      edges.add(new Path2D.Double(edge, translation));
+    }
+    return true;
   }
 
   /**
@@ -464,6 +746,22 @@ public class RoadBasedIntersection implements Intersection {
     return lanes;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Road getRoad(Lane lane) {
+    return laneToRoad.get(lane);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Lane getLane(int laneId) {
+    return idToLane.get(laneId);
+  }
+
   /**
    * Get the Area controlled by this intersection manager.
    *
@@ -530,8 +828,8 @@ public class RoadBasedIntersection implements Intersection {
    */
   private void calcEntryRoads() {
     for(Lane lane : getEntryLanes()) {
-      if (!entryRoads.contains(Debug.currentMap.getRoad(lane))) {
-        entryRoads.add(Debug.currentMap.getRoad(lane));
+      if (!entryRoads.contains(getRoad(lane))) {
+        entryRoads.add(getRoad(lane));
       }
     }
   }
@@ -595,8 +893,8 @@ public class RoadBasedIntersection implements Intersection {
 
   private void calcExitRoads() {
     for(Lane lane : getExitLanes()) {
-      if (!exitRoads.contains(Debug.currentMap.getRoad(lane))) {
-        exitRoads.add(Debug.currentMap.getRoad(lane));
+      if (!exitRoads.contains(getRoad(lane))) {
+        exitRoads.add(getRoad(lane));
       }
     }
   }
@@ -655,8 +953,8 @@ public class RoadBasedIntersection implements Intersection {
    */
   @Override
   public TurnDirection calcTurnDirection(Lane currentLane, Lane departureLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
-    Road departureRoad = Debug.currentMap.getRoad(departureLane);
+    Road currentRoad = getRoad(currentLane);
+    Road departureRoad = getRoad(departureLane);
     if(departureRoad == currentRoad) {
       return TurnDirection.STRAIGHT;
     } else if(departureRoad == currentRoad.getDual()) {
@@ -32,20 +32,21 @@ package aim4.im;
 
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
-import aim4.config.Debug;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
 import aim4.util.GeomMath;
+import aim4.util.GeometryKey;
 
 
 /**
@@ -111,6 +112,94 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
+  /**
+   * The lane conflicts of an intersection.  A trajectory is identified by
+   * the index of its entry lane in the list of entry lanes and the index of
+   * its exit lane in the list of exit lanes, and the conflicts are stored as
+   * a symmetric bit matrix indexed by pairs of trajectories.  A conflict
+   * matrix never changes after it is computed, so it is shared by the
+   * intersections with the same geometry.
+   */
+  private static class ConflictMatrix {
+    /** The number of exit lanes */
+    private final int numOfExitLanes;
+    /** The number of 64-bit words in a row of the matrix */
+    private final int wordsPerRow;
+    /** The bits of the matrix, row by row */
+    private final long[] bits;
+
+    /**
+     * Create a conflict matrix without any conflict.
+     *
+     * @param numOfEntryLanes  the number of entry lanes
+     * @param numOfExitLanes   the number of exit lanes
+     */
+    ConflictMatrix(int numOfEntryLanes, int numOfExitLanes) {
+      int numOfTrajectories = numOfEntryLanes * numOfExitLanes;
+      this.numOfExitLanes = numOfExitLanes;
+      this.wordsPerRow = (numOfTrajectories + 63) >>> 6;
+      this.bits = new long[numOfTrajectories * wordsPerRow];
+    }
+
+    /**
+     * Get the index of a trajectory.
+     *
+     * @param entryIndex  the index of the entry lane
+     * @param exitIndex   the index of the exit lane
+     * @return the index of the trajectory
+     */
+    int trajectory(int entryIndex, int exitIndex) {
+      return entryIndex * numOfExitLanes + exitIndex;
+    }
+
+    /**
+     * Record that two trajectories conflict.
+     *
+     * @param t1  the index of the first trajectory
+     * @param t2  the index of the second trajectory
+     */
+    void setConflict(int t1, int t2) {
+      bits[t1 * wordsPerRow + (t2 >>> 6)] |= 1L << t2;
+      bits[t2 * wordsPerRow + (t1 >>> 6)] |= 1L << t1;
+    }
+
+    /**
+     * Whether two trajectories conflict.
+     *
+     * @param t1  the index of the first trajectory
+     * @param t2  the index of the second trajectory
+     * @return whether the trajectories conflict
+     */
+    boolean isConflict(int t1, int t2) {
+      return (bits[t1 * wordsPerRow + (t2 >>> 6)] & (1L << t2)) != 0;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE STATIC FIELDS
+  /////////////////////////////////
+
+  /**
+   * The maximum number of conflict matrices that are kept for sharing.
+   */
+  private static final int MAX_SHARED_CONFLICT_MATRICES = 64;
+
+  /**
+   * The conflict matrices of the intersection geometries seen so far, in
+   * the order of access.  The track models of the intersections of a grid
+   * map are usually created one after another, so that all of them but the
+   * first one reuse its matrix.
+   */
+  private static final Map<GeometryKey, ConflictMatrix> sharedConflictMatrices =
+    new LinkedHashMap<GeometryKey, ConflictMatrix>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<GeometryKey, ConflictMatrix> eldest) {
+        return size() > MAX_SHARED_CONFLICT_MATRICES;
+      }
+    };
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -138,18 +227,23 @@ public class RoadBasedTrackModel implements TrackModel {
 
   /**
    * Memoization cache for {@link #traversalDistance(Road arrival, Road
-   * departure)}.
+   * departure)}.  The drivers may ask for the traversal distances
+   * concurrently.
    */
   private Map<List<Integer>, Double> memoTraversalDistance =
-    new HashMap<List<Integer>, Double>();
+    new ConcurrentHashMap<List<Integer>, Double>();
+
+  /** The IDs of the entry lanes, in the order of their indices */
+  private int[] entryLaneIds;
+
+  /** The IDs of the exit lanes, in the order of their indices */
+  private int[] exitLaneIds;
 
-  // TODO: remove this variable
   /**
-   * A set of 4-tuples of lanes IDs such that if the tuple
-   * <i>(l1, l2, l3, l4)</i> is in the set, the track from lane <i>l1</i> to
-   * lane </i>l2</i> conflicts with the track from lane <i>l3</i> to <i>l4</i>.
+   * The conflicts between the tracks from the entry lanes to the exit
+   * lanes.
    */
-  private Set<List<Integer>> laneConflicts = new HashSet<List<Integer>>();
+  private ConflictMatrix laneConflicts;
 
 
   /////////////////////////////////
@@ -166,7 +260,7 @@ public class RoadBasedTrackModel implements TrackModel {
     this.intersection = intersection ;
     // Determine the priorities for exit lanes
     calculateLanePriorities();
-    calculateLaneConflicts(); // TODO remove this function
+    calculateLaneConflicts();
   }
 
   /////////////////////////////////
@@ -264,51 +358,137 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
-  //TODO remove this function
   /**
-   * For all pairs of trajectories (4-tuples of Lanes), find the ones
-   * that conflict and add them to <code>laneConflicts</code>. Assumes
-   * that Lanes are linear within the intersection.
+   * Find the conflicting pairs of trajectories and record them in
+   * <code>laneConflicts</code>.  Assumes that Lanes are linear within the
+   * intersection.  The conflicts are computed once for each distinct
+   * intersection geometry.
    */
   private void calculateLaneConflicts() {
-    // N^4: blech!
-    for(Lane l11: intersection.getEntryLanes()) {
-      for(Lane l12: intersection.getExitLanes()) {
-        // Find the line segments that represent the track
-        List<Line2D> l1Segments = inIntersectionSegments(l11, l12);
-        for(Lane l21: intersection.getEntryLanes()) {
-          for(Lane l22: intersection.getExitLanes()) {
-            // If the start or end lanes are the same, that's an automatic
-            // conflict
-            if(l11 == l21 || l12 == l22) {
-              // Construct the key from the IDs of the various lanes
-              List<Integer> key = Arrays.asList(l11.getId(), l12.getId(),
-                                                l21.getId(), l22.getId());
-              laneConflicts.add(key);
-            } else {
-              // Find the line segments that represent the track
-              List<Line2D> l2Segments = inIntersectionSegments(l21, l22);
-              // Now, if any of the l1 segments intersect any of the l2
-              // segments, there is a conflict.
-              findConflict: for(Line2D l1Seg: l1Segments) {
-                for(Line2D l2Seg: l2Segments) {
-                  if(l1Seg.intersectsLine(l2Seg)) {
-                    // Construct the key from the IDs of the various lanes
-                    List<Integer> key = Arrays.asList(l11.getId(),
-                                                      l12.getId(),
-                                                      l21.getId(),
-                                                      l22.getId());
-                    laneConflicts.add(key);
-                    break findConflict;  // No need to keep calculating
-                  }
+    List<Lane> entryLanes = intersection.getEntryLanes();
+    List<Lane> exitLanes = intersection.getExitLanes();
+    entryLaneIds = new int[entryLanes.size()];
+    for(int i = 0; i < entryLanes.size(); i++) {
+      entryLaneIds[i] = entryLanes.get(i).getId();
+    }
+    exitLaneIds = new int[exitLanes.size()];
+    for(int j = 0; j < exitLanes.size(); j++) {
+      exitLaneIds[j] = exitLanes.get(j).getId();
+    }
+    GeometryKey key = makeGeometryKey(entryLanes, exitLanes);
+    synchronized(sharedConflictMatrices) {
+      laneConflicts = sharedConflictMatrices.get(key);
+    }
+    if (laneConflicts == null) {
+      laneConflicts = makeConflictMatrix(entryLanes, exitLanes);
+      synchronized(sharedConflictMatrices) {
+        sharedConflictMatrices.put(key, laneConflicts);
+      }
+    }
+  }
+
+  /**
+   * For all pairs of trajectories (4-tuples of Lanes), find the ones
+   * that conflict.
+   *
+   * @param entryLanes  the entry lanes
+   * @param exitLanes   the exit lanes
+   * @return the conflict matrix
+   */
+  private ConflictMatrix makeConflictMatrix(List<Lane> entryLanes,
+                                            List<Lane> exitLanes) {
+    ConflictMatrix matrix =
+      new ConflictMatrix(entryLanes.size(), exitLanes.size());
+    // Find the line segments that represent the tracks
+    List<List<Line2D>> segments = new ArrayList<List<Line2D>>();
+    for(Lane entryLane : entryLanes) {
+      for(Lane exitLane : exitLanes) {
+        segments.add(inIntersectionSegments(entryLane, exitLane));
+      }
+    }
+    // The conflicts are symmetric, so only check each pair once
+    for(int i1 = 0; i1 < entryLanes.size(); i1++) {
+      for(int j1 = 0; j1 < exitLanes.size(); j1++) {
+        int t1 = matrix.trajectory(i1, j1);
+        for(int t2 = t1; t2 < segments.size(); t2++) {
+          int i2 = t2 / exitLanes.size();
+          int j2 = t2 % exitLanes.size();
+          // If the start or end lanes are the same, that's an automatic
+          // conflict
+          if(i1 == i2 || j1 == j2) {
+            matrix.setConflict(t1, t2);
+          } else {
+            // Now, if any of the l1 segments intersect any of the l2
+            // segments, there is a conflict.
+            findConflict: for(Line2D l1Seg: segments.get(t1)) {
+              for(Line2D l2Seg: segments.get(t2)) {
+                if(l1Seg.intersectsLine(l2Seg)) {
+                  matrix.setConflict(t1, t2);
+                  break findConflict;  // No need to keep calculating
                 }
               }
             }
-
           }
         }
       }
     }
+    return matrix;
+  }
+
+  /**
+   * Make the key of the geometry of the intersection that determines the
+   * result of {@link #makeConflictMatrix(List, List)}.
+   *
+   * @param entryLanes  the entry lanes
+   * @param exitLanes   the exit lanes
+   * @return the geometry key
+   */
+  private GeometryKey makeGeometryKey(List<Lane> entryLanes,
+                                      List<Lane> exitLanes) {
+    Rectangle2D box = intersection.getBoundingBox();
+    double x0 = box.getMinX();
+    double y0 = box.getMinY();
+    GeometryKey.Builder key = new GeometryKey.Builder();
+    key.add(entryLanes.size());
+    key.add(exitLanes.size());
+    for(Lane l : entryLanes) {
+      key.addPoint(intersection.getEntryPoint(l), x0, y0);
+      if(intersection.isExitedBy(l)) {
+        key.add(1);
+        key.addPoint(intersection.getExitPoint(l), x0, y0);
+      } else {
+        key.add(0);
+        key.addPoint(l.getEndPoint(), x0, y0);
+      }
+      key.add(exitLanes.indexOf(l));
+    }
+    for(Lane l : exitLanes) {
+      key.addPoint(intersection.getExitPoint(l), x0, y0);
+      if(intersection.isEnteredBy(l)) {
+        key.add(1);
+        key.addPoint(intersection.getEntryPoint(l), x0, y0);
+      } else {
+        key.add(0);
+        key.addPoint(l.getStartPoint(), x0, y0);
+      }
+    }
+    return key.build();
+  }
+
+  /**
+   * Find the index of a lane ID in an array of lane IDs.
+   *
+   * @param laneIds  the lane IDs
+   * @param laneId   the lane ID
+   * @return the index of the lane ID; -1 if it is not in the array
+   */
+  private static int indexOf(int[] laneIds, int laneId) {
+    for(int i = 0; i < laneIds.length; i++) {
+      if (laneIds[i] == laneId) {
+        return i;
+      }
+    }
+    return -1;
   }
 
   /////////////////////////////////
@@ -342,7 +522,6 @@ public class RoadBasedTrackModel implements TrackModel {
   }
 
 
-  // TODO: remove this function
   /**
    * Determine whether two trajectories overlap.  Errs on the side of caution.
    *
@@ -354,8 +533,15 @@ public class RoadBasedTrackModel implements TrackModel {
    */
   @Override
   public boolean trajectoriesConflict(int l11, int l12, int l21, int l22) {
-    List<Integer> lookupKey = Arrays.asList(l11, l12, l21, l22);
-    return laneConflicts.contains(lookupKey);
+    int i1 = indexOf(entryLaneIds, l11);
+    int j1 = indexOf(exitLaneIds, l12);
+    int i2 = indexOf(entryLaneIds, l21);
+    int j2 = indexOf(exitLaneIds, l22);
+    if (i1 < 0 || j1 < 0 || i2 < 0 || j2 < 0) {
+      return false;
+    }
+    return laneConflicts.isConflict(laneConflicts.trajectory(i1, j1),
+                                    laneConflicts.trajectory(i2, j2));
   }
 
 
@@ -388,7 +574,8 @@ public class RoadBasedTrackModel implements TrackModel {
   public double traversalDistance(Lane arrival, Lane departure) {
     List<Integer> key = Arrays.asList(arrival.getId(),
                                       departure.getId());
-    if(!memoTraversalDistance.containsKey(key)) {
+    Double distance = memoTraversalDistance.get(key);
+    if(distance == null) {
       double totalDistance = 0;
       List<Line2D> segments =
         inIntersectionSegments(arrival, departure);
@@ -396,9 +583,10 @@ public class RoadBasedTrackModel implements TrackModel {
       for(Line2D line : segments) {
         totalDistance += line.getP1().distance(line.getP2());
       }
-      memoTraversalDistance.put(key, totalDistance);
+      distance = totalDistance;
+      memoTraversalDistance.put(key, distance);
     }
-    return memoTraversalDistance.get(key);
+    return distance;
   }
 
   /**
@@ -413,9 +601,8 @@ public class RoadBasedTrackModel implements TrackModel {
    */
   @Override
   public double traversalDistance(int arrivalID, int departureID) {
-    List<Integer> key = Arrays.asList(arrivalID, departureID);
-    Lane arrival = Debug.currentMap.getLaneRegistry().get(arrivalID);
-    Lane departure = Debug.currentMap.getLaneRegistry().get(departureID);
+    Lane arrival = intersection.getLane(arrivalID);
+    Lane departure = intersection.getLane(departureID);
     return traversalDistance(arrival, departure);
   }
 
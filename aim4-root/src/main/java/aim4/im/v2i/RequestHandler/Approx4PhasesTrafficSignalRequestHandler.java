@@ -152,6 +152,7 @@ public class Approx4PhasesTrafficSignalRequestHandler implements
       basePolicy.sendRejectMsg(vin,
                                msg.getRequestId(),
                                filterResult.getReason());
+      return;
     }
 
     List<Request.Proposal> proposals = filterResult.getProposals();
@@ -201,6 +201,7 @@ public class ApproxNPhasesTrafficSignalRequestHandler implements
       basePolicy.sendRejectMsg(vin,
                                msg.getRequestId(),
                                filterResult.getReason());
+      return;
     }
 
     List<Request.Proposal> proposals = filterResult.getProposals();
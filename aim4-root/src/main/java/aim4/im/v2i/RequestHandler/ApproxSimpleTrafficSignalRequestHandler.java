@@ -30,10 +30,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.RequestHandler;
 
-import aim4.config.Debug;
 import aim4.config.TrafficSignal;
 import java.util.List;
 
+import aim4.im.Intersection;
 import aim4.im.v2i.policy.BasePolicy;
 import aim4.im.v2i.policy.BasePolicyCallback;
 import aim4.im.v2i.policy.BasePolicy.ProposalFilterResult;
@@ -145,6 +145,7 @@ public class ApproxSimpleTrafficSignalRequestHandler implements
       basePolicy.sendRejectMsg(vin,
                                msg.getRequestId(),
                                filterResult.getReason());
+      return;
     }
 
     List<Request.Proposal> proposals = filterResult.getProposals();
@@ -178,7 +179,8 @@ public class ApproxSimpleTrafficSignalRequestHandler implements
    */
   @Override
   public TrafficSignal getSignal(int laneId) {
-    Road road = Debug.currentMap.getRoad(laneId);
+    Intersection intersection = basePolicy.getTrackMode().getIntersection();
+    Road road = intersection.getRoad(intersection.getLane(laneId));
 
     double period = greenLightDuration + yellowLightDuration;
     int id = (int) Math.floor(basePolicy.getCurrentTime() / period);
@@ -224,7 +226,8 @@ public class ApproxSimpleTrafficSignalRequestHandler implements
    * @return whether the vehicle can enter the intersection
    */
   private boolean canEnterFromLane(int laneId) {
-    Road road = Debug.currentMap.getRoad(laneId);
+    Intersection intersection = basePolicy.getTrackMode().getIntersection();
+    Road road = intersection.getRoad(intersection.getLane(laneId));
 
     double period = greenLightDuration + yellowLightDuration;
     int id = (int) Math.floor(basePolicy.getCurrentTime() / period);
@@ -33,7 +33,7 @@ package aim4.im.v2i.RequestHandler;
 import java.util.Iterator;
 import java.util.List;
 
-import aim4.config.Debug;
+import aim4.im.Intersection;
 import aim4.im.v2i.policy.BasePolicy;
 import aim4.im.v2i.policy.BasePolicyCallback;
 import aim4.im.v2i.policy.ExtendedBasePolicyCallback;
@@ -127,6 +127,7 @@ public class ApproxStopSignRequestHandler implements RequestHandler {
       basePolicy.sendRejectMsg(vin,
                                msg.getRequestId(),
                                filterResult.getReason());
+      return;
     }
 
     List<Request.Proposal> proposals = filterResult.getProposals();
@@ -213,7 +214,8 @@ public class ApproxStopSignRequestHandler implements RequestHandler {
    * @return whether the vehicle can enter the intersection
    */
   private boolean canEnterFromLane(int laneId) {
-    Road road = Debug.currentMap.getRoad(laneId);
+    Intersection intersection = basePolicy.getTrackMode().getIntersection();
+    Road road = intersection.getRoad(intersection.getLane(laneId));
     String roadName = road.getName();
 
     if (nextRoadName != null) {
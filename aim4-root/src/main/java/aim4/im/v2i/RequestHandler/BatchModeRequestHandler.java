@@ -42,7 +42,6 @@ import java.util.NavigableSet;
 import java.util.Set;
 import java.util.TreeSet;
 
-import aim4.config.Debug;
 import aim4.im.v2i.batch.ReorderingStrategy;
 import aim4.im.v2i.policy.BasePolicy;
 import aim4.im.v2i.policy.BasePolicyCallback;
@@ -52,6 +51,7 @@ import aim4.msg.i2v.Reject;
 import aim4.msg.i2v.Reject.Reason;
 import aim4.msg.v2i.Request;
 import aim4.msg.v2i.Request.Proposal;
+import aim4.sim.SimContext;
 import aim4.sim.StatCollector;
 import aim4.util.Util;
 
@@ -348,6 +348,12 @@ public class BatchModeRequestHandler implements RequestHandler {
 
   // Debug
 
+  /**
+   * The context of the simulation, in which the vehicles in the batch are
+   * highlighted; null if they are not highlighted.
+   */
+  private SimContext context = null;
+
   /**
    * The set of vehicles' VIN in the last batch.
    */
@@ -381,6 +387,22 @@ public class BatchModeRequestHandler implements RequestHandler {
     nextIndexedProposalId = 0;
   }
 
+  /**
+   * Create a batch mode request handler that highlights the vehicles in the
+   * batch.
+   *
+   * @param reorderingStrategy  the reorder strategy
+   * @param requestSC           the request statistic collector
+   * @param context             the context of the simulation, which keeps
+   *                            the colors of the vehicles
+   */
+  public BatchModeRequestHandler(ReorderingStrategy reorderingStrategy,
+                                 RequestStatCollector requestSC,
+                                 SimContext context) {
+    this(reorderingStrategy, requestSC);
+    this.context = context;
+  }
+
 
   /////////////////////////////////
   // PUBLIC METHODS
@@ -409,12 +431,12 @@ public class BatchModeRequestHandler implements RequestHandler {
     if (Util.isDoubleEqualOrGreater(basePolicy.getCurrentTime(),
                                     nextProcessingTime)) {
       Set<Integer> vinInBatch = processBatch();
-      if (IS_HIGHLIGHT_VEHICLE_IN_BATCH) {
+      if (IS_HIGHLIGHT_VEHICLE_IN_BATCH && context != null) {
         for(int vin : lastVinInBatch) {
-          Debug.removeVehicleColor(vin);
+          context.removeVehicleColor(vin);
         }
         for(int vin : vinInBatch) {
-          Debug.setVehicleColor(vin, VEHICLE_IN_BATCH_COLOR);
+          context.setVehicleColor(vin, VEHICLE_IN_BATCH_COLOR);
         }
         lastVinInBatch = vinInBatch;
       }
@@ -100,6 +100,7 @@ public class FCFSRequestHandler implements RequestHandler {
       basePolicy.sendRejectMsg(vin,
                                msg.getRequestId(),
                                filterResult.getReason());
+      return;
     }
 
     // try to see if reservation is possible for the remaining proposals.
@@ -121,6 +121,7 @@ public class GoStraightRequestHandler implements RequestHandler {
       basePolicy.sendRejectMsg(vin,
                                msg.getRequestId(),
                                filterResult.getReason());
+      return;
     }
 
     List<Request.Proposal> proposals = filterResult.getProposals();
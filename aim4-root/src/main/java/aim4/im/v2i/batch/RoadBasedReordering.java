@@ -30,13 +30,13 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.batch;
 
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 
-import aim4.config.Debug;
+import aim4.im.Intersection;
 import aim4.im.TrackModel;
 import aim4.im.v2i.RequestHandler.BatchModeRequestHandler.IndexedProposal;
 import aim4.map.Road;
@@ -136,7 +136,8 @@ public class RoadBasedReordering implements ReorderingStrategy {
                                         TrackModel trackModel) {
 
     List<IndexedProposal> proposals1 = selectProposals(currentTime, queue);
-    List<IndexedProposal> proposals2 = reorderProposals(proposals1);
+    List<IndexedProposal> proposals2 =
+      reorderProposals(proposals1, trackModel.getIntersection());
 
     nextProcessingTime = currentTime + processingInterval;
     nextProposalDeadline = nextProcessingTime + COMP_COMM_DELAY;
@@ -195,18 +196,22 @@ public class RoadBasedReordering implements ReorderingStrategy {
   /**
    * Reorder a list of indexed proposals.
    *
-   * @param iProposals a list of indexed proposals
+   * @param iProposals    a list of indexed proposals
+   * @param intersection  the intersection
    * @return a reordered list of indexed proposals
    */
   private List<IndexedProposal> reorderProposals(
-                                             List<IndexedProposal> iProposals) {
+                                             List<IndexedProposal> iProposals,
+                                             Intersection intersection) {
     // a partition of the proposals according to the road of the arrival lane.
+    // The partition keeps the order in which the roads are first seen so
+    // that the result does not depend on the hash codes of the roads.
     Map<Road,List<IndexedProposal>> partition =
-      new HashMap<Road,List<IndexedProposal>>();
+      new LinkedHashMap<Road,List<IndexedProposal>>();
 
     for(IndexedProposal iProposal : iProposals) {
       int laneId = iProposal.getProposal().getArrivalLaneID();
-      Road road = Debug.currentMap.getRoad(laneId);
+      Road road = intersection.getRoad(intersection.getLane(laneId));
       if (partition.containsKey(road)) {
         partition.get(road).add(iProposal);
       } else {
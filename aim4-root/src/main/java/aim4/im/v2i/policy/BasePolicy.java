@@ -30,11 +30,16 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.policy;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import aim4.config.Debug;
 import aim4.im.TrackModel;
@@ -352,6 +357,12 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
    */
   private StatCollector<BasePolicy> statCollector;
 
+  /**
+   * The executor that evaluates the proposals of a request concurrently;
+   * null if the proposals are evaluated one after another.
+   */
+  private ExecutorService proposalExecutor = null;
+
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -418,6 +429,31 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
     requestHandler.setBasePolicyCallback(this);
   }
 
+  /**
+   * Set the executor that evaluates the proposals of a request
+   * concurrently.  The reservation grid is not modified while the proposals
+   * are evaluated, so the queries of the proposals read the same state of
+   * the grid.  The first feasible proposal in the order of the request
+   * still wins.
+   *
+   * @param proposalExecutor  the executor; null if the proposals should be
+   *                          evaluated one after another
+   */
+  public void setProposalExecutor(ExecutorService proposalExecutor) {
+    this.proposalExecutor = proposalExecutor;
+  }
+
+  /**
+   * Get the executor that evaluates the proposals of a request
+   * concurrently.
+   *
+   * @return the executor; null if the proposals are evaluated one after
+   *         another
+   */
+  public ExecutorService getProposalExecutor() {
+    return proposalExecutor;
+  }
+
 
   /////////////////////////////////
   // PUBLIC METHODS
@@ -515,17 +551,19 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
     AczManager aczManager = null;
     AczManager.Plan aczPlan = null;
 
+    // Start the grid queries of all proposals at once if there is an
+    // executor; the results are still examined in the order of the proposals
+    List<Future<ReservationGridManager.Plan>> gridPlans =
+      submitGridQueries(msg, proposals);
+
+    int i = 0;
     for(Request.Proposal proposal : proposals) {
-      ReservationGridManager.Query gridQuery =
-        new ReservationGridManager.Query(vin,
-                                         proposal.getArrivalTime(),
-                                         proposal.getArrivalVelocity(),
-                                         proposal.getArrivalLaneID(),
-                                         proposal.getDepartureLaneID(),
-                                         msg.getSpec(),
-                                         proposal.getMaximumTurnVelocity(),
-                                         true);
-      gridPlan = im.getReservationGridManager().query(gridQuery);
+      if (gridPlans != null) {
+        gridPlan = getGridPlan(gridPlans.get(i++));
+      } else {
+        gridPlan =
+          im.getReservationGridManager().query(makeGridQuery(msg, proposal));
+      }
       if (gridPlan != null) {
         double stopDist =
           VehicleUtil.calcDistanceToStop(gridPlan.getExitVelocity(),
@@ -554,6 +592,13 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
       }
     }
 
+    if (gridPlans != null) {
+      // the results of the remaining proposals are no longer needed
+      for(Future<ReservationGridManager.Plan> future : gridPlans) {
+        future.cancel(false);
+      }
+    }
+
     if (successfulProposal != null) {
       return new ReserveParam(vin, successfulProposal, gridPlan, aczManager,
                               aczPlan);
@@ -562,6 +607,77 @@ public final class BasePolicy implements Policy, ExtendedBasePolicyCallback {
     }
   }
 
+  /**
+   * Make the reservation grid query of a proposal.
+   *
+   * @param msg       the request message
+   * @param proposal  the proposal
+   * @return the reservation grid query
+   */
+  private ReservationGridManager.Query makeGridQuery(Request msg,
+                                                    Request.Proposal proposal) {
+    return new ReservationGridManager.Query(msg.getVin(),
+                                            proposal.getArrivalTime(),
+                                            proposal.getArrivalVelocity(),
+                                            proposal.getArrivalLaneID(),
+                                            proposal.getDepartureLaneID(),
+                                            msg.getSpec(),
+                                            proposal.getMaximumTurnVelocity(),
+                                            true);
+  }
+
+  /**
+   * Submit the reservation grid queries of the proposals to the proposal
+   * executor.
+   *
+   * @param msg        the request message
+   * @param proposals  the proposals
+   * @return the results of the queries in the order of the proposals; null
+   *         if there is no proposal executor or fewer than two proposals
+   */
+  private List<Future<ReservationGridManager.Plan>> submitGridQueries(
+                                          Request msg,
+                                          List<Request.Proposal> proposals) {
+    if (proposalExecutor == null || proposals.size() < 2) {
+      return null;
+    }
+    final ReservationGridManager gridManager = im.getReservationGridManager();
+    List<Future<ReservationGridManager.Plan>> gridPlans =
+      new ArrayList<Future<ReservationGridManager.Plan>>(proposals.size());
+    for(Request.Proposal proposal : proposals) {
+      final ReservationGridManager.Query gridQuery =
+        makeGridQuery(msg, proposal);
+      gridPlans.add(proposalExecutor.submit(
+        new Callable<ReservationGridManager.Plan>() {
+          @Override
+          public ReservationGridManager.Plan call() {
+            return gridManager.query(gridQuery);
+          }
+        }));
+    }
+    return gridPlans;
+  }
+
+  /**
+   * Wait for the result of a reservation grid query.
+   *
+   * @param future  the pending result of the query
+   * @return the reservation plan; null if the query fails
+   */
+  private static ReservationGridManager.Plan getGridPlan(
+                                  Future<ReservationGridManager.Plan> future) {
+    try {
+      return future.get();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The evaluation of the proposals has been "
+                                 + "interrupted", e);
+    } catch(ExecutionException e) {
+      throw new RuntimeException("The evaluation of a proposal has failed",
+                                 e.getCause());
+    }
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -0,0 +1,494 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import aim4.config.SimConfig;
+
+/**
+ * A cache of the space-time footprints of the test vehicles simulated by a
+ * {@link ReservationGridManager}.  The footprint of a traversal depends only
+ * on the arrival and departure lanes, the vehicle specification, the maximum
+ * turn velocity, the arrival velocity, whether the vehicle accelerates and
+ * the phase of the arrival time within a grid time step.  A footprint is
+ * therefore stored relative to the grid time step of the arrival time and
+ * can be shifted to any arrival time with the same phase.
+ * <p>
+ * The arrival velocity and the phase are quantized so that similar queries
+ * share a footprint.  A footprint stands for all the arrival velocities and
+ * phases in its bucket: it is the union of the footprints simulated at the
+ * slowest and earliest corner of the bucket and at the fastest and latest
+ * one, which bracket the position of the vehicle along its path in every
+ * grid time step.  The two corners are simulated with a static buffer that
+ * is widened in proportion to the velocity quantum, so that the footprint
+ * also covers the sideways spread of the trajectories in the bucket,
+ * whichever query happened to fill the cache.  Without quantization hardly any two queries share a
+ * footprint, since the arrival velocities and phases are continuous, so
+ * the cache is only used if at least one of the quanta is positive.  The
+ * least recently used footprints are evicted when the cache is full.
+ * <p>
+ * The cache is shared by the threads that query the same reservation grid
+ * manager.
+ */
+public class FootprintCache {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default maximum number of footprints in the cache. {@value}
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /**
+   * The default quantum of the arrival velocity, in meters per second.
+   * {@value}
+   */
+  public static final double DEFAULT_VELOCITY_QUANTUM = 0.25;
+
+  /**
+   * The default quantum of the phase of the arrival time: a whole grid time
+   * step, so that the phase is left out of the key. {@value}
+   */
+  public static final double DEFAULT_PHASE_QUANTUM = SimConfig.GRID_TIME_STEP;
+
+  /**
+   * The duration, in seconds, by which the velocity quantum is multiplied to
+   * widen the static buffer of a footprint.  The trajectories in a bucket
+   * do not only part along the path but also sideways, as the test vehicles
+   * steer a little differently at different velocities; in the simulations
+   * of a 1x1 intersection, the sideways spread stays below 1.5 times the
+   * velocity quantum in meters. {@value}
+   */
+  private static final double STATIC_BUFFER_TIME = 1.5;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The parameters of a traversal that determine its footprint.
+   */
+  public static class Key {
+    /** The ID of the arrival lane */
+    private final int arrivalLaneId;
+    /** The ID of the departure lane */
+    private final int departureLaneId;
+    /** Whether the vehicle accelerates */
+    private final boolean accelerating;
+    /**
+     * The vehicle specification, the maximum turn velocity, the quantized
+     * arrival velocity and the quantized phase
+     */
+    private final double[] values;
+    /** The hash code */
+    private final int hashCode;
+
+    /**
+     * Create a key.
+     *
+     * @param arrivalLaneId    the ID of the arrival lane
+     * @param departureLaneId  the ID of the departure lane
+     * @param accelerating     whether the vehicle accelerates
+     * @param values           the vehicle specification, the maximum turn
+     *                         velocity, the quantized arrival velocity and
+     *                         the quantized phase
+     */
+    Key(int arrivalLaneId, int departureLaneId, boolean accelerating,
+        double[] values) {
+      this.arrivalLaneId = arrivalLaneId;
+      this.departureLaneId = departureLaneId;
+      this.accelerating = accelerating;
+      this.values = values;
+      this.hashCode = 31 * (31 * (31 * arrivalLaneId + departureLaneId)
+                            + (accelerating ? 1 : 0))
+                      + Arrays.hashCode(values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key key = (Key)obj;
+      return arrivalLaneId == key.arrivalLaneId
+             && departureLaneId == key.departureLaneId
+             && accelerating == key.accelerating
+             && Arrays.equals(values, key.values);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+  }
+
+  /**
+   * The space-time footprint of a traversal, relative to the grid time
+   * step of the arrival time.
+   */
+  public static class Footprint {
+    /**
+     * The offsets of the discrete times of the time-tiles from the discrete
+     * arrival time
+     */
+    private final int[] dtOffsets;
+    /** The IDs of the tiles of the time-tiles */
+    private final int[] tileIds;
+    /**
+     * The number of grid time steps from the discrete arrival time to the
+     * exit time
+     */
+    private final int numOfSteps;
+    /**
+     * The offset of the discrete time of the last time-tile reserved for the
+     * exit from the discrete arrival time
+     */
+    private final int exitDtOffset;
+    /** The exit velocity */
+    private final double exitVelocity;
+
+    /**
+     * Create a footprint.
+     *
+     * @param dtOffsets     the offsets of the discrete times of the
+     *                      time-tiles from the discrete arrival time
+     * @param tileIds       the IDs of the tiles of the time-tiles
+     * @param numOfSteps    the number of grid time steps from the discrete
+     *                      arrival time to the exit time
+     * @param exitDtOffset  the offset of the discrete time of the last
+     *                      time-tile reserved for the exit from the discrete
+     *                      arrival time
+     * @param exitVelocity  the exit velocity
+     */
+    public Footprint(int[] dtOffsets, int[] tileIds, int numOfSteps,
+                     int exitDtOffset, double exitVelocity) {
+      this.dtOffsets = dtOffsets;
+      this.tileIds = tileIds;
+      this.numOfSteps = numOfSteps;
+      this.exitDtOffset = exitDtOffset;
+      this.exitVelocity = exitVelocity;
+    }
+
+    /**
+     * Get the number of time-tiles.
+     *
+     * @return the number of time-tiles
+     */
+    public int size() {
+      return tileIds.length;
+    }
+
+    /**
+     * Get the offset of the discrete time of a time-tile from the discrete
+     * arrival time.
+     *
+     * @param i  the index of the time-tile
+     * @return the offset of the discrete time
+     */
+    public int getDtOffset(int i) {
+      return dtOffsets[i];
+    }
+
+    /**
+     * Get the ID of the tile of a time-tile.
+     *
+     * @param i  the index of the time-tile
+     * @return the ID of the tile
+     */
+    public int getTileId(int i) {
+      return tileIds[i];
+    }
+
+    /**
+     * Get the number of grid time steps from the discrete arrival time to
+     * the exit time.
+     *
+     * @return the number of grid time steps
+     */
+    public int getNumOfSteps() {
+      return numOfSteps;
+    }
+
+    /**
+     * Get the offset of the discrete time of the last time-tile reserved for
+     * the exit from the discrete arrival time.
+     *
+     * @return the offset of the discrete time
+     */
+    public int getExitDtOffset() {
+      return exitDtOffset;
+    }
+
+    /**
+     * Get the exit velocity.
+     *
+     * @return the exit velocity
+     */
+    public double getExitVelocity() {
+      return exitVelocity;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The maximum number of footprints in the cache */
+  private final int capacity;
+  /** The quantum of the arrival velocity; zero for no quantization */
+  private final double velocityQuantum;
+  /** The quantum of the phase; zero for no quantization */
+  private final double phaseQuantum;
+  /** The footprints, in order of access */
+  private final Map<Key,Footprint> footprints;
+  /** The number of lookups that found a footprint */
+  private long hits;
+  /** The number of lookups that did not find a footprint */
+  private long misses;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a footprint cache.
+   *
+   * @param capacity         the maximum number of footprints in the cache;
+   *                         zero disables the cache
+   * @param velocityQuantum  the quantum of the arrival velocity; zero for no
+   *                         quantization
+   * @param phaseQuantum     the quantum of the phase of the arrival time
+   *                         within a grid time step; zero for no
+   *                         quantization.  The cache is disabled if both
+   *                         quanta are zero.
+   */
+  public FootprintCache(final int capacity, double velocityQuantum,
+                        double phaseQuantum) {
+    if (capacity < 0 || velocityQuantum < 0.0 || phaseQuantum < 0.0) {
+      throw new IllegalArgumentException("The capacity and the quanta of "
+                                         + "the footprint cache must not be "
+                                         + "negative");
+    }
+    this.capacity = capacity;
+    this.velocityQuantum = velocityQuantum;
+    this.phaseQuantum = phaseQuantum;
+    this.footprints = new LinkedHashMap<Key,Footprint>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<Key,Footprint> eldest) {
+        return size() > capacity;
+      }
+    };
+    this.hits = 0;
+    this.misses = 0;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether the cache is enabled, i.e., whether it has a positive capacity
+   * and the arrival velocity or the phase is quantized.
+   *
+   * @return whether the cache is enabled
+   */
+  public boolean isEnabled() {
+    return capacity > 0 && (velocityQuantum > 0.0 || phaseQuantum > 0.0);
+  }
+
+  /**
+   * Get the slowest arrival velocity in the bucket of an arrival velocity.
+   *
+   * @param velocity  the arrival velocity
+   * @return the largest multiple of the velocity quantum that is not larger
+   *         than the velocity; the velocity itself if there is no
+   *         quantization
+   */
+  public double getLowerVelocity(double velocity) {
+    return quantizeDown(velocity, velocityQuantum);
+  }
+
+  /**
+   * Get the fastest arrival velocity in the bucket of an arrival velocity.
+   *
+   * @param velocity     the arrival velocity
+   * @param maxVelocity  the maximum velocity of the vehicle
+   * @return the end of the bucket of the velocity, but no more than the
+   *         maximum velocity; the velocity itself if there is no
+   *         quantization
+   */
+  public double getUpperVelocity(double velocity, double maxVelocity) {
+    return quantizeUp(velocity, velocityQuantum, maxVelocity);
+  }
+
+  /**
+   * Get the earliest phase in the bucket of the phase of an arrival time.
+   *
+   * @param phase  the phase
+   * @return the largest multiple of the phase quantum that is not larger
+   *         than the phase, but no less than zero, since a phase that is a
+   *         rounding error below zero is zero; the phase itself if there is
+   *         no quantization
+   */
+  public double getLowerPhase(double phase) {
+    if (phaseQuantum > 0.0) {
+      return Math.max(0.0, quantizeDown(phase, phaseQuantum));
+    } else {
+      return phase;
+    }
+  }
+
+  /**
+   * Get the latest phase in the bucket of the phase of an arrival time.
+   *
+   * @param phase         the phase
+   * @param gridTimeStep  the grid time step, which no phase reaches
+   * @return the end of the bucket of the phase, but no more than the grid
+   *         time step; the phase itself if there is no quantization
+   */
+  public double getUpperPhase(double phase, double gridTimeStep) {
+    return quantizeUp(phase, phaseQuantum, gridTimeStep);
+  }
+
+  /**
+   * Get the extra static buffer of the footprints in the cache.
+   *
+   * @return the extra static buffer, in meters
+   */
+  public double getStaticBufferMargin() {
+    return velocityQuantum * STATIC_BUFFER_TIME;
+  }
+
+  /**
+   * Get the footprint of a traversal and mark it as recently used.
+   *
+   * @param key  the parameters of the traversal
+   * @return the footprint; null if it is not in the cache
+   */
+  public synchronized Footprint get(Key key) {
+    Footprint footprint = footprints.get(key);
+    if (footprint != null) {
+      hits++;
+    } else {
+      misses++;
+    }
+    return footprint;
+  }
+
+  /**
+   * Store the footprint of a traversal, evicting the least recently used
+   * footprint if the cache is full.
+   *
+   * @param key        the parameters of the traversal
+   * @param footprint  the footprint
+   */
+  public synchronized void put(Key key, Footprint footprint) {
+    if (capacity > 0) {
+      footprints.put(key, footprint);
+    }
+  }
+
+  /**
+   * Get the number of footprints in the cache.
+   *
+   * @return the number of footprints in the cache
+   */
+  public synchronized int size() {
+    return footprints.size();
+  }
+
+  /**
+   * Get the number of lookups that found a footprint.
+   *
+   * @return the number of hits
+   */
+  public synchronized long getHits() {
+    return hits;
+  }
+
+  /**
+   * Get the number of lookups that did not find a footprint.
+   *
+   * @return the number of misses
+   */
+  public synchronized long getMisses() {
+    return misses;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Round a value down to a multiple of a quantum.
+   *
+   * @param value    the value
+   * @param quantum  the quantum; zero for no rounding
+   * @return the rounded value
+   */
+  private static double quantizeDown(double value, double quantum) {
+    if (quantum > 0.0) {
+      return Math.floor(value / quantum) * quantum;
+    } else {
+      return value;
+    }
+  }
+
+  /**
+   * Round a value up to the end of its bucket, but no more than a maximum.
+   *
+   * @param value    the value
+   * @param quantum  the quantum; zero for no rounding
+   * @param max      the maximum
+   * @return the rounded value
+   */
+  private static double quantizeUp(double value, double quantum,
+                                   double max) {
+    if (quantum > 0.0) {
+      return Math.max(value,
+                      Math.min(quantizeDown(value, quantum) + quantum, max));
+    } else {
+      return value;
+    }
+  }
+}
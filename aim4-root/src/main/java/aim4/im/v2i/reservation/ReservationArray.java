@@ -30,17 +30,15 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.im.v2i.reservation;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
-import java.util.NoSuchElementException;
 import java.util.Set;
-import java.util.TreeMap;
 
 /**
  * The Reservation Array.
@@ -53,6 +51,13 @@ public class ReservationArray {
 
   private static final boolean SHOULD_CHECK_CONSISTENCY = false;
 
+  /**
+   * The initial number of grids in the ring buffer of grids; must be a
+   * power of two.  The ring buffer grows when a reservation reaches
+   * further into the future.
+   */
+  private static final int INITIAL_CAPACITY = 256;
+
   /////////////////////////////////
   // PUBLIC NESTED CLASSES
   /////////////////////////////////
@@ -121,6 +126,110 @@ public class ReservationArray {
   }
 
 
+  /////////////////////////////////
+  // PRIVATE NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The time-tiles of a reservation.  A time-tile is packed into a long with
+   * its discrete time in the upper half, so that sorting the time-tiles
+   * sorts them by their discrete times.
+   */
+  private static class TimeTileList {
+    /** The packed time-tiles */
+    long[] timeTiles = new long[16];
+    /** The index of the first time-tile */
+    int begin = 0;
+    /** The index after the last time-tile */
+    int end = 0;
+    /** Whether the time-tiles are sorted by their discrete times */
+    boolean isSorted = true;
+    /** The first discrete time of the time-tiles */
+    int firstDt = Integer.MAX_VALUE;
+    /** The last discrete time of the time-tiles */
+    int lastDt = -1;
+
+    /**
+     * Add a time-tile.
+     *
+     * @param dt   the discrete time
+     * @param tid  the tile ID
+     */
+    void add(int dt, int tid) {
+      if (end == timeTiles.length) {
+        if (begin > 0) {
+          System.arraycopy(timeTiles, begin, timeTiles, 0, end - begin);
+          end -= begin;
+          begin = 0;
+        } else {
+          timeTiles = Arrays.copyOf(timeTiles, 2 * end);
+        }
+      }
+      long timeTile = ((long)dt << 32) | tid;
+      if (end > begin && timeTile < timeTiles[end - 1]) {
+        isSorted = false;
+      }
+      timeTiles[end++] = timeTile;
+      if (dt < firstDt) {
+        firstDt = dt;
+      }
+      if (dt > lastDt) {
+        lastDt = dt;
+      }
+    }
+
+    /**
+     * Whether the list is empty.
+     *
+     * @return whether the list is empty
+     */
+    boolean isEmpty() {
+      return begin == end;
+    }
+
+    /**
+     * Get the discrete time of a time-tile.
+     *
+     * @param i  the index of the time-tile
+     * @return the discrete time of the time-tile
+     */
+    int getDt(int i) {
+      return (int)(timeTiles[i] >>> 32);
+    }
+
+    /**
+     * Get the tile ID of a time-tile.
+     *
+     * @param i  the index of the time-tile
+     * @return the tile ID of the time-tile
+     */
+    int getTid(int i) {
+      return (int)timeTiles[i];
+    }
+
+    /**
+     * Remove all time-tiles before a given discrete time.  The list is
+     * sorted the first time any of its time-tiles expire, so that only the
+     * expired time-tiles at its front are visited from then on.
+     *
+     * @param dt  the discrete time
+     */
+    void removeBefore(int dt) {
+      if (firstDt >= dt) {
+        return;
+      }
+      if (!isSorted) {
+        Arrays.sort(timeTiles, begin, end);
+        isSorted = true;
+      }
+      while(begin < end && getDt(begin) < dt) {
+        begin++;
+      }
+      firstDt = (begin < end) ? getDt(begin) : Integer.MAX_VALUE;
+    }
+  }
+
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -131,21 +240,38 @@ public class ReservationArray {
   private final int numOfTiles;
 
   /**
-   * The grid table, a mapping from discrete times to grids.
+   * The grid table, a ring buffer of grids indexed by discrete times
+   * modulo the number of grids.  The grid of a discrete time holds the
+   * reservation ID of each tile, or -1 if the tile is free.  All grids
+   * outside the range from firstDt to lastDt are free.
+   */
+  private int[] grids;
+
+  /**
+   * Whether a grid in the ring buffer has been used by a reservation since
+   * it was last cleaned up.
+   */
+  private boolean[] isGridUsed;
+
+  /**
+   * The number of grids in the ring buffer; a power of two.
+   */
+  private int capacity;
+
+  /**
+   * The first discrete time whose grid is used; -1 if no grid is used.
    */
-  private NavigableMap<Integer, int[]> grids;
+  private int firstDt;
 
   /**
-   * A mapping from discrete times to mappings from reservation IDs to
-   * the tile IDs that is reserved by the vehicle at the time.
+   * The last discrete time whose grid is used; -1 if no grid is used.
    */
-  private NavigableMap<Integer,Map<Integer,Set<Integer>>> timeToRidToTid;
+  private int lastDt;
 
   /**
-   * A mapping from reservation IDs to mappings from discrete times to
-   * the tile IDs that is reserved by the vehicle at the time.
+   * A mapping from reservation IDs to the time-tiles they reserved.
    */
-  private Map<Integer,NavigableMap<Integer,Set<Integer>>> ridToTimeToTid;
+  private Map<Integer,TimeTileList> ridToTimeTiles;
 
 
   /////////////////////////////////
@@ -159,9 +285,13 @@ public class ReservationArray {
    */
   public ReservationArray(int numOfTiles) {
     this.numOfTiles = numOfTiles;
-    grids = new TreeMap<Integer, int[]>();
-    timeToRidToTid = new TreeMap<Integer,Map<Integer,Set<Integer>>>();
-    ridToTimeToTid = new HashMap<Integer,NavigableMap<Integer,Set<Integer>>>();
+    capacity = INITIAL_CAPACITY;
+    grids = new int[capacity * numOfTiles];
+    Arrays.fill(grids, -1);
+    isGridUsed = new boolean[capacity];
+    firstDt = -1;
+    lastDt = -1;
+    ridToTimeTiles = new HashMap<Integer,TimeTileList>();
   }
 
 
@@ -183,11 +313,7 @@ public class ReservationArray {
    * @param tid  the tile ID
    */
   public boolean isReserved(int dt, int tid) {
-    if (grids.containsKey(dt)) {
-      return grids.get(dt)[tid] >= 0;
-    } else {
-      return false;
-    }
+    return getReservationId(dt, tid) >= 0;
   }
 
   /**
@@ -198,8 +324,8 @@ public class ReservationArray {
    * @return the reservation ID; -1 if the reservation ID does not exist
    */
   public int getReservationId(int dt, int tid) {
-    if (grids.containsKey(dt)) {
-      return grids.get(dt)[tid];
+    if (firstDt <= dt && dt <= lastDt) {
+      return grids[(dt & (capacity - 1)) * numOfTiles + tid];
     } else {
       return -1;
     }
@@ -212,7 +338,7 @@ public class ReservationArray {
    * @return whether the reservation ID exists
    */
   public boolean hasReservation(int rid) {
-    return ridToTimeToTid.containsKey(rid);
+    return ridToTimeTiles.containsKey(rid);
   }
 
   /**
@@ -222,11 +348,7 @@ public class ReservationArray {
    *         -1 if there is currently no reservation.
    */
   public int getLastReservedDiscreteTime() {
-    try {
-      return grids.lastKey();
-    } catch(NoSuchElementException e) {
-      return -1;
-    }
+    return lastDt;
   }
 
   /**
@@ -237,12 +359,9 @@ public class ReservationArray {
    *         less than zero if the reservation id does not exist
    */
   public int getLastReservedDiscreteTime(int rid) {
-    if (ridToTimeToTid.containsKey(rid)) {
-      try {
-        return ridToTimeToTid.get(rid).lastKey();
-      } catch(NoSuchElementException e) {
-        return -1;
-      }
+    TimeTileList timeTiles = ridToTimeTiles.get(rid);
+    if (timeTiles != null) {
+      return timeTiles.lastDt;
     } else {
       return -1;
     }
@@ -260,62 +379,30 @@ public class ReservationArray {
   public boolean reserve(int rid, Collection<? extends TimeTile> workingList) {
     // check to see if any time-tile is reserved in the past
     for(TimeTile tt : workingList) {
-      int dt = tt.getDiscreteTime();
-      if (grids.containsKey(dt) && grids.get(dt)[tt.getTileId()] >= 0) {
+      if (isReserved(tt.getDiscreteTime(), tt.getTileId())) {
         return false; // the time-tile has been reserved.
       }
     }
 
     // actually make the reservation
-    int timeBegin = 0;
-    try {
-      timeBegin = grids.firstKey();
-    } catch(NoSuchElementException e) {
-      // It means the grid is empty. All time-tiles are acceptable.
-    }
+    int timeBegin = (firstDt >= 0) ? firstDt : 0;
 
+    TimeTileList timeTiles = ridToTimeTiles.get(rid);
     for(TimeTile tt : workingList) {
       int dt = tt.getDiscreteTime();
       int tid = tt.getTileId();
 
       if (dt >= timeBegin) {
-        // update grids;
-        int[] grid = grids.get(dt);
-        if (grid == null) {
-          grid = new int[numOfTiles];
-          for(int i=0; i<numOfTiles; i++) { // initialize the grid
-            grid[i] = -1;
-          }
-          grids.put(dt, grid);
-        }
-        grid[tid] = rid;
-
-        // update timeToRidToTid
-        Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-        if (ridToTid == null) {
-          ridToTid = new HashMap<Integer,Set<Integer>>();
-          timeToRidToTid.put(dt, ridToTid);
+        // update grids
+        useGrid(dt);
+        grids[(dt & (capacity - 1)) * numOfTiles + tid] = rid;
+
+        // update ridToTimeTiles
+        if (timeTiles == null) {
+          timeTiles = new TimeTileList();
+          ridToTimeTiles.put(rid, timeTiles);
         }
-        Set<Integer> tidSet = ridToTid.get(rid);
-        if (tidSet == null) {
-          tidSet = new HashSet<Integer>();
-          ridToTid.put(rid, tidSet);
-        }
-        tidSet.add(tid);
-
-        // update ridToTimeToTid
-        NavigableMap<Integer,Set<Integer>> timeToTid =
-          ridToTimeToTid.get(rid);
-        if (timeToTid == null) {
-          timeToTid = new TreeMap<Integer,Set<Integer>>();
-          ridToTimeToTid.put(rid, timeToTid);
-        }
-        tidSet = timeToTid.get(dt);
-        if (tidSet == null) {
-          tidSet = new HashSet<Integer>();
-          timeToTid.put(dt, tidSet);
-        }
-        tidSet.add(tid);
+        timeTiles.add(dt, tid);
       }  // else ignore timetile that is before timeBegin
     }
     assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
@@ -329,20 +416,13 @@ public class ReservationArray {
    * @return whether the cancellation is successful
    */
   public boolean cancel(int rid) {
-    // remove elements in ridToTimeToTid
-    NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.remove(rid);
-    if (timeToTid != null) {
-      for(int dt : timeToTid.keySet()) {
-        // remove elements in timeToRidToTid
-        if (timeToRidToTid.containsKey(dt)) {
-          timeToRidToTid.get(dt).remove(rid);
-        }
-        // remove time-tiles in grids
-        if (grids.containsKey(dt)) {
-          int[] grid = grids.get(dt);
-          for(int tid : timeToTid.get(dt)) {
-            grid[tid] = -1;
-          }
+    TimeTileList timeTiles = ridToTimeTiles.remove(rid);
+    if (timeTiles != null) {
+      // remove time-tiles in grids
+      for(int i = timeTiles.begin; i < timeTiles.end; i++) {
+        int dt = timeTiles.getDt(i);
+        if (firstDt <= dt && dt <= lastDt) {
+          grids[(dt & (capacity - 1)) * numOfTiles + timeTiles.getTid(i)] = -1;
         }
       }
       assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
@@ -358,34 +438,32 @@ public class ReservationArray {
    * @param dt  the discrete time before which the reservations will be removed.
    */
   public void cleanUp(int dt) {
-    // clean up grids and timeToRidToTid
-    try {
-      while(grids.firstKey() < dt) {
-        int dt1 = grids.firstKey();
-        grids.remove(dt1);
-        timeToRidToTid.remove(dt1);
-      }
-    } catch(NoSuchElementException e) {
-      // do nothing
-    }
-
-    List<Integer> removeRid = new LinkedList<Integer>();
-    for(int rid : ridToTimeToTid.keySet()){
-      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
-      try {
-        while(timeToTid.firstKey() < dt) {
-          timeToTid.remove(timeToTid.firstKey());
-        }
-      } catch(NoSuchElementException e) {
-        // do nothing
+    // clean up grids
+    while(firstDt >= 0 && firstDt < dt) {
+      int slot = firstDt & (capacity - 1);
+      if (isGridUsed[slot]) {
+        Arrays.fill(grids, slot * numOfTiles, (slot + 1) * numOfTiles, -1);
+        isGridUsed[slot] = false;
       }
-      if (timeToTid.isEmpty()) {
-        removeRid.add(rid);
+      if (firstDt == lastDt) {
+        firstDt = -1;
+        lastDt = -1;
+      } else {
+        firstDt++;
       }
     }
+    // skip the grids that have not been used
+    while(firstDt >= 0 && !isGridUsed[firstDt & (capacity - 1)]) {
+      firstDt++;
+    }
 
-    for(int rid : removeRid) {
-      ridToTimeToTid.remove(rid);
+    for(Iterator<TimeTileList> iter = ridToTimeTiles.values().iterator();
+        iter.hasNext();) {
+      TimeTileList timeTiles = iter.next();
+      timeTiles.removeBefore(dt);
+      if (timeTiles.isEmpty()) {
+        iter.remove();
+      }
     }
 
     assert (!SHOULD_CHECK_CONSISTENCY) || checkConsistency();
@@ -398,16 +476,16 @@ public class ReservationArray {
    * @return the list of tile IDs that are reserved at the given discrete time.
    */
   public List<Integer> getReservedTilesAtTime(int dt) {
-    Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-    if (ridToTid != null) {
-      List<Integer> dts = new LinkedList<Integer>();
-      for(int rid : ridToTid.keySet()) {
-        dts.addAll(ridToTid.get(rid));
+    List<Integer> tids = new LinkedList<Integer>();
+    if (firstDt <= dt && dt <= lastDt) {
+      int offset = (dt & (capacity - 1)) * numOfTiles;
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        if (grids[offset + tid] >= 0) {
+          tids.add(tid);
+        }
       }
-      return dts;
-    } else {
-      return new LinkedList<Integer>(); // return an empty list
     }
+    return tids;
   }
 
   /**
@@ -417,12 +495,70 @@ public class ReservationArray {
    * @return a set of reservation IDs.
    */
   public Set<Integer> getVinOfReservedTilesAtTime(int dt) {
-    Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-    if (ridToTid != null) {
-      return Collections.unmodifiableSet(ridToTid.keySet());
-    } else {
-      return new HashSet<Integer>(); // return an empty list
+    Set<Integer> rids = new HashSet<Integer>();
+    if (firstDt <= dt && dt <= lastDt) {
+      int offset = (dt & (capacity - 1)) * numOfTiles;
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        if (grids[offset + tid] >= 0) {
+          rids.add(grids[offset + tid]);
+        }
+      }
+    }
+    return rids;
+  }
+
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Mark the grid of a discrete time as used, growing the ring buffer if
+   * the range of the used discrete times no longer fits in it.
+   *
+   * @param dt  the discrete time; must not be negative
+   */
+  private void useGrid(int dt) {
+    if (firstDt < 0) {
+      firstDt = dt;
+      lastDt = dt;
+    } else if (dt > lastDt) {
+      if (dt - firstDt >= capacity) {
+        grow(dt - firstDt + 1);
+      }
+      lastDt = dt;
+    } else if (dt < firstDt) {
+      if (lastDt - dt >= capacity) {
+        grow(lastDt - dt + 1);
+      }
+      firstDt = dt;
+    }
+    isGridUsed[dt & (capacity - 1)] = true;
+  }
+
+  /**
+   * Enlarge the ring buffer.
+   *
+   * @param minCapacity  the minimum number of grids
+   */
+  private void grow(int minCapacity) {
+    int newCapacity = capacity;
+    while(newCapacity < minCapacity) {
+      newCapacity *= 2;
+    }
+    int[] newGrids = new int[newCapacity * numOfTiles];
+    Arrays.fill(newGrids, -1);
+    boolean[] newIsGridUsed = new boolean[newCapacity];
+    for(int dt = firstDt; dt <= lastDt; dt++) {
+      int slot = dt & (capacity - 1);
+      int newSlot = dt & (newCapacity - 1);
+      System.arraycopy(grids, slot * numOfTiles,
+                       newGrids, newSlot * numOfTiles, numOfTiles);
+      newIsGridUsed[newSlot] = isGridUsed[slot];
     }
+    grids = newGrids;
+    isGridUsed = newIsGridUsed;
+    capacity = newCapacity;
   }
 
 
@@ -434,53 +570,31 @@ public class ReservationArray {
    * Check whether the array are consistent
    */
   private boolean checkConsistency() {
-    for(int dt : grids.keySet()) {
-      int[] tids = grids.get(dt);
-      for(int tid=0; tid < numOfTiles; tid++) {
-        int rid = tids[tid];
+    int count = 0;
+    for(int dt = firstDt; dt >= 0 && dt <= lastDt; dt++) {
+      int offset = (dt & (capacity - 1)) * numOfTiles;
+      for(int tid = 0; tid < numOfTiles; tid++) {
+        int rid = grids[offset + tid];
         if (rid >= 0) {
-          assert timeToRidToTid.get(dt) != null;
-          assert timeToRidToTid.get(dt).get(rid) != null;
-          if (!timeToRidToTid.get(dt).get(rid).contains(tid)) {
+          if (!ridToTimeTiles.containsKey(rid)) {
             throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                       "grids > timeToRidToTid");
-          }
-          assert ridToTimeToTid.get(rid) != null;
-          assert ridToTimeToTid.get(rid).get(dt) != null;
-          if (!ridToTimeToTid.get(rid).get(dt).contains(tid)) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                       "grids > ridToTimeToTid");
-          }
-        }
-      }
-    }
-
-    for(int dt : timeToRidToTid.keySet()) {
-      Map<Integer,Set<Integer>> ridToTid = timeToRidToTid.get(dt);
-      for(int rid : ridToTid.keySet()) {
-        for(int tid : ridToTid.get(rid)) {
-          if (grids.get(dt)[tid] != rid) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                        "timeToRidToTid > grids");
-
+                                       "grids > ridToTimeTiles");
           }
+          count++;
         }
       }
     }
 
-    for(int rid : ridToTimeToTid.keySet()) {
-      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
-      for(int dt : timeToTid.keySet()) {
-        for(int tid : timeToTid.get(dt)) {
-          if (grids.get(dt)[tid] != rid) {
-            throw new RuntimeException("ReservationArray::checkConsistency():" +
-                                        "ridToTimeToTid > grids");
-
-          }
+    for(int rid : ridToTimeTiles.keySet()) {
+      TimeTileList timeTiles = ridToTimeTiles.get(rid);
+      for(int i = timeTiles.begin; i < timeTiles.end; i++) {
+        if (getReservationId(timeTiles.getDt(i), timeTiles.getTid(i)) != rid) {
+          throw new RuntimeException("ReservationArray::checkConsistency():" +
+                                     "ridToTimeTiles > grids");
         }
+        count--;
       }
     }
-    return true;
+    return count <= 0;
   }
 }
-
@@ -32,14 +32,17 @@ package aim4.im.v2i.reservation;
 
 import java.awt.Shape;
 import java.awt.geom.Area;
+import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
 import java.util.Set;
 
 import aim4.config.Constants;
@@ -52,8 +55,11 @@ import aim4.map.lane.Lane;
 import aim4.msg.v2i.Request;
 import aim4.msg.v2i.Request.VehicleSpecForRequestMsg;
 import aim4.sim.StatCollector;
+import aim4.util.GeomMath;
+import aim4.util.GeomUtil;
 import aim4.util.TiledArea;
 import aim4.util.TiledArea.Tile;
+import aim4.vehicle.AccelProfileQueue;
 import aim4.vehicle.BasicAutoVehicle;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VehicleUtil;
@@ -70,6 +76,28 @@ public class ReservationGridManager implements
   // NESTED CLASSES
   /////////////////////////////////
 
+  /**
+   * The methods of finding the footprint of a traversal.
+   */
+  public enum FootprintMethod {
+    /**
+     * Drive a test vehicle with a crash test dummy through the
+     * intersection.
+     */
+    SIMULATION,
+    /**
+     * Compute the poses of the test vehicle directly from its acceleration
+     * and the {@link TraversalPath} from the arrival lane to the departure
+     * lane.  Traversals that do not have such a path, such as turns, are
+     * simulated.
+     */
+    ANALYTIC,
+    /**
+     * Simulate the footprints and compare them with the analytic ones.
+     */
+    VALIDATION,
+  }
+
   /**
    * The configuration of the reservation grid manager.
    */
@@ -102,6 +130,24 @@ public class ReservationGridManager implements
      * The granularity.
      */
     private double granularity;
+    /**
+     * The maximum number of footprints in the footprint cache.
+     */
+    private int footprintCacheSize = FootprintCache.DEFAULT_CAPACITY;
+    /**
+     * The quantum of the arrival velocity in the footprint cache.
+     */
+    private double footprintVelocityQuantum =
+      FootprintCache.DEFAULT_VELOCITY_QUANTUM;
+    /**
+     * The quantum of the phase of the arrival time in the footprint cache.
+     */
+    private double footprintPhaseQuantum =
+      FootprintCache.DEFAULT_PHASE_QUANTUM;
+    /**
+     * The method of finding the footprint of a traversal.
+     */
+    private FootprintMethod footprintMethod = FootprintMethod.SIMULATION;
 
     /**
      * Create a configuration object.
@@ -192,6 +238,75 @@ public class ReservationGridManager implements
     public double getGranularity() {
       return granularity;
     }
+
+    /**
+     * Get the maximum number of footprints in the footprint cache.
+     *
+     * @return the maximum number of footprints; zero if the cache is
+     *         disabled
+     */
+    public int getFootprintCacheSize() {
+      return footprintCacheSize;
+    }
+
+    /**
+     * Get the quantum of the arrival velocity in the footprint cache.
+     *
+     * @return the quantum of the arrival velocity; zero for no quantization
+     */
+    public double getFootprintVelocityQuantum() {
+      return footprintVelocityQuantum;
+    }
+
+    /**
+     * Get the quantum of the phase of the arrival time in the footprint
+     * cache.
+     *
+     * @return the quantum of the phase; zero for no quantization
+     */
+    public double getFootprintPhaseQuantum() {
+      return footprintPhaseQuantum;
+    }
+
+    /**
+     * Set up the footprint cache.  Coarser quanta give more cache hits but
+     * larger footprints, since a cached footprint covers every arrival
+     * velocity and phase in its bucket; the cache is not used unless at
+     * least one of them is quantized.
+     *
+     * @param size             the maximum number of footprints; zero
+     *                         disables the cache
+     * @param velocityQuantum  the quantum of the arrival velocity; zero for
+     *                         no quantization
+     * @param phaseQuantum     the quantum of the phase of the arrival time
+     *                         within a grid time step; zero for no
+     *                         quantization
+     */
+    public void setFootprintCache(int size, double velocityQuantum,
+                                  double phaseQuantum) {
+      this.footprintCacheSize = size;
+      this.footprintVelocityQuantum = velocityQuantum;
+      this.footprintPhaseQuantum = phaseQuantum;
+    }
+
+    /**
+     * Get the method of finding the footprint of a traversal.
+     *
+     * @return the method of finding the footprint of a traversal
+     */
+    public FootprintMethod getFootprintMethod() {
+      return footprintMethod;
+    }
+
+    /**
+     * Set the method of finding the footprint of a traversal.
+     *
+     * @param footprintMethod  the method of finding the footprint of a
+     *                         traversal
+     */
+    public void setFootprintMethod(FootprintMethod footprintMethod) {
+      this.footprintMethod = footprintMethod;
+    }
   }
 
   /**
@@ -327,7 +442,7 @@ public class ReservationGridManager implements
     /** The list of time tiles reserved */
     private List<TimeTile> workingList;
     /** The acceleration profile */
-    private Queue<double[]> accelerationProfile;
+    private AccelProfileQueue accelerationProfile;
 
     /**
      * Create the plan for the reservation.
@@ -342,7 +457,7 @@ public class ReservationGridManager implements
                 double exitTime,
                 double exitVelocity,
                 List<TimeTile> workingList,
-                Queue<double[]> accelerationProfile) {
+                AccelProfileQueue accelerationProfile) {
       this.vin = vin;
       this.exitTime = exitTime;
       this.exitVelocity = exitVelocity;
@@ -391,11 +506,261 @@ public class ReservationGridManager implements
      *
      * @return the acceleration profile
      */
-    public Queue<double[]> getAccelerationProfile() {
+    public AccelProfileQueue getAccelerationProfile() {
       return accelerationProfile;
     }
   }
 
+  /**
+   * A test vehicle that traverses the intersection.
+   */
+  private interface TestDrive {
+    /**
+     * Get the specification of the test vehicle.
+     *
+     * @return the specification of the test vehicle
+     */
+    VehicleSpec getSpec();
+
+    /**
+     * Get the position of the test vehicle.
+     *
+     * @return the position of the test vehicle
+     */
+    Point2D getPosition();
+
+    /**
+     * Get the heading of the test vehicle.
+     *
+     * @return the heading of the test vehicle
+     */
+    double getHeading();
+
+    /**
+     * Get the velocity of the test vehicle.
+     *
+     * @return the velocity of the test vehicle
+     */
+    double getVelocity();
+
+    /**
+     * Whether the test vehicle is still in the intersection.
+     *
+     * @return whether the test vehicle intersects the slightly larger area
+     *         of the intersection
+     */
+    boolean isInIntersection();
+
+    /**
+     * Advance the test vehicle.
+     *
+     * @param duration  the duration
+     */
+    void move(double duration);
+  }
+
+  /**
+   * A test vehicle that is driven by a crash test dummy.
+   */
+  private class SimulatedDrive implements TestDrive {
+    /** The test vehicle */
+    private final BasicAutoVehicle testVehicle;
+    /** The dummy driver */
+    private final Driver dummy;
+    /** Whether the test vehicle accelerates */
+    private final boolean accelerating;
+
+    /**
+     * Create a test vehicle that is driven by a crash test dummy.
+     *
+     * @param q                the query object
+     * @param arrivalVelocity  the arrival velocity of the test vehicle
+     */
+    SimulatedDrive(Query q, double arrivalVelocity) {
+      // Position the Vehicle to be ready to start the simulation
+      Lane arrivalLane = intersection.getLane(q.getArrivalLaneId());
+      Lane departureLane = intersection.getLane(q.getDepartureLaneId());
+      // Create a test vehicle to use in the internal simulation
+      this.testVehicle = createTestVehicle(q.getSpec(),
+                                           arrivalVelocity,
+                                           q.getMaxTurnVelocity(),
+                                           arrivalLane);
+      // Create a dummy driver to steer it
+      this.dummy = new CrashTestDummy(testVehicle, intersection,
+                                      arrivalLane, departureLane);
+      // assign the drive to the vehicle
+      // testVehicle.setDriver(dummy);  // TODO fix this later.
+      this.accelerating = q.isAccelerating();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VehicleSpec getSpec() {
+      return testVehicle.getSpec();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D getPosition() {
+      return testVehicle.getPosition();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getHeading() {
+      return testVehicle.getHeading();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getVelocity() {
+      return testVehicle.gaugeVelocity();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInIntersection() {
+      return VehicleUtil.intersects(testVehicle, intersection.getAreaPlus());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void move(double duration) {
+      moveTestVehicle(testVehicle, dummy, duration, accelerating);
+    }
+  }
+
+  /**
+   * A test vehicle whose point between the rear wheels follows a traversal
+   * path.  The distance travelled in a time step is the same as the one of
+   * {@link aim4.vehicle.BasicVehicle#move(double)}, which moves at the
+   * average of the velocities at the beginning and at the end of the time
+   * step.
+   */
+  private class AnalyticDrive implements TestDrive {
+    /** The specification of the test vehicle */
+    private final VehicleSpec spec;
+    /** The path of the point between the rear wheels */
+    private final TraversalPath path;
+    /** The arrival velocity */
+    private final double arrivalVelocity;
+    /** The acceleration until the target velocity is reached */
+    private final double acceleration;
+    /** The duration of the acceleration */
+    private final double accelDuration;
+    /** The time since the arrival time */
+    private double time = 0.0;
+    /** The position of the test vehicle */
+    private final Point2D.Double position = new Point2D.Double();
+    /** The heading of the test vehicle */
+    private double heading;
+    /** The pose of the point between the rear wheels */
+    private final double[] pose = new double[3];
+
+    /**
+     * Create a test vehicle that follows a traversal path.
+     *
+     * @param spec             the specification of the test vehicle
+     * @param path             the traversal path
+     * @param arrivalVelocity  the arrival velocity of the test vehicle
+     * @param accelerating     whether the test vehicle accelerates to its
+     *                         maximum velocity
+     */
+    AnalyticDrive(VehicleSpec spec, TraversalPath path,
+                  double arrivalVelocity, boolean accelerating) {
+      this.spec = spec;
+      this.path = path;
+      this.arrivalVelocity = arrivalVelocity;
+      if (accelerating && arrivalVelocity < spec.getMaxVelocity()) {
+        acceleration = spec.getMaxAcceleration();
+        accelDuration =
+          (spec.getMaxVelocity() - arrivalVelocity) / acceleration;
+      } else {
+        acceleration = 0.0;
+        accelDuration = 0.0;
+      }
+      move(0.0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public VehicleSpec getSpec() {
+      return spec;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Point2D getPosition() {
+      return position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getHeading() {
+      return heading;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getVelocity() {
+      return arrivalVelocity + acceleration * Math.min(time, accelDuration);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isInIntersection() {
+      // The same test as VehicleUtil.intersects()
+      Area areaPlus = intersection.getAreaPlus();
+      if (areaPlus.contains(position)
+          || areaPlus.contains(spec.getPointAtRear(position, heading))) {
+        return true;
+      } else {
+        Area vehicleArea = new Area(GeomUtil.convertPointsToShape(
+                             spec.getCornerPoints(position, heading)));
+        vehicleArea.intersect(areaPlus);
+        return !vehicleArea.isEmpty();
+      }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void move(double duration) {
+      time += duration;
+      double t = Math.min(time, accelDuration);
+      double dist = arrivalVelocity * time + acceleration * t * t / 2
+                    + acceleration * t * (time - t);
+      // The point between the rear wheels starts behind the entry point
+      path.getPose(dist - spec.getRearAxleDisplacement(), pose);
+      heading = pose[2];
+      position.x = pose[0] + spec.getRearAxleDisplacement() * Math.cos(heading);
+      position.y = pose[1] + spec.getRearAxleDisplacement() * Math.sin(heading);
+    }
+  }
+
   /**
    * The statistic collector for VIN history.
    */
@@ -498,6 +863,28 @@ public class ReservationGridManager implements
    * The reservation System
    */
   private ReservationGrid reservationGrid;
+  /**
+   * The cache of the footprints of the test vehicles
+   */
+  private FootprintCache footprintCache;
+  /**
+   * The number of footprints compared with the analytic ones
+   */
+  private long numOfValidatedFootprints = 0;
+  /**
+   * The number of footprints that differ from the analytic ones
+   */
+  private long numOfMismatchedFootprints = 0;
+  /**
+   * The number of time-tiles in the footprints compared with the analytic
+   * ones
+   */
+  private long numOfValidatedTimeTiles = 0;
+  /**
+   * The number of time-tiles that are in exactly one of a footprint and
+   * the analytic one
+   */
+  private long numOfMismatchedTimeTiles = 0;
   /**
    * The statistic collector
    */
@@ -549,6 +936,10 @@ public class ReservationGridManager implements
     this.intersection = intersection;
     this.tiledArea = tiledArea;
     this.reservationGrid = reservationGrid;
+    this.footprintCache =
+      new FootprintCache(config.getFootprintCacheSize(),
+                         config.getFootprintVelocityQuantum(),
+                         config.getFootprintPhaseQuantum());
     this.statCollector = new VinHistoryStatCollector();
   }
 
@@ -586,6 +977,15 @@ public class ReservationGridManager implements
     return tiledArea;
   }
 
+  /**
+   * Get the cache of the footprints of the test vehicles.
+   *
+   * @return the footprint cache
+   */
+  public FootprintCache getFootprintCache() {
+    return footprintCache;
+  }
+
   /**
    * Get the statistic collector.
    *
@@ -595,6 +995,46 @@ public class ReservationGridManager implements
     return statCollector;
   }
 
+  /**
+   * Get the number of simulated footprints that have been compared with the
+   * analytic ones.
+   *
+   * @return the number of validated footprints
+   */
+  public synchronized long getNumOfValidatedFootprints() {
+    return numOfValidatedFootprints;
+  }
+
+  /**
+   * Get the number of simulated footprints that differ from the analytic
+   * ones.
+   *
+   * @return the number of mismatched footprints
+   */
+  public synchronized long getNumOfMismatchedFootprints() {
+    return numOfMismatchedFootprints;
+  }
+
+  /**
+   * Get the number of time-tiles in the simulated footprints that have been
+   * compared with the analytic ones.
+   *
+   * @return the number of validated time-tiles
+   */
+  public synchronized long getNumOfValidatedTimeTiles() {
+    return numOfValidatedTimeTiles;
+  }
+
+  /**
+   * Get the number of time-tiles that are in exactly one of a simulated
+   * footprint and the analytic one.
+   *
+   * @return the number of mismatched time-tiles
+   */
+  public synchronized long getNumOfMismatchedTimeTiles() {
+    return numOfMismatchedTimeTiles;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -611,54 +1051,77 @@ public class ReservationGridManager implements
    */
   @Override
   public Plan query(Query q) {
+    int arrivalDt = reservationGrid.calcDiscreteTime(q.getArrivalTime());
+    double phase = reservationGrid.calcRemainingTime(q.getArrivalTime());
+
+    // Find the footprint of the traversal, relative to the discrete arrival
+    // time, in the cache or by driving a test vehicle.  Without the cache the
+    // test drive gives up as soon as it hits a reserved tile.  A footprint
+    // that goes into the cache is completed first, so that the queries that
+    // are rejected now can be answered from the cache later.
+    FootprintCache.Footprint footprint;
+    boolean isCached = footprintCache.isEnabled() && isCacheable(q);
+    if (isCached) {
+      double v = q.getArrivalVelocity();
+      FootprintCache.Key key =
+        makeFootprintKey(q, footprintCache.getLowerVelocity(v),
+                         footprintCache.getLowerPhase(phase));
+      footprint = footprintCache.get(key);
+      if (footprint == null) {
+        footprint = findBucketFootprint(q, phase);
+        footprintCache.put(key, footprint);
+      }
+      if (isReserved(footprint, arrivalDt)) {
+        return null;
+      }
+    } else {
+      footprint = findFootprint(q, q.getArrivalVelocity(), phase, arrivalDt,
+                                staticBufferSize, true);
+      if (footprint == null) {
+        return null;
+      }
+    }
+
+    // Shift the footprint to the arrival time
+    List<TimeTile> workingList = new ArrayList<TimeTile>(footprint.size());
+    for(int i = 0; i < footprint.size(); i++) {
+      workingList.add(
+        reservationGrid.new TimeTile(arrivalDt + footprint.getDtOffset(i),
+                                     footprint.getTileId(i)));
+    }
 
-    // Position the Vehicle to be ready to start the simulation
-    Lane arrivalLane =
-      Debug.currentMap.getLaneRegistry().get(q.getArrivalLaneId());
-    Lane departureLane =
-      Debug.currentMap.getLaneRegistry().get(q.getDepartureLaneId());
-
-    // Create a test vehicle to use in the internal simulation
-    BasicAutoVehicle testVehicle =
-      createTestVehicle(q.getSpec(),
-                        q.getArrivalVelocity(),
-                        q.getMaxTurnVelocity(),
-                        arrivalLane);
-
-    // Create a dummy driver to steer it
-    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
-
-    // assign the drive to the vehicle
-    // testVehicle.setDriver(dummy);  // TODO fix this later.
-
-    // Keep track of the TileTimes that will make up this reservation
-    FindTileTimesBySimulationResult fResult
-      = findTileTimesBySimulation(testVehicle,
-                                  dummy,
-                                  q.getArrivalTime(),
-                                  q.isAccelerating());
-
-    if (fResult != null) {
-      List<TimeTile> workingList = fResult.getWorkingList();
-
-      double exitTime = workingList.get(workingList.size()-1).getTime();
-
-      Queue<double[]> accelerationProfile =
-        calcAccelerationProfile(q.getArrivalTime(),
-                                q.getArrivalVelocity(),
-                                q.getMaxTurnVelocity(),
-                                q.getSpec().getMaxAcceleration(),
-                                fResult.getExitTime(),
-                                q.isAccelerating());
-
-      return new Plan(q.getVin(),
-                      exitTime,
-                      testVehicle.gaugeVelocity(),
-                      workingList,
-                      accelerationProfile);
+    double exitTime =
+      reservationGrid.calcTime(arrivalDt + footprint.getExitDtOffset());
+    double exitGridTime =
+      reservationGrid.calcTime(arrivalDt + footprint.getNumOfSteps());
+
+    AccelProfileQueue accelerationProfile =
+      calcAccelerationProfile(q.getArrivalTime(),
+                              q.getArrivalVelocity(),
+                              q.getMaxTurnVelocity(),
+                              q.getSpec().getMaxAcceleration(),
+                              exitGridTime,
+                              q.isAccelerating());
+
+    // A cached footprint was not simulated with the arrival velocity of the
+    // query, so its exit velocity is the one the vehicle reaches by
+    // following the acceleration profile
+    double exitVelocity;
+    if (isCached) {
+      exitVelocity = calcExitVelocity(q.getArrivalVelocity(),
+                                      q.getMaxTurnVelocity(),
+                                      q.getSpec().getMaxAcceleration(),
+                                      exitGridTime - q.getArrivalTime(),
+                                      q.isAccelerating());
     } else {
-      return null;
+      exitVelocity = footprint.getExitVelocity();
     }
+
+    return new Plan(q.getVin(),
+                    exitTime,
+                    exitVelocity,
+                    workingList,
+                    accelerationProfile);
   }
 
   /**
@@ -685,23 +1148,17 @@ public class ReservationGridManager implements
   /////////////////////////////////
 
   /**
-   * Create a test vehicle to use in the internal simulation.
+   * Create the specification of a test vehicle.
    *
-   * @param spec             the specification of the test vehicle
-   * @param arrivalVelocity  the arrival velocity of the vehicle
-   * @param maxVelocity      the Vehicle's maximum velocity, in meters per
-   *                         second
-   * @param arrivalLane      the arrival lane of the vehicle in this proposal
-   *
-   * @return             whether or not a reservation could be made
+   * @param spec         the specification of the vehicle in the request
+   * @param maxVelocity  the Vehicle's maximum velocity, in meters per
+   *                     second
+   * @return the specification of the test vehicle
    */
-  private BasicAutoVehicle createTestVehicle(
+  private static VehicleSpec createTestVehicleSpec(
                                           Request.VehicleSpecForRequestMsg spec,
-                                          double arrivalVelocity,
-                                          double maxVelocity,
-                                          Lane arrivalLane) {
-
-    VehicleSpec newSpec = new VehicleSpec(
+                                          double maxVelocity) {
+    return new VehicleSpec(
         "TestVehicle",
         spec.getMaxAcceleration(),
         spec.getMaxDeceleration(),
@@ -716,6 +1173,26 @@ public class ReservationGridManager implements
         0.0, // wheelWidth
         spec.getMaxSteeringAngle(),
         spec.getMaxTurnPerSecond());
+  }
+
+  /**
+   * Create a test vehicle to use in the internal simulation.
+   *
+   * @param spec             the specification of the test vehicle
+   * @param arrivalVelocity  the arrival velocity of the vehicle
+   * @param maxVelocity      the Vehicle's maximum velocity, in meters per
+   *                         second
+   * @param arrivalLane      the arrival lane of the vehicle in this proposal
+   *
+   * @return             whether or not a reservation could be made
+   */
+  private BasicAutoVehicle createTestVehicle(
+                                          Request.VehicleSpecForRequestMsg spec,
+                                          double arrivalVelocity,
+                                          double maxVelocity,
+                                          Lane arrivalLane) {
+
+    VehicleSpec newSpec = createTestVehicleSpec(spec, maxVelocity);
 
     BasicAutoVehicle testVehicle = new BasicAutoVehicle(
       newSpec,
@@ -732,91 +1209,274 @@ public class ReservationGridManager implements
   }
 
   /**
-   * The record for holding the result of the time tiles found
-   * by the internal simulation.
+   * Create a test vehicle that follows the traversal path of a query.
+   *
+   * @param q                the query object
+   * @param arrivalVelocity  the arrival velocity of the test vehicle
+   * @return the test vehicle; null if the traversal has no traversal path
+   *         or the test vehicle would never leave the intersection
    */
-  private static class FindTileTimesBySimulationResult {
-    /** The time tiles */
-    List<TimeTile> workingList;
-    /** The exit time */
-    double exitTime;
-
-    /**
-     * Create a record for holding the result of the time tiles found
-     * by the internal simulation.
-     *
-     * @param workingList  the time tiles
-     * @param exitTime     the exit time
-     */
-    public FindTileTimesBySimulationResult(List<TimeTile> workingList,
-                                           double exitTime) {
-      this.workingList = workingList;
-      this.exitTime = exitTime;
+  private AnalyticDrive makeAnalyticDrive(Query q, double arrivalVelocity) {
+    TraversalPath path =
+      TraversalPath.make(intersection,
+                         intersection.getLane(q.getArrivalLaneId()),
+                         intersection.getLane(q.getDepartureLaneId()));
+    if (path == null) {
+      return null;
     }
+    VehicleSpec spec = createTestVehicleSpec(q.getSpec(),
+                                             q.getMaxTurnVelocity());
+    if (arrivalVelocity <= 0.0
+        && !(q.isAccelerating() && spec.getMaxVelocity() > 0.0)) {
+      return null;
+    }
+    return new AnalyticDrive(spec, path, arrivalVelocity, q.isAccelerating());
+  }
 
-    /**
-     * Get the time tiles.
-     *
-     * @return the time tiles
-     */
-    public List<TimeTile> getWorkingList() {
-      return workingList;
+  /**
+   * Make the key of the footprint of a traversal.
+   *
+   * @param q                the query object
+   * @param arrivalVelocity  the quantized arrival velocity
+   * @param phase            the quantized phase of the arrival time
+   * @return the key of the footprint
+   */
+  private FootprintCache.Key makeFootprintKey(Query q,
+                                              double arrivalVelocity,
+                                              double phase) {
+    VehicleSpecForRequestMsg spec = q.getSpec();
+    return new FootprintCache.Key(q.getArrivalLaneId(),
+                                  q.getDepartureLaneId(),
+                                  q.isAccelerating(),
+                                  new double[] {
+                                    spec.getMaxAcceleration(),
+                                    spec.getMaxDeceleration(),
+                                    spec.getMinVelocity(),
+                                    spec.getLength(),
+                                    spec.getWidth(),
+                                    spec.getFrontAxleDisplacement(),
+                                    spec.getRearAxleDisplacement(),
+                                    spec.getMaxSteeringAngle(),
+                                    spec.getMaxTurnPerSecond(),
+                                    q.getMaxTurnVelocity(),
+                                    arrivalVelocity,
+                                    phase });
+  }
+
+  /**
+   * Whether the footprint of a traversal can be shared with the other
+   * traversals in the bucket of its arrival velocity and phase.  A vehicle
+   * that arrives faster than its maximum turn velocity is beyond the last
+   * bucket, and a vehicle that does not accelerate may stay in the slowest
+   * bucket forever.
+   *
+   * @param q  the query object
+   * @return whether the footprint of the traversal can be cached
+   */
+  private boolean isCacheable(Query q) {
+    return q.getArrivalVelocity() <= q.getMaxTurnVelocity()
+           && (q.isAccelerating()
+               || footprintCache.getLowerVelocity(q.getArrivalVelocity())
+                  > 0.0);
+  }
+
+  /**
+   * Find the footprint of the bucket of the arrival velocity and the phase
+   * of a traversal: the union of the footprints at the slowest and earliest
+   * corner of the bucket and at its fastest and latest corner.  The slow
+   * corner is behind and the fast corner is ahead of any vehicle in the
+   * bucket along its path in every grid time step, and the widened static
+   * buffer covers the spread of the trajectories sideways.  The reservations
+   * are not checked.
+   *
+   * @param q      the query object
+   * @param phase  the duration from the arrival time to the end of its grid
+   *               time step
+   *
+   * @return the time-tiles occupied by any vehicle in the bucket, relative
+   *         to the discrete arrival time
+   */
+  private FootprintCache.Footprint findBucketFootprint(Query q,
+                                                       double phase) {
+    double v = q.getArrivalVelocity();
+    double bufferSize =
+      staticBufferSize + footprintCache.getStaticBufferMargin();
+    FootprintCache.Footprint fast =
+      findFootprint(q,
+                    footprintCache.getUpperVelocity(v, q.getMaxTurnVelocity()),
+                    footprintCache.getUpperPhase(
+                      phase, reservationGrid.getGridTimeStep()),
+                    0, bufferSize, false);
+    FootprintCache.Footprint slow =
+      findFootprint(q, footprintCache.getLowerVelocity(v),
+                    footprintCache.getLowerPhase(phase), 0, bufferSize,
+                    false);
+    // Mark the time-tiles of both corners, which leaves them sorted by
+    // discrete time and without the duplicates of the time buffers
+    List<FootprintCache.Footprint> corners = Arrays.asList(slow, fast);
+    int minDtOffset = 0;
+    for(FootprintCache.Footprint footprint : corners) {
+      for(int i = 0; i < footprint.size(); i++) {
+        minDtOffset = Math.min(minDtOffset, footprint.getDtOffset(i));
+      }
+    }
+    int numOfTiles = tiledArea.getNumberOfTiles();
+    BitSet timeTiles = new BitSet();
+    for(FootprintCache.Footprint footprint : corners) {
+      for(int i = 0; i < footprint.size(); i++) {
+        timeTiles.set((footprint.getDtOffset(i) - minDtOffset) * numOfTiles
+                      + footprint.getTileId(i));
+      }
     }
+    int size = timeTiles.cardinality();
+    int[] dtOffsets = new int[size];
+    int[] tileIds = new int[size];
+    int i = 0;
+    for(int bit = timeTiles.nextSetBit(0); bit >= 0;
+        bit = timeTiles.nextSetBit(bit + 1)) {
+      dtOffsets[i] = minDtOffset + bit / numOfTiles;
+      tileIds[i] = bit % numOfTiles;
+      i++;
+    }
+    return new FootprintCache.Footprint(dtOffsets,
+                                        tileIds,
+                                        Math.max(slow.getNumOfSteps(),
+                                                 fast.getNumOfSteps()),
+                                        Math.max(slow.getExitDtOffset(),
+                                                 fast.getExitDtOffset()),
+                                        slow.getExitVelocity());
+  }
 
-    /**
-     * Get the exit time.
-     *
-     * @return the exit time
-     */
-    public double getExitTime() {
-      return exitTime;
+  /**
+   * Whether any time-tile of a footprint is reserved.
+   *
+   * @param footprint  the footprint
+   * @param arrivalDt  the discrete arrival time
+   * @return whether any time-tile of the footprint, shifted to the arrival
+   *         time, is reserved
+   */
+  private boolean isReserved(FootprintCache.Footprint footprint,
+                             int arrivalDt) {
+    for(int i = 0; i < footprint.size(); i++) {
+      if (reservationGrid.isReserved(arrivalDt + footprint.getDtOffset(i),
+                                     footprint.getTileId(i))) {
+        return true;
+      }
     }
+    return false;
+  }
 
+  /**
+   * Find the footprint of a traversal with the configured method.
+   *
+   * @param q                    the query object
+   * @param arrivalVelocity      the arrival velocity of the test vehicle
+   * @param phase                the duration from the arrival time to the
+   *                             end of its grid time step
+   * @param arrivalDt            the discrete arrival time
+   * @param bufferSize           the size of the static buffer, in meters
+   * @param isReservationChecked whether to give up as soon as the test
+   *                             vehicle hits a reserved tile
+   *
+   * @return the time-tiles occupied by the test vehicle, relative to the
+   *         discrete arrival time. If returns null, the trajectory hits some
+   *         reserved tiles and the reservation fails.
+   */
+  private FootprintCache.Footprint findFootprint(Query q,
+                                                 double arrivalVelocity,
+                                                 double phase,
+                                                 int arrivalDt,
+                                                 double bufferSize,
+                                                 boolean isReservationChecked) {
+    switch(config.getFootprintMethod()) {
+    case ANALYTIC:
+      AnalyticDrive drive = makeAnalyticDrive(q, arrivalVelocity);
+      if (drive != null) {
+        return driveFootprint(drive, phase, arrivalDt, bufferSize,
+                              isReservationChecked);
+      }
+      break;
+    case VALIDATION:
+      FootprintCache.Footprint footprint =
+        driveFootprint(new SimulatedDrive(q, arrivalVelocity), phase,
+                       arrivalDt, bufferSize, isReservationChecked);
+      AnalyticDrive analyticDrive = makeAnalyticDrive(q, arrivalVelocity);
+      if (footprint != null && analyticDrive != null) {
+        validateFootprint(footprint,
+                          driveFootprint(analyticDrive, phase, arrivalDt,
+                                         bufferSize, false));
+      }
+      return footprint;
+    default:
+      break;
+    }
+    return driveFootprint(new SimulatedDrive(q, arrivalVelocity), phase,
+                          arrivalDt, bufferSize, isReservationChecked);
   }
+
   /**
-   * Find a list of unreserved tiletimes by simulation
+   * Find the footprint of a traversal by driving a test vehicle through the
+   * intersection.
    *
-   * @param TestVehicle   the test vehicle
-   * @param dummy         the dummy driver
-   * @param arrivalTime   the arrival time of the vehicle
-   * @param accelerating  whether or not to setMaxAccelWithMaxTargetVelocity to maximum velocity
-   *                      during the traversal
+   * @param testDrive            the test vehicle at the entry point
+   * @param phase                the duration from the arrival time to the
+   *                             end of its grid time step
+   * @param arrivalDt            the discrete arrival time
+   * @param bufferSize           the size of the static buffer, in meters
+   * @param isReservationChecked whether to give up as soon as the test
+   *                             vehicle hits a reserved tile
    *
-   * @return A list of tiles that can be reserved by the vehicle. If returns
-   *         null, the trajectory hits some reserved tiles and the reservation
-   *         fails.
-   */
-  private FindTileTimesBySimulationResult
-            findTileTimesBySimulation(BasicAutoVehicle testVehicle,
-                                      Driver dummy,
-                                      double arrivalTime,
-                                      boolean accelerating) {
-    // The area of the intersection
-    Area areaPlus = intersection.getAreaPlus();
+   * @return the time-tiles occupied by the test vehicle, relative to the
+   *         discrete arrival time. If returns null, the trajectory hits some
+   *         reserved tiles and the reservation fails.
+   */
+  private FootprintCache.Footprint driveFootprint(TestDrive testDrive,
+                                                  double phase,
+                                                  int arrivalDt,
+                                                  double bufferSize,
+                                                  boolean isReservationChecked) {
     // The following must be true because the test vehicle
     // starts at the entry point of the intersection.
-    assert areaPlus.contains(testVehicle.getPointAtMiddleFront(
-             Constants.DOUBLE_EQUAL_PRECISION));
-
-    // The list of tile-times that will make up this reservation
-    List<TimeTile> workingList = new ArrayList<TimeTile>();
-
-    // A discrete representation of the time throughout the internal simulation
-    // Notice that currentIntTime != arrivalTime
-    int currentIntTime = reservationGrid.calcDiscreteTime(arrivalTime);
+    assert intersection.getAreaPlus().contains(
+             GeomMath.polarAdd(testDrive.getPosition(),
+                               Constants.DOUBLE_EQUAL_PRECISION,
+                               testDrive.getHeading()));
+
+    // The time-tiles that will make up this reservation
+    int[] dtOffsets = new int[64];
+    int[] tileIds = new int[64];
+    int size = 0;
+    // The corners of the test vehicle and the tiles they occupy, reused
+    // in every time step
+    double[] cornerXs = new double[4];
+    double[] cornerYs = new double[4];
+    int[] occupied = new int[tiledArea.getNumberOfTiles()];
+
+    // The number of grid time steps since the discrete arrival time
+    int step = 0;
     // The duration in the current time interval
-    double currentDuration = reservationGrid.calcRemainingTime(arrivalTime);
+    double currentDuration = phase;
 
     // drive the test vehicle until it leaves the intersection
-    while(VehicleUtil.intersects(testVehicle, areaPlus)) {
-      moveTestVehicle(testVehicle, dummy, currentDuration, accelerating);
+    while(testDrive.isInIntersection()) {
+      testDrive.move(currentDuration);
       // Find out which tiles are occupied by the vehicle
-      currentIntTime++;  // Record that we've moved forward one time step
-      List<Tile> occupied =
-        tiledArea.findOccupiedTiles(testVehicle.getShape(staticBufferSize));
+      step++;  // Record that we've moved forward one time step
+      testDrive.getSpec().getCornerPoints(bufferSize,
+                                          testDrive.getPosition(),
+                                          testDrive.getHeading(),
+                                          cornerXs, cornerYs);
+      // Use the single precision of the vehicle's shape (a GeneralPath) so
+      // that the occupied tiles are exactly the same as the shape's
+      for(int i = 0; i < 4; i++) {
+        cornerXs[i] = (float)cornerXs[i];
+        cornerYs[i] = (float)cornerYs[i];
+      }
+      int numOfOccupied =
+        tiledArea.findOccupiedTiles(cornerXs, cornerYs, occupied);
 
-      // Make sure none of these tiles are reserved by someone else already
-      for(Tile tile : occupied) {
+      for(int i = 0; i < numOfOccupied; i++) {
+        Tile tile = tiledArea.getTileById(occupied[i]);
 
         // Figure out how large of a time buffer to use, based on whether or
         // not this is an edge tile
@@ -826,22 +1486,66 @@ public class ReservationGridManager implements
         } else {
           buffer = internalTileTimeBufferSteps;
         }
-        int tileId = tile.getId();
-        for(int t = currentIntTime - buffer; t <= currentIntTime + buffer; t++){
+        for(int t = step - buffer; t <= step + buffer; t++){
           // If the tile is already reserved and it isn't by us, we've failed
-          if (!reservationGrid.isReserved(t, tileId)) {
-            workingList.add(reservationGrid.new TimeTile(t, tile.getId()));
-          } else {
+          if (isReservationChecked
+              && reservationGrid.isReserved(arrivalDt + t, tile.getId())) {
             return null; // Failure! Just bail!
           }
+          if (size == tileIds.length) {
+            dtOffsets = Arrays.copyOf(dtOffsets, 2 * size);
+            tileIds = Arrays.copyOf(tileIds, 2 * size);
+          }
+          dtOffsets[size] = t;
+          tileIds[size] = tile.getId();
+          size++;
         }
       }
       currentDuration = reservationGrid.getGridTimeStep();
     }
 
-    return new FindTileTimesBySimulationResult(workingList,
-                                               reservationGrid
-                                               .calcTime(currentIntTime));
+    return new FootprintCache.Footprint(Arrays.copyOf(dtOffsets, size),
+                                        Arrays.copyOf(tileIds, size),
+                                        step,
+                                        dtOffsets[size - 1],
+                                        testDrive.getVelocity());
+  }
+
+  /**
+   * Compare a simulated footprint with the analytic one and record the
+   * differences.
+   *
+   * @param footprint          the simulated footprint
+   * @param analyticFootprint  the analytic footprint
+   */
+  private synchronized void validateFootprint(
+                              FootprintCache.Footprint footprint,
+                              FootprintCache.Footprint analyticFootprint) {
+    Set<Long> timeTiles = new HashSet<Long>();
+    for(int i = 0; i < footprint.size(); i++) {
+      timeTiles.add(((long)footprint.getDtOffset(i) << 32)
+                    | footprint.getTileId(i));
+    }
+    Set<Long> analyticTimeTiles = new HashSet<Long>();
+    for(int i = 0; i < analyticFootprint.size(); i++) {
+      analyticTimeTiles.add(((long)analyticFootprint.getDtOffset(i) << 32)
+                            | analyticFootprint.getTileId(i));
+    }
+    int numOfCommonTimeTiles = 0;
+    for(Long timeTile : analyticTimeTiles) {
+      if (timeTiles.contains(timeTile)) {
+        numOfCommonTimeTiles++;
+      }
+    }
+    int numOfMismatches = timeTiles.size() + analyticTimeTiles.size()
+                          - 2 * numOfCommonTimeTiles;
+    numOfValidatedFootprints++;
+    numOfValidatedTimeTiles += timeTiles.size();
+    numOfMismatchedTimeTiles += numOfMismatches;
+    if (numOfMismatches > 0
+        || footprint.getNumOfSteps() != analyticFootprint.getNumOfSteps()) {
+      numOfMismatchedFootprints++;
+    }
   }
 
   /**
@@ -886,14 +1590,14 @@ public class ReservationGridManager implements
    *
    * @return  a sequence of acceleration pair (acceleration, duration)
    */
-  private Queue<double[]> calcAccelerationProfile(double arrivalTime,
-                                                  double arrivalVelocity,
-                                                  double maxVelocity,
-                                                  double maxAcceleration,
-                                                  double exitTime,
-                                                  boolean accelerating) {
-    // Calculate the accelerations
-    Queue<double[]> accelerationProfile = new LinkedList<double[]>();
+  private AccelProfileQueue calcAccelerationProfile(double arrivalTime,
+                                                    double arrivalVelocity,
+                                                    double maxVelocity,
+                                                    double maxAcceleration,
+                                                    double exitTime,
+                                                    boolean accelerating) {
+    // Calculate the accelerations; there are at most two of them
+    AccelProfileQueue accelerationProfile = new AccelProfileQueue(2);
     // Figure out how long we took to traverse the intersection
     double traversalTime = exitTime - arrivalTime;
     if (traversalTime <= 0.0) {
@@ -906,19 +1610,42 @@ public class ReservationGridManager implements
         Math.min(traversalTime, (maxVelocity-arrivalVelocity)/maxAcceleration);
       // Add in the time spent accelerating, if any
       assert accelerationDuration > 0.0;
-      accelerationProfile.add(
-        new double[] { maxAcceleration, accelerationDuration });
+      accelerationProfile.add(maxAcceleration, accelerationDuration);
       // Fill the remaining time with constant speed, if any remains
       if(accelerationDuration < traversalTime) {
-        accelerationProfile.add(
-          new double[] { 0.0, traversalTime - accelerationDuration });
+        accelerationProfile.add(0.0, traversalTime - accelerationDuration);
       }
     } else {  // Fixed speed reservation
       // Just add in the time we crossed, all at constant speed
-      accelerationProfile.add(new double[] { 0.0, traversalTime });
+      accelerationProfile.add(0.0, traversalTime);
     }
     return accelerationProfile;
   }
+  /**
+   * Calculate the velocity at the end of the acceleration profile of
+   * {@link #calcAccelerationProfile}.
+   *
+   * @param arrivalVelocity  the arrival velocity of the vehicle
+   * @param maxVelocity      the maximum velocity at which the vehicle can
+   *                         traverse the intersection
+   * @param maxAcceleration  the maximum acceleration of the vehicle
+   * @param traversalTime    the duration of the acceleration profile
+   * @param accelerating     whether the vehicle accelerates
+   * @return the velocity at the end of the acceleration profile
+   */
+  private static double calcExitVelocity(double arrivalVelocity,
+                                         double maxVelocity,
+                                         double maxAcceleration,
+                                         double traversalTime,
+                                         boolean accelerating) {
+    if (accelerating && (maxVelocity > arrivalVelocity)) {
+      return Math.min(maxVelocity,
+                      arrivalVelocity + maxAcceleration * traversalTime);
+    } else {
+      return arrivalVelocity;
+    }
+  }
+
 
 
   /////////////////////////////////
@@ -0,0 +1,172 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import java.awt.geom.Point2D;
+
+import aim4.im.Intersection;
+import aim4.map.lane.Lane;
+import aim4.map.track.LineTrack;
+import aim4.map.track.TrackPosition;
+import aim4.map.track.WayPoint;
+import aim4.util.GeomMath;
+
+/**
+ * The path of a vehicle that traverses an intersection from an arrival lane
+ * to a departure lane in a straight line.  Before the entry point and after
+ * the exit point the path continues along the same line.
+ * <p>
+ * A traversal path describes the path of the point between the rear wheels,
+ * whose velocity is the velocity of the vehicle, so that the pose of a
+ * vehicle at any time can be computed directly from the distance it has
+ * travelled.  Turns are not described by traversal paths since a
+ * {@link aim4.driver.CrashTestDummy} does not turn along a simple curve.
+ */
+public class TraversalPath {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The tolerance, in meters, for the exit point to lie on the line of the
+   * arrival lane. {@value}
+   */
+  private static final double ALIGNMENT_TOLERANCE = 1e-6;
+
+  /**
+   * The tolerance, in radians, for the heading at the exit point to be the
+   * same as the one at the entry point. {@value}
+   */
+  private static final double HEADING_TOLERANCE = 1e-9;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The track from the entry point to the exit point */
+  private final LineTrack track;
+  /** The entry point */
+  private final Point2D entryPoint;
+  /** The exit point */
+  private final Point2D exitPoint;
+  /** The heading of the path */
+  private final double heading;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create the path of a traversal of an intersection.
+   *
+   * @param intersection   the intersection
+   * @param arrivalLane    the arrival lane
+   * @param departureLane  the departure lane
+   * @return the path of the traversal; null if the traversal is not
+   *         straight
+   */
+  public static TraversalPath make(Intersection intersection,
+                                   Lane arrivalLane, Lane departureLane) {
+    WayPoint p = intersection.getEntryPoint(arrivalLane);
+    WayPoint q = intersection.getExitPoint(departureLane);
+    if (p == null || q == null) {
+      return null;
+    }
+    double heading = intersection.getEntryHeading(arrivalLane);
+    if (GeomMath.angleDiff(heading, intersection.getExitHeading(departureLane))
+        > HEADING_TOLERANCE) {
+      return null;
+    }
+    // The exit point must be ahead of the entry point on the same line
+    double dx = q.getX() - p.getX();
+    double dy = q.getY() - p.getY();
+    if (Math.abs(dx * Math.sin(heading) - dy * Math.cos(heading))
+          > ALIGNMENT_TOLERANCE
+        || dx * Math.cos(heading) + dy * Math.sin(heading) <= 0) {
+      return null;
+    }
+    return new TraversalPath(new LineTrack(p, q), p, q, heading);
+  }
+
+  /**
+   * Create the path of a traversal of an intersection.
+   *
+   * @param track       the track from the entry point to the exit point
+   * @param entryPoint  the entry point
+   * @param exitPoint   the exit point
+   * @param heading     the heading of the path
+   */
+  private TraversalPath(LineTrack track, Point2D entryPoint,
+                        Point2D exitPoint, double heading) {
+    this.track = track;
+    this.entryPoint = entryPoint;
+    this.exitPoint = exitPoint;
+    this.heading = heading;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the length of the path from the entry point to the exit point.
+   *
+   * @return the length of the path
+   */
+  public double getLength() {
+    return track.getLength();
+  }
+
+  /**
+   * Get the pose at a given distance along the path.
+   *
+   * @param dist  the distance from the entry point; negative before the
+   *              entry point
+   * @param pose  an array of length at least three in which to store the
+   *              x-coordinate, the y-coordinate and the heading
+   */
+  public void getPose(double dist, double[] pose) {
+    if (dist <= 0) {
+      pose[0] = entryPoint.getX() + dist * Math.cos(heading);
+      pose[1] = entryPoint.getY() + dist * Math.sin(heading);
+    } else if (dist >= track.getLength()) {
+      double d = dist - track.getLength();
+      pose[0] = exitPoint.getX() + d * Math.cos(heading);
+      pose[1] = exitPoint.getY() + d * Math.sin(heading);
+    } else {
+      TrackPosition pos = track.getPosition(dist);
+      pose[0] = pos.getX();
+      pose[1] = pos.getY();
+    }
+    pose[2] = heading;
+  }
+}
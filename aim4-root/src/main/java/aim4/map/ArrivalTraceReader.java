@@ -0,0 +1,296 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * The reader of an arrival trace.  Each row of a trace is an arrival at a
+ * spawn point:
+ * <pre>
+ *   Time,startLaneId,vType,destRoad
+ * </pre>
+ * where the time is in seconds, the lane is given by its ID, the vehicle
+ * spec by its name in the {@link aim4.vehicle.VehicleSpecDatabase} and
+ * the destination road by its name.  The header, empty lines and lines
+ * starting with <code>#</code> are skipped.
+ * <p>
+ * The file is read through a memory-mapped window that slides along the
+ * file, so that a trace of millions of arrivals is read without being
+ * loaded into the heap.  Only the current row is kept.
+ */
+public class ArrivalTraceReader {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The size of the mapped window of the file in bytes */
+  private static final long WINDOW_SIZE = 1L << 24;
+
+  /** The initial size of the line buffer in bytes */
+  private static final int INITIAL_LINE_SIZE = 256;
+
+  /** The character set of the file */
+  private static final Charset CHARSET = Charset.forName("UTF-8");
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The name of the file */
+  private String fileName;
+  /** The file */
+  private RandomAccessFile file;
+  /** The channel of the file */
+  private FileChannel channel;
+  /** The size of the file in bytes */
+  private long fileSize;
+  /** The mapped window of the file */
+  private MappedByteBuffer window;
+  /** The position of the window in the file */
+  private long windowStart;
+  /** The bytes of the current line */
+  private byte[] lineBytes;
+  /** The number of the current line */
+  private long lineNumber;
+  /** The time of the current row */
+  private double time;
+  /** The ID of the lane of the current row */
+  private int laneId;
+  /** The name of the vehicle spec of the current row */
+  private String vehicleSpecName;
+  /** The name of the destination road of the current row */
+  private String destinationRoadName;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Open an arrival trace.
+   *
+   * @param fileName  the name of the file of the trace
+   * @throws IOException if the file cannot be opened or mapped
+   */
+  public ArrivalTraceReader(String fileName) throws IOException {
+    this.fileName = fileName;
+    this.file = new RandomAccessFile(fileName, "r");
+    this.channel = file.getChannel();
+    this.fileSize = channel.size();
+    this.windowStart = 0;
+    this.window = map(windowStart);
+    this.lineBytes = new byte[INITIAL_LINE_SIZE];
+    this.lineNumber = 0;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Read the next row.
+   *
+   * @return whether there is a next row; false at the end of the file
+   * @throws IOException if the file cannot be read
+   * @throws IllegalArgumentException if the row is malformed
+   */
+  public boolean next() throws IOException {
+    int len;
+    while ((len = readLine()) >= 0) {
+      String line = new String(lineBytes, 0, len, CHARSET).trim();
+      if (line.length() > 0 && line.charAt(0) != '#'
+          && !line.equals(ArrivalTraceWriter.HEADER)) {
+        parse(line);
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the time of the current row.
+   *
+   * @return the time of the current row
+   */
+  public double getTime() {
+    return time;
+  }
+
+  /**
+   * Get the ID of the lane of the current row.
+   *
+   * @return the ID of the lane of the current row
+   */
+  public int getLaneId() {
+    return laneId;
+  }
+
+  /**
+   * Get the name of the vehicle spec of the current row.
+   *
+   * @return the name of the vehicle spec of the current row
+   */
+  public String getVehicleSpecName() {
+    return vehicleSpecName;
+  }
+
+  /**
+   * Get the name of the destination road of the current row.
+   *
+   * @return the name of the destination road of the current row
+   */
+  public String getDestinationRoadName() {
+    return destinationRoadName;
+  }
+
+  /**
+   * Get the number of the line of the current row.
+   *
+   * @return the number of the line of the current row
+   */
+  public long getLineNumber() {
+    return lineNumber;
+  }
+
+  /**
+   * Get the name of the file.
+   *
+   * @return the name of the file
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * Close the file.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  public void close() throws IOException {
+    window = null;
+    file.close();
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Map the window of the file starting at a position.
+   *
+   * @param start  the position in the file
+   * @return the window
+   * @throws IOException if the file cannot be mapped
+   */
+  private MappedByteBuffer map(long start) throws IOException {
+    return channel.map(FileChannel.MapMode.READ_ONLY, start,
+                       Math.min(WINDOW_SIZE, fileSize - start));
+  }
+
+  /**
+   * Read the next line into the line buffer.  The window is moved forward
+   * when the line runs past its end.
+   *
+   * @return the length of the line, without the line separator; -1 at the
+   *         end of the file
+   * @throws IOException if the file cannot be mapped
+   */
+  private int readLine() throws IOException {
+    if (windowStart + window.position() >= fileSize) {
+      return -1;
+    }
+    int len = 0;
+    while (true) {
+      if (!window.hasRemaining()) {
+        long pos = windowStart + window.position();
+        if (pos >= fileSize) {
+          break;  // the last line has no line separator
+        }
+        windowStart = pos;
+        window = map(windowStart);
+      }
+      byte b = window.get();
+      if (b == '\n') {
+        break;
+      }
+      if (len == lineBytes.length) {
+        lineBytes = Arrays.copyOf(lineBytes, 2 * len);
+      }
+      lineBytes[len++] = b;
+    }
+    lineNumber++;
+    return len;
+  }
+
+  /**
+   * Parse a row.
+   *
+   * @param line  the line of the row
+   * @throws IllegalArgumentException if the row is malformed
+   */
+  private void parse(String line) {
+    int c1 = line.indexOf(',');
+    int c2 = (c1 >= 0) ? line.indexOf(',', c1 + 1) : -1;
+    int c3 = (c2 >= 0) ? line.indexOf(',', c2 + 1) : -1;
+    if (c3 < 0 || line.indexOf(',', c3 + 1) >= 0) {
+      throw malformedRow("expected 4 fields");
+    }
+    try {
+      time = Double.parseDouble(line.substring(0, c1));
+      laneId = Integer.parseInt(line.substring(c1 + 1, c2).trim());
+    } catch (NumberFormatException e) {
+      throw malformedRow(e.getMessage());
+    }
+    if (Double.isNaN(time) || Double.isInfinite(time)) {
+      throw malformedRow("invalid time " + time);
+    }
+    vehicleSpecName = line.substring(c2 + 1, c3).trim();
+    destinationRoadName = line.substring(c3 + 1).trim();
+  }
+
+  /**
+   * Make the exception of a malformed row.
+   *
+   * @param reason  the reason
+   * @return the exception
+   */
+  private IllegalArgumentException malformedRow(String reason) {
+    return new IllegalArgumentException("Malformed row at line " + lineNumber
+                                        + " of " + fileName + ": " + reason);
+  }
+
+}
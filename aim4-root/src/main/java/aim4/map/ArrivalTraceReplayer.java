@@ -0,0 +1,207 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import aim4.map.SpawnPoint.SpawnSpec;
+import aim4.vehicle.VehicleSpec;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * The replayer of an arrival trace, which is shared by the spawn points of
+ * a map.  The rows of the trace are read as the simulation time advances
+ * and the arrivals are handed to the spawn points of their lanes, so that
+ * only the arrivals of the current time step are kept in memory.
+ * <p>
+ * The times in the trace must be non-decreasing.  An arrival is due in the
+ * time step that contains its time; the arrivals whose times are before
+ * the start of the simulation are due in the first time step.
+ */
+public class ArrivalTraceReplayer {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The name of the file of the trace */
+  private String fileName;
+  /** The reader of the trace; null after the end of the trace */
+  private ArrivalTraceReader reader;
+  /** Whether the current row of the reader has not been handed out */
+  private boolean hasPendingRow;
+  /** The time of the last row */
+  private double lastTime;
+  /** The due arrivals, by the IDs of the lanes of the spawn points */
+  private Map<Integer, ArrayDeque<SpawnSpec>> dueSpawns;
+  /** The destination roads, by their names */
+  private Map<String, Road> destinationRoads;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a replayer of an arrival trace.
+   *
+   * @param map       the map
+   * @param fileName  the name of the file of the trace
+   * @throws IOException if the file cannot be opened
+   */
+  public ArrivalTraceReplayer(BasicMap map, String fileName)
+      throws IOException {
+    this.fileName = fileName;
+    this.reader = new ArrivalTraceReader(fileName);
+    this.hasPendingRow = false;
+    this.lastTime = Double.NEGATIVE_INFINITY;
+    this.dueSpawns = new HashMap<Integer, ArrayDeque<SpawnSpec>>();
+    for(SpawnPoint sp : map.getSpawnPoints()) {
+      dueSpawns.put(sp.getLane().getId(), new ArrayDeque<SpawnSpec>());
+    }
+    this.destinationRoads = new HashMap<String, Road>();
+    for(Road road : map.getDestinationRoads()) {
+      destinationRoads.put(road.getName(), road);
+    }
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the arrivals at a spawn point that are due before a given time.
+   *
+   * @param laneId   the ID of the lane of the spawn point
+   * @param endTime  the end of the current time step
+   * @return the arrivals at the spawn point whose times are before the end
+   *         of the time step and which have not been handed out
+   * @throws IllegalArgumentException if a row of the trace is malformed or
+   *                                  refers to an unknown lane, vehicle
+   *                                  spec or road
+   */
+  public List<SpawnSpec> act(int laneId, double endTime) {
+    readUntil(endTime);
+    ArrayDeque<SpawnSpec> spawns = dueSpawns.get(laneId);
+    if (spawns == null || spawns.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<SpawnSpec> result = new ArrayList<SpawnSpec>(spawns);
+    spawns.clear();
+    return result;
+  }
+
+  /**
+   * Whether all rows of the trace have been read.
+   *
+   * @return whether all rows of the trace have been read
+   */
+  public boolean isFinished() {
+    return reader == null && !hasPendingRow;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Read the rows of the trace whose times are before a given time and put
+   * the arrivals in the queues of their spawn points.
+   *
+   * @param endTime  the end of the current time step
+   */
+  private void readUntil(double endTime) {
+    try {
+      while (reader != null) {
+        if (!hasPendingRow) {
+          if (!reader.next()) {
+            reader.close();
+            reader = null;
+            break;
+          }
+          hasPendingRow = true;
+        }
+        if (reader.getTime() >= endTime) {
+          break;
+        }
+        dueSpawn();
+        hasPendingRow = false;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Cannot read file " + fileName, e);
+    }
+  }
+
+  /**
+   * Put the arrival of the current row in the queue of its spawn point.
+   */
+  private void dueSpawn() {
+    double time = reader.getTime();
+    if (time < lastTime) {
+      throw badRow("the time " + time + " is before " + lastTime);
+    }
+    lastTime = time;
+    ArrayDeque<SpawnSpec> spawns = dueSpawns.get(reader.getLaneId());
+    if (spawns == null) {
+      throw badRow("no spawn point at lane " + reader.getLaneId());
+    }
+    VehicleSpec vehicleSpec =
+      VehicleSpecDatabase.getVehicleSpecByName(reader.getVehicleSpecName());
+    if (vehicleSpec == null) {
+      throw badRow("unknown vehicle spec " + reader.getVehicleSpecName());
+    }
+    Road destinationRoad =
+      destinationRoads.get(reader.getDestinationRoadName());
+    if (destinationRoad == null) {
+      throw badRow("unknown destination road "
+                   + reader.getDestinationRoadName());
+    }
+    spawns.add(new SpawnSpec(time, vehicleSpec, destinationRoad));
+  }
+
+  /**
+   * Make the exception of a row that cannot be replayed.
+   *
+   * @param reason  the reason
+   * @return the exception
+   */
+  private IllegalArgumentException badRow(String reason) {
+    return new IllegalArgumentException("Bad row at line "
+                                        + reader.getLineNumber() + " of "
+                                        + fileName + ": " + reason);
+  }
+
+}
@@ -0,0 +1,152 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+
+import aim4.map.SpawnPoint.SpawnSpec;
+
+/**
+ * The writer of an arrival trace.  A row is written for each arrival at a
+ * spawn point, in the format read by {@link ArrivalTraceReader}, so that
+ * the demand produced by any spawn spec generator can be replayed exactly
+ * by {@link ArrivalTraceReplayer}.  The rows are buffered and the buffer is
+ * flushed after every {@link #FLUSH_INTERVAL} rows.
+ */
+public class ArrivalTraceWriter {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of rows after which the buffer is flushed */
+  public static final int FLUSH_INTERVAL = 4096;
+
+  /** The header of the file, without the line separator */
+  public static final String HEADER = "Time,startLaneId,vType,destRoad";
+
+  /** The size of the buffer in bytes */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The name of the file */
+  private String outFileName;
+  /** The output stream */
+  private PrintStream out;
+  /** The number of rows since the last flush */
+  private int numOfUnflushedRows;
+  /** The number of rows written */
+  private long numOfRows;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a writer of an arrival trace and write the header of the file.
+   *
+   * @param outFileName  the name of the file to which the trace is written
+   * @throws FileNotFoundException if the file cannot be opened
+   */
+  public ArrivalTraceWriter(String outFileName)
+      throws FileNotFoundException {
+    this.outFileName = outFileName;
+    this.out =
+      new PrintStream(new BufferedOutputStream(
+                        new FileOutputStream(outFileName), BUFFER_SIZE),
+                      false);
+    this.numOfUnflushedRows = 0;
+    this.numOfRows = 0;
+    out.print(HEADER);
+    out.print('\n');
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Write the row of an arrival.  The time is written in full precision,
+   * so that the replayed arrival times are the recorded ones.
+   *
+   * @param laneId     the ID of the lane of the spawn point
+   * @param spawnSpec  the spawn spec of the arrival
+   */
+  public void write(int laneId, SpawnSpec spawnSpec) {
+    out.print(Double.toString(spawnSpec.getSpawnTime()));
+    out.print(',');
+    out.print(laneId);
+    out.print(',');
+    out.print(spawnSpec.getVehicleSpec().getName());
+    out.print(',');
+    out.print(spawnSpec.getDestinationRoad().getName());
+    out.print('\n');
+    numOfRows++;
+    numOfUnflushedRows++;
+    if (numOfUnflushedRows >= FLUSH_INTERVAL) {
+      flush();
+    }
+  }
+
+  /**
+   * Get the number of rows written.
+   *
+   * @return the number of rows written
+   */
+  public long getNumOfRows() {
+    return numOfRows;
+  }
+
+  /**
+   * Flush the buffered rows to the file.
+   */
+  public void flush() {
+    out.flush();
+    numOfUnflushedRows = 0;
+  }
+
+  /**
+   * Flush the buffered rows and close the file.
+   */
+  public void close() {
+    out.close();
+    if (out.checkError()) {
+      System.err.printf("Cannot write file %s\n", outFileName);
+    }
+  }
+
+}
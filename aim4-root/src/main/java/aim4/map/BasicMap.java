@@ -35,6 +35,7 @@ import java.util.List;
 
 import aim4.im.IntersectionManager;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 import aim4.util.Registry;
 
 /**
@@ -87,6 +88,13 @@ public interface BasicMap {
    */
   Registry<Lane> getLaneRegistry();
 
+  /**
+   * Get the context of the simulation to which this Layout belongs.
+   *
+   * @return the context of the simulation
+   */
+  SimContext getContext();
+
   /**
    * Given a Lane, get the Road of which that Lane is a part.
    *
@@ -33,6 +33,7 @@ package aim4.map;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -53,6 +54,15 @@ public class DataCollectionLine {
   /** The no repeat time period */
   private static final double NO_REPEAT_TIME_PERIOD = 1.0; // seconds
 
+  /**
+   * The initial capacity of the table of the last passing times; must be a
+   * power of two
+   */
+  private static final int INITIAL_LAST_TIME_CAPACITY = 64;
+
+  /** The key of an empty slot in the table of the last passing times */
+  private static final int NO_VIN = -1;
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -65,11 +75,27 @@ public class DataCollectionLine {
   private Line2D line;
   /** The record of the times of the vehicle passing through the line */
   private Map<Integer,List<Double>> vinToTime;
+  /**
+   * The writer to which the times of the vehicles passing through the line
+   * are written; null if the times are recorded in vinToTime.
+   */
+  private DataCollectionWriter writer;
   /**
    * Whether vehicles should not be counted more than once when it passes
    * through the line more than once within the NO_REPEAT_TIME_PERIOD.
    */
   private boolean isNoRepeat;
+  /**
+   * The VINs of the vehicles that have passed through the line, in an
+   * open-addressing hash table with linear probing.  The VINs whose last
+   * passing times are older than the NO_REPEAT_TIME_PERIOD are dropped when
+   * the table is rebuilt.
+   */
+  private int[] lastTimeVins;
+  /** The last passing times of the vehicles, in the slots of their VINs */
+  private double[] lastTimes;
+  /** The number of VINs in the table of the last passing times */
+  private int numOfLastTimes;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -91,8 +117,13 @@ public class DataCollectionLine {
     this.name = name;
     this.id = id;
     this.vinToTime = new HashMap<Integer,List<Double>>();
+    this.writer = null;
     this.line = new Line2D.Double(p1, p2);
     this.isNoRepeat = isNoRepeat;
+    this.lastTimeVins = new int[INITIAL_LAST_TIME_CAPACITY];
+    Arrays.fill(lastTimeVins, NO_VIN);
+    this.lastTimes = new double[INITIAL_LAST_TIME_CAPACITY];
+    this.numOfLastTimes = 0;
   }
 
   /////////////////////////////////
@@ -108,6 +139,18 @@ public class DataCollectionLine {
     return line;
   }
 
+  /**
+   * Write the times of the vehicles passing through the line to a writer as
+   * they pass through the line, instead of recording them.  The writer
+   * should be set before the simulation starts; the times that have been
+   * recorded are not written.
+   *
+   * @param writer  the writer; null if the times should be recorded
+   */
+  public void setWriter(DataCollectionWriter writer) {
+    this.writer = writer;
+  }
+
   /**
    * Whether the vehicle intersects the line.
    *
@@ -119,27 +162,29 @@ public class DataCollectionLine {
    */
   public boolean intersect(VehicleSimView v, double time,
                            Point2D p1, Point2D p2) {
+    if (!line.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY())) {
+      return false;
+    }
     int vin = v.getVIN();
-    if (!isNoRepeat
-      || !vinToTime.containsKey(vin)
-      || vinToTime.get(vin).get(vinToTime.get(vin).size()-1)
-        + NO_REPEAT_TIME_PERIOD < time) {
-      if (line.intersectsLine(p1.getX(), p1.getY(), p2.getX(), p2.getY())) {
-        if (!vinToTime.containsKey(vin)) {
-          List<Double> times = new LinkedList<Double>();
-          times.add(time);
-          vinToTime.put(vin, times);
-        } else {
-          vinToTime.get(vin).add(time);
-        }
-        return true;
-      } else {
+    if (isNoRepeat) {
+      int slot = findLastTimeSlot(vin);
+      if (slot >= 0 && lastTimes[slot] + NO_REPEAT_TIME_PERIOD >= time) {
+        // the vehicle passed through this data collection line
+        // twice or more within last NO_REPEAT_TIME_PERIOD seconds
         return false;
       }
-    } else {  // the vehicle passed through this data collection line
-              // twice or more within last NO_REPEAT_TIME_PERIOD seconds
-      return false;
+      putLastTime(slot, vin, time);
+    }
+    if (writer != null) {
+      writer.write(this, vin, time);
+    } else if (!vinToTime.containsKey(vin)) {
+      List<Double> times = new LinkedList<Double>();
+      times.add(time);
+      vinToTime.put(vin, times);
+    } else {
+      vinToTime.get(vin).add(time);
     }
+    return true;
   }
 
   /**
@@ -179,4 +224,103 @@ public class DataCollectionLine {
     return vinToTime.get(vin);
   }
 
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the home slot of a VIN in the table of the last passing times.
+   *
+   * @param vin   the VIN
+   * @param mask  the capacity of the table minus one
+   * @return the home slot of the VIN
+   */
+  private static int homeSlot(int vin, int mask) {
+    int h = vin * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Find the slot of a VIN in the table of the last passing times.
+   *
+   * @param vin  the VIN
+   * @return the slot of the VIN; -1 if the VIN is not in the table
+   */
+  private int findLastTimeSlot(int vin) {
+    int mask = lastTimeVins.length - 1;
+    for(int i = homeSlot(vin, mask);
+        lastTimeVins[i] != NO_VIN;
+        i = (i + 1) & mask) {
+      if (lastTimeVins[i] == vin) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Set the last passing time of a vehicle.  The table is rebuilt without
+   * the passing times that are older than the NO_REPEAT_TIME_PERIOD when it
+   * becomes half full, so that its size is bounded by the number of
+   * vehicles that pass through the line within the period.
+   *
+   * @param slot  the slot of the VIN; -1 if the VIN is not in the table
+   * @param vin   the VIN of the vehicle
+   * @param time  the passing time
+   */
+  private void putLastTime(int slot, int vin, double time) {
+    if (slot < 0) {
+      if (2 * (numOfLastTimes + 1) > lastTimeVins.length) {
+        rebuildLastTimes(time);
+      }
+      int mask = lastTimeVins.length - 1;
+      slot = homeSlot(vin, mask);
+      while (lastTimeVins[slot] != NO_VIN) {
+        slot = (slot + 1) & mask;
+      }
+      lastTimeVins[slot] = vin;
+      numOfLastTimes++;
+    }
+    lastTimes[slot] = time;
+  }
+
+  /**
+   * Rebuild the table of the last passing times without the passing times
+   * that are older than the NO_REPEAT_TIME_PERIOD.
+   *
+   * @param time  the current time
+   */
+  private void rebuildLastTimes(double time) {
+    int[] oldVins = lastTimeVins;
+    double[] oldTimes = lastTimes;
+    int numOfRecentTimes = 0;
+    for(int i = 0; i < oldVins.length; i++) {
+      if (oldVins[i] != NO_VIN
+          && oldTimes[i] + NO_REPEAT_TIME_PERIOD >= time) {
+        numOfRecentTimes++;
+      }
+    }
+    int capacity = INITIAL_LAST_TIME_CAPACITY;
+    while (capacity < 4 * (numOfRecentTimes + 1)) {
+      capacity *= 2;
+    }
+    lastTimeVins = new int[capacity];
+    Arrays.fill(lastTimeVins, NO_VIN);
+    lastTimes = new double[capacity];
+    numOfLastTimes = 0;
+    int mask = capacity - 1;
+    for(int i = 0; i < oldVins.length; i++) {
+      if (oldVins[i] != NO_VIN
+          && oldTimes[i] + NO_REPEAT_TIME_PERIOD >= time) {
+        int slot = homeSlot(oldVins[i], mask);
+        while (lastTimeVins[slot] != NO_VIN) {
+          slot = (slot + 1) & mask;
+        }
+        lastTimeVins[slot] = oldVins[i];
+        lastTimes[slot] = oldTimes[i];
+        numOfLastTimes++;
+      }
+    }
+  }
+
 }
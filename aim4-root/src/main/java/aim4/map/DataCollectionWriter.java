@@ -0,0 +1,149 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.map;
+
+import java.io.BufferedOutputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Formatter;
+
+import aim4.vehicle.VinRegistry;
+
+/**
+ * The writer of the data of the data collection lines.  A row is written
+ * for each time a vehicle passes through a line, in the CSV format that the
+ * scripts in the tools directory read.  The rows are buffered and the
+ * buffer is flushed after every {@link #FLUSH_INTERVAL} rows, so that the
+ * writer can be given to the data collection lines while a simulation runs
+ * without the rows piling up in memory.
+ */
+public class DataCollectionWriter {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of rows after which the buffer is flushed */
+  public static final int FLUSH_INTERVAL = 4096;
+
+  /** The size of the buffer in bytes */
+  private static final int BUFFER_SIZE = 1 << 16;
+
+  /** The header of the file */
+  private static final String HEADER =
+    "VIN,Time,DCLname,vType,startLaneId,destRoad\n";
+
+  /** The format of a row */
+  private static final String ROW_FORMAT = "%d,%.4f,%s,%s,%d,%s\n";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The name of the file */
+  private String outFileName;
+  /** The VIN registry from which the data of the vehicles are read */
+  private VinRegistry vinRegistry;
+  /** The output stream */
+  private PrintStream out;
+  /** The formatter of the rows */
+  private Formatter formatter;
+  /** The number of rows since the last flush */
+  private int numOfUnflushedRows;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a writer of the data of the data collection lines and write the
+   * header of the file.
+   *
+   * @param outFileName  the name of the file to which the data are written
+   * @param vinRegistry  the VIN registry of the simulation
+   * @throws FileNotFoundException if the file cannot be opened
+   */
+  public DataCollectionWriter(String outFileName, VinRegistry vinRegistry)
+      throws FileNotFoundException {
+    this.outFileName = outFileName;
+    this.vinRegistry = vinRegistry;
+    this.out =
+      new PrintStream(new BufferedOutputStream(
+                        new FileOutputStream(outFileName), BUFFER_SIZE),
+                      false);
+    this.formatter = new Formatter(out);
+    this.numOfUnflushedRows = 0;
+    out.print(HEADER);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Write the row of a vehicle passing through a data collection line.
+   *
+   * @param line  the data collection line
+   * @param vin   the VIN of the vehicle
+   * @param time  the time at which the vehicle passed through the line
+   */
+  public void write(DataCollectionLine line, int vin, double time) {
+    formatter.format(ROW_FORMAT,
+                     vin, time, line.getName(),
+                     vinRegistry.getVehicleSpecFromVIN(vin).getName(),
+                     vinRegistry.getSpawnPointFromVIN(vin).getLane().getId(),
+                     vinRegistry.getDestRoadFromVIN(vin).getName());
+    numOfUnflushedRows++;
+    if (numOfUnflushedRows >= FLUSH_INTERVAL) {
+      flush();
+    }
+  }
+
+  /**
+   * Flush the buffered rows to the file.
+   */
+  public void flush() {
+    out.flush();
+    numOfUnflushedRows = 0;
+  }
+
+  /**
+   * Flush the buffered rows and close the file.
+   */
+  public void close() {
+    out.close();
+    if (out.checkError()) {
+      System.err.printf("Cannot write file %s\n", outFileName);
+    }
+  }
+
+}
@@ -33,21 +33,19 @@ package aim4.map;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.io.FileNotFoundException;
-import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import aim4.config.Debug;
 import aim4.im.IntersectionManager;
 import aim4.map.lane.Lane;
 import aim4.map.lane.LineSegmentLane;
+import aim4.sim.SimContext;
 import aim4.util.ArrayListRegistry;
 import aim4.util.GeomMath;
 import aim4.util.Registry;
-import aim4.vehicle.VinRegistry;
 
 
 /**
@@ -88,7 +86,7 @@ public class GridMap implements BasicMap {
   /** The array of intersection managers */
   private IntersectionManager[][] intersectionManagerGrid;
   /** The maximum speed limit  */
-  private double memoMaximumSpeedLimit = -1;
+  private volatile double memoMaximumSpeedLimit = -1;
   /** The data collection lines */
   private List<DataCollectionLine> dataCollectionLines;
   /** The spawn points */
@@ -105,6 +103,8 @@ public class GridMap implements BasicMap {
     new ArrayListRegistry<IntersectionManager>();
   /** A mapping form lanes to roads they belong */
   private Map<Lane,Road> laneToRoad = new HashMap<Lane,Road>();
+  /** The context of the simulation */
+  private SimContext context;
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -113,6 +113,7 @@ public class GridMap implements BasicMap {
   /**
    * Create a grid map.
    *
+   * @param context          the context of the simulation
    * @param initTime         the initial time
    * @param columns          the number of columns
    * @param rows             the number of rows
@@ -123,7 +124,7 @@ public class GridMap implements BasicMap {
    *                         direction
    * @param distanceBetween  the distance between the adjacent intersections
    */
-  public GridMap(double initTime, int columns, int rows,
+  public GridMap(SimContext context, double initTime, int columns, int rows,
                  double laneWidth, double speedLimit, int lanesPerRoad,
                  double medianSize, double distanceBetween) {
     // Can't make these unless there is at least one row and column
@@ -131,6 +132,7 @@ public class GridMap implements BasicMap {
       throw new IllegalArgumentException("Must have at least one column "+
       "and row!");
     }
+    this.context = context;
     this.columns = columns;
     this.rows = rows;
     // Can't forget to account for the fact that we have "distanceBetween"
@@ -358,7 +360,7 @@ public class GridMap implements BasicMap {
     spawnPoints.addAll(horizontalSpawnPoints);
     spawnPoints.addAll(verticalSpawnPoints);
 
-    Debug.currentMap = this;
+    context.setMap(this);
   }
 
   /**
@@ -418,13 +420,17 @@ public class GridMap implements BasicMap {
   @Override
   public double getMaximumSpeedLimit() {
     if(memoMaximumSpeedLimit < 0) {
+      // compute the maximum before publishing it, since the drivers may
+      // ask for it concurrently
+      double maximumSpeedLimit = -1;
       for(Road r : getRoads()) {
         for(Lane l : r.getLanes()) {
-          if(l.getSpeedLimit() > memoMaximumSpeedLimit) {
-            memoMaximumSpeedLimit = l.getSpeedLimit();
+          if(l.getSpeedLimit() > maximumSpeedLimit) {
+            maximumSpeedLimit = l.getSpeedLimit();
           }
         }
       }
+      memoMaximumSpeedLimit = maximumSpeedLimit;
     }
     return memoMaximumSpeedLimit;
   }
@@ -553,6 +559,14 @@ public class GridMap implements BasicMap {
     return laneRegistry;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SimContext getContext() {
+    return context;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -611,28 +625,23 @@ public class GridMap implements BasicMap {
    */
   @Override
   public void printDataCollectionLinesData(String outFileName) {
-    PrintStream outfile = null;
+    DataCollectionWriter writer = null;
     try {
-      outfile = new PrintStream(outFileName);
+      writer = new DataCollectionWriter(outFileName, context.getVinRegistry());
     } catch (FileNotFoundException e) {
       System.err.printf("Cannot open file %s\n", outFileName);
       return;
     }
     // TODO: sort by time and LineId and VIN
-    outfile.printf("VIN,Time,DCLname,vType,startLaneId,destRoad\n");
     for (DataCollectionLine line : dataCollectionLines) {
       for (int vin : line.getAllVIN()) {
         for(double time : line.getTimes(vin)) {
-          outfile.printf("%d,%.4f,%s,%s,%d,%s\n",
-                         vin, time, line.getName(),
-                         VinRegistry.getVehicleSpecFromVIN(vin).getName(),
-                         VinRegistry.getSpawnPointFromVIN(vin).getLane().getId(),
-                         VinRegistry.getDestRoadFromVIN(vin).getName());
+          writer.write(line, vin, time);
         }
       }
     }
 
-    outfile.close();
+    writer.close();
   }
 
 }
@@ -30,13 +30,15 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.map;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
-import aim4.config.Debug;
-import aim4.config.SimConfig;
 import aim4.config.TrafficSignalPhase;
+import aim4.im.IntersectionManager;
 import aim4.im.RoadBasedIntersection;
 import aim4.im.RoadBasedTrackModel;
 import aim4.im.v2i.RequestHandler.ApproxSimpleTrafficSignalRequestHandler;
@@ -51,6 +53,7 @@ import aim4.im.v2i.RequestHandler.RequestHandler;
 import aim4.im.v2i.batch.RoadBasedReordering;
 import aim4.im.v2i.policy.BasePolicy;
 import aim4.im.v2i.reservation.ReservationGridManager;
+import aim4.map.SpawnPoint.ScheduledSpawnSpecGenerator;
 import aim4.map.SpawnPoint.SpawnSpec;
 import aim4.map.SpawnPoint.SpawnSpecGenerator;
 import aim4.map.destination.DestinationSelector;
@@ -58,6 +61,7 @@ import aim4.map.destination.RandomDestinationSelector;
 import aim4.map.destination.RatioDestinationSelector;
 import aim4.map.destination.TurnBasedDestinationSelector;
 import aim4.map.lane.Lane;
+import aim4.sim.SimContext;
 import aim4.util.Util;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VehicleSpecDatabase;
@@ -82,25 +86,120 @@ public class GridMapUtil {
       }
     };
 
+  /**
+   * The spawn spec generator whose vehicles arrive according to a Poisson
+   * process.  The inter-arrival times are drawn from an exponential
+   * distribution one arrival ahead, so that the generator does nothing
+   * until the next arrival is due, and there can be any number of arrivals
+   * in a time step.
+   */
+  public abstract static class PoissonSpawnSpecGenerator
+                               implements ScheduledSpawnSpecGenerator {
+    /** The arrival rate (vehicles per second) */
+    private double trafficLevel;
+    /** The time of the next arrival */
+    private double nextArrivalTime;
+    /** The random number generator */
+    protected Random random;
+
+    /**
+     * Create a Poisson spawn spec generator whose first arrival is drawn
+     * from time zero.
+     *
+     * @param trafficLevel  the arrival rate (vehicles per second)
+     * @param random        the random number generator
+     */
+    public PoissonSpawnSpecGenerator(double trafficLevel, Random random) {
+      if (trafficLevel < 0.0) {
+        throw new IllegalArgumentException("Negative traffic level: "
+                                           + trafficLevel);
+      }
+      this.trafficLevel = trafficLevel;
+      this.random = random;
+      nextArrivalTime = drawInterArrivalTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getNextArrivalTime() {
+      return nextArrivalTime;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public SpawnSpec nextArrival(SpawnPoint spawnPoint) {
+      SpawnSpec spawnSpec = makeSpawnSpec(spawnPoint, nextArrivalTime);
+      nextArrivalTime += drawInterArrivalTime();
+      return spawnSpec;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep) {
+      double endTime = spawnPoint.getCurrentTime() + timeStep;
+      if (nextArrivalTime >= endTime) {
+        return Collections.emptyList();
+      }
+      List<SpawnSpec> result = new ArrayList<SpawnSpec>(1);
+      while (nextArrivalTime < endTime) {
+        result.add(nextArrival(spawnPoint));
+      }
+      return result;
+    }
+
+    /**
+     * Create the spawn spec of an arrival.
+     *
+     * @param spawnPoint   the spawn point
+     * @param arrivalTime  the arrival time
+     * @return the spawn spec
+     */
+    protected abstract SpawnSpec makeSpawnSpec(SpawnPoint spawnPoint,
+                                               double arrivalTime);
+
+    /**
+     * Draw the time between two arrivals.
+     *
+     * @return the time between two arrivals; positive infinity if the
+     *         traffic level is zero
+     */
+    private double drawInterArrivalTime() {
+      if (trafficLevel > 0.0) {
+        // 1 - U is in (0, 1], so the logarithm is finite
+        return -Math.log(1.0 - random.nextDouble()) / trafficLevel;
+      } else {
+        return Double.POSITIVE_INFINITY;
+      }
+    }
+  }
+
   /**
    * The uniform distributed spawn spec generator.
    */
-  public static class UniformSpawnSpecGenerator implements SpawnSpecGenerator {
+  public static class UniformSpawnSpecGenerator
+                      extends PoissonSpawnSpecGenerator {
     /** The proportion of each spec */
     private List<Double> proportion;
     /** The destination selector */
     private DestinationSelector destinationSelector;
-    /** probability of generating a vehicle in each spawn time step */
-    private double prob;
 
     /**
      * Create an uniform spawn specification generator.
      *
      * @param trafficLevel         the traffic level
      * @param destinationSelector  the destination selector
+     * @param random               the random number generator
      */
     public UniformSpawnSpecGenerator(double trafficLevel,
-                                     DestinationSelector destinationSelector) {
+                                     DestinationSelector destinationSelector,
+                                     Random random) {
+      super(trafficLevel, random);
       int n = VehicleSpecDatabase.getNumOfSpec();
       proportion = new ArrayList<Double>(n);
       double p = 1.0 / n;
@@ -108,50 +207,31 @@ public class GridMapUtil {
         proportion.add(p);
       }
       this.destinationSelector = destinationSelector;
-
-      prob = trafficLevel * SimConfig.SPAWN_TIME_STEP;
-      // Cannot generate more than one vehicle in each spawn time step
-      assert prob <= 1.0;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep) {
-      List<SpawnSpec> result = new LinkedList<SpawnSpec>();
-
-      double initTime = spawnPoint.getCurrentTime();
-      for(double time = initTime; time < initTime + timeStep;
-          time += SimConfig.SPAWN_TIME_STEP) {
-        if (Util.random.nextDouble() < prob) {
-          int i = Util.randomIndex(proportion);
-          VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
-          Road destinationRoad =
-            destinationSelector.selectDestination(spawnPoint.getLane());
-
-          // maybe spawnPoint.getCurrentTime() is incorrect
-
-          result.add(new SpawnSpec(spawnPoint.getCurrentTime(),
-                                   vehicleSpec,
-                                   destinationRoad));
-        }
-      }
-
-      return result;
+    protected SpawnSpec makeSpawnSpec(SpawnPoint spawnPoint,
+                                      double arrivalTime) {
+      int i = Util.randomIndex(random, proportion);
+      VehicleSpec vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(i);
+      Road destinationRoad =
+        destinationSelector.selectDestination(spawnPoint.getLane());
+      return new SpawnSpec(arrivalTime, vehicleSpec, destinationRoad);
     }
   }
 
   /**
    * The spawn spec generator that generates only one spec.
    */
-  public static class OneSpawnSpecGenerator implements SpawnSpecGenerator {
+  public static class OneSpawnSpecGenerator
+                      extends PoissonSpawnSpecGenerator {
     /** The vehicle specification */
     private VehicleSpec vehicleSpec;
     /** The destination selector */
     private DestinationSelector destinationSelector;
-    /** the probability of generating a vehicle in each spawn time step */
-    private double prob;
 
     /**
      * Create a spawn spec generator that generates only one spec.
@@ -159,39 +239,26 @@ public class GridMapUtil {
      * @param vehicleSpecId        the vehicle spec ID
      * @param trafficLevel         the traffic level
      * @param destinationSelector  the destination selector
+     * @param random               the random number generator
      */
     public OneSpawnSpecGenerator(int vehicleSpecId,
                                  double trafficLevel,
-                                 DestinationSelector destinationSelector) {
+                                 DestinationSelector destinationSelector,
+                                 Random random) {
+      super(trafficLevel, random);
       vehicleSpec = VehicleSpecDatabase.getVehicleSpecById(vehicleSpecId);
       this.destinationSelector = destinationSelector;
-
-      prob = trafficLevel * SimConfig.SPAWN_TIME_STEP;
-      // Cannot generate more than one vehicle in each spawn time step
-      assert prob <= 1.0;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    public List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep) {
-      List<SpawnSpec> result = new LinkedList<SpawnSpec>();
-
-      double initTime = spawnPoint.getCurrentTime();
-      for(double time = initTime; time < initTime + timeStep;
-          time += SimConfig.SPAWN_TIME_STEP) {
-        if (Util.random.nextDouble() < prob) {
-          Road destinationRoad =
-            destinationSelector.selectDestination(spawnPoint.getLane());
-
-          result.add(new SpawnSpec(spawnPoint.getCurrentTime(),
-                                   vehicleSpec,
-                                   destinationRoad));
-        }
-      }
-
-      return result;
+    protected SpawnSpec makeSpawnSpec(SpawnPoint spawnPoint,
+                                      double arrivalTime) {
+      Road destinationRoad =
+        destinationSelector.selectDestination(spawnPoint.getLane());
+      return new SpawnSpec(arrivalTime, vehicleSpec, destinationRoad);
     }
   }
 
@@ -254,18 +321,20 @@ public class GridMapUtil {
     /**
      * Create a spawn spec generator that enumerates spawn spec.
      *
+     * @param map               the map
      * @param spawnPoint        the spawn point
      * @param destinationRoads  the list of destination roads
      * @param initSpawnTime     the initial spawn time
      * @param spawnPeriod       the spawn period
      */
-    public EnumerateSpawnSpecGenerator(SpawnPoint spawnPoint,
+    public EnumerateSpawnSpecGenerator(BasicMap map,
+                                       SpawnPoint spawnPoint,
                                        List<Road> destinationRoads,
                                        double initSpawnTime,
                                        double spawnPeriod) {
       this.destinationRoads = new ArrayList<Road>(destinationRoads.size());
       for(Road road : destinationRoads) {
-        if (Debug.currentMap.getRoad(spawnPoint.getLane()).getDual() != road) {
+        if (map.getRoad(spawnPoint.getLane()).getDual() != road) {
           this.destinationRoads.add(road);
         }
       }
@@ -302,6 +371,35 @@ public class GridMapUtil {
     }
   }
 
+  /**
+   * The spawn spec generator that replays the arrivals at a spawn point
+   * from an arrival trace.  The generators of the spawn points of a map
+   * share one {@link ArrivalTraceReplayer}, which reads the trace as the
+   * simulation time advances.
+   */
+  public static class TraceSpawnSpecGenerator implements SpawnSpecGenerator {
+    /** The replayer of the arrival trace */
+    private ArrivalTraceReplayer replayer;
+
+    /**
+     * Create a spawn spec generator that replays an arrival trace.
+     *
+     * @param replayer  the replayer of the arrival trace
+     */
+    public TraceSpawnSpecGenerator(ArrivalTraceReplayer replayer) {
+      this.replayer = replayer;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep) {
+      return replayer.act(spawnPoint.getLane().getId(),
+                          spawnPoint.getCurrentTime() + timeStep);
+    }
+  }
+
 
   /////////////////////////////////
   // PUBLIC STATIC METHODS
@@ -359,7 +457,8 @@ public class GridMapUtil {
         RequestHandler rh =
           new BatchModeRequestHandler(
             new RoadBasedReordering(processingInterval),
-            new BatchModeRequestHandler.RequestStatCollector());
+            new BatchModeRequestHandler.RequestStatCollector(),
+            layout.getContext());
         im.setPolicy(new BasePolicy(im, rh));
         layout.setManager(column, row, im);
       }
@@ -511,6 +610,25 @@ public class GridMapUtil {
     }
   }
 
+  /**
+   * Let the base policies of all intersection managers evaluate the
+   * proposals of a request concurrently.
+   *
+   * @param layout    the map
+   * @param executor  the executor that evaluates the proposals; null if the
+   *                  proposals should be evaluated one after another
+   */
+  public static void setProposalExecutor(GridMap layout,
+                                         ExecutorService executor) {
+    for(IntersectionManager im : layout.getIntersectionManagers()) {
+      if (im instanceof V2IManager
+          && ((V2IManager) im).getPolicy() instanceof BasePolicy) {
+        ((BasePolicy) ((V2IManager) im).getPolicy())
+          .setProposalExecutor(executor);
+      }
+    }
+  }
+
   /**
    * Set the uniform random spawn points.
    *
@@ -519,10 +637,16 @@ public class GridMapUtil {
    */
   public static void setUniformRandomSpawnPoints(GridMap map,
                                                  double trafficLevel) {
+    SimContext context = map.getContext();
     for(SpawnPoint sp : map.getSpawnPoints()) {
+      int laneId = sp.getLane().getId();
       sp.setVehicleSpecChooser(
-        new UniformSpawnSpecGenerator(trafficLevel,
-                                      new RandomDestinationSelector(map)));
+        new UniformSpawnSpecGenerator(
+          trafficLevel,
+          new RandomDestinationSelector(
+            map,
+            context.makeRandom(SimContext.DESTINATION_STREAM, laneId)),
+          context.makeRandom(SimContext.SPAWN_STREAM, laneId)));
     }
   }
 
@@ -534,10 +658,14 @@ public class GridMapUtil {
    */
   public static void setUniformTurnBasedSpawnPoints(GridMap map,
                                                     double trafficLevel) {
+    SimContext context = map.getContext();
     for(SpawnPoint sp : map.getSpawnPoints()) {
       sp.setVehicleSpecChooser(
-        new UniformSpawnSpecGenerator(trafficLevel,
-                                      new TurnBasedDestinationSelector(map)));
+        new UniformSpawnSpecGenerator(
+          trafficLevel,
+          new TurnBasedDestinationSelector(map),
+          context.makeRandom(SimContext.SPAWN_STREAM,
+                             sp.getLane().getId())));
     }
   }
 
@@ -553,17 +681,45 @@ public class GridMapUtil {
     TrafficVolume trafficVolume =
         TrafficVolume.makeFromFile(map, trafficVolumeFileName);
 
-    DestinationSelector selector = new RatioDestinationSelector(map,
-                                                                trafficVolume);
-
+    SimContext context = map.getContext();
     for (SpawnPoint sp : map.getSpawnPoints()) {
       int laneId = sp.getLane().getId();
       double trafficLevel =
           trafficVolume.getLeftTurnVolume(laneId) +
           trafficVolume.getThroughVolume(laneId) +
           trafficVolume.getRightTurnVolume(laneId);
+      // each spawn point has its own selector, and thus its own random
+      // stream of destinations
+      DestinationSelector selector =
+          new RatioDestinationSelector(
+              map, trafficVolume,
+              context.makeRandom(SimContext.DESTINATION_STREAM, laneId));
       sp.setVehicleSpecChooser(
-          new UniformSpawnSpecGenerator(trafficLevel, selector));
+          new UniformSpawnSpecGenerator(
+              trafficLevel, selector,
+              context.makeRandom(SimContext.SPAWN_STREAM, laneId)));
+    }
+  }
+
+  /**
+   * Set the spawn points to replay the arrivals in an arrival trace (see
+   * {@link ArrivalTraceReader} for the format).
+   *
+   * @param map                   the map
+   * @param arrivalTraceFileName  the name of the file of the arrival trace
+   * @throws IllegalArgumentException if the file cannot be opened
+   */
+  public static void setArrivalTraceSpawnPoints(GridMap map,
+                                                String arrivalTraceFileName) {
+    ArrivalTraceReplayer replayer;
+    try {
+      replayer = new ArrivalTraceReplayer(map, arrivalTraceFileName);
+    } catch (IOException e) {
+      throw new IllegalArgumentException("Cannot open file "
+                                         + arrivalTraceFileName, e);
+    }
+    for (SpawnPoint sp : map.getSpawnPoints()) {
+      sp.setVehicleSpecChooser(new TraceSpawnSpecGenerator(replayer));
     }
   }
 
@@ -578,15 +734,26 @@ public class GridMapUtil {
   public static void setDirectionalSpawnPoints(GridMap layout,
                                                double hTrafficLevel,
                                                double vTrafficLevel) {
+    SimContext context = layout.getContext();
     for(SpawnPoint sp : layout.getHorizontalSpawnPoints()) {
+      int laneId = sp.getLane().getId();
       sp.setVehicleSpecChooser(
-        new UniformSpawnSpecGenerator(hTrafficLevel,
-                                      new RandomDestinationSelector(layout)));
+        new UniformSpawnSpecGenerator(
+          hTrafficLevel,
+          new RandomDestinationSelector(
+            layout,
+            context.makeRandom(SimContext.DESTINATION_STREAM, laneId)),
+          context.makeRandom(SimContext.SPAWN_STREAM, laneId)));
     }
     for(SpawnPoint sp : layout.getVerticalSpawnPoints()) {
+      int laneId = sp.getLane().getId();
       sp.setVehicleSpecChooser(
-        new UniformSpawnSpecGenerator(vTrafficLevel,
-                                      new RandomDestinationSelector(layout)));
+        new UniformSpawnSpecGenerator(
+          vTrafficLevel,
+          new RandomDestinationSelector(
+            layout,
+            context.makeRandom(SimContext.DESTINATION_STREAM, laneId)),
+          context.makeRandom(SimContext.SPAWN_STREAM, laneId)));
     }
   }
 
@@ -613,6 +780,7 @@ public class GridMapUtil {
     for(SpawnPoint sp : layout.getSpawnPoints()) {
       sp.setVehicleSpecChooser(
         new EnumerateSpawnSpecGenerator(
+          layout,
           sp,
           layout.getDestinationRoads(),
           sp.getLane().getId() * traversalTime * numOfTraversals,
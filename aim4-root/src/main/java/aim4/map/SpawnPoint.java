@@ -116,6 +116,33 @@ public class SpawnPoint {
     List<SpawnSpec> act(SpawnPoint spawnPoint, double timeStep);
   }
 
+  /**
+   * The interface of the spawn specification generators whose arrivals
+   * are scheduled in advance.  The simulator does not need to call
+   * {@link SpawnSpecGenerator#act(SpawnPoint, double)} of such a generator
+   * at every step; it only asks for the next arrival when it is due.
+   */
+  public static interface ScheduledSpawnSpecGenerator
+                          extends SpawnSpecGenerator {
+    /**
+     * Get the time of the next arrival.
+     *
+     * @return the time of the next arrival; positive infinity if there is
+     *         no more arrival
+     */
+    double getNextArrivalTime();
+
+    /**
+     * Generate the spawn specification of the next arrival and schedule
+     * the arrival after it.
+     *
+     * @param spawnPoint  the spawn point
+     * @return the spawn specification of the next arrival, whose spawn time
+     *         is the arrival time
+     */
+    SpawnSpec nextArrival(SpawnPoint spawnPoint);
+  }
+
 
   /////////////////////////////////
   // PRIVATE FIELDS
@@ -220,6 +247,17 @@ public class SpawnPoint {
     return spawnSpecs;
   }
 
+  /**
+   * Advance the time step without asking the spawn specification generator
+   * for the spawn specifications.  It is used when the arrivals of the
+   * generator are scheduled in advance.
+   *
+   * @param timeStep  the time step
+   */
+  public void advance(double timeStep) {
+    currentTime += timeStep;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -289,6 +327,15 @@ public class SpawnPoint {
     return noVehicleZone;
   }
 
+  /**
+   * Get the vehicle spec chooser.
+   *
+   * @return the vehicle spec chooser
+   */
+  public SpawnSpecGenerator getVehicleSpecChooser() {
+    return vehicleSpecChooser;
+  }
+
   /**
    * Set the vehicle spec chooser.
    *
@@ -30,7 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.map.destination;
 
-import aim4.config.Debug;
+import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
 
@@ -41,14 +41,27 @@ import aim4.map.lane.Lane;
  */
 public class IdentityDestinationSelector implements DestinationSelector {
 
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The map.
+   */
+  private BasicMap map;
+
   /////////////////////////////////
   // CONSTRUCTORS
   /////////////////////////////////
 
   /**
    * Create a new IdentityDestinationSelector from the given Layout.
+   *
+   * @param layout  the layout from which to create the new
+   *                identity destination selector
    */
-  public IdentityDestinationSelector() {
+  public IdentityDestinationSelector(BasicMap layout) {
+    map = layout;
   }
 
   /////////////////////////////////
@@ -60,6 +73,6 @@ public class IdentityDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    return Debug.currentMap.getRoad(currentLane);
+    return map.getRoad(currentLane);
   }
 }
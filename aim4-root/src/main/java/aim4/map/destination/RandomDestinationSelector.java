@@ -31,12 +31,11 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.map.destination;
 
 import java.util.List;
+import java.util.Random;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
-import aim4.util.Util;
 
 /**
  * The RandomDestinationSelector selects Roads uniformly at random, but will
@@ -54,6 +53,16 @@ public class RandomDestinationSelector implements DestinationSelector {
    */
   private List<Road> destinationRoads;
 
+  /**
+   * The map.
+   */
+  private BasicMap map;
+
+  /**
+   * The random number generator.
+   */
+  private Random random;
+
   /////////////////////////////////
   // CLASS CONSTRUCTORS
   /////////////////////////////////
@@ -63,8 +72,11 @@ public class RandomDestinationSelector implements DestinationSelector {
    *
    * @param layout the Layout from which to create the
    *               RandomDestinationSelector
+   * @param random the random number generator
    */
-  public RandomDestinationSelector(BasicMap layout) {
+  public RandomDestinationSelector(BasicMap layout, Random random) {
+    map = layout;
+    this.random = random;
     destinationRoads = layout.getDestinationRoads();
   }
 
@@ -77,12 +89,12 @@ public class RandomDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = map.getRoad(currentLane);
     Road dest =
-      destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+      destinationRoads.get(random.nextInt(destinationRoads.size()));
     while(dest.getDual() == currentRoad) {
       dest =
-        destinationRoads.get(Util.random.nextInt(destinationRoads.size()));
+        destinationRoads.get(random.nextInt(destinationRoads.size()));
     }
     return dest;
   }
@@ -31,14 +31,13 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.map.destination;
 
 import java.util.List;
+import java.util.Random;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
 import aim4.map.TrafficVolume;
 import aim4.map.lane.Lane;
-import aim4.util.Util;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -68,6 +67,16 @@ public class RatioDestinationSelector implements DestinationSelector {
    */
   private Map<Integer,Double> rightTurnProb;
 
+  /**
+   * The map.
+   */
+  private BasicMap map;
+
+  /**
+   * The random number generator.
+   */
+  private Random random;
+
 
   /////////////////////////////////
   // CLASS CONSTRUCTORS
@@ -79,8 +88,12 @@ public class RatioDestinationSelector implements DestinationSelector {
    * @param map            the Layout from which to create the
    *                       RandomDestinationSelector
    * @param trafficVolume  the traffic volume
+   * @param random         the random number generator
    */
-  public RatioDestinationSelector(BasicMap map, TrafficVolume trafficVolume) {
+  public RatioDestinationSelector(BasicMap map, TrafficVolume trafficVolume,
+                                  Random random) {
+    this.map = map;
+    this.random = random;
     destinationRoads = map.getDestinationRoads();
     this.trafficVolume = trafficVolume;
     leftTurnProb = new HashMap<Integer, Double>();
@@ -104,9 +117,9 @@ public class RatioDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = map.getRoad(currentLane);
     int laneId = currentLane.getId();
-    double prob = Util.random.nextDouble();
+    double prob = random.nextDouble();
     if (prob < leftTurnProb.get(laneId)) {
       return trafficVolume.getLeftTurnRoad(currentRoad);
     } else if (prob >= 1.0 - rightTurnProb.get(laneId)) {
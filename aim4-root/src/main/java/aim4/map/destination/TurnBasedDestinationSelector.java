@@ -32,7 +32,6 @@ package aim4.map.destination;
 
 import java.util.List;
 
-import aim4.config.Debug;
 import aim4.map.BasicMap;
 import aim4.map.Road;
 import aim4.map.lane.Lane;
@@ -54,6 +53,11 @@ public class TurnBasedDestinationSelector implements DestinationSelector {
    */
   private List<Road> destinationRoads;
 
+  /**
+   * The map.
+   */
+  private BasicMap map;
+
   /////////////////////////////////
   // CLASS CONSTRUCTORS
   /////////////////////////////////
@@ -65,6 +69,7 @@ public class TurnBasedDestinationSelector implements DestinationSelector {
    *                identity destination selector
    */
   public TurnBasedDestinationSelector(BasicMap layout) {
+    map = layout;
     destinationRoads = layout.getDestinationRoads();
   }
 
@@ -77,7 +82,7 @@ public class TurnBasedDestinationSelector implements DestinationSelector {
    */
   @Override
   public Road selectDestination(Lane currentLane) {
-    Road currentRoad = Debug.currentMap.getRoad(currentLane);
+    Road currentRoad = map.getRoad(currentLane);
 
     boolean hasLeft = currentLane.hasLeftNeighbor();
     boolean hasRight = currentLane.hasRightNeighbor();
@@ -33,6 +33,7 @@ package aim4.map.lane;
 import java.awt.geom.Point2D;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.NavigableMap;
 import java.util.SortedMap;
 import java.util.TreeMap;
 
@@ -55,14 +56,14 @@ public class LaneIM {
   /**
    * A map from normalized distances of exit points to intersection managers.
    */
-  private SortedMap<Double, IntersectionManager> intersectionManagers =
+  private NavigableMap<Double, IntersectionManager> intersectionManagers =
     new TreeMap<Double, IntersectionManager>();
 
   /**
    * Memoization cache for {@link
    * #nextIntersectionManager(IntersectionManager im)}.
    */
-  private Map<IntersectionManager, IntersectionManager>
+  private volatile Map<IntersectionManager, IntersectionManager>
     memoGetSubsequentIntersectionManager = null;
 
   /////////////////////////////////
@@ -240,17 +241,17 @@ public class LaneIM {
   public IntersectionManager nextIntersectionManager(Point2D p) {
     // First find how far along the point is.
     double index = lane.normalizedDistanceAlongLane(p);
-    SortedMap<Double, IntersectionManager> remaining =
-      intersectionManagers.tailMap(index);
+    Map.Entry<Double, IntersectionManager> next =
+      intersectionManagers.ceilingEntry(index);
     // If nothing left, then no more IntersectionManagers
-    if (remaining.isEmpty()) {
+    if (next == null) {
       if (lane.hasNextLane()) {
         return lane.getNextLane().getLaneIM().firstIntersectionManager();
       } else {
         return null;
       }
     } else {
-      return remaining.get(remaining.firstKey());
+      return next.getValue();
     }
   }
 
@@ -269,10 +270,10 @@ public class LaneIM {
     double index = lane.normalizedDistanceAlongLane(p);
     // Now find all IntersectionManagers that are after this point (remember
     // they are indexed by exit point)
-    SortedMap<Double, IntersectionManager> remaining =
-      intersectionManagers.tailMap(index);
+    Map.Entry<Double, IntersectionManager> next =
+      intersectionManagers.ceilingEntry(index);
     // If there aren't any more in this lane
-    if (remaining.isEmpty()) {
+    if (next == null) {
       // Check the next Lane
       if (lane.hasNextLane()) {
         return ((1 - index) * lane.getLength()) +
@@ -284,7 +285,7 @@ public class LaneIM {
     } else {
       // Otherwise, we need to figure out where we are and where the current
       // Lane intersects the next intersection.
-      IntersectionManager nextIM = remaining.get(remaining.firstKey());
+      IntersectionManager nextIM = next.getValue();
       Point2D entry = nextIM.getIntersection().getEntryPoint(lane);
         // Where does this Lane enter?
       if (entry == null) { // It doesn't! It just exits! That means we're in it!
@@ -314,10 +315,8 @@ public class LaneIM {
     double index = lane.normalizedDistanceAlongLane(p);
     // Now find all IntersectionManagers that are after this point (remember
     // they are indexed by exit point)
-    SortedMap<Double, IntersectionManager> remaining =
-      intersectionManagers.tailMap(index);
     // If there aren't any more in this lane
-    if(remaining.isEmpty()) {
+    if(intersectionManagers.ceilingKey(index) == null) {
       // Check the next Lane
       if(lane.hasNextLane()) {
         // Pass the buck to the next Lane after this one
@@ -382,9 +381,12 @@ public class LaneIM {
    */
   public IntersectionManager nextIntersectionManager(IntersectionManager im) {
     // Build the cache if it doesn't exist
-    if(memoGetSubsequentIntersectionManager == null) {
-      memoGetSubsequentIntersectionManager =
-        new HashMap<IntersectionManager, IntersectionManager>();
+    Map<IntersectionManager, IntersectionManager> memo =
+      memoGetSubsequentIntersectionManager;
+    if(memo == null) {
+      // Build the cache completely before publishing it, since the drivers
+      // may ask for it concurrently
+      memo = new HashMap<IntersectionManager, IntersectionManager>();
       IntersectionManager lastIM = null;
       // Now run through the IntersectionManagers in order and set up
       // the cache
@@ -392,19 +394,18 @@ public class LaneIM {
         // Don't include the first one as a value, since it isn't subsequent
         // to anything
         if(lastIM != null) {
-          memoGetSubsequentIntersectionManager.put(lastIM, currIM);
+          memo.put(lastIM, currIM);
         }
         lastIM = currIM;
       }
       // Link up to the next Lane
       if(lastIM != null && lane.hasNextLane()) {
-        memoGetSubsequentIntersectionManager.put(lastIM,
-                                                 lane.getNextLane().
-                                                 getLaneIM().
-                                                 firstIntersectionManager());
+        memo.put(lastIM,
+                 lane.getNextLane().getLaneIM().firstIntersectionManager());
       }
+      memoGetSubsequentIntersectionManager = memo;
     }
-    return memoGetSubsequentIntersectionManager.get(im);
+    return memo.get(im);
   }
 
   /**
@@ -30,9 +30,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.msg.i2v;
 
-import java.util.Queue;
-
 import aim4.config.Constants;
+import aim4.vehicle.AccelProfileQueue;
 
 /**
  * Message sent from an Intersection Manager to a Vehicle to confirm a
@@ -103,7 +102,7 @@ public class Confirm extends I2VMessage {
    * A run-length encoded list of acceleration/duration pairs to be executed
    * by the vehicle during intersection traversal.
    */
-  private Queue<double[]> accProfile;
+  private AccelProfileQueue accProfile;
 
 
   /////////////////////////////////
@@ -147,7 +146,7 @@ public class Confirm extends I2VMessage {
                  double earlyError, double lateError,
                  double arrivalVelocity,
                  int arrivalLaneID, int departureLaneID,
-                 double aczDistance, Queue<double[]> accProfile) {
+                 double aczDistance, AccelProfileQueue accProfile) {
     super(imId, vin);
     this.reservationId = reservationID;
     this.requestId = requestId;
@@ -275,7 +274,7 @@ public class Confirm extends I2VMessage {
    * meters per second squared and meters, respectively) to be  executed by
    * the vehicle during intersection traversal
    */
-  public Queue<double[]> getAccelerationProfile() {
+  public AccelProfileQueue getAccelerationProfile() {
     return accProfile;
   }
 
@@ -293,27 +292,10 @@ public class Confirm extends I2VMessage {
            + ", arrTime=" + Constants.TWO_DEC.format(arrivalTime)
            + ", arrVelocity=" + Constants.TWO_DEC.format(arrivalVelocity)
            + ", aczDistance=" + Constants.TWO_DEC.format(aczDistance)
-           + ", accProfile=" + accProfileToString()
+           + ", accProfile=" + accProfile
            + ", earlyError=" + Constants.TWO_DEC.format(earlyError)
            + ", lateError=" + Constants.TWO_DEC.format(lateError)
            + ")";
   }
 
-  private String accProfileToString() {
-    String result = "[";
-    boolean isFirst = true;
-    for(double[] pair : accProfile) {
-      if (isFirst) {
-        isFirst = false;
-      } else {
-        result += " ";
-      }
-      result +=
-        "(" + Constants.TWO_DEC.format(pair[0]) + ","
-          + Constants.TWO_DEC.format(pair[1]) + ")";
-    }
-    result += "]";
-    return result;
-  }
-
 }
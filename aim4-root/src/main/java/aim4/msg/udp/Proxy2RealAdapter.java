@@ -30,138 +30,105 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.msg.udp;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.SocketAddress;
+import java.nio.ByteBuffer;
 
 import aim4.msg.i2v.Confirm;
 import aim4.msg.i2v.Reject;
 import aim4.msg.udp.UdpHeader.UdpMessageType;
 
 /**
- * The proxy vehicle to real vehicle message adapter.
+ * The proxy vehicle to real vehicle message adapter.  The adapter writes
+ * the datagrams directly into a buffer, which the caller then sends.
  */
 public abstract class Proxy2RealAdapter {
 
   /**
-   * Construct a DatagramPacket of this confirm message
+   * Write the datagram of a confirm message to a buffer at its position.
    *
-   * @param sa           SocketAddress of the intended destination of the
-   *                     datagram
+   * @param msg          the confirm message
+   * @param buf          the buffer
    * @param currentTime  absolute time in seconds
    *
-   * @return a DatagramPacket object which can be sent over UDP representing
-   *         this message
-   * @throws IOException
+   * @return the buffer
    */
-  public static DatagramPacket toDatagramPacket(Confirm msg,
-                                                SocketAddress sa,
-                                                double currentTime)
-                                               throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutputStream dos =
-      getDosWithHeader(baos, currentTime, UdpMessageType.I2V_Confirm);
-    assert dos.size() == UdpHeader.LENGTH;
-
-    dos.writeInt(msg.getReservationId());
+  public static ByteBuffer write(Confirm msg, ByteBuffer buf,
+                                 double currentTime) {
+    int start = buf.position();
+    writeHeader(buf, currentTime, UdpMessageType.I2V_Confirm);
+    assert buf.position() - start == UdpHeader.LENGTH;
+
+    buf.putInt(msg.getReservationId());
     // arrival_time is relative
-    dos.writeFloat((float) (msg.getArrivalTime() - currentTime));
-    dos.writeFloat((float) msg.getEarlyError());
-    dos.writeFloat((float) msg.getLateError());
-    dos.writeFloat((float) msg.getArrivalVelocity());
-    double accel = msg.getAccelerationProfile().peek()[0];
+    buf.putFloat((float) (msg.getArrivalTime() - currentTime));
+    buf.putFloat((float) msg.getEarlyError());
+    buf.putFloat((float) msg.getLateError());
+    buf.putFloat((float) msg.getArrivalVelocity());
+    double accel = msg.getAccelerationProfile().getFirstAcceleration();
     // ignore other acceleration for now
     // TODO: fix it in the future
-    dos.writeFloat((float) accel);
+    buf.putFloat((float) accel);
 //    System.out.printf("I2V_Confirm: acceleration for car to use is %.2f\n",
 //                      accel);
 
-    int udpPacketSize = UdpHeader.LENGTH + 24;
-    assert (baos.size() == udpPacketSize);
-    DatagramPacket dp =
-      new DatagramPacket(baos.toByteArray(), udpPacketSize, sa);
-    return dp;
+    assert buf.position() - start == UdpHeader.LENGTH + 24;
+    return buf;
   }
 
   /**
-   * Construct a DatagramPacket of this reject message
+   * Write the datagram of a reject message to a buffer at its position.
    *
-   * @param sa           SocketAddress of the intended destination of the
-   *                     datagram
+   * @param msg          the reject message
+   * @param buf          the buffer
    * @param currentTime  absolute time in seconds
    *
-   * @return a DatagramPacket object which can be sent over UDP representing
-   *         this message
-   * @throws IOException
+   * @return the buffer
    */
-  public static DatagramPacket toDatagramPacket(Reject msg,
-                                                SocketAddress sa,
-                                                double currentTime)
-                                               throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutputStream dos =
-      getDosWithHeader(baos, currentTime, UdpMessageType.I2V_Reject);
-    assert dos.size() == UdpHeader.LENGTH;
-
-    int udpPacketSize = UdpHeader.LENGTH;
-    assert (baos.size() == udpPacketSize);
-    DatagramPacket dp =
-      new DatagramPacket(baos.toByteArray(), udpPacketSize, sa);
-    return dp;
+  public static ByteBuffer write(Reject msg, ByteBuffer buf,
+                                 double currentTime) {
+    int start = buf.position();
+    writeHeader(buf, currentTime, UdpMessageType.I2V_Reject);
+    assert buf.position() - start == UdpHeader.LENGTH;
+    return buf;
   }
 
   /**
-   * Construct a DatagramPacket of this confirm message
+   * Write the datagram of the distance to the vehicle in front to a buffer
+   * at its position.
    *
    * @param distToFrontVehicle  the distance of the vehicles in front
-   * @param sa                  SocketAddress of the intended destination of the
-   *                            datagram
-   * @param currentTime  absolute time in seconds
+   * @param buf                 the buffer
+   * @param currentTime         absolute time in seconds
    *
-   * @return a DatagramPacket object which can be sent over UDP representing
-   *         this message
-   * @throws IOException
+   * @return the buffer
    */
-  public static DatagramPacket toDatagramPacket(double distToFrontVehicle,
-                                                SocketAddress sa,
-                                                double currentTime)
-                                               throws IOException {
-    ByteArrayOutputStream baos = new ByteArrayOutputStream();
-    DataOutputStream dos =
-      getDosWithHeader(baos, currentTime,UdpMessageType.I2V_DistToFrontVehicle);
-    assert dos.size() == UdpHeader.LENGTH;
-
-    dos.writeFloat((float) distToFrontVehicle);
-
-    int udpPacketSize = UdpHeader.LENGTH + 4;
-    assert (baos.size() == udpPacketSize);
-    DatagramPacket dp =
-      new DatagramPacket(baos.toByteArray(), udpPacketSize, sa);
-    return dp;
+  public static ByteBuffer writeDistToFrontVehicle(double distToFrontVehicle,
+                                                   ByteBuffer buf,
+                                                   double currentTime) {
+    int start = buf.position();
+    writeHeader(buf, currentTime, UdpMessageType.I2V_DistToFrontVehicle);
+    assert buf.position() - start == UdpHeader.LENGTH;
+
+    buf.putFloat((float) distToFrontVehicle);
+
+    assert buf.position() - start == UdpHeader.LENGTH + 4;
+    return buf;
   }
 
 
   /**
-   * Builds a header for the type of this message, and writes it to a new
-   * DataOutputStream wrapped around a given ByteArrayOutputStream
+   * Builds a header for the type of a message, and writes it to a buffer
+   * at its position.
    *
-   * @param baos         The ByteArrayOutputStream
+   * @param buf          the buffer
    * @param currentTime  The current, absolute time in seconds
-   * @return A DataOutputStream object backed by the given baos containing a
-   *         UdpHeader
-   * @throws IOException
+   * @param type         the type of the message
+   * @return the buffer
    */
-  public static DataOutputStream getDosWithHeader(ByteArrayOutputStream baos,
-                                                  double currentTime,
-                                                  UdpMessageType type)
-                                                 throws IOException
-  {
-    DataOutputStream dos = new DataOutputStream(baos);
+  public static ByteBuffer writeHeader(ByteBuffer buf,
+                                       double currentTime,
+                                       UdpMessageType type) {
     UdpHeader header = new UdpHeader((float)currentTime, type);
     // TODO: compute and set the checksum
-    header.writeToDataOutputStream(dos);
-    return dos;
+    return header.writeToByteBuffer(buf);
   }
 }
@@ -0,0 +1,156 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.msg.udp;
+
+import java.awt.geom.Point2D;
+import java.nio.ByteBuffer;
+
+import aim4.msg.udp.UdpHeader.UdpMessageType;
+
+/**
+ * The real vehicle to proxy vehicle message adapter.  It is the
+ * counterpart of {@link Proxy2RealAdapter} on the side of the real
+ * vehicles, and writes the datagrams that the proxy vehicles read.  It is
+ * used by the tools that emulate real vehicles.
+ */
+public abstract class Real2ProxyAdapter {
+
+  /**
+   * Write the datagram of a PV update message to a buffer at its position.
+   *
+   * @param vin             the VIN of the vehicle
+   * @param position        the position of the vehicle
+   * @param heading         the heading of the vehicle
+   * @param steeringAngle   the steering angle of the vehicle
+   * @param velocity        the velocity of the vehicle
+   * @param targetVelocity  the target velocity of the vehicle
+   * @param acceleration    the acceleration of the vehicle
+   * @param buf             the buffer
+   * @param currentTime     absolute time in seconds
+   *
+   * @return the buffer
+   */
+  public static ByteBuffer writePVUpdate(int vin,
+                                         Point2D position,
+                                         double heading,
+                                         double steeringAngle,
+                                         double velocity,
+                                         double targetVelocity,
+                                         double acceleration,
+                                         ByteBuffer buf,
+                                         double currentTime) {
+    int start = buf.position();
+    Proxy2RealAdapter.writeHeader(buf, currentTime, UdpMessageType.PVUpdate);
+    assert buf.position() - start == UdpHeader.LENGTH;
+
+    buf.putInt(vin);
+    buf.putFloat((float) position.getX());
+    buf.putFloat((float) position.getY());
+    buf.putFloat((float) heading);
+    buf.putFloat((float) steeringAngle);
+    buf.putFloat((float) velocity);
+    buf.putFloat((float) targetVelocity);
+    buf.putFloat((float) acceleration);
+
+    assert buf.position() - start == UdpHeader.LENGTH + 32;
+    return buf;
+  }
+
+  /**
+   * Write the datagram of a request message to a buffer at its position.
+   *
+   * @param vin              the VIN of the vehicle
+   * @param arrivalTimeSpan  the time from now to the arrival at the
+   *                         intersection
+   * @param departureLaneId  the ID of the departure lane
+   * @param arrivalVelocity  the arrival velocity
+   * @param buf              the buffer
+   * @param currentTime      absolute time in seconds
+   *
+   * @return the buffer
+   */
+  public static ByteBuffer writeRequest(int vin,
+                                        double arrivalTimeSpan,
+                                        int departureLaneId,
+                                        double arrivalVelocity,
+                                        ByteBuffer buf,
+                                        double currentTime) {
+    int start = buf.position();
+    Proxy2RealAdapter.writeHeader(buf, currentTime,
+                                  UdpMessageType.V2I_Request);
+    assert buf.position() - start == UdpHeader.LENGTH;
+
+    buf.putInt(vin);
+    buf.putFloat((float) arrivalTimeSpan);
+    buf.putInt(departureLaneId);
+    buf.putFloat((float) arrivalVelocity);
+
+    assert buf.position() - start == UdpHeader.LENGTH + 16;
+    return buf;
+  }
+
+  /**
+   * Write the datagram of a cancel message to a buffer at its position.
+   *
+   * @param reservationId  the ID of the reservation to be cancelled
+   * @param buf            the buffer
+   * @param currentTime    absolute time in seconds
+   *
+   * @return the buffer
+   */
+  public static ByteBuffer writeCancel(int reservationId, ByteBuffer buf,
+                                       double currentTime) {
+    int start = buf.position();
+    Proxy2RealAdapter.writeHeader(buf, currentTime,
+                                  UdpMessageType.V2I_Cancel);
+    assert buf.position() - start == UdpHeader.LENGTH;
+
+    buf.putInt(reservationId);
+
+    assert buf.position() - start == UdpHeader.LENGTH + 4;
+    return buf;
+  }
+
+  /**
+   * Write the datagram of a done message to a buffer at its position.
+   *
+   * @param buf          the buffer
+   * @param currentTime  absolute time in seconds
+   *
+   * @return the buffer
+   */
+  public static ByteBuffer writeDone(ByteBuffer buf, double currentTime) {
+    int start = buf.position();
+    Proxy2RealAdapter.writeHeader(buf, currentTime, UdpMessageType.V2I_Done);
+    assert buf.position() - start == UdpHeader.LENGTH;
+    return buf;
+  }
+}
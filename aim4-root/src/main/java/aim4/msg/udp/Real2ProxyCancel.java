@@ -30,8 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.msg.udp;
 
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A real vehicle to proxy vehicle message for cancel message.
@@ -52,14 +51,13 @@ public class Real2ProxyCancel extends Real2ProxyMsg {
   /**
    * Create a real vehicle to proxy vehicle message for cancel message.
    *
-   * @param dis           the I/O stream
+   * @param buf           the buffer holding the body of the message
    * @param receivedTime  the time stamp
-   * @throws IOException
+   * @throws java.nio.BufferUnderflowException if the body is truncated
    */
-  public Real2ProxyCancel(DataInputStream dis, double receivedTime)
-      throws IOException {
-    super(Type.REQUEST, receivedTime);
-    reservationId = dis.readInt();
+  public Real2ProxyCancel(ByteBuffer buf, double receivedTime) {
+    super(Type.CANCEL, receivedTime);
+    reservationId = buf.getInt();
   }
 
   /////////////////////////////////
@@ -30,8 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.msg.udp;
 
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * A real vehicle to proxy vehicle message for done message.
@@ -45,12 +44,11 @@ public class Real2ProxyDone extends Real2ProxyMsg {
   /**
    * Create a real vehicle to proxy vehicle message for done message.
    *
-   * @param dis           the I/O stream
+   * @param buf           the buffer holding the body of the message, which
+   *                      is empty
    * @param receivedTime  the time stamp
-   * @throws IOException
    */
-  public Real2ProxyDone(DataInputStream dis, double receivedTime)
-      throws IOException {
+  public Real2ProxyDone(ByteBuffer buf, double receivedTime) {
     super(Type.DONE, receivedTime);
   }
 
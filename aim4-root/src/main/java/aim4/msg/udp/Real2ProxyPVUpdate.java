@@ -31,8 +31,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.msg.udp;
 
 import java.awt.geom.Point2D;
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import aim4.config.Constants;
 import aim4.vehicle.AccelSchedule;
@@ -73,24 +72,23 @@ public class Real2ProxyPVUpdate extends Real2ProxyMsg {
   /**
    * Create a real vehicle to proxy vehicle message for PV update message.
    *
-   * @param dis           the I/O stream
+   * @param buf           the buffer holding the body of the message
    * @param receivedTime  the time stamp
-   * @throws IOException
+   * @throws java.nio.BufferUnderflowException if the body is truncated
    */
-  public Real2ProxyPVUpdate(DataInputStream dis, double receivedTime)
-      throws IOException {
+  public Real2ProxyPVUpdate(ByteBuffer buf, double receivedTime) {
     super(Type.PV_UPDATE, receivedTime);
 
     // Read the new values
-    vin = dis.readInt();
-    double x = (double)dis.readFloat();
-    double y = (double)dis.readFloat();
+    vin = buf.getInt();
+    double x = (double)buf.getFloat();
+    double y = (double)buf.getFloat();
     position = new Point2D.Double(x, y);
-    heading =  (double)dis.readFloat();
-    steeringAngle = (double)dis.readFloat();
-    velocity = (double)dis.readFloat();
-    targetVelocity = (double)dis.readFloat();
-    acceleration = (double)dis.readFloat();
+    heading =  (double)buf.getFloat();
+    steeringAngle = (double)buf.getFloat();
+    velocity = (double)buf.getFloat();
+    targetVelocity = (double)buf.getFloat();
+    acceleration = (double)buf.getFloat();
     accelProfile = null;
     // TODO: Marvin can't generate accelProfile yet. Thus, just leave it null
   }
@@ -30,8 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.msg.udp;
 
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import aim4.config.Constants;
 
@@ -60,17 +59,16 @@ public class Real2ProxyRequest extends Real2ProxyMsg {
   /**
    * Create a real vehicle to proxy vehicle message for request message.
    *
-   * @param dis           the I/O stream
+   * @param buf           the buffer holding the body of the message
    * @param receivedTime  the time stamp
-   * @throws IOException
+   * @throws java.nio.BufferUnderflowException if the body is truncated
    */
-  public Real2ProxyRequest(DataInputStream dis, double receivedTime)
-      throws IOException {
+  public Real2ProxyRequest(ByteBuffer buf, double receivedTime) {
     super(Type.REQUEST, receivedTime);
-    vin = dis.readInt();
-    arrivalTimeSpan = dis.readFloat();
-    departureLaneId = dis.readInt();
-    arrivalVelocity = dis.readFloat();
+    vin = buf.getInt();
+    arrivalTimeSpan = buf.getFloat();
+    departureLaneId = buf.getInt();
+    arrivalVelocity = buf.getFloat();
   }
 
   /////////////////////////////////
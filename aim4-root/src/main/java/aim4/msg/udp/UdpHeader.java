@@ -30,9 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.msg.udp;
 
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 /**
  * Small header included in all UDP messages sent to/from the real car.
@@ -68,6 +66,10 @@ public class UdpHeader {
     I2V_DistToFrontVehicle,  // = 8
   }
 
+  /** The message types, indexed by their ordinals */
+  private static final UdpMessageType[] MESSAGE_TYPES =
+    UdpMessageType.values();
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -100,18 +102,25 @@ public class UdpHeader {
   /////////////////////////////////
 
   /**
-   * Construct the header given a DataInputStream wrapped around a
-   * DatagramPacket received over UDP from the real car.
+   * Construct the header given a buffer holding a datagram received over
+   * UDP from the real car.  The header is read at the position of the
+   * buffer, and the position is advanced past it.
    *
-   * @param dis The DataInputStream.
-   * @throws IOException
+   * @param buf  the buffer
+   * @throws java.nio.BufferUnderflowException if the buffer has fewer than
+   *                                           {@link #LENGTH} bytes left
+   * @throws IllegalArgumentException if the message type is unknown
    */
-  public UdpHeader(DataInputStream dis) throws IOException {
-    assert(dis.available() >= LENGTH);
-    // Populate the class members from the DataInputStream
-    timestamp = dis.readFloat();
-    messageType = UdpMessageType.values()[dis.readInt()];
-    checksum = dis.readInt();
+  public UdpHeader(ByteBuffer buf) {
+    // Populate the class members from the buffer
+    timestamp = buf.getFloat();
+    int type = buf.getInt();
+    if (type < 0 || type >= MESSAGE_TYPES.length) {
+      throw new IllegalArgumentException("Unknown UDP message type: "
+                                         + type);
+    }
+    messageType = MESSAGE_TYPES[type];
+    checksum = buf.getInt();
   }
 
   /**
@@ -166,18 +175,17 @@ public class UdpHeader {
   // utility
 
   /**
-   * Write the data header to an I/O stream.
+   * Write the header to a buffer at its position, and advance the position
+   * past the header.
    *
-   * @param dos the I/O stream
-   * @return the I/O stream
-   * @throws IOException
+   * @param buf  the buffer
+   * @return the buffer
    */
-  public DataOutputStream writeToDataOutputStream(DataOutputStream dos)
-      throws IOException {
-    dos.writeFloat(timestamp);
-    dos.writeInt(messageType.ordinal());
-    dos.writeInt(checksum);
-    return dos;
+  public ByteBuffer writeToByteBuffer(ByteBuffer buf) {
+    buf.putFloat(timestamp);
+    buf.putInt(messageType.ordinal());
+    buf.putInt(checksum);
+    return buf;
   }
 
   /////////////////////////////////
@@ -185,12 +193,13 @@ public class UdpHeader {
   /////////////////////////////////
 
   /**
-   * Compute the check sum for an array of bytes.
+   * Compute the check sum for the remaining bytes of a buffer without
+   * changing the position of the buffer.
    *
-   * @param data  the array of bytes
+   * @param data  the buffer
    * @return the check sum
    */
-  public static int computeChecksum(byte[] data) {
+  public static int computeChecksum(ByteBuffer data) {
     // TODO: implement this function later
     return 0;
   }
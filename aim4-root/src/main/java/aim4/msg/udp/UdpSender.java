@@ -0,0 +1,158 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.msg.udp;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+
+import aim4.msg.i2v.Confirm;
+import aim4.msg.i2v.Reject;
+
+/**
+ * The sender of the datagrams from the proxy vehicles to the real vehicles.
+ * All proxy vehicles of a UDP listener share one sender, which sends the
+ * datagrams through a single datagram channel and encodes them into a
+ * single direct buffer rather than opening a socket and allocating a
+ * packet for each datagram.
+ */
+public class UdpSender {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The datagram channel; null if it has not been opened or is closed */
+  private DatagramChannel channel;
+
+  /** The buffer into which the datagrams are encoded */
+  private final ByteBuffer buffer;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a sender.  The channel is opened when the first datagram is
+   * sent.
+   */
+  public UdpSender() {
+    channel = null;
+    buffer =
+      ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Send a confirm message to a real vehicle.
+   *
+   * @param msg          the confirm message
+   * @param sa           the socket address of the real vehicle
+   * @param currentTime  absolute time in seconds
+   * @throws IOException if the datagram cannot be sent
+   */
+  public synchronized void send(Confirm msg, SocketAddress sa,
+                                double currentTime) throws IOException {
+    buffer.clear();
+    Proxy2RealAdapter.write(msg, buffer, currentTime);
+    flush(sa);
+  }
+
+  /**
+   * Send a reject message to a real vehicle.
+   *
+   * @param msg          the reject message
+   * @param sa           the socket address of the real vehicle
+   * @param currentTime  absolute time in seconds
+   * @throws IOException if the datagram cannot be sent
+   */
+  public synchronized void send(Reject msg, SocketAddress sa,
+                                double currentTime) throws IOException {
+    buffer.clear();
+    Proxy2RealAdapter.write(msg, buffer, currentTime);
+    flush(sa);
+  }
+
+  /**
+   * Send the distance to the vehicle in front to a real vehicle.
+   *
+   * @param distToFrontVehicle  the distance of the vehicles in front
+   * @param sa                  the socket address of the real vehicle
+   * @param currentTime         absolute time in seconds
+   * @throws IOException if the datagram cannot be sent
+   */
+  public synchronized void sendDistToFrontVehicle(double distToFrontVehicle,
+                                                  SocketAddress sa,
+                                                  double currentTime)
+                                                 throws IOException {
+    buffer.clear();
+    Proxy2RealAdapter.writeDistToFrontVehicle(distToFrontVehicle, buffer,
+                                              currentTime);
+    flush(sa);
+  }
+
+  /**
+   * Close the channel.  A datagram sent afterward reopens it.
+   */
+  public synchronized void close() {
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch(IOException e) {
+        System.err.println("Error: cannot close the UDP send channel.");
+      }
+      channel = null;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Send the datagram encoded in the buffer.
+   *
+   * @param sa  the socket address of the real vehicle
+   * @throws IOException if the datagram cannot be sent
+   */
+  private void flush(SocketAddress sa) throws IOException {
+    if (channel == null) {
+      channel = DatagramChannel.open();
+    }
+    buffer.flip();
+    channel.send(buffer, sa);
+  }
+
+}
@@ -37,8 +37,8 @@ import java.util.Random;
  */
 public class GaussianNoiseFunction implements NoiseFunction {
 
-  /** Random seed for creating noise. */
-  protected static Random rnd = new Random();
+  /** The random number generator for creating noise. */
+  protected Random rnd;
 
   /** The standard deviation of the Gaussian that will generate the noise. */
   private double standardDeviation;
@@ -48,9 +48,11 @@ public class GaussianNoiseFunction implements NoiseFunction {
    * it to generate noise with mean zero.
    *
    * @param standardDeviation the standard deviation of the desired Gaussian
+   * @param rnd               the random number generator for creating noise
    */
-  public GaussianNoiseFunction(double standardDeviation) {
+  public GaussianNoiseFunction(double standardDeviation, Random rnd) {
     this.standardDeviation = standardDeviation;
+    this.rnd = rnd;
   }
 
   /**
@@ -30,7 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
-import aim4.util.Util;
+import java.util.Random;
 
 /**
  * NoiseFunction that adds noise uniformly within a fixed proportion of the
@@ -45,13 +45,18 @@ public class UniformFixedNoiseFunction implements NoiseFunction {
    */
   private double range;
 
+  /** The random number generator for creating noise. */
+  private Random random;
+
   /**
    * Class constructor.
    *
-   * @param range the range, in each direction, of potential noise.
+   * @param range  the range, in each direction, of potential noise.
+   * @param random the random number generator for creating noise
    */
-  public UniformFixedNoiseFunction(double range) {
+  public UniformFixedNoiseFunction(double range, Random random) {
     this.range = range;
+    this.random = random;
   }
 
   /**
@@ -59,6 +64,6 @@ public class UniformFixedNoiseFunction implements NoiseFunction {
    */
   @Override
   public double apply(double trueValue) {
-    return trueValue + (Util.random.nextDouble() * range * 2) - range;
+    return trueValue + (random.nextDouble() * range * 2) - range;
   }
 }
@@ -30,7 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.noise;
 
-import aim4.util.Util;
+import java.util.Random;
 
 /**
  * NoiseFunction that adds noise uniformly within a fixed proportion of the
@@ -45,14 +45,19 @@ public class UniformProportionalNoiseFunction implements NoiseFunction {
    */
   private double proportion;
 
+  /** The random number generator for creating noise. */
+  private Random random;
+
   /**
    * Class constructor.
    *
    * @param proportion the proportion of the true value to use as bounds for
    *        the noise function.
+   * @param random     the random number generator for creating noise
    */
-  public UniformProportionalNoiseFunction(double proportion) {
+  public UniformProportionalNoiseFunction(double proportion, Random random) {
     this.proportion = proportion;
+    this.random = random;
   }
 
   /**
@@ -61,6 +66,6 @@ public class UniformProportionalNoiseFunction implements NoiseFunction {
   @Override
   public double apply(double trueValue) {
     double range = 2 * trueValue * proportion;
-    return trueValue + (Util.random.nextDouble() * range) - range/2;
+    return trueValue + (random.nextDouble() * range) - range/2;
   }
 }
@@ -31,21 +31,22 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 package aim4.sim;
 
 import java.awt.Color;
-import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.Set;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import aim4.config.Debug;
 import aim4.config.DebugPoint;
@@ -54,9 +55,8 @@ import aim4.driver.DriverSimView;
 import aim4.driver.ProxyDriver;
 import aim4.im.IntersectionManager;
 import aim4.im.v2i.V2IManager;
-import aim4.map.DataCollectionLine;
+import aim4.im.v2i.policy.BasePolicy;
 import aim4.map.BasicMap;
-import aim4.map.Road;
 import aim4.map.SpawnPoint;
 import aim4.map.SpawnPoint.SpawnSpec;
 import aim4.map.lane.Lane;
@@ -68,6 +68,8 @@ import aim4.vehicle.HumanDrivenVehicleSimView;
 import aim4.vehicle.ProxyVehicleSimView;
 import aim4.vehicle.VehicleSpec;
 import aim4.vehicle.VinRegistry;
+import aim4.util.OrientedBox;
+import aim4.util.Util;
 import aim4.vehicle.VehicleSimView;
 
 /**
@@ -114,6 +116,12 @@ public class AutoDriverOnlySimulator implements Simulator {
   private BasicMap basicMap;
   /** All active vehicles, in form of a map from VINs to vehicle objects. */
   private Map<Integer,VehicleSimView> vinToVehicles;
+  /** The spatial index of the active vehicles */
+  private VehicleSpatialIndex vehicleIndex;
+  /** The active vehicles on each lane, ordered by their distance */
+  private LaneOccupancyIndex laneIndex;
+  /** The scheduler of the arrivals at the spawn points */
+  private SpawnScheduler spawnScheduler;
   /** The current time */
   private double currentTime;
   /** The number of completed vehicles */
@@ -122,6 +130,22 @@ public class AutoDriverOnlySimulator implements Simulator {
   private int totalBitsTransmittedByCompletedVehicles;
   /** The total number of bits received by the completed vehicles */
   private int totalBitsReceivedByCompletedVehicles;
+  /** The number of threads that execute the driver and the IM phases */
+  private int numOfStepThreads;
+  /**
+   * The executor of the driver and the IM phases; null if the phases are
+   * executed by the calling thread
+   */
+  private ExecutorService stepExecutor;
+  /** Whether a snapshot is published at the end of every step */
+  private boolean isFramePublishing;
+  /** The latest snapshot of the simulation */
+  private volatile SimFrame latestFrame;
+  /**
+   * The UDP listener whose messages are processed at the beginning of
+   * every step; null if there is none
+   */
+  private UdpListener udpListener;
 
 
   /////////////////////////////////
@@ -134,13 +158,44 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @param basicMap             the map of the simulation
    */
   public AutoDriverOnlySimulator(BasicMap basicMap) {
+    this(basicMap, 1);
+  }
+
+  /**
+   * Create an instance of the simulator whose drivers and intersection
+   * managers act in parallel.  The messages are still delivered in the
+   * order of the VINs of the vehicles and the order of the intersection
+   * managers, so the result does not depend on the number of threads.
+   *
+   * @param basicMap          the map of the simulation
+   * @param numOfStepThreads  the number of threads that execute the driver
+   *                          and the intersection manager phases of a step
+   */
+  public AutoDriverOnlySimulator(BasicMap basicMap, int numOfStepThreads) {
+    if (numOfStepThreads < 1) {
+      throw new IllegalArgumentException("The number of step threads must "
+                                         + "be positive");
+    }
     this.basicMap = basicMap;
+    this.numOfStepThreads = numOfStepThreads;
+    if (numOfStepThreads > 1) {
+      this.stepExecutor = Util.newDaemonThreadPool(numOfStepThreads, "step");
+    } else {
+      this.stepExecutor = null;
+    }
     this.vinToVehicles = new HashMap<Integer,VehicleSimView>();
+    this.vehicleIndex = new VehicleSpatialIndex(basicMap);
+    this.laneIndex = new LaneOccupancyIndex(basicMap);
 
     currentTime = 0.0;
+    spawnScheduler =
+      new SpawnScheduler(basicMap.getSpawnPoints(), currentTime);
     numOfCompletedVehicles = 0;
     totalBitsTransmittedByCompletedVehicles = 0;
     totalBitsReceivedByCompletedVehicles = 0;
+    isFramePublishing = false;
+    latestFrame = null;
+    udpListener = null;
   }
 
   /////////////////////////////////
@@ -156,6 +211,14 @@ public class AutoDriverOnlySimulator implements Simulator {
   public synchronized AutoDriverOnlySimStepResult step(double timeStep) {
     if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("--------------------------------------\n");
+    }
+    if (udpListener != null) {
+      if (Debug.PRINT_SIMULATOR_STAGE) {
+        System.err.printf("------SIM:processInboundMessages------\n");
+      }
+      udpListener.processInboundMessages(currentTime, timeStep);
+    }
+    if (Debug.PRINT_SIMULATOR_STAGE) {
       System.err.printf("------SIM:spawnVehicles---------------\n");
     }
     spawnVehicles(timeStep);
@@ -186,6 +249,9 @@ public class AutoDriverOnlySimulator implements Simulator {
     currentTime += timeStep;
     // debug
     checkClocks();
+    if (isFramePublishing) {
+      publishFrame();
+    }
 
     return new AutoDriverOnlySimStepResult(completedVINs);
   }
@@ -212,6 +278,15 @@ public class AutoDriverOnlySimulator implements Simulator {
     return currentTime;
   }
 
+  /**
+   * Get the scheduler of the arrivals at the spawn points.
+   *
+   * @return the scheduler of the arrivals at the spawn points
+   */
+  public synchronized SpawnScheduler getSpawnScheduler() {
+    return spawnScheduler;
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -262,6 +337,27 @@ public class AutoDriverOnlySimulator implements Simulator {
     return vinToVehicles.get(vin);
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void setFramePublishing(boolean isFramePublishing) {
+    this.isFramePublishing = isFramePublishing;
+    if (isFramePublishing) {
+      publishFrame();
+    } else {
+      latestFrame = null;
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public SimFrame getLatestFrame() {
+    return latestFrame;
+  }
+
 
   /////////////////////////////////
   // PUBLIC METHODS
@@ -272,19 +368,7 @@ public class AutoDriverOnlySimulator implements Simulator {
    */
   @Override
   public synchronized void addProxyVehicle(ProxyVehicleSimView vehicle) {
-    Point2D pos = vehicle.getPosition();
-    Lane minLane = null;
-    double minDistance = -1.0;
-
-    for(Road road : basicMap.getRoads()) {
-      for(Lane lane : road.getLanes()) {
-        double d = lane.nearestDistance(pos);
-        if (minLane == null || d < minDistance) {
-          minLane = lane;
-          minDistance = d;
-        }
-      }
-    }
+    Lane minLane = vehicleIndex.findNearestLane(vehicle.getPosition());
     assert minLane != null;
 
     ProxyDriver driver = vehicle.getDriver();
@@ -295,9 +379,45 @@ public class AutoDriverOnlySimulator implements Simulator {
     }
 
     vinToVehicles.put(vehicle.getVIN(), vehicle);
+    vehicleIndex.add(vehicle);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public synchronized void setUdpListener(UdpListener udpListener) {
+    this.udpListener = udpListener;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * The threads of the driver and the intersection manager phases and the
+   * threads that evaluate the proposals at the intersection managers are
+   * shut down.
+   */
+  @Override
+  public synchronized void close() {
+    if (stepExecutor != null) {
+      stepExecutor.shutdown();
+      stepExecutor = null;
+    }
+    for(IntersectionManager im : basicMap.getIntersectionManagers()) {
+      if (im instanceof V2IManager
+          && ((V2IManager) im).getPolicy() instanceof BasePolicy) {
+        BasePolicy policy = (BasePolicy) ((V2IManager) im).getPolicy();
+        // the intersection managers may share an executor
+        if (policy.getProposalExecutor() != null) {
+          policy.getProposalExecutor().shutdown();
+          policy.setProposalExecutor(null);
+        }
+      }
+    }
   }
 
 
+
   /////////////////////////////////
   // PRIVATE METHODS
   /////////////////////////////////
@@ -312,23 +432,26 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @param timeStep  the time step
    */
   private void spawnVehicles(double timeStep) {
-    for(SpawnPoint spawnPoint : basicMap.getSpawnPoints()) {
-      List<SpawnSpec> spawnSpecs = spawnPoint.act(timeStep);
-      if (!spawnSpecs.isEmpty()) {
+    spawnScheduler.act(timeStep);
+    if (spawnScheduler.getNumOfWaitingSpawns() == 0) {
+      return;
+    }
+    for(int i = 0; i < spawnScheduler.getNumOfSpawnPoints(); i++) {
+      SpawnSpec spawnSpec = spawnScheduler.peekWaitingSpawn(i);
+      if (spawnSpec != null) {
+        SpawnPoint spawnPoint = spawnScheduler.getSpawnPoint(i);
         if (canSpawnVehicle(spawnPoint)) {
-          for(SpawnSpec spawnSpec : spawnSpecs) {
-            VehicleSimView vehicle = makeVehicle(spawnPoint, spawnSpec);
-            VinRegistry.registerVehicle(vehicle); // Get vehicle a VIN number
-            vinToVehicles.put(vehicle.getVIN(), vehicle);
-            break; // only handle the first spawn vehicle
-                   // TODO: need to fix this
-          }
-        } // else ignore the spawnSpecs and do nothing
+          spawnScheduler.removeWaitingSpawn(i);
+          VehicleSimView vehicle = makeVehicle(spawnPoint, spawnSpec);
+          // Get vehicle a VIN number
+          basicMap.getContext().getVinRegistry().registerVehicle(vehicle);
+          vinToVehicles.put(vehicle.getVIN(), vehicle);
+          vehicleIndex.add(vehicle);
+        } // else the arrival waits until the spawn point is clear
       }
     }
   }
 
-
   /**
    * Whether a spawn point can spawn any vehicle
    *
@@ -336,14 +459,7 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @return Whether the spawn point can spawn any vehicle
    */
   private boolean canSpawnVehicle(SpawnPoint spawnPoint) {
-    // TODO: can be made much faster.
-    Rectangle2D noVehicleZone = spawnPoint.getNoVehicleZone();
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
-      if (vehicle.getShape().intersects(noVehicleZone)) {
-        return false;
-      }
-    }
-    return true;
+    return !vehicleIndex.isAnyVehicleIn(spawnPoint.getNoVehicleZone());
   }
 
   /**
@@ -369,7 +485,9 @@ public class AutoDriverOnlySimulator implements Simulator {
                            initVelocity, // velocity
                            initVelocity,  // target velocity
                            spawnPoint.getAcceleration(),
-                           spawnSpec.getSpawnTime());
+                           // the arrival may have waited for the spawn
+                           // point to clear
+                           currentTime);
     // Set the driver
     AutoDriver driver = new AutoDriver(vehicle, basicMap);
     driver.setCurrentLane(lane);
@@ -385,119 +503,27 @@ public class AutoDriverOnlySimulator implements Simulator {
   // STEP 2
   /////////////////////////////////
 
-  /**
-   * Compute the lists of vehicles of all lanes.
-   *
-   * @return a mapping from lanes to lists of vehicles sorted by their
-   *         distance on their lanes
-   */
-  private Map<Lane,SortedMap<Double,VehicleSimView>> computeVehicleLists() {
-    // Set up the structure that will hold all the Vehicles as they are
-    // currently ordered in the Lanes
-    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists =
-      new HashMap<Lane,SortedMap<Double,VehicleSimView>>();
-    for(Road road : basicMap.getRoads()) {
-      for(Lane lane : road.getLanes()) {
-        vehicleLists.put(lane, new TreeMap<Double,VehicleSimView>());
-      }
-    }
-    // Now add each of the Vehicles, but make sure to exclude those that are
-    // already inside (partially or entirely) the intersection
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
-      // Find out what lanes it is in.
-      Set<Lane> lanes = vehicle.getDriver().getCurrentlyOccupiedLanes();
-      for(Lane lane : lanes) {
-        // Find out what IntersectionManager is coming up for this vehicle
-        IntersectionManager im =
-          lane.getLaneIM().nextIntersectionManager(vehicle.getPosition());
-        // Only include this Vehicle if it is not in the intersection.
-        if(lane.getLaneIM().distanceToNextIntersection(vehicle.getPosition())>0
-            || im == null || !im.intersects(vehicle.getShape().getBounds2D())) {
-          // Now find how far along the lane it is.
-          double dst = lane.distanceAlongLane(vehicle.getPosition());
-          // Now add it to the map.
-          vehicleLists.get(lane).put(dst, vehicle);
-        }
-      }
-    }
-    // Now consolidate the lists based on lanes
-    for(Road road : basicMap.getRoads()) {
-      for(Lane lane : road.getLanes()) {
-        // We may have already removed this Lane from the map
-        if(vehicleLists.containsKey(lane)) {
-          Lane currLane = lane;
-          // Now run through the lanes
-          while(currLane.hasNextLane()) {
-            currLane = currLane.getNextLane();
-            // Put everything from the next lane into the original lane
-            // and remove the mapping for the next lane
-            vehicleLists.get(lane).putAll(vehicleLists.remove(currLane));
-          }
-        }
-      }
-    }
-
-    return vehicleLists;
-  }
-
-  /**
-   * Compute the next vehicles of all vehicles.
-   *
-   * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-   *                      their distance on their lanes
-   * @return a mapping from vehicles to next vehicles
-   */
-  private Map<VehicleSimView, VehicleSimView> computeNextVehicle(
-    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists) {
-    // At this point we should only have mappings for start Lanes, and they
-    // should include all the Lanes they run into.  Now we need to turn this
-    // into a hash map that maps Vehicles to the next vehicle in the Lane
-    // or any Lane the Lane runs into
-    Map<VehicleSimView, VehicleSimView> nextVehicle =
-      new HashMap<VehicleSimView,VehicleSimView>();
-    // For each of the ordered lists of vehicles
-    for(SortedMap<Double,VehicleSimView> vehicleList : vehicleLists.values()) {
-      VehicleSimView lastVehicle = null;
-      // Go through the Vehicles in order of their position in the Lane
-      for(VehicleSimView currVehicle : vehicleList.values()) {
-        if(lastVehicle != null) {
-          // Create the mapping from the previous Vehicle to the current one
-          nextVehicle.put(lastVehicle,currVehicle);
-        }
-        lastVehicle = currVehicle;
-      }
-    }
-
-    return nextVehicle;
-  }
-
   /**
    * Provide each vehicle with sensor information to allow it to make
-   * decisions.  This works first by making an ordered list for each Lane of
-   * all the vehicles in that Lane, in order from the start of the Lane to
+   * decisions.  This works first by updating the ordered list for each Lane
+   * of all the vehicles in that Lane, in order from the start of the Lane to
    * the end of the Lane.  We must make sure to leave out all vehicles that
    * are in the intersection.  We must also concatenate the lists for lanes
    * that feed into one another.  Then, for each vehicle, depending on the
    * state of its sensors, we provide it with the appropriate sensor input.
    */
   private void provideSensorInput() {
-    Map<Lane,SortedMap<Double,VehicleSimView>> vehicleLists =
-      computeVehicleLists();
-    Map<VehicleSimView, VehicleSimView> nextVehicle =
-      computeNextVehicle(vehicleLists);
+    laneIndex.update(vinToVehicles.values());
 
-    provideIntervalInfo(nextVehicle);
-    provideVehicleTrackingInfo(vehicleLists);
+    provideIntervalInfo();
+    provideVehicleTrackingInfo();
     provideTrafficSignal();
   }
 
   /**
    * Provide sensing information to the intervalometers of all vehicles.
-   *
-   * @param nextVehicle  a mapping from vehicles to next vehicles
    */
-  private void provideIntervalInfo(
-    Map<VehicleSimView, VehicleSimView> nextVehicle) {
+  private void provideIntervalInfo() {
 
     // Now that we have this list set up, let's provide input to all the
     // Vehicles.
@@ -510,11 +536,12 @@ public class AutoDriverOnlySimulator implements Simulator {
         case DISABLED:
           // Find the interval to the next vehicle
           double interval;
+          VehicleSimView nextVehicle = laneIndex.getNextVehicle(autoVehicle);
           // If there is a next vehicle, then calculate it
-          if(nextVehicle.containsKey(autoVehicle)) {
+          if(nextVehicle != null) {
             // It's the distance from the front of this Vehicle to the point
             // at the rear of the Vehicle in front of it
-            interval = calcInterval(autoVehicle, nextVehicle.get(autoVehicle));
+            interval = calcInterval(autoVehicle, nextVehicle);
           } else { // Otherwise, just set it to the maximum possible value
             interval = Double.MAX_VALUE;
           }
@@ -541,12 +568,8 @@ public class AutoDriverOnlySimulator implements Simulator {
 
   /**
    * Provide tracking information to vehicles.
-   *
-   * @param vehicleLists  a mapping from lanes to lists of vehicles sorted by
-   *                      their distance on their lanes
    */
-  private void provideVehicleTrackingInfo(
-    Map<Lane, SortedMap<Double, VehicleSimView>> vehicleLists) {
+  private void provideVehicleTrackingInfo() {
     // Vehicle Tracking
     for(VehicleSimView vehicle: vinToVehicles.values()) {
       // If the vehicle is autonomous
@@ -565,26 +588,16 @@ public class AutoDriverOnlySimulator implements Simulator {
           VehicleSimView frontVehicle = null ;
           VehicleSimView rearVehicle = null ;
 
-          // only consider the vehicles on the target lane
-          SortedMap<Double,VehicleSimView> vehiclesOnTargetLane =
-            vehicleLists.get(targetLane);
-
-          // compute the distances and the corresponding vehicles
-          try {
-            double d = vehiclesOnTargetLane.tailMap(dst).firstKey();
-            frontVehicle = vehiclesOnTargetLane.get(d);
+          // compute the distances and the corresponding vehicles, only
+          // considering the vehicles on the target lane
+          frontVehicle = laneIndex.getFrontVehicle(targetLane, dst);
+          if (frontVehicle != null) {
+            double d = laneIndex.getFrontVehicleDistance(targetLane, dst);
             frontDst = (d-dst)-frontVehicle.getSpec().getLength();
-          } catch(NoSuchElementException e) {
-            frontDst = Double.MAX_VALUE;
-            frontVehicle = null;
           }
-          try {
-            double d = vehiclesOnTargetLane.headMap(dst).lastKey();
-            rearVehicle = vehiclesOnTargetLane.get(d);
-            rearDst = dst-d;
-          } catch(NoSuchElementException e) {
-            rearDst = Double.MAX_VALUE;
-            rearVehicle = null;
+          rearVehicle = laneIndex.getRearVehicle(targetLane, dst);
+          if (rearVehicle != null) {
+            rearDst = dst-laneIndex.getRearVehicleDistance(targetLane, dst);
           }
 
           // assign the sensor readings
@@ -647,18 +660,11 @@ public class AutoDriverOnlySimulator implements Simulator {
     // From Chiu: Kurt, if you think this function is not okay, probably
     // we should talk to see what to do.
     Point2D pos = vehicle.getPosition();
-    if(nextVehicle.getShape().contains(pos)) {
+    OrientedBox box = nextVehicle.getBox();
+    if(box.contains(pos.getX(), pos.getY())) {
       return 0.0;
     } else {
-      // TODO: make it more efficient
-      double interval = Double.MAX_VALUE ;
-      for(Line2D edge : nextVehicle.getEdges()) {
-        double dst = edge.ptSegDist(pos);
-        if(dst < interval){
-          interval = dst;
-        }
-      }
-      return interval;
+      return box.edgeDistance(pos.getX(), pos.getY());
     }
   }
   // Kurt's code:
@@ -707,11 +713,33 @@ public class AutoDriverOnlySimulator implements Simulator {
   /////////////////////////////////
 
   /**
-   * Allow each driver to act.
+   * Allow each driver to act.  A driver only reads its own vehicle and only
+   * writes to the outbox of its own vehicle, so the drivers can act in
+   * parallel.
    */
   private void letDriversAct() {
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
-      vehicle.getDriver().act();
+    if (stepExecutor == null) {
+      for(VehicleSimView vehicle : vinToVehicles.values()) {
+        vehicle.getDriver().act();
+      }
+    } else {
+      final List<VehicleSimView> vehicles =
+        new ArrayList<VehicleSimView>(vinToVehicles.values());
+      List<Callable<Object>> tasks =
+        new ArrayList<Callable<Object>>(numOfStepThreads);
+      for(int i = 0; i < numOfStepThreads; i++) {
+        final int first = i;
+        tasks.add(new Callable<Object>() {
+          @Override
+          public Object call() {
+            for(int j = first; j < vehicles.size(); j += numOfStepThreads) {
+              vehicles.get(j).getDriver().act();
+            }
+            return null;
+          }
+        });
+      }
+      invokeAll(tasks);
     }
   }
 
@@ -724,9 +752,53 @@ public class AutoDriverOnlySimulator implements Simulator {
    *
    * @param timeStep  the time step
    */
-  private void letIntersectionManagersAct(double timeStep) {
-    for(IntersectionManager im : basicMap.getIntersectionManagers()) {
-      im.act(timeStep);
+  private void letIntersectionManagersAct(final double timeStep) {
+    List<IntersectionManager> ims = basicMap.getIntersectionManagers();
+    if (stepExecutor == null || ims.size() < 2) {
+      for(IntersectionManager im : ims) {
+        im.act(timeStep);
+      }
+    } else {
+      // the intersection managers share nothing while they act
+      List<Callable<Object>> tasks =
+        new ArrayList<Callable<Object>>(ims.size());
+      for(final IntersectionManager im : ims) {
+        tasks.add(new Callable<Object>() {
+          @Override
+          public Object call() {
+            im.act(timeStep);
+            return null;
+          }
+        });
+      }
+      invokeAll(tasks);
+    }
+  }
+
+  /**
+   * Execute the tasks of a phase of a step with the step executor and wait
+   * until all of them have finished.
+   *
+   * @param tasks  the tasks
+   */
+  private void invokeAll(List<Callable<Object>> tasks) {
+    try {
+      for(Future<Object> future : stepExecutor.invokeAll(tasks)) {
+        future.get();
+      }
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The simulation step has been interrupted",
+                                 e);
+    } catch(ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new RuntimeException(cause);
+      }
     }
   }
 
@@ -744,11 +816,21 @@ public class AutoDriverOnlySimulator implements Simulator {
   }
 
   /**
-   * Deliver the V2I messages.
+   * Deliver the V2I messages in the order of the VINs of the senders, so
+   * that the order in which the intersection managers receive the messages
+   * depends neither on the order in which the drivers acted nor on the
+   * iteration order of the map of the vehicles.
    */
   private void deliverV2IMessages() {
+    int[] vins = new int[vinToVehicles.size()];
+    int n = 0;
+    for(int vin : vinToVehicles.keySet()) {
+      vins[n++] = vin;
+    }
+    Arrays.sort(vins);
     // Go through each vehicle and deliver each of its messages
-    for(VehicleSimView vehicle : vinToVehicles.values()) {
+    for(int vin : vins) {
+      VehicleSimView vehicle = vinToVehicles.get(vin);
       // Start with V2I messages
       if (vehicle instanceof AutoVehicleSimView) {
         AutoVehicleSimView sender = (AutoVehicleSimView)vehicle;
@@ -774,9 +856,10 @@ public class AutoDriverOnlySimulator implements Simulator {
   }
 
   /**
-   * Deliver the I2V messages.
+   * Deliver the I2V messages in the order of the intersection managers.
    */
   private void deliverI2VMessages() {
+    VinRegistry vinRegistry = basicMap.getContext().getVinRegistry();
     // Now deliver all the I2V messages
     for(IntersectionManager im : basicMap.getIntersectionManagers()) {
       V2IManager senderIM = (V2IManager)im;
@@ -784,8 +867,10 @@ public class AutoDriverOnlySimulator implements Simulator {
           i2vIter.hasNext();) {
         I2VMessage msg = i2vIter.next();
         AutoVehicleSimView vehicle =
-          (AutoVehicleSimView)VinRegistry.getVehicleFromVIN(
-            msg.getVin());
+          (AutoVehicleSimView)vinRegistry.getVehicleFromVIN(msg.getVin());
+        if (vehicle == null) {
+          continue;  // the vehicle has left the simulation
+        }
         // Calculate the distance the message must travel
         double txDistance =
           senderIM.getIntersection().getCentroid().distance(
@@ -899,13 +984,13 @@ public class AutoDriverOnlySimulator implements Simulator {
    * @param timeStep  the time step
    */
   private void moveVehicles(double timeStep) {
+    vehicleIndex.clear();
     for(VehicleSimView vehicle : vinToVehicles.values()) {
       Point2D p1 = vehicle.getPosition();
       vehicle.move(timeStep);
+      vehicleIndex.add(vehicle);
       Point2D p2 = vehicle.getPosition();
-      for(DataCollectionLine line : basicMap.getDataCollectionLines()) {
-        line.intersect(vehicle, currentTime, p1, p2);
-      }
+      vehicleIndex.intersectDataCollectionLines(vehicle, currentTime, p1, p2);
       if (Debug.isPrintVehicleStateOfVIN(vehicle.getVIN())) {
         vehicle.printState();
       }
@@ -927,24 +1012,29 @@ public class AutoDriverOnlySimulator implements Simulator {
 
     Rectangle2D mapBoundary = basicMap.getDimensions();
 
-    List<Integer> removedVINs = new ArrayList<Integer>(vinToVehicles.size());
-    for(int vin : vinToVehicles.keySet()) {
-      VehicleSimView v = vinToVehicles.get(vin);
+    List<VehicleSimView> removedVehicles = new ArrayList<VehicleSimView>();
+    // Only the vehicles whose bounding boxes are not entirely inside the
+    // map boundary can have left the layout
+    for(VehicleSimView v : vehicleIndex.getBoundaryVehicles()) {
       // If the vehicle is no longer in the layout
       // TODO: this should be replaced with destination zone.
-      if(!v.getShape().intersects(mapBoundary)) {
+      if(!v.getBox().intersects(mapBoundary)) {
         // Process all the things we need to from this vehicle
         if (v instanceof AutoVehicleSimView) {
           AutoVehicleSimView v2 = (AutoVehicleSimView)v;
           totalBitsTransmittedByCompletedVehicles += v2.getBitsTransmitted();
           totalBitsReceivedByCompletedVehicles += v2.getBitsReceived();
         }
-        removedVINs.add(vin);
+        removedVehicles.add(v);
       }
     }
     // Remove the marked vehicles
-    for(int vin : removedVINs) {
+    VinRegistry vinRegistry = basicMap.getContext().getVinRegistry();
+    for(VehicleSimView v : removedVehicles) {
+      int vin = v.getVIN();
+      vehicleIndex.remove(v);
       vinToVehicles.remove(vin);
+      vinRegistry.unregisterVehicle(vin);
       completedVINs.add(vin);
       numOfCompletedVehicles++;
     }
@@ -952,6 +1042,35 @@ public class AutoDriverOnlySimulator implements Simulator {
     return completedVINs;
   }
 
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  // rendering
+
+  /**
+   * Take a snapshot of the simulation and publish it for the readers of
+   * {@link #getLatestFrame()}.
+   */
+  private void publishFrame() {
+    int[] vins = new int[vinToVehicles.size()];
+    int n = 0;
+    for(int vin : vinToVehicles.keySet()) {
+      vins[n++] = vin;
+    }
+    Arrays.sort(vins);
+    List<VehicleSimView> vehicles = new ArrayList<VehicleSimView>(n);
+    for(int vin : vins) {
+      vehicles.add(vinToVehicles.get(vin));
+    }
+    latestFrame = new SimFrame(currentTime,
+                               numOfCompletedVehicles,
+                               getAvgBitsTransmittedByCompletedVehicles(),
+                               getAvgBitsReceivedByCompletedVehicles(),
+                               vehicles,
+                               basicMap.getIntersectionManagers());
+  }
+
   /////////////////////////////////
   // DEBUG
   /////////////////////////////////
@@ -0,0 +1,418 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.io.FileNotFoundException;
+
+import aim4.config.Debug;
+import aim4.config.SimConfig;
+import aim4.im.IntersectionManager;
+import aim4.map.ArrivalTraceWriter;
+import aim4.map.DataCollectionLine;
+import aim4.map.DataCollectionWriter;
+import aim4.sim.AutoDriverOnlySimulator.AutoDriverOnlySimStepResult;
+import aim4.sim.Simulator.SimStepResult;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * A runner that advances a simulator as fast as possible without any GUI.
+ * The runner stops when either the target simulation time or the target
+ * number of completed vehicles has been reached.
+ */
+public class HeadlessRunner {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The result of a headless run.
+   */
+  public static class Result {
+    /** The simulation time at the end of the run */
+    private double simTime;
+    /** The number of simulation steps */
+    private long numOfSteps;
+    /** The number of completed vehicles */
+    private int numOfCompletedVehicles;
+    /** The wall-clock time of the run in seconds */
+    private double wallTime;
+    /** The number of arrivals still waiting at the spawn points */
+    private int numOfWaitingSpawns;
+    /** The largest number of arrivals that have waited at one spawn point */
+    private int maxQueueDepth;
+
+    /**
+     * Create the result of a headless run.
+     *
+     * @param simTime                 the simulation time at the end of the run
+     * @param numOfSteps              the number of simulation steps
+     * @param numOfCompletedVehicles  the number of completed vehicles
+     * @param wallTime                the wall-clock time of the run in
+     *                                seconds
+     */
+    public Result(double simTime, long numOfSteps, int numOfCompletedVehicles,
+                  double wallTime) {
+      this(simTime, numOfSteps, numOfCompletedVehicles, wallTime, 0, 0);
+    }
+
+    /**
+     * Create the result of a headless run.
+     *
+     * @param simTime                 the simulation time at the end of the run
+     * @param numOfSteps              the number of simulation steps
+     * @param numOfCompletedVehicles  the number of completed vehicles
+     * @param wallTime                the wall-clock time of the run in
+     *                                seconds
+     * @param numOfWaitingSpawns      the number of arrivals still waiting at
+     *                                the spawn points
+     * @param maxQueueDepth           the largest number of arrivals that
+     *                                have waited at one spawn point
+     */
+    public Result(double simTime, long numOfSteps, int numOfCompletedVehicles,
+                  double wallTime, int numOfWaitingSpawns,
+                  int maxQueueDepth) {
+      this.simTime = simTime;
+      this.numOfSteps = numOfSteps;
+      this.numOfCompletedVehicles = numOfCompletedVehicles;
+      this.wallTime = wallTime;
+      this.numOfWaitingSpawns = numOfWaitingSpawns;
+      this.maxQueueDepth = maxQueueDepth;
+    }
+
+    /**
+     * Get the simulation time at the end of the run.
+     *
+     * @return the simulation time at the end of the run
+     */
+    public double getSimTime() {
+      return simTime;
+    }
+
+    /**
+     * Get the number of simulation steps.
+     *
+     * @return the number of simulation steps
+     */
+    public long getNumOfSteps() {
+      return numOfSteps;
+    }
+
+    /**
+     * Get the number of completed vehicles.
+     *
+     * @return the number of completed vehicles
+     */
+    public int getNumOfCompletedVehicles() {
+      return numOfCompletedVehicles;
+    }
+
+    /**
+     * Get the wall-clock time of the run.
+     *
+     * @return the wall-clock time of the run in seconds
+     */
+    public double getWallTime() {
+      return wallTime;
+    }
+
+    /**
+     * Get the number of arrivals still waiting at the spawn points at the
+     * end of the run.
+     *
+     * @return the number of arrivals still waiting at the spawn points
+     */
+    public int getNumOfWaitingSpawns() {
+      return numOfWaitingSpawns;
+    }
+
+    /**
+     * Get the largest number of arrivals that have waited at one spawn
+     * point during the run.
+     *
+     * @return the largest number of arrivals that have waited at one spawn
+     *         point
+     */
+    public int getMaxQueueDepth() {
+      return maxQueueDepth;
+    }
+
+    /**
+     * Get the number of simulation steps per wall-clock second.
+     *
+     * @return the number of simulation steps per wall-clock second
+     */
+    public double getStepsPerSecond() {
+      return (wallTime > 0.0) ? (numOfSteps / wallTime) : 0.0;
+    }
+
+    /**
+     * Get the ratio of the simulation time to the wall-clock time.
+     *
+     * @return the ratio of the simulation time to the wall-clock time
+     */
+    public double getSpeedup() {
+      return (wallTime > 0.0) ? (simTime / wallTime) : 0.0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+      return String.format("simTime=%.2f steps=%d completedVehicles=%d "
+                           + "wallTime=%.3fs stepsPerSec=%.1f speedup=%.1fx "
+                           + "waitingSpawns=%d maxSpawnQueue=%d",
+                           simTime, numOfSteps, numOfCompletedVehicles,
+                           wallTime, getStepsPerSecond(), getSpeedup(),
+                           numOfWaitingSpawns, maxQueueDepth);
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The simulator */
+  private Simulator sim;
+  /** The target simulation time; non-positive if there is no such target */
+  private double targetSimTime;
+  /**
+   * The target number of completed vehicles; non-positive if there is no
+   * such target
+   */
+  private int targetNumOfCompletedVehicles;
+  /**
+   * The writer to which the data of the data collection lines are written
+   * during the run; null if the data are kept in memory
+   */
+  private DataCollectionWriter dclWriter;
+  /**
+   * The writer to which the arrivals at the spawn points are recorded
+   * during the run; null if the arrivals are not recorded
+   */
+  private ArrivalTraceWriter arrivalWriter;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a headless runner.
+   *
+   * @param sim                           the simulator
+   * @param targetSimTime                 the simulation time at which the run
+   *                                      stops; non-positive if there is no
+   *                                      such target
+   * @param targetNumOfCompletedVehicles  the number of completed vehicles at
+   *                                      which the run stops; non-positive if
+   *                                      there is no such target
+   */
+  public HeadlessRunner(Simulator sim,
+                        double targetSimTime,
+                        int targetNumOfCompletedVehicles) {
+    if (targetSimTime <= 0.0 && targetNumOfCompletedVehicles <= 0) {
+      throw new IllegalArgumentException("Either the target simulation time "
+                                         + "or the target number of "
+                                         + "completed vehicles must be given");
+    }
+    this.sim = sim;
+    this.targetSimTime = targetSimTime;
+    this.targetNumOfCompletedVehicles = targetNumOfCompletedVehicles;
+    this.dclWriter = null;
+    this.arrivalWriter = null;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the simulator.
+   *
+   * @return the simulator
+   */
+  public Simulator getSimulator() {
+    return sim;
+  }
+
+  /**
+   * Write the data of the data collection lines to a file while the
+   * simulator runs, instead of keeping them in memory until
+   * {@link #printData(String, String)} is called.  The VIN registry then
+   * stops retaining the data of the vehicles that have left.  It should be
+   * called before {@link #run()}, which closes the file at the end of the
+   * run.
+   *
+   * @param dclFileName  the name of the file to which the data of the data
+   *                     collection lines are written
+   */
+  public void streamDataCollectionLinesData(String dclFileName) {
+    VinRegistry vinRegistry = sim.getMap().getContext().getVinRegistry();
+    try {
+      dclWriter = new DataCollectionWriter(dclFileName, vinRegistry);
+    } catch (FileNotFoundException e) {
+      System.err.printf("Cannot open file %s\n", dclFileName);
+      return;
+    }
+    for(DataCollectionLine line : sim.getMap().getDataCollectionLines()) {
+      line.setWriter(dclWriter);
+    }
+    // the rows are written as the vehicles pass through the lines, so the
+    // data of the vehicles that have left are no longer needed
+    vinRegistry.setArchiveRetained(false);
+  }
+
+  /**
+   * Record the arrivals at the spawn points to an arrival trace while the
+   * simulator runs, so that the demand of the run can be replayed in other
+   * runs.  It should be called before {@link #run()}, which closes the file
+   * at the end of the run.
+   *
+   * @param arrivalFileName  the name of the file to which the arrivals are
+   *                         recorded
+   */
+  public void recordArrivals(String arrivalFileName) {
+    if (!(sim instanceof AutoDriverOnlySimulator)) {
+      System.err.printf("Cannot record the arrivals of %s\n",
+                        sim.getClass().getSimpleName());
+      return;
+    }
+    try {
+      arrivalWriter = new ArrivalTraceWriter(arrivalFileName);
+    } catch (FileNotFoundException e) {
+      System.err.printf("Cannot open file %s\n", arrivalFileName);
+      return;
+    }
+    ((AutoDriverOnlySimulator)sim).getSpawnScheduler()
+      .setArrivalWriter(arrivalWriter);
+  }
+
+  /**
+   * Run the simulator until one of the targets has been reached.
+   *
+   * @return the result of the run
+   */
+  public Result run() {
+    long numOfSteps = 0;
+    long startTime = System.nanoTime();
+    while (!isDone()) {
+      runSimulationStep();
+      numOfSteps++;
+    }
+    if (dclWriter != null) {
+      for(DataCollectionLine line : sim.getMap().getDataCollectionLines()) {
+        line.setWriter(null);
+      }
+      dclWriter.close();
+      dclWriter = null;
+    }
+    if (arrivalWriter != null) {
+      ((AutoDriverOnlySimulator)sim).getSpawnScheduler()
+        .setArrivalWriter(null);
+      arrivalWriter.close();
+      arrivalWriter = null;
+    }
+    double wallTime = (System.nanoTime() - startTime) / 1e9;
+    int numOfWaitingSpawns = 0;
+    int maxQueueDepth = 0;
+    if (sim instanceof AutoDriverOnlySimulator) {
+      SpawnScheduler spawnScheduler =
+        ((AutoDriverOnlySimulator)sim).getSpawnScheduler();
+      numOfWaitingSpawns = spawnScheduler.getNumOfWaitingSpawns();
+      maxQueueDepth = spawnScheduler.getMaxQueueDepth();
+    }
+    return new Result(sim.getSimulationTime(), numOfSteps,
+                      sim.getNumCompletedVehicles(), wallTime,
+                      numOfWaitingSpawns, maxQueueDepth);
+  }
+
+  /**
+   * Print the data collected by the data collection lines and the
+   * intersection managers.
+   *
+   * @param dclFileName   the name of the file to which the data of the data
+   *                      collection lines are written; null if the data
+   *                      should not be written
+   * @param imFilePrefix  the prefix of the names of the files to which the
+   *                      data of the intersection managers are written; the
+   *                      ID of the intersection manager is appended to the
+   *                      prefix.  null if the data should not be written.
+   */
+  public void printData(String dclFileName, String imFilePrefix) {
+    if (dclFileName != null) {
+      sim.getMap().printDataCollectionLinesData(dclFileName);
+    }
+    if (imFilePrefix != null) {
+      for(IntersectionManager im : sim.getMap().getIntersectionManagers()) {
+        im.printData(imFilePrefix + im.getId());
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether one of the targets has been reached.
+   *
+   * @return whether one of the targets has been reached
+   */
+  private boolean isDone() {
+    if (targetSimTime > 0.0 && sim.getSimulationTime() >= targetSimTime) {
+      return true;
+    }
+    if (targetNumOfCompletedVehicles > 0
+        && sim.getNumCompletedVehicles() >= targetNumOfCompletedVehicles) {
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Run a simulation step.
+   */
+  private void runSimulationStep() {
+    // the same bookkeeping as the viewer, except for the screen update
+    Debug.clearShortTermDebugPoints();
+    SimStepResult simStepResult = sim.step(SimConfig.TIME_STEP);
+
+    if (simStepResult instanceof AutoDriverOnlySimStepResult) {
+      AutoDriverOnlySimStepResult simStepResult2 =
+          (AutoDriverOnlySimStepResult) simStepResult;
+      for (int vin : simStepResult2.getCompletedVINs()) {
+        sim.getMap().getContext().removeVehicleColor(vin);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,437 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * The vehicles on each chain of lanes, ordered by their distance along
+ * their lanes.  A chain of lanes starts with a lane that is not the next
+ * lane of any other lane and follows the next lanes.  Vehicles that are
+ * (partially or entirely) inside an intersection are left out.
+ * <p>
+ * The index is kept across time steps.  Since vehicles rarely overtake one
+ * another in a lane, the order of the previous time step is almost always
+ * still correct, so an update only refreshes the distances, drops and
+ * appends the vehicles that left or entered a lane and repairs the order by
+ * insertion sort.  An update takes time linear in the number of vehicles
+ * and, apart from the records of new vehicles, allocates no memory.
+ */
+public class LaneOccupancyIndex {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The vehicles on a chain of lanes, sorted by their distance along their
+   * lanes.
+   */
+  private static class LaneChain {
+    /** The records of the vehicles */
+    VehicleRecord[] records = new VehicleRecord[8];
+    /** The lanes the vehicles are in */
+    Lane[] lanes = new Lane[8];
+    /** The distances of the vehicles along their lanes */
+    double[] distances = new double[8];
+    /** The number of vehicles */
+    int size = 0;
+
+    /**
+     * Append a vehicle to the end of the chain.
+     *
+     * @param record    the record of the vehicle
+     * @param lane      the lane the vehicle is in
+     * @param distance  the distance of the vehicle along the lane
+     */
+    void append(VehicleRecord record, Lane lane, double distance) {
+      if (size == records.length) {
+        records = Arrays.copyOf(records, 2 * size);
+        lanes = Arrays.copyOf(lanes, 2 * size);
+        distances = Arrays.copyOf(distances, 2 * size);
+      }
+      records[size] = record;
+      lanes[size] = lane;
+      distances[size] = distance;
+      size++;
+    }
+
+    /**
+     * Restore the order by distance.  Insertion sort is stable and takes
+     * linear time when the vehicles are already (almost) sorted.
+     */
+    void sort() {
+      for(int i = 1; i < size; i++) {
+        VehicleRecord r = records[i];
+        Lane l = lanes[i];
+        double d = distances[i];
+        int j = i - 1;
+        while(j >= 0 && distances[j] > d) {
+          records[j+1] = records[j];
+          lanes[j+1] = lanes[j];
+          distances[j+1] = distances[j];
+          j--;
+        }
+        records[j+1] = r;
+        lanes[j+1] = l;
+        distances[j+1] = d;
+      }
+    }
+
+    /**
+     * Get the index of the first vehicle whose distance is no less than a
+     * given distance.
+     *
+     * @param distance  the distance
+     * @return the index of the first vehicle whose distance is no less than
+     *         the distance; size if there is no such vehicle
+     */
+    int ceilingIndex(double distance) {
+      int lo = 0;
+      int hi = size;
+      while(lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (distances[mid] < distance) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
+        }
+      }
+      return lo;
+    }
+  }
+
+  /**
+   * The lanes a vehicle is in at the current time step.
+   */
+  private static class VehicleRecord {
+    /** The vehicle */
+    VehicleSimView vehicle;
+    /** The lanes, excluding those whose intersection the vehicle is in */
+    Lane[] lanes = new Lane[2];
+    /** The distances of the vehicle along the lanes */
+    double[] distances = new double[2];
+    /** Whether the vehicle is already in the chain of the lanes */
+    boolean[] placed = new boolean[2];
+    /** The number of lanes */
+    int numOfLanes;
+    /** The time step at which the record was last updated */
+    int stamp;
+    /** The next vehicle in the lane */
+    VehicleSimView nextVehicle;
+
+    /**
+     * Create a record of a vehicle.
+     *
+     * @param vehicle  the vehicle
+     */
+    VehicleRecord(VehicleSimView vehicle) {
+      this.vehicle = vehicle;
+    }
+
+    /**
+     * Add a lane.
+     *
+     * @param lane      the lane
+     * @param distance  the distance of the vehicle along the lane
+     */
+    void addLane(Lane lane, double distance) {
+      if (numOfLanes == lanes.length) {
+        lanes = Arrays.copyOf(lanes, 2 * numOfLanes);
+        distances = Arrays.copyOf(distances, 2 * numOfLanes);
+        placed = Arrays.copyOf(placed, 2 * numOfLanes);
+      }
+      lanes[numOfLanes] = lane;
+      distances[numOfLanes] = distance;
+      placed[numOfLanes] = false;
+      numOfLanes++;
+    }
+
+    /**
+     * Find the position of a lane in the record.
+     *
+     * @param lane  the lane
+     * @return the position of the lane; -1 if the lane is not in the record
+     */
+    int indexOf(Lane lane) {
+      for(int i = 0; i < numOfLanes; i++) {
+        if (lanes[i] == lane) {
+          return i;
+        }
+      }
+      return -1;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The chains of lanes */
+  private LaneChain[] chains;
+  /** A mapping from lanes to the chains that contain them */
+  private Map<Lane,LaneChain> laneToChain;
+  /** A mapping from vehicles to their records */
+  private Map<VehicleSimView,VehicleRecord> records;
+  /** The records of the vehicles given to the current update */
+  private List<VehicleRecord> currentRecords;
+  /** The number of updates so far */
+  private int stamp;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty lane occupancy index for a map.
+   *
+   * @param basicMap  the map
+   */
+  public LaneOccupancyIndex(BasicMap basicMap) {
+    laneToChain = new HashMap<Lane,LaneChain>();
+    Map<Lane,Lane> previousLanes = new HashMap<Lane,Lane>();
+    for(Road road : basicMap.getRoads()) {
+      for(Lane lane : road.getLanes()) {
+        if (lane.hasNextLane()) {
+          previousLanes.put(lane.getNextLane(), lane);
+        }
+      }
+    }
+    List<LaneChain> chainList = new ArrayList<LaneChain>();
+    // start the chains from the lanes that are not the next lane of any
+    // lane, then put the lanes on cycles, if any, in chains of their own
+    for(int pass = 0; pass < 2; pass++) {
+      for(Road road : basicMap.getRoads()) {
+        for(Lane lane : road.getLanes()) {
+          if (!laneToChain.containsKey(lane)
+              && (pass == 1 || !previousLanes.containsKey(lane))) {
+            LaneChain chain = new LaneChain();
+            chainList.add(chain);
+            for(Lane l = lane; l != null && !laneToChain.containsKey(l);
+                l = l.hasNextLane() ? l.getNextLane() : null) {
+              laneToChain.put(l, chain);
+            }
+          }
+        }
+      }
+    }
+    chains = chainList.toArray(new LaneChain[chainList.size()]);
+    records = new HashMap<VehicleSimView,VehicleRecord>();
+    currentRecords = new ArrayList<VehicleRecord>();
+    stamp = 0;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Update the index with the current positions of the vehicles.  Vehicles
+   * that are no longer given are removed from the index.
+   *
+   * @param vehicles  all vehicles in the simulation
+   */
+  public void update(Collection<VehicleSimView> vehicles) {
+    stamp++;
+    currentRecords.clear();
+    // Find the lanes each vehicle is in, but exclude those whose
+    // intersection the vehicle is already (partially or entirely) inside
+    for(VehicleSimView vehicle : vehicles) {
+      VehicleRecord record = records.get(vehicle);
+      if (record == null) {
+        record = new VehicleRecord(vehicle);
+        records.put(vehicle, record);
+      }
+      currentRecords.add(record);
+      record.numOfLanes = 0;
+      record.stamp = stamp;
+      record.nextVehicle = null;
+      Point2D pos = vehicle.getPosition();
+      for(Lane lane : vehicle.getDriver().getCurrentlyOccupiedLanes()) {
+        if (isBeforeIntersection(vehicle, lane, pos)) {
+          record.addLane(lane, lane.distanceAlongLane(pos));
+        }
+      }
+    }
+    // Refresh the distances of the vehicles that stay in their lanes and
+    // drop the others
+    for(LaneChain chain : chains) {
+      int n = 0;
+      for(int i = 0; i < chain.size; i++) {
+        // the records of the vehicles that have left the simulation are
+        // not updated any more
+        VehicleRecord record = chain.records[i];
+        int k = (record.stamp == stamp) ? record.indexOf(chain.lanes[i]) : -1;
+        if (k >= 0 && !record.placed[k]) {
+          record.placed[k] = true;
+          chain.records[n] = record;
+          chain.lanes[n] = chain.lanes[i];
+          chain.distances[n] = record.distances[k];
+          n++;
+        }
+      }
+      for(int i = n; i < chain.size; i++) {
+        chain.records[i] = null;
+        chain.lanes[i] = null;
+      }
+      chain.size = n;
+    }
+    // Append the vehicles that have entered a lane
+    for(VehicleRecord record : currentRecords) {
+      for(int k = 0; k < record.numOfLanes; k++) {
+        if (!record.placed[k]) {
+          LaneChain chain = laneToChain.get(record.lanes[k]);
+          if (chain != null) {
+            chain.append(record, record.lanes[k], record.distances[k]);
+          }
+        }
+      }
+    }
+    // Restore the order and link each vehicle to the one in front of it
+    for(LaneChain chain : chains) {
+      chain.sort();
+      for(int i = 0; i + 1 < chain.size; i++) {
+        chain.records[i].nextVehicle = chain.records[i+1].vehicle;
+      }
+    }
+    // Forget the vehicles that have left the simulation
+    if (records.size() > currentRecords.size()) {
+      for(Iterator<VehicleRecord> iter = records.values().iterator();
+          iter.hasNext();) {
+        if (iter.next().stamp != stamp) {
+          iter.remove();
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the vehicle in front of a vehicle in the chain of its lane.
+   *
+   * @param vehicle  the vehicle
+   * @return the next vehicle; null if there is none
+   */
+  public VehicleSimView getNextVehicle(VehicleSimView vehicle) {
+    VehicleRecord record = records.get(vehicle);
+    return (record != null) ? record.nextVehicle : null;
+  }
+
+  /**
+   * Get the first vehicle in the chain of a lane whose distance along its
+   * lane is no less than a given distance.
+   *
+   * @param lane      the lane
+   * @param distance  the distance
+   * @return the vehicle; null if there is none
+   */
+  public VehicleSimView getFrontVehicle(Lane lane, double distance) {
+    LaneChain chain = laneToChain.get(lane);
+    int i = chain.ceilingIndex(distance);
+    return (i < chain.size) ? chain.records[i].vehicle : null;
+  }
+
+  /**
+   * Get the distance along its lane of the vehicle returned by
+   * {@link #getFrontVehicle(Lane, double)}.
+   *
+   * @param lane      the lane
+   * @param distance  the distance
+   * @return the distance of the vehicle; Double.MAX_VALUE if there is none
+   */
+  public double getFrontVehicleDistance(Lane lane, double distance) {
+    LaneChain chain = laneToChain.get(lane);
+    int i = chain.ceilingIndex(distance);
+    return (i < chain.size) ? chain.distances[i] : Double.MAX_VALUE;
+  }
+
+  /**
+   * Get the last vehicle in the chain of a lane whose distance along its
+   * lane is less than a given distance.
+   *
+   * @param lane      the lane
+   * @param distance  the distance
+   * @return the vehicle; null if there is none
+   */
+  public VehicleSimView getRearVehicle(Lane lane, double distance) {
+    LaneChain chain = laneToChain.get(lane);
+    int i = chain.ceilingIndex(distance) - 1;
+    return (i >= 0) ? chain.records[i].vehicle : null;
+  }
+
+  /**
+   * Get the distance along its lane of the vehicle returned by
+   * {@link #getRearVehicle(Lane, double)}.
+   *
+   * @param lane      the lane
+   * @param distance  the distance
+   * @return the distance of the vehicle; Double.MAX_VALUE if there is none
+   */
+  public double getRearVehicleDistance(Lane lane, double distance) {
+    LaneChain chain = laneToChain.get(lane);
+    int i = chain.ceilingIndex(distance) - 1;
+    return (i >= 0) ? chain.distances[i] : Double.MAX_VALUE;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Whether a vehicle in a lane is not inside the next intersection of the
+   * lane.
+   *
+   * @param vehicle  the vehicle
+   * @param lane     the lane
+   * @param pos      the position of the vehicle
+   * @return whether the vehicle is not inside the next intersection
+   */
+  private static boolean isBeforeIntersection(VehicleSimView vehicle,
+                                              Lane lane, Point2D pos) {
+    if (lane.getLaneIM().distanceToNextIntersection(pos) > 0) {
+      return true;
+    }
+    IntersectionManager im = lane.getLaneIM().nextIntersectionManager(pos);
+    return im == null || !im.intersects(vehicle.getShape().getBounds2D());
+  }
+}
@@ -0,0 +1,807 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.geom.Point2D;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import aim4.config.Constants.TurnDirection;
+import aim4.im.Intersection;
+import aim4.im.IntersectionManager;
+import aim4.map.BasicMap;
+import aim4.map.SpawnPoint;
+import aim4.map.lane.Lane;
+import aim4.msg.udp.Real2ProxyAdapter;
+import aim4.msg.udp.UdpHeader;
+import aim4.util.Util;
+
+/**
+ * A fleet of emulated real vehicles that talk to the proxy vehicles of a
+ * simulator over UDP.  It exercises {@link UdpListener}, the proxy vehicles
+ * and their drivers at scale without physical cars.
+ * <p>
+ * Each vehicle has its own datagram channel, whose socket address
+ * identifies the vehicle to the listener; the listener must therefore
+ * reply to the source ports of the datagrams (see
+ * {@link UdpListener#setVehicleUdpPort(int)}).  The vehicles are spread
+ * over the lanes of the spawn points of the map.  A vehicle drives along
+ * its lane at a constant velocity towards the first intersection and
+ * starts over at the beginning of the lane shortly before it reaches the
+ * intersection, streaming PV updates at a fixed rate.  It periodically
+ * requests a reservation for going straight through the intersection,
+ * cancels the reservation it holds before each request, and sends a done
+ * message for the reservation it holds when the fleet stops.
+ * <p>
+ * The fleet measures the round-trip latencies of the requests and counts
+ * the requests that receive no reply in time as lost.  The statistics
+ * should only be read after the fleet has stopped.
+ */
+public class RealVehicleFleet implements Runnable {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The VIN of the first emulated vehicle, which is well above the VINs of
+   * the simulated vehicles.
+   */
+  public static final int FIRST_VIN = 1000000;
+
+  /** The default velocity of the vehicles (m/s) */
+  public static final double DEFAULT_VELOCITY = 10.0;
+
+  /** The default number of PV updates per second of a vehicle */
+  public static final double DEFAULT_PV_UPDATE_RATE = 50.0;
+
+  /** The default time between the requests of a vehicle (seconds) */
+  public static final double DEFAULT_REQUEST_PERIOD = 1.0;
+
+  /**
+   * The default time after which a request without a reply is considered
+   * lost (seconds)
+   */
+  public static final double DEFAULT_REQUEST_TIMEOUT = 1.0;
+
+  /**
+   * The distance before the intersection at which a vehicle starts over
+   * at the beginning of its lane (meters)
+   */
+  private static final double TURNAROUND_DISTANCE = 5.0;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * An emulated real vehicle.
+   */
+  private static class EmulatedVehicle {
+    /** The VIN of the vehicle */
+    final int vin;
+    /** The lane of the vehicle */
+    final Lane lane;
+    /** The ID of the departure lane of the requests */
+    final int departureLaneId;
+    /** The distance from the beginning of the lane to the intersection */
+    final double distanceToIntersection;
+    /** The distance traveled on the lane at time zero */
+    final double initialDistance;
+    /** The time of the first request (seconds) */
+    final double firstRequestTime;
+    /** The datagram channel of the vehicle */
+    DatagramChannel channel;
+    /** The distance from the beginning of the lane */
+    double distance;
+    /** The time of the next request (seconds) */
+    double nextRequestTime;
+    /** The time at which the pending request was sent; -1 if none */
+    long requestNanoTime;
+    /** The ID of the reservation the vehicle holds; -1 if none */
+    int reservationId;
+
+    /**
+     * Create an emulated real vehicle.
+     *
+     * @param vin                     the VIN of the vehicle
+     * @param lane                    the lane of the vehicle
+     * @param departureLaneId         the ID of the departure lane of the
+     *                                requests
+     * @param distanceToIntersection  the distance from the beginning of the
+     *                                lane to the intersection
+     * @param initialDistance         the distance traveled on the lane at
+     *                                time zero
+     * @param firstRequestTime        the time of the first request
+     */
+    EmulatedVehicle(int vin, Lane lane, int departureLaneId,
+                    double distanceToIntersection, double initialDistance,
+                    double firstRequestTime) {
+      this.vin = vin;
+      this.lane = lane;
+      this.departureLaneId = departureLaneId;
+      this.distanceToIntersection = distanceToIntersection;
+      this.initialDistance = initialDistance;
+      this.firstRequestTime = firstRequestTime;
+      channel = null;
+      distance = initialDistance;
+      nextRequestTime = firstRequestTime;
+      requestNanoTime = -1;
+      reservationId = -1;
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The socket address of the UDP listener of the simulator */
+  private final SocketAddress listenerAddress;
+
+  /** The vehicles */
+  private final List<EmulatedVehicle> vehicles;
+
+  /** The velocity of the vehicles (m/s) */
+  private double velocity;
+
+  /** The number of PV updates per second of a vehicle */
+  private double pvUpdateRate;
+
+  /** The time between the requests of a vehicle (seconds) */
+  private double requestPeriod;
+
+  /** The time after which a request without a reply is lost (seconds) */
+  private double requestTimeout;
+
+  /** The selector of the channels of the vehicles */
+  private Selector selector;
+
+  /** The buffer of the outgoing datagrams */
+  private final ByteBuffer sendBuffer;
+
+  /** The buffer of the incoming datagrams */
+  private final ByteBuffer receiveBuffer;
+
+  /** The time at which the fleet started (nanoseconds) */
+  private long startNanoTime;
+
+  /** The round-trip latencies of the requests (nanoseconds) */
+  private long[] latencies;
+
+  /** The number of round-trip latencies */
+  private int numOfLatencies;
+
+  /** The number of PV updates sent */
+  private long numOfPVUpdates;
+
+  /** The number of requests sent */
+  private long numOfRequests;
+
+  /** The number of confirm messages received */
+  private long numOfConfirms;
+
+  /** The number of reject messages received */
+  private long numOfRejects;
+
+  /** The number of cancel messages sent */
+  private long numOfCancels;
+
+  /** The number of done messages sent */
+  private long numOfDones;
+
+  /** The number of requests that received no reply in time */
+  private long numOfLostRequests;
+
+  /** The number of replies that arrived after their requests were lost */
+  private long numOfLateReplies;
+
+  /** The number of datagrams that could not be sent */
+  private long numOfSendFailures;
+
+  /** The number of PV update periods missed because the fleet was late */
+  private long numOfMissedPeriods;
+
+  /** The thread of the fleet */
+  private volatile Thread blinker;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a fleet of emulated real vehicles.  The vehicles are assigned
+   * to the lanes of the spawn points of the map in turn, and spread along
+   * the lanes.
+   *
+   * @param map              the map
+   * @param size             the number of vehicles
+   * @param listenerAddress  the socket address of the UDP listener of the
+   *                         simulator
+   * @throws IllegalArgumentException if the size is not positive or the
+   *                                  lane of a spawn point does not lead
+   *                                  to an intersection
+   */
+  public RealVehicleFleet(BasicMap map, int size,
+                          SocketAddress listenerAddress) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("The size of the fleet must be "
+                                         + "positive");
+    }
+    this.listenerAddress = listenerAddress;
+    List<SpawnPoint> spawnPoints = map.getSpawnPoints();
+    vehicles = new ArrayList<EmulatedVehicle>(size);
+    for(int i = 0; i < size; i++) {
+      Lane lane = spawnPoints.get(i % spawnPoints.size()).getLane();
+      IntersectionManager im = lane.getLaneIM().firstIntersectionManager();
+      if (im == null) {
+        throw new IllegalArgumentException("Lane " + lane.getId()
+                                           + " does not lead to an "
+                                           + "intersection");
+      }
+      double distanceToIntersection =
+        lane.getLaneIM().distanceToFirstIntersection();
+      // spread the positions and the first requests of the vehicles
+      double fraction = (double)i / size;
+      vehicles.add(
+        new EmulatedVehicle(FIRST_VIN + i,
+                            lane,
+                            findStraightDepartureLaneId(lane,
+                                                        im.getIntersection()),
+                            distanceToIntersection,
+                            fraction * Math.max(0.0, distanceToIntersection
+                                                       - TURNAROUND_DISTANCE),
+                            // leave one period for the proxy vehicles to be
+                            // created before the first requests
+                            (1.0 + fraction) * DEFAULT_REQUEST_PERIOD));
+    }
+    velocity = DEFAULT_VELOCITY;
+    pvUpdateRate = DEFAULT_PV_UPDATE_RATE;
+    requestPeriod = DEFAULT_REQUEST_PERIOD;
+    requestTimeout = DEFAULT_REQUEST_TIMEOUT;
+    selector = null;
+    sendBuffer =
+      ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+    receiveBuffer =
+      ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+    latencies = new long[1024];
+    blinker = null;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  // settings
+
+  /**
+   * Set the velocity of the vehicles.
+   *
+   * @param velocity  the velocity of the vehicles (m/s)
+   */
+  public void setVelocity(double velocity) {
+    checkPositive("velocity", velocity);
+    this.velocity = velocity;
+  }
+
+  /**
+   * Set the number of PV updates per second of a vehicle.
+   *
+   * @param pvUpdateRate  the number of PV updates per second of a vehicle
+   */
+  public void setPVUpdateRate(double pvUpdateRate) {
+    checkPositive("PV update rate", pvUpdateRate);
+    this.pvUpdateRate = pvUpdateRate;
+  }
+
+  /**
+   * Set the time between the requests of a vehicle.  The first requests
+   * remain spread over the default period.
+   *
+   * @param requestPeriod  the time between the requests of a vehicle
+   *                       (seconds)
+   */
+  public void setRequestPeriod(double requestPeriod) {
+    checkPositive("request period", requestPeriod);
+    this.requestPeriod = requestPeriod;
+  }
+
+  /**
+   * Set the time after which a request without a reply is considered lost.
+   *
+   * @param requestTimeout  the time after which a request without a reply
+   *                        is considered lost (seconds)
+   */
+  public void setRequestTimeout(double requestTimeout) {
+    checkPositive("request timeout", requestTimeout);
+    this.requestTimeout = requestTimeout;
+  }
+
+  // start and stop the thread
+
+  /**
+   * Open the channels of the vehicles and start the fleet thread.
+   *
+   * @throws IOException if a channel cannot be opened
+   */
+  public synchronized void start() throws IOException {
+    assert blinker == null;
+    selector = Selector.open();
+    try {
+      for(EmulatedVehicle vehicle : vehicles) {
+        DatagramChannel ch = DatagramChannel.open();
+        vehicle.channel = ch;
+        ch.socket().bind(new InetSocketAddress("127.0.0.1", 0));
+        ch.configureBlocking(false);
+        ch.register(selector, SelectionKey.OP_READ, vehicle);
+      }
+    } catch(IOException e) {
+      closeChannels();
+      throw e;
+    }
+    startNanoTime = System.nanoTime();
+    blinker = new Thread(this, "AIM4 Real Vehicle Fleet");
+    blinker.start();
+  }
+
+  /**
+   * Whether or not the fleet thread has started and has not been stopped.
+   *
+   * @return whether or not the fleet thread is running
+   */
+  public synchronized boolean isRunning() {
+    return blinker != null;
+  }
+
+  /**
+   * Stop the fleet thread after the vehicles have sent their done
+   * messages, and wait for it to terminate.
+   */
+  public void stop() {
+    Thread thread;
+    synchronized(this) {
+      assert blinker != null;
+      thread = blinker;
+      blinker = null;
+    }
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void run() {
+    Thread thisThread = Thread.currentThread();
+    long period = (long)(1e9 / pvUpdateRate);
+    long nextTickTime = startNanoTime;
+
+    while (blinker == thisThread) {
+      long now = System.nanoTime();
+      if (now >= nextTickTime) {
+        tick(now);
+        nextTickTime += period;
+        if (nextTickTime <= System.nanoTime()) {
+          // the fleet is late; skip the missed periods
+          long missed = (System.nanoTime() - nextTickTime) / period + 1;
+          numOfMissedPeriods += missed;
+          nextTickTime += missed * period;
+        }
+      }
+      long timeout = (nextTickTime - System.nanoTime()) / 1000000L;
+      try {
+        if (timeout > 0) {
+          selector.select(timeout);
+        } else {
+          selector.selectNow();
+        }
+      } catch(IOException e) {
+        System.err.println("Error: the selector of the fleet failed.");
+        break;
+      }
+      receiveReplies();
+    }
+
+    // the requests still pending are neither answered nor lost
+    double time = (System.nanoTime() - startNanoTime) / 1e9;
+    for(EmulatedVehicle vehicle : vehicles) {
+      if (vehicle.reservationId >= 0) {
+        sendBuffer.clear();
+        Real2ProxyAdapter.writeDone(sendBuffer, time);
+        send(vehicle);
+        vehicle.reservationId = -1;
+        numOfDones++;
+      }
+    }
+    closeChannels();
+  }
+
+  // statistics
+
+  /**
+   * Get the number of vehicles.
+   *
+   * @return the number of vehicles
+   */
+  public int getSize() {
+    return vehicles.size();
+  }
+
+  /**
+   * Get the number of PV updates sent.
+   *
+   * @return the number of PV updates sent
+   */
+  public long getNumOfPVUpdates() {
+    return numOfPVUpdates;
+  }
+
+  /**
+   * Get the number of requests sent.
+   *
+   * @return the number of requests sent
+   */
+  public long getNumOfRequests() {
+    return numOfRequests;
+  }
+
+  /**
+   * Get the number of confirm messages received.
+   *
+   * @return the number of confirm messages received
+   */
+  public long getNumOfConfirms() {
+    return numOfConfirms;
+  }
+
+  /**
+   * Get the number of reject messages received.
+   *
+   * @return the number of reject messages received
+   */
+  public long getNumOfRejects() {
+    return numOfRejects;
+  }
+
+  /**
+   * Get the number of cancel messages sent.
+   *
+   * @return the number of cancel messages sent
+   */
+  public long getNumOfCancels() {
+    return numOfCancels;
+  }
+
+  /**
+   * Get the number of done messages sent.
+   *
+   * @return the number of done messages sent
+   */
+  public long getNumOfDones() {
+    return numOfDones;
+  }
+
+  /**
+   * Get the number of requests that received no reply in time.
+   *
+   * @return the number of lost requests
+   */
+  public long getNumOfLostRequests() {
+    return numOfLostRequests;
+  }
+
+  /**
+   * Get the number of replies that arrived after their requests were
+   * considered lost.
+   *
+   * @return the number of late replies
+   */
+  public long getNumOfLateReplies() {
+    return numOfLateReplies;
+  }
+
+  /**
+   * Get the number of datagrams that could not be sent.
+   *
+   * @return the number of datagrams that could not be sent
+   */
+  public long getNumOfSendFailures() {
+    return numOfSendFailures;
+  }
+
+  /**
+   * Get the number of PV update periods that were skipped because the
+   * fleet could not keep up with the PV update rate.
+   *
+   * @return the number of missed PV update periods
+   */
+  public long getNumOfMissedPeriods() {
+    return numOfMissedPeriods;
+  }
+
+  /**
+   * Get a percentile of the round-trip latencies of the requests.
+   *
+   * @param p  the percentile, between 0 and 100
+   * @return the percentile of the round-trip latencies in seconds;
+   *         NaN if no request has received a reply in time
+   */
+  public double getLatencyPercentile(double p) {
+    if (numOfLatencies == 0) {
+      return Double.NaN;
+    }
+    return Util.percentile(latencies, numOfLatencies, p) / 1e9;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Send the PV updates of the vehicles, and the requests and the cancel
+   * messages that are due.
+   *
+   * @param now  the current time (nanoseconds)
+   */
+  private void tick(long now) {
+    double time = (now - startNanoTime) / 1e9;
+    long timeout = (long)(requestTimeout * 1e9);
+    for(EmulatedVehicle vehicle : vehicles) {
+      double lapLength = Math.max(0.0, vehicle.distanceToIntersection
+                                       - TURNAROUND_DISTANCE);
+      vehicle.distance = (lapLength > 0.0)
+        ? (vehicle.initialDistance + velocity * time) % lapLength
+        : 0.0;
+      Point2D pos = vehicle.lane.getPointAtNormalizedDistance(
+                      vehicle.lane.normalizedDistance(vehicle.distance));
+      sendBuffer.clear();
+      Real2ProxyAdapter.writePVUpdate(vehicle.vin,
+                                      pos,
+                                      vehicle.lane.getInitialHeading(),
+                                      0.0,
+                                      velocity,
+                                      velocity,
+                                      0.0,
+                                      sendBuffer,
+                                      time);
+      send(vehicle);
+      numOfPVUpdates++;
+
+      if (vehicle.requestNanoTime >= 0
+          && now - vehicle.requestNanoTime > timeout) {
+        vehicle.requestNanoTime = -1;
+        numOfLostRequests++;
+      }
+      if (vehicle.requestNanoTime < 0 && time >= vehicle.nextRequestTime) {
+        if (vehicle.reservationId >= 0) {
+          sendBuffer.clear();
+          Real2ProxyAdapter.writeCancel(vehicle.reservationId, sendBuffer,
+                                        time);
+          send(vehicle);
+          vehicle.reservationId = -1;
+          numOfCancels++;
+        }
+        sendBuffer.clear();
+        Real2ProxyAdapter.writeRequest(vehicle.vin,
+                                       (vehicle.distanceToIntersection
+                                          - vehicle.distance) / velocity,
+                                       vehicle.departureLaneId,
+                                       velocity,
+                                       sendBuffer,
+                                       time);
+        vehicle.requestNanoTime = System.nanoTime();
+        send(vehicle);
+        numOfRequests++;
+        vehicle.nextRequestTime = time + requestPeriod;
+      }
+    }
+  }
+
+  /**
+   * Send the datagram in the send buffer from the channel of a vehicle to
+   * the listener.
+   *
+   * @param vehicle  the vehicle
+   */
+  private void send(EmulatedVehicle vehicle) {
+    sendBuffer.flip();
+    try {
+      if (vehicle.channel.send(sendBuffer, listenerAddress) == 0) {
+        // the socket buffer is full
+        numOfSendFailures++;
+      }
+    } catch(IOException e) {
+      numOfSendFailures++;
+    }
+  }
+
+  /**
+   * Receive the replies that have arrived at the channels of the vehicles.
+   */
+  private void receiveReplies() {
+    Iterator<SelectionKey> iter = selector.selectedKeys().iterator();
+    while (iter.hasNext()) {
+      SelectionKey key = iter.next();
+      iter.remove();
+      EmulatedVehicle vehicle = (EmulatedVehicle)key.attachment();
+      while (true) {
+        receiveBuffer.clear();
+        SocketAddress sa;
+        try {
+          sa = vehicle.channel.receive(receiveBuffer);
+        } catch(IOException e) {
+          break;
+        }
+        if (sa == null) {
+          break;
+        }
+        receiveBuffer.flip();
+        processReply(vehicle, receiveBuffer, System.nanoTime());
+      }
+    }
+  }
+
+  /**
+   * Process a reply to a vehicle.
+   *
+   * @param vehicle  the vehicle
+   * @param buf      the buffer holding the datagram
+   * @param now      the time at which the reply is received (nanoseconds)
+   */
+  private void processReply(EmulatedVehicle vehicle, ByteBuffer buf,
+                            long now) {
+    UdpHeader header;
+    int reservationId = -1;
+    try {
+      header = new UdpHeader(buf);
+      if (header.getMessageType() == UdpHeader.UdpMessageType.I2V_Confirm) {
+        reservationId = buf.getInt();
+      }
+    } catch(BufferUnderflowException e) {
+      System.err.println("Error: the fleet received a corrupted datagram.");
+      return;
+    } catch(IllegalArgumentException e) {
+      System.err.println("Error: the fleet received a corrupted datagram.");
+      return;
+    }
+
+    switch(header.getMessageType()) {
+    case I2V_Confirm:
+      numOfConfirms++;
+      break;
+    case I2V_Reject:
+      numOfRejects++;
+      break;
+    default:
+      // not a reply to a request
+      return;
+    }
+    if (vehicle.requestNanoTime >= 0) {
+      recordLatency(now - vehicle.requestNanoTime);
+      vehicle.requestNanoTime = -1;
+      vehicle.reservationId = reservationId;
+    } else {
+      numOfLateReplies++;
+      if (reservationId >= 0) {
+        // keep the reservation so that it is cancelled or done later
+        vehicle.reservationId = reservationId;
+      }
+    }
+  }
+
+  /**
+   * Record the round-trip latency of a request.
+   *
+   * @param latency  the latency (nanoseconds)
+   */
+  private void recordLatency(long latency) {
+    if (numOfLatencies == latencies.length) {
+      latencies = Arrays.copyOf(latencies, latencies.length * 2);
+    }
+    latencies[numOfLatencies++] = latency;
+  }
+
+  /**
+   * Close the selector and the channels of the vehicles.
+   */
+  private void closeChannels() {
+    for(EmulatedVehicle vehicle : vehicles) {
+      if (vehicle.channel != null) {
+        try {
+          vehicle.channel.close();
+        } catch(IOException e) {
+          System.err.println("Error: cannot close the UDP socket of a "
+                             + "vehicle.");
+        }
+        vehicle.channel = null;
+      }
+    }
+    if (selector != null) {
+      try {
+        selector.close();
+      } catch(IOException e) {
+        System.err.println("Error: cannot close the selector of the "
+                           + "fleet.");
+      }
+    }
+  }
+
+  /**
+   * Find the ID of the departure lane for going straight through an
+   * intersection.
+   *
+   * @param lane          the arrival lane
+   * @param intersection  the intersection
+   * @return the ID of the departure lane
+   */
+  private static int findStraightDepartureLaneId(Lane lane,
+                                                 Intersection intersection) {
+    List<Lane> exitLanes = intersection.getExitLanes();
+    if (exitLanes.contains(lane)) {
+      return lane.getId();
+    }
+    for(Lane exitLane : exitLanes) {
+      if (intersection.calcTurnDirection(lane, exitLane)
+          == TurnDirection.STRAIGHT) {
+        return exitLane.getId();
+      }
+    }
+    return lane.getId();
+  }
+
+  /**
+   * Check that a setting is positive.
+   *
+   * @param name   the name of the setting
+   * @param value  the value of the setting
+   * @throws IllegalArgumentException if the value is not positive
+   */
+  private static void checkPositive(String name, double value) {
+    if (!(value > 0.0)) {
+      throw new IllegalArgumentException("The " + name + " must be "
+                                         + "positive: " + value);
+    }
+  }
+}
@@ -0,0 +1,241 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.Color;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+import aim4.driver.pilot.V2IPilot;
+import aim4.map.BasicMap;
+import aim4.util.Util;
+import aim4.vehicle.VinRegistry;
+
+/**
+ * The context of a simulation.  It holds the states that are shared by the
+ * objects of the same simulation, such as the map, the VIN registry and the
+ * random seed, as well as the colors the GUI gives to the vehicles.  Each
+ * simulation has its own context so that several
+ * simulations can run concurrently in the same JVM.
+ * <p>
+ * The objects of a simulation do not share a random number generator.
+ * Instead, each of them draws from its own random stream, which is
+ * identified by the name of its subsystem and an index within the
+ * subsystem, and whose seed is derived from the random seed of the
+ * simulation.  Thus the random numbers an object receives depend neither
+ * on the other objects nor on the order in which they run.
+ */
+public class SimContext {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The random streams of the spawn spec generators, indexed by the ID of
+   * the lane of the spawn point.
+   */
+  public static final String SPAWN_STREAM = "spawn";
+  /**
+   * The random streams of the destination selectors, indexed by the ID of
+   * the lane of the spawn point that uses the selector.
+   */
+  public static final String DESTINATION_STREAM = "destination";
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The random seed of the simulation */
+  private long randSeed;
+  /** The VIN registry */
+  private VinRegistry vinRegistry;
+  /** The map */
+  private BasicMap map;
+  /** Whether or not the vehicle must stop before an intersection */
+  private boolean isMustStopBeforeIntersection;
+  /**
+   * The shortest distance before an intersection at which the vehicle stops
+   * if the vehicle can't enter the intersection immediately
+   */
+  private double stopDistBeforeIntersection;
+  /**
+   * A mapping from vehicle's VINs to the color of the vehicles.  The
+   * mapping is updated by the simulation and read by the GUI.
+   */
+  private Map<Integer,Color> vinToVehicleColor;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create the context of a simulation.
+   *
+   * @param randSeed  the random seed of the simulation
+   */
+  public SimContext(long randSeed) {
+    this.randSeed = randSeed;
+    this.vinRegistry = new VinRegistry();
+    this.map = null;
+    this.isMustStopBeforeIntersection = false;
+    this.stopDistBeforeIntersection =
+      V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION;
+    this.vinToVehicleColor = new ConcurrentHashMap<Integer,Color>();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the random seed of the simulation.
+   *
+   * @return the random seed of the simulation
+   */
+  public long getRandSeed() {
+    return randSeed;
+  }
+
+  /**
+   * Create the random number generator of a random stream.  The generators
+   * of the same stream produce the same random numbers.
+   *
+   * @param stream  the name of the subsystem of the stream
+   * @param index   the index of the stream within the subsystem
+   * @return the random number generator of the stream
+   */
+  public Random makeRandom(String stream, int index) {
+    // String.hashCode() is the same in every JVM
+    return new Random(Util.splitSeed(Util.splitSeed(randSeed,
+                                                    stream.hashCode()),
+                                     index));
+  }
+
+  /**
+   * Get the VIN registry.
+   *
+   * @return the VIN registry
+   */
+  public VinRegistry getVinRegistry() {
+    return vinRegistry;
+  }
+
+  /**
+   * Get the map.
+   *
+   * @return the map; null if the map has not been created
+   */
+  public BasicMap getMap() {
+    return map;
+  }
+
+  /**
+   * Set the map.  This function should only be called by the map.
+   *
+   * @param map  the map
+   */
+  public void setMap(BasicMap map) {
+    assert this.map == null : "The map of the context has already been set";
+    this.map = map;
+  }
+
+  /**
+   * Whether or not the vehicle must stop before an intersection.
+   *
+   * @return whether or not the vehicle must stop before an intersection
+   */
+  public boolean isMustStopBeforeIntersection() {
+    return isMustStopBeforeIntersection;
+  }
+
+  /**
+   * Set whether or not the vehicle must stop before an intersection.
+   *
+   * @param isMustStopBeforeIntersection  whether or not the vehicle must
+   *                                      stop before an intersection
+   */
+  public void setMustStopBeforeIntersection(
+      boolean isMustStopBeforeIntersection) {
+    this.isMustStopBeforeIntersection = isMustStopBeforeIntersection;
+  }
+
+  /**
+   * Get the stopping distance before intersection.
+   *
+   * @return the stopping distance before intersection
+   */
+  public double getStopDistBeforeIntersection() {
+    return stopDistBeforeIntersection;
+  }
+
+  /**
+   * Set the stopping distance before intersection.
+   *
+   * @param stopDistBeforeIntersection  the stopping distance before
+   *                                    intersection
+   */
+  public void setStopDistBeforeIntersection(
+      double stopDistBeforeIntersection) {
+    this.stopDistBeforeIntersection = stopDistBeforeIntersection;
+  }
+
+  /**
+   * Get the color of a vehicle.
+   *
+   * @param vin the VIN number of the vehicle
+   * @return the color of the vehicle; null if the vehicle has no color
+   */
+  public Color getVehicleColor(int vin) {
+    return vinToVehicleColor.get(vin);
+  }
+
+  /**
+   * Set the color of a vehicle.
+   *
+   * @param vin   the VIN number of the vehicle
+   * @param color the color of the vehicle
+   */
+  public void setVehicleColor(int vin, Color color) {
+    vinToVehicleColor.put(vin, color);
+  }
+
+  /**
+   * Remove the color assignment of a vehicle.
+   *
+   * @param vin the VIN number of the vehicle
+   */
+  public void removeVehicleColor(int vin) {
+    vinToVehicleColor.remove(vin);
+  }
+
+}
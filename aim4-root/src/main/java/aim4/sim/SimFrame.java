@@ -0,0 +1,611 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.Shape;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import aim4.config.Debug;
+import aim4.config.DebugPoint;
+import aim4.config.TrafficSignal;
+import aim4.driver.AutoDriver;
+import aim4.driver.coordinator.V2ICoordinator;
+import aim4.im.IntersectionManager;
+import aim4.im.v2i.V2IManager;
+import aim4.im.v2i.RequestHandler.TrafficSignalRequestHandler;
+import aim4.im.v2i.policy.BasePolicy;
+import aim4.im.v2i.policy.Policy;
+import aim4.map.lane.Lane;
+import aim4.msg.v2i.Request;
+import aim4.msg.v2i.V2IMessage;
+import aim4.vehicle.AutoVehicleSimView;
+import aim4.vehicle.VehicleSimView;
+import aim4.vehicle.VehicleSpecDatabase;
+
+/**
+ * An immutable snapshot of the state of a simulation at the end of a
+ * simulation step, for rendering.  The simulator publishes a new frame
+ * after every step, and the GUI draws the latest frame without locking the
+ * simulator or touching the live vehicle objects.  The vehicles are stored
+ * in parallel arrays in the ascending order of their VINs.
+ */
+public class SimFrame {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The state of the communication of a vehicle with the intersection
+   * manager.
+   */
+  public static enum VehicleState {
+    /** The vehicle is not waiting for a response and has no reservation */
+    DEFAULT,
+    /** The vehicle is waiting for the response to a request */
+    WAITING_FOR_RESPONSE,
+    /** The vehicle has a reservation */
+    HAS_RESERVATION,
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The arrival time of a vehicle whose request has no proposals.
+   */
+  public static final double NO_PROPOSALS = Double.NEGATIVE_INFINITY;
+
+  /** The number of coordinates of the corner points of a vehicle */
+  private static final int CORNER_COORDS = 8;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The simulation time */
+  private final double simulationTime;
+  /** The number of completed vehicles */
+  private final int numOfCompletedVehicles;
+  /** The average number of bits transmitted by the completed vehicles */
+  private final double avgBitsTransmittedByCompletedVehicles;
+  /** The average number of bits received by the completed vehicles */
+  private final double avgBitsReceivedByCompletedVehicles;
+
+  /** The VINs of the vehicles, in ascending order */
+  private final int[] vins;
+  /** The IDs of the vehicle specifications */
+  private final int[] specIds;
+  /** The x- and y-coordinates of the four corner points of the vehicles */
+  private final double[] corners;
+  /** The x-coordinates of the center points of the vehicles */
+  private final double[] centerXs;
+  /** The y-coordinates of the center points of the vehicles */
+  private final double[] centerYs;
+  /** The velocities of the vehicles */
+  private final double[] velocities;
+  /** The accelerations of the vehicles */
+  private final double[] accelerations;
+  /** The communication states of the vehicles */
+  private final VehicleState[] states;
+  /**
+   * The arrival times in the last requests of the vehicles; NaN if the
+   * vehicle has no outstanding request
+   */
+  private final double[] arrivalTimes;
+  /** The numbers of bits transmitted by the vehicles */
+  private final int[] bitsTransmitted;
+  /** The numbers of bits received by the vehicles */
+  private final int[] bitsReceived;
+
+  /** The VIN of the target vehicle when the frame was taken */
+  private final int targetVIN;
+  /** The wheel shapes of the target vehicle; null if it is not active */
+  private final Shape[] targetWheelShapes;
+
+  /** The x-coordinates of the traffic lights */
+  private final double[] lightXs;
+  /** The y-coordinates of the traffic lights */
+  private final double[] lightYs;
+  /** The headings of the entry lanes of the traffic lights */
+  private final double[] lightHeadings;
+  /** The signals of the traffic lights */
+  private final TrafficSignal[] lightSignals;
+
+  /** The debug shapes of the intersection managers */
+  private final List<Shape> imDebugShapes;
+  /** The long-term and the short-term debug points */
+  private final List<DebugPoint> debugPoints;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Take a snapshot of a simulation.  It must be called by the simulation
+   * thread between two simulation steps.
+   *
+   * @param simulationTime                         the simulation time
+   * @param numOfCompletedVehicles                 the number of completed
+   *                                               vehicles
+   * @param avgBitsTransmittedByCompletedVehicles  the average number of bits
+   *                                               transmitted by the
+   *                                               completed vehicles
+   * @param avgBitsReceivedByCompletedVehicles     the average number of bits
+   *                                               received by the completed
+   *                                               vehicles
+   * @param vehicles                               the active vehicles, in
+   *                                               ascending order of VINs
+   * @param ims                                    the intersection managers
+   */
+  public SimFrame(double simulationTime,
+                  int numOfCompletedVehicles,
+                  double avgBitsTransmittedByCompletedVehicles,
+                  double avgBitsReceivedByCompletedVehicles,
+                  List<VehicleSimView> vehicles,
+                  List<IntersectionManager> ims) {
+    this.simulationTime = simulationTime;
+    this.numOfCompletedVehicles = numOfCompletedVehicles;
+    this.avgBitsTransmittedByCompletedVehicles =
+      avgBitsTransmittedByCompletedVehicles;
+    this.avgBitsReceivedByCompletedVehicles =
+      avgBitsReceivedByCompletedVehicles;
+
+    int n = vehicles.size();
+    vins = new int[n];
+    specIds = new int[n];
+    corners = new double[n * CORNER_COORDS];
+    centerXs = new double[n];
+    centerYs = new double[n];
+    velocities = new double[n];
+    accelerations = new double[n];
+    states = new VehicleState[n];
+    arrivalTimes = new double[n];
+    bitsTransmitted = new int[n];
+    bitsReceived = new int[n];
+    targetVIN = Debug.getTargetVIN();
+    Shape[] wheels = null;
+    for(int i = 0; i < n; i++) {
+      VehicleSimView vehicle = vehicles.get(i);
+      vins[i] = vehicle.getVIN();
+      specIds[i] = VehicleSpecDatabase.getIdOfVehicleSpec(vehicle.getSpec());
+      Point2D[] points = vehicle.getCornerPoints();
+      for(int j = 0; j < 4; j++) {
+        corners[i * CORNER_COORDS + 2 * j] = points[j].getX();
+        corners[i * CORNER_COORDS + 2 * j + 1] = points[j].getY();
+      }
+      Point2D centerPoint = vehicle.getCenterPoint();
+      centerXs[i] = centerPoint.getX();
+      centerYs[i] = centerPoint.getY();
+      velocities[i] = vehicle.getVelocity();
+      accelerations[i] = vehicle.getAcceleration();
+      states[i] = VehicleState.DEFAULT;
+      arrivalTimes[i] = Double.NaN;
+      if (vehicle instanceof AutoVehicleSimView) {
+        AutoVehicleSimView autoVehicle = (AutoVehicleSimView) vehicle;
+        bitsTransmitted[i] = autoVehicle.getBitsTransmitted();
+        bitsReceived[i] = autoVehicle.getBitsReceived();
+        captureRequest(i, autoVehicle);
+      }
+      if (vins[i] == targetVIN) {
+        wheels = vehicle.getWheelShapes();
+      }
+    }
+    targetWheelShapes = wheels;
+
+    List<double[]> lights = new ArrayList<double[]>();
+    List<TrafficSignal> signals = new ArrayList<TrafficSignal>();
+    List<Shape> shapes = new ArrayList<Shape>();
+    for(IntersectionManager im : ims) {
+      shapes.addAll(im.getDebugShapes());
+      captureTrafficLights(im, lights, signals);
+    }
+    lightXs = new double[lights.size()];
+    lightYs = new double[lights.size()];
+    lightHeadings = new double[lights.size()];
+    lightSignals = signals.toArray(new TrafficSignal[signals.size()]);
+    for(int i = 0; i < lights.size(); i++) {
+      lightXs[i] = lights.get(i)[0];
+      lightYs[i] = lights.get(i)[1];
+      lightHeadings[i] = lights.get(i)[2];
+    }
+    imDebugShapes = Collections.unmodifiableList(shapes);
+
+    List<DebugPoint> points =
+      new ArrayList<DebugPoint>(Debug.getLongTermDebugPoints());
+    points.addAll(Debug.getShortTermDebugPoints());
+    debugPoints = Collections.unmodifiableList(points);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the simulation time.
+   *
+   * @return the simulation time
+   */
+  public double getSimulationTime() {
+    return simulationTime;
+  }
+
+  /**
+   * Get the number of completed vehicles.
+   *
+   * @return the number of completed vehicles
+   */
+  public int getNumCompletedVehicles() {
+    return numOfCompletedVehicles;
+  }
+
+  /**
+   * Get the average number of bits transmitted by the completed vehicles.
+   *
+   * @return the average number of bits transmitted by the completed vehicles
+   */
+  public double getAvgBitsTransmittedByCompletedVehicles() {
+    return avgBitsTransmittedByCompletedVehicles;
+  }
+
+  /**
+   * Get the average number of bits received by the completed vehicles.
+   *
+   * @return the average number of bits received by the completed vehicles
+   */
+  public double getAvgBitsReceivedByCompletedVehicles() {
+    return avgBitsReceivedByCompletedVehicles;
+  }
+
+  // vehicles
+
+  /**
+   * Get the number of vehicles in the frame.
+   *
+   * @return the number of vehicles
+   */
+  public int getNumOfVehicles() {
+    return vins.length;
+  }
+
+  /**
+   * Find the index of a vehicle in the frame.
+   *
+   * @param vin  the VIN of the vehicle
+   * @return the index of the vehicle; -1 if the vehicle is not in the frame
+   */
+  public int indexOfVIN(int vin) {
+    int lo = 0;
+    int hi = vins.length - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      if (vins[mid] < vin) {
+        lo = mid + 1;
+      } else if (vins[mid] > vin) {
+        hi = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the vehicle whose shape contains a given point.
+   *
+   * @param p  the point
+   * @return the index of the vehicle; -1 if there is no such vehicle
+   */
+  public int indexOfVehicleAt(Point2D p) {
+    for(int i = 0; i < vins.length; i++) {
+      if (getShape(i).contains(p)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Get the VIN of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the VIN of the vehicle
+   */
+  public int getVIN(int i) {
+    return vins[i];
+  }
+
+  /**
+   * Get the ID of the specification of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the ID of the vehicle specification; -1 if the specification
+   *         has not been registered
+   */
+  public int getSpecId(int i) {
+    return specIds[i];
+  }
+
+  /**
+   * Get the shape of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the shape of the vehicle
+   */
+  public Shape getShape(int i) {
+    int k = i * CORNER_COORDS;
+    Path2D.Double shape = new Path2D.Double(Path2D.WIND_NON_ZERO, 4);
+    shape.moveTo(corners[k], corners[k + 1]);
+    for(int j = 2; j < CORNER_COORDS; j += 2) {
+      shape.lineTo(corners[k + j], corners[k + j + 1]);
+    }
+    shape.closePath();
+    return shape;
+  }
+
+  /**
+   * Get the x-coordinate of the center point of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the x-coordinate of the center point
+   */
+  public double getCenterX(int i) {
+    return centerXs[i];
+  }
+
+  /**
+   * Get the y-coordinate of the center point of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the y-coordinate of the center point
+   */
+  public double getCenterY(int i) {
+    return centerYs[i];
+  }
+
+  /**
+   * Get the velocity of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the velocity of the vehicle
+   */
+  public double getVelocity(int i) {
+    return velocities[i];
+  }
+
+  /**
+   * Get the acceleration of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the acceleration of the vehicle
+   */
+  public double getAcceleration(int i) {
+    return accelerations[i];
+  }
+
+  /**
+   * Get the communication state of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the communication state of the vehicle
+   */
+  public VehicleState getState(int i) {
+    return states[i];
+  }
+
+  /**
+   * Get the arrival time in the last request of a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the arrival time of the first proposal; {@link #NO_PROPOSALS} if
+   *         the request has no proposals; NaN if the vehicle is neither
+   *         waiting for a response nor holding a reservation
+   */
+  public double getArrivalTime(int i) {
+    return arrivalTimes[i];
+  }
+
+  /**
+   * Get the number of bits transmitted by a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the number of bits transmitted
+   */
+  public int getBitsTransmitted(int i) {
+    return bitsTransmitted[i];
+  }
+
+  /**
+   * Get the number of bits received by a vehicle.
+   *
+   * @param i  the index of the vehicle
+   * @return the number of bits received
+   */
+  public int getBitsReceived(int i) {
+    return bitsReceived[i];
+  }
+
+  /**
+   * Get the wheel shapes of a vehicle.  Only the wheel shapes of the target
+   * vehicle at the time the frame was taken are available.
+   *
+   * @param i  the index of the vehicle
+   * @return the wheel shapes of the vehicle; null if they are not available
+   */
+  public Shape[] getWheelShapes(int i) {
+    return (vins[i] == targetVIN) ? targetWheelShapes : null;
+  }
+
+  // intersection managers
+
+  /**
+   * Get the number of traffic lights.
+   *
+   * @return the number of traffic lights
+   */
+  public int getNumOfTrafficLights() {
+    return lightSignals.length;
+  }
+
+  /**
+   * Get the x-coordinate of a traffic light.
+   *
+   * @param i  the index of the traffic light
+   * @return the x-coordinate of the entry point of the lane of the light
+   */
+  public double getTrafficLightX(int i) {
+    return lightXs[i];
+  }
+
+  /**
+   * Get the y-coordinate of a traffic light.
+   *
+   * @param i  the index of the traffic light
+   * @return the y-coordinate of the entry point of the lane of the light
+   */
+  public double getTrafficLightY(int i) {
+    return lightYs[i];
+  }
+
+  /**
+   * Get the heading of the entry lane of a traffic light.
+   *
+   * @param i  the index of the traffic light
+   * @return the heading of the entry lane at the entry point
+   */
+  public double getTrafficLightHeading(int i) {
+    return lightHeadings[i];
+  }
+
+  /**
+   * Get the signal of a traffic light.
+   *
+   * @param i  the index of the traffic light
+   * @return the signal of the traffic light
+   */
+  public TrafficSignal getTrafficSignal(int i) {
+    return lightSignals[i];
+  }
+
+  /**
+   * Get the debug shapes of the intersection managers.
+   *
+   * @return the debug shapes of the intersection managers
+   */
+  public List<Shape> getIMDebugShapes() {
+    return imDebugShapes;
+  }
+
+  /**
+   * Get the long-term and the short-term debug points.
+   *
+   * @return the debug points
+   */
+  public List<DebugPoint> getDebugPoints() {
+    return debugPoints;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Record the communication state of a vehicle and the arrival time of its
+   * last request.
+   *
+   * @param i        the index of the vehicle
+   * @param vehicle  the vehicle
+   */
+  private void captureRequest(int i, AutoVehicleSimView vehicle) {
+    AutoDriver driver = vehicle.getDriver();
+    if (driver == null) {
+      return;
+    }
+    if (!(driver.getCurrentCoordinator() instanceof V2ICoordinator)) {
+      return;
+    }
+    V2ICoordinator coordinator =
+      (V2ICoordinator) driver.getCurrentCoordinator();
+    if (coordinator.isAwaitingResponse()) {
+      states[i] = VehicleState.WAITING_FOR_RESPONSE;
+    } else if (coordinator.getReservationParameter() != null) {
+      states[i] = VehicleState.HAS_RESERVATION;
+    } else {
+      return;
+    }
+    V2IMessage msg = vehicle.getLastV2IMessage();
+    if (msg instanceof Request) {
+      Request request = (Request) msg;
+      if (request.getProposals().size() > 0) {
+        // one arrival time is enough.
+        arrivalTimes[i] = request.getProposals().get(0).getArrivalTime();
+      } else {
+        arrivalTimes[i] = NO_PROPOSALS;
+      }
+    } // else ignore other types of messages
+  }
+
+  /**
+   * Record the traffic lights of an intersection manager.
+   *
+   * @param im       the intersection manager
+   * @param lights   the list to which the position and the heading of the
+   *                 lights are added
+   * @param signals  the list to which the signals of the lights are added
+   */
+  private static void captureTrafficLights(IntersectionManager im,
+                                           List<double[]> lights,
+                                           List<TrafficSignal> signals) {
+    if (im instanceof V2IManager) {
+      Policy policy = ((V2IManager) im).getPolicy();
+      if (policy instanceof BasePolicy) {
+        BasePolicy basePolicy = (BasePolicy) policy;
+        if (basePolicy.getRequestHandler()
+            instanceof TrafficSignalRequestHandler) {
+          TrafficSignalRequestHandler requestHandler =
+            (TrafficSignalRequestHandler) basePolicy.getRequestHandler();
+          for(Lane entryLane : im.getIntersection().getEntryLanes()) {
+            Point2D p = im.getIntersection().getEntryPoint(entryLane);
+            lights.add(new double[] {
+              p.getX(), p.getY(),
+              im.getIntersection().getEntryHeading(entryLane) });
+            signals.add(requestHandler.getSignal(entryLane.getId()));
+          }
+        }
+      }
+    }
+  }
+}
@@ -104,10 +104,41 @@ public interface Simulator {
    */
   VehicleSimView getActiveVehicle(int vin);
 
+  /**
+   * Set whether the simulator publishes a snapshot of the simulation at the
+   * end of every simulation step.  A snapshot is published immediately when
+   * the publishing is turned on.
+   *
+   * @param isFramePublishing  whether the simulator publishes snapshots
+   */
+  void setFramePublishing(boolean isFramePublishing);
+
+  /**
+   * Get the latest snapshot of the simulation.  It does not block the
+   * simulation thread and can be called by any thread.
+   *
+   * @return the latest snapshot; null if no snapshot has been published
+   */
+  SimFrame getLatestFrame();
+
   /**
    * Add the proxy vehicle to the simulator for the mixed reality experiments.
    *
    * @param vehicle  the proxy vehicle
    */
   void addProxyVehicle(ProxyVehicleSimView vehicle);
+
+  /**
+   * Set the UDP listener whose queued messages the simulator processes at
+   * the beginning of every step.
+   *
+   * @param udpListener  the UDP listener; null if there is none
+   */
+  void setUdpListener(UdpListener udpListener);
+
+  /**
+   * Release the threads of the simulator.  The simulator can still be
+   * stepped afterwards, but only on the calling thread.
+   */
+  void close();
 }
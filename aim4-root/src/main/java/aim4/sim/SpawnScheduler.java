@@ -0,0 +1,399 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import aim4.map.ArrivalTraceWriter;
+import aim4.map.SpawnPoint;
+import aim4.map.SpawnPoint.ScheduledSpawnSpecGenerator;
+import aim4.map.SpawnPoint.SpawnSpec;
+import aim4.map.SpawnPoint.SpawnSpecGenerator;
+
+/**
+ * The scheduler of the arrivals at the spawn points of a map.
+ * <p>
+ * The next arrivals of the spawn points whose generators schedule their
+ * arrivals in advance (see {@link ScheduledSpawnSpecGenerator}) are kept
+ * in a min-heap, so that a step in which no arrival is due costs a look
+ * at the top of the heap.  The generators of the other spawn points are
+ * asked at every step as before.
+ * <p>
+ * An arrival waits in the queue of its spawn point until the spawn point
+ * is clear, instead of being dropped; at most one vehicle is spawned at a
+ * spawn point in each step.  Hence the realized arrival rates are the
+ * rates of the generators even if the spawn points are often blocked.
+ * If the demand at a spawn point stays above the rate at which it can
+ * release vehicles, its queue grows without bound; a warning is printed
+ * each time the queue of a spawn point reaches
+ * {@link #BACKLOG_WARNING_DEPTH} times a power of two, and the largest
+ * queue is reported by {@link #getMaxQueueDepth()}.
+ * <p>
+ * The arrivals can be recorded to an arrival trace, in the order of their
+ * times, so that the same demand can be replayed in another run.
+ */
+public class SpawnScheduler {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The number of arrivals waiting at a spawn point at which the first
+   * warning about the backlog of the spawn point is printed. {@value}
+   */
+  public static final int BACKLOG_WARNING_DEPTH = 100;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * The state of a spawn point.
+   */
+  private static class Entry {
+    /** The index of the spawn point */
+    final int index;
+    /** The spawn point */
+    final SpawnPoint spawnPoint;
+    /** The generator if its arrivals are scheduled; null if otherwise */
+    final ScheduledSpawnSpecGenerator generator;
+    /** The arrivals waiting to be spawned */
+    final ArrayDeque<SpawnSpec> waitingSpawns;
+    /** The time of the next arrival when the entry entered the heap */
+    double nextArrivalTime;
+    /** The number of waiting arrivals at which the next warning is printed */
+    int warningDepth;
+
+    /**
+     * Create the state of a spawn point.
+     *
+     * @param index       the index of the spawn point
+     * @param spawnPoint  the spawn point
+     */
+    Entry(int index, SpawnPoint spawnPoint) {
+      this.index = index;
+      this.spawnPoint = spawnPoint;
+      SpawnSpecGenerator g = spawnPoint.getVehicleSpecChooser();
+      this.generator = (g instanceof ScheduledSpawnSpecGenerator)
+                       ? (ScheduledSpawnSpecGenerator)g : null;
+      this.waitingSpawns = new ArrayDeque<SpawnSpec>();
+      this.nextArrivalTime = Double.POSITIVE_INFINITY;
+      this.warningDepth = BACKLOG_WARNING_DEPTH;
+    }
+  }
+
+  /**
+   * An arrival at a spawn point, to be recorded.
+   */
+  private static class Arrival {
+    /** The state of the spawn point */
+    final Entry entry;
+    /** The spawn spec of the arrival */
+    final SpawnSpec spawnSpec;
+
+    /**
+     * Create an arrival at a spawn point.
+     *
+     * @param entry      the state of the spawn point
+     * @param spawnSpec  the spawn spec of the arrival
+     */
+    Arrival(Entry entry, SpawnSpec spawnSpec) {
+      this.entry = entry;
+      this.spawnSpec = spawnSpec;
+    }
+  }
+
+  /**
+   * The order of the recorded arrivals in a time step: the earliest arrival
+   * first, and then the lowest index of the spawn point.
+   */
+  private static final Comparator<Arrival> ARRIVAL_ORDER =
+    new Comparator<Arrival>() {
+      @Override
+      public int compare(Arrival a1, Arrival a2) {
+        int c = Double.compare(a1.spawnSpec.getSpawnTime(),
+                               a2.spawnSpec.getSpawnTime());
+        return (c != 0) ? c : (a1.entry.index - a2.entry.index);
+      }
+    };
+
+  /**
+   * The order of the entries in the heap: the earliest next arrival first,
+   * and then the lowest index of the spawn point.
+   */
+  private static final Comparator<Entry> NEXT_ARRIVAL_ORDER =
+    new Comparator<Entry>() {
+      @Override
+      public int compare(Entry e1, Entry e2) {
+        int c = Double.compare(e1.nextArrivalTime, e2.nextArrivalTime);
+        return (c != 0) ? c : (e1.index - e2.index);
+      }
+    };
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The states of the spawn points, in the order of the spawn points */
+  private final List<Entry> entries;
+
+  /** The spawn points whose generators are asked at every step */
+  private final List<Entry> polledEntries;
+
+  /** The spawn points with scheduled arrivals, by their next arrivals */
+  private final PriorityQueue<Entry> nextArrivals;
+
+  /** The current time */
+  private double currentTime;
+
+  /** The number of arrivals waiting to be spawned */
+  private int numOfWaitingSpawns;
+
+  /** The total number of arrivals */
+  private long numOfArrivals;
+
+  /** The largest number of arrivals that have waited at one spawn point */
+  private int maxQueueDepth;
+
+  /** The writer of the arrivals; null if the arrivals are not recorded */
+  private ArrivalTraceWriter arrivalWriter;
+
+  /** The arrivals in the current time step, if they are recorded */
+  private final List<Arrival> stepArrivals;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a scheduler of the arrivals at the spawn points.  The spawn
+   * spec generators must have been set to the spawn points.
+   *
+   * @param spawnPoints  the spawn points
+   * @param currentTime  the current time
+   */
+  public SpawnScheduler(List<SpawnPoint> spawnPoints, double currentTime) {
+    this.entries = new ArrayList<Entry>(spawnPoints.size());
+    this.polledEntries = new ArrayList<Entry>();
+    this.nextArrivals =
+      new PriorityQueue<Entry>(Math.max(1, spawnPoints.size()),
+                               NEXT_ARRIVAL_ORDER);
+    this.currentTime = currentTime;
+    for(SpawnPoint spawnPoint : spawnPoints) {
+      Entry entry = new Entry(entries.size(), spawnPoint);
+      entries.add(entry);
+      if (entry.generator != null) {
+        entry.nextArrivalTime = entry.generator.getNextArrivalTime();
+        if (entry.nextArrivalTime < Double.POSITIVE_INFINITY) {
+          nextArrivals.add(entry);
+        }
+      } else if (spawnPoint.getVehicleSpecChooser() != null) {
+        polledEntries.add(entry);
+      }
+    }
+    numOfWaitingSpawns = 0;
+    numOfArrivals = 0;
+    maxQueueDepth = 0;
+    arrivalWriter = null;
+    stepArrivals = new ArrayList<Arrival>();
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Record the arrivals from now on.  The writer is not closed by the
+   * scheduler.
+   *
+   * @param arrivalWriter  the writer of the arrivals; null if the arrivals
+   *                       should not be recorded
+   */
+  public void setArrivalWriter(ArrivalTraceWriter arrivalWriter) {
+    this.arrivalWriter = arrivalWriter;
+  }
+
+  /**
+   * Advance the time step, and put the arrivals in the time step in the
+   * queues of their spawn points.
+   *
+   * @param timeStep  the time step
+   */
+  public void act(double timeStep) {
+    double endTime = currentTime + timeStep;
+    for(Entry entry : polledEntries) {
+      for(SpawnSpec spawnSpec : entry.spawnPoint.act(timeStep)) {
+        addWaitingSpawn(entry, spawnSpec);
+      }
+    }
+    while (!nextArrivals.isEmpty()
+           && nextArrivals.peek().nextArrivalTime < endTime) {
+      Entry entry = nextArrivals.poll();
+      // the arrivals of the spawn point in this time step
+      while (entry.generator.getNextArrivalTime() < endTime) {
+        addWaitingSpawn(entry,
+                        entry.generator.nextArrival(entry.spawnPoint));
+      }
+      entry.nextArrivalTime = entry.generator.getNextArrivalTime();
+      if (entry.nextArrivalTime < Double.POSITIVE_INFINITY) {
+        nextArrivals.add(entry);
+      }
+    }
+    for(Entry entry : entries) {
+      if (entry.generator != null) {
+        entry.spawnPoint.advance(timeStep);
+      }
+    }
+    if (!stepArrivals.isEmpty()) {
+      writeArrivals();
+    }
+    currentTime = endTime;
+  }
+
+  /**
+   * Get the number of spawn points.
+   *
+   * @return the number of spawn points
+   */
+  public int getNumOfSpawnPoints() {
+    return entries.size();
+  }
+
+  /**
+   * Get a spawn point.
+   *
+   * @param i  the index of the spawn point
+   * @return the spawn point
+   */
+  public SpawnPoint getSpawnPoint(int i) {
+    return entries.get(i).spawnPoint;
+  }
+
+  /**
+   * Get the earliest arrival waiting to be spawned at a spawn point.
+   *
+   * @param i  the index of the spawn point
+   * @return the earliest arrival waiting to be spawned at the spawn point;
+   *         null if there is none
+   */
+  public SpawnSpec peekWaitingSpawn(int i) {
+    return entries.get(i).waitingSpawns.peek();
+  }
+
+  /**
+   * Remove the earliest arrival waiting to be spawned at a spawn point,
+   * after it has been spawned.
+   *
+   * @param i  the index of the spawn point
+   */
+  public void removeWaitingSpawn(int i) {
+    entries.get(i).waitingSpawns.remove();
+    numOfWaitingSpawns--;
+  }
+
+  /**
+   * Get the number of arrivals waiting to be spawned.
+   *
+   * @return the number of arrivals waiting to be spawned
+   */
+  public int getNumOfWaitingSpawns() {
+    return numOfWaitingSpawns;
+  }
+
+  /**
+   * Get the total number of arrivals so far.
+   *
+   * @return the total number of arrivals so far
+   */
+  public long getNumOfArrivals() {
+    return numOfArrivals;
+  }
+
+  /**
+   * Get the largest number of arrivals that have waited at one spawn point
+   * so far.
+   *
+   * @return the largest number of arrivals that have waited at one spawn
+   *         point
+   */
+  public int getMaxQueueDepth() {
+    return maxQueueDepth;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Put an arrival in the queue of its spawn point.
+   *
+   * @param entry      the state of the spawn point
+   * @param spawnSpec  the spawn spec of the arrival
+   */
+  private void addWaitingSpawn(Entry entry, SpawnSpec spawnSpec) {
+    entry.waitingSpawns.add(spawnSpec);
+    numOfWaitingSpawns++;
+    numOfArrivals++;
+    if (arrivalWriter != null) {
+      stepArrivals.add(new Arrival(entry, spawnSpec));
+    }
+    int depth = entry.waitingSpawns.size();
+    if (depth > maxQueueDepth) {
+      maxQueueDepth = depth;
+    }
+    if (depth >= entry.warningDepth) {
+      System.err.printf("Warning: %d arrivals are waiting at the spawn point "
+                        + "of lane %d at time %.2f\n",
+                        depth, entry.spawnPoint.getLane().getId(),
+                        currentTime);
+      entry.warningDepth *= 2;
+    }
+  }
+
+  /**
+   * Write the arrivals in the current time step in the order of their
+   * times.
+   */
+  private void writeArrivals() {
+    Collections.sort(stepArrivals, ARRIVAL_ORDER);
+    for(Arrival arrival : stepArrivals) {
+      arrivalWriter.write(arrival.entry.spawnPoint.getLane().getId(),
+                          arrival.spawnSpec);
+    }
+    stepArrivals.clear();
+  }
+}
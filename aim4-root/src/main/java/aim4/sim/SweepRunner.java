@@ -0,0 +1,207 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import aim4.sim.setup.SimFactory;
+import aim4.sim.setup.SimSetup;
+
+/**
+ * A runner that runs a sweep of headless simulations of the same setup with
+ * different random seeds.  The simulations run concurrently on a fixed
+ * number of threads; each simulation has its own context, so the results
+ * do not depend on the number of threads.
+ */
+public class SweepRunner {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The simulation setup */
+  private SimSetup simSetup;
+  /** The target simulation time; non-positive if there is no such target */
+  private double targetSimTime;
+  /**
+   * The target number of completed vehicles; non-positive if there is no
+   * such target
+   */
+  private int targetNumOfCompletedVehicles;
+  /** The number of threads */
+  private int numOfThreads;
+  /** The name of the data collection line output file; null if none */
+  private String dclFileName;
+  /** The prefix of the intersection manager output files; null if none */
+  private String imFilePrefix;
+  /** The name of the arrival trace output file; null if none */
+  private String arrivalFileName;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a sweep runner.
+   *
+   * @param simSetup                      the simulation setup
+   * @param targetSimTime                 the simulation time at which each
+   *                                      run stops; non-positive if there is
+   *                                      no such target
+   * @param targetNumOfCompletedVehicles  the number of completed vehicles at
+   *                                      which each run stops; non-positive
+   *                                      if there is no such target
+   * @param numOfThreads                  the number of threads
+   */
+  public SweepRunner(SimSetup simSetup,
+                     double targetSimTime,
+                     int targetNumOfCompletedVehicles,
+                     int numOfThreads) {
+    if (numOfThreads < 1) {
+      throw new IllegalArgumentException("The number of threads must be "
+                                         + "positive");
+    }
+    this.simSetup = simSetup;
+    this.targetSimTime = targetSimTime;
+    this.targetNumOfCompletedVehicles = targetNumOfCompletedVehicles;
+    this.numOfThreads = numOfThreads;
+    this.dclFileName = null;
+    this.imFilePrefix = null;
+    this.arrivalFileName = null;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Set the output files.  The index of a run is appended to the name of
+   * the data collection line output file and to the prefix of the
+   * intersection manager output files of the run.
+   *
+   * @param dclFileName   the name of the data collection line output file;
+   *                      null if the data should not be printed
+   * @param imFilePrefix  the prefix of the intersection manager output files;
+   *                      null if the data should not be printed
+   */
+  public void setOutput(String dclFileName, String imFilePrefix) {
+    this.dclFileName = dclFileName;
+    this.imFilePrefix = imFilePrefix;
+  }
+
+  /**
+   * Set the file to which the arrivals at the spawn points are recorded.
+   * The index of a run is appended to the name of the file of the run.
+   *
+   * @param arrivalFileName  the name of the arrival trace output file; null
+   *                         if the arrivals should not be recorded
+   */
+  public void setArrivalOutput(String arrivalFileName) {
+    this.arrivalFileName = arrivalFileName;
+  }
+
+  /**
+   * Run one simulation for each random seed.
+   *
+   * @param randSeeds  the random seeds
+   * @return the results of the runs, in the order of the random seeds
+   */
+  public List<HeadlessRunner.Result> run(List<Long> randSeeds) {
+    ExecutorService executor = Executors.newFixedThreadPool(numOfThreads);
+    try {
+      List<Future<HeadlessRunner.Result>> futures =
+        new ArrayList<Future<HeadlessRunner.Result>>(randSeeds.size());
+      for(int i = 0; i < randSeeds.size(); i++) {
+        futures.add(executor.submit(makeRun(i, randSeeds.get(i))));
+      }
+      List<HeadlessRunner.Result> results =
+        new ArrayList<HeadlessRunner.Result>(randSeeds.size());
+      for(Future<HeadlessRunner.Result> future : futures) {
+        results.add(future.get());
+      }
+      return results;
+    } catch(InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("The sweep has been interrupted", e);
+    } catch(ExecutionException e) {
+      throw new RuntimeException("A run of the sweep has failed",
+                                 e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Make a task that runs a simulation.
+   *
+   * @param index     the index of the run
+   * @param randSeed  the random seed of the run
+   * @return the task
+   */
+  private Callable<HeadlessRunner.Result> makeRun(final int index,
+                                                  final long randSeed) {
+    return new Callable<HeadlessRunner.Result>() {
+      @Override
+      public HeadlessRunner.Result call() {
+        Simulator sim = SimFactory.makeSimulator(simSetup, randSeed);
+        try {
+          HeadlessRunner runner =
+            new HeadlessRunner(sim, targetSimTime,
+                               targetNumOfCompletedVehicles);
+          if (dclFileName != null) {
+            runner.streamDataCollectionLinesData(dclFileName + "." + index);
+          }
+          if (arrivalFileName != null) {
+            runner.recordArrivals(arrivalFileName + "." + index);
+          }
+          HeadlessRunner.Result result = runner.run();
+          runner.printData(null,
+                           (imFilePrefix != null)
+                           ? imFilePrefix + index + "-" : null);
+          return result;
+        } finally {
+          // release the threads of the simulator before the next run
+          sim.close();
+        }
+      }
+    };
+  }
+}
@@ -30,15 +30,15 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
-import java.net.SocketException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import aim4.config.Debug;
@@ -49,6 +49,8 @@ import aim4.msg.udp.Real2ProxyMsg;
 import aim4.msg.udp.Real2ProxyPVUpdate;
 import aim4.msg.udp.Real2ProxyRequest;
 import aim4.msg.udp.UdpHeader;
+import aim4.msg.udp.UdpSender;
+import aim4.util.MpscQueue;
 import aim4.vehicle.ProxyVehicle;
 import aim4.vehicle.ProxyVehicleSimView;
 import aim4.vehicle.VinRegistry;
@@ -56,6 +58,10 @@ import aim4.vehicle.VinRegistry;
 /**
  * Listens for UDP datagrams from Marvin at a UPD port (default is 46000)
  * for communication from real cars and manages corresponding proxyvehicle's.
+ * <p>
+ * The listener thread decodes the datagrams without holding the lock of
+ * the simulator, and queues the messages.  The simulator then processes
+ * the queued messages in one batch at the beginning of each step.
  */
 public class UdpListener implements Runnable {
 
@@ -70,6 +76,37 @@ public class UdpListener implements Runnable {
   /** The default UPD port on the vehicle */
   private static final int DEFAULT_VEHICLE_UDP_PORT = 46042;
 
+  /**
+   * The maximum number of messages waiting for the next step.  The
+   * messages received when the queue is full are dropped.
+   */
+  public static final int INBOUND_QUEUE_CAPACITY = 4096;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A message received from a real vehicle.
+   */
+  private static class Inbound {
+    /** The socket address of the real vehicle */
+    final SocketAddress sa;
+    /** The message */
+    final Real2ProxyMsg msg;
+
+    /**
+     * Create a received message.
+     *
+     * @param sa   the socket address of the real vehicle
+     * @param msg  the message
+     */
+    Inbound(SocketAddress sa, Real2ProxyMsg msg) {
+      this.sa = sa;
+      this.msg = msg;
+    }
+  }
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -77,11 +114,54 @@ public class UdpListener implements Runnable {
   /** The UDP port */
   private final int udpPort;
 
+  /**
+   * The UDP port on the real vehicles to which the proxy vehicles reply;
+   * zero if the proxy vehicles reply to the port the datagrams come from.
+   * It is volatile rather than guarded by the listener, since it is read in
+   * the simulation step, which holds the lock of the simulator, and
+   * {@link #start()} and {@link #stop()} lock the listener before the
+   * simulator.
+   */
+  private volatile int vehicleUdpPort;
+
   /** the simulator */
   private final Simulator sim;
 
-  /** Datagram socket for listening on a port over UDP. */
-  private DatagramSocket ds;
+  /** Datagram channel for listening on a port over UDP. */
+  private DatagramChannel channel;
+
+  /**
+   * The buffer into which the datagrams are received.  A datagram is
+   * decoded before the next one is received, so one buffer suffices.
+   */
+  private final ByteBuffer buffer;
+
+  /** The sender shared by the proxy vehicles to reply to the real vehicles */
+  private final UdpSender sender;
+
+  /** The messages waiting for the next step */
+  private final MpscQueue<Inbound> inbound;
+
+  /**
+   * The messages of the current step; only used by the simulation
+   * thread.
+   */
+  private final List<Inbound> batch;
+
+  /**
+   * The slot in the batch of the PV update of each VIN; only used by the
+   * simulation thread.
+   */
+  private final Map<Integer,Integer> vinToPVUpdateSlot;
+
+  /** The number of PV updates superseded by later ones in the same batch */
+  private long numOfCoalescedPVUpdates;
+
+  /**
+   * The received time of the messages, which is the time at which the
+   * simulator will process them.
+   */
+  private volatile double receivedTime;
 
   /**
    * A map of all the ProxyVehicles, indexed by their respective (unique)
@@ -119,7 +199,16 @@ public class UdpListener implements Runnable {
   public UdpListener(int udpPort, Simulator sim) {
     this.udpPort = udpPort;
     this.sim = sim;
-    ds = null;
+    vehicleUdpPort = DEFAULT_VEHICLE_UDP_PORT;
+    channel = null;
+    buffer =
+      ByteBuffer.allocateDirect(UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH);
+    sender = new UdpSender();
+    inbound = new MpscQueue<Inbound>(INBOUND_QUEUE_CAPACITY);
+    batch = new ArrayList<Inbound>();
+    vinToPVUpdateSlot = new HashMap<Integer,Integer>();
+    numOfCoalescedPVUpdates = 0;
+    receivedTime = 0.0;
     sa2ProxyVehicle = new HashMap<SocketAddress,ProxyVehicleSimView>();
     blinker = null;
   }
@@ -129,7 +218,7 @@ public class UdpListener implements Runnable {
   /////////////////////////////////
 
   /**
-   * Finalize the class by closing the datagram sockets and delete the
+   * Finalize the class by closing the datagram channels and delete the
    * proxy vehicles.
    */
   @Override
@@ -159,6 +248,8 @@ public class UdpListener implements Runnable {
    */
   public synchronized void start() {
     assert blinker == null;
+    receivedTime = sim.getSimulationTime();
+    sim.setUdpListener(this);
     blinker = new Thread(this);
     blinker.start();
   }
@@ -169,9 +260,99 @@ public class UdpListener implements Runnable {
   public synchronized void stop() {
     assert blinker != null;
     blinker = null;
+    sim.setUdpListener(null);
     closeSocket();
   }
 
+  // the real vehicles
+
+  /**
+   * Set the UDP port on the real vehicles to which the proxy vehicles
+   * reply.  If the port is zero, the proxy vehicles reply to the port the
+   * datagrams of the real vehicles come from, which lets several real
+   * vehicles share one host.  The setting only affects the proxy vehicles
+   * created afterwards.
+   *
+   * @param vehicleUdpPort  the UDP port on the real vehicles; zero if the
+   *                        proxy vehicles reply to the source port
+   */
+  public void setVehicleUdpPort(int vehicleUdpPort) {
+    if (vehicleUdpPort < 0 || vehicleUdpPort > 65535) {
+      throw new IllegalArgumentException("Invalid UDP port: "
+                                         + vehicleUdpPort);
+    }
+    this.vehicleUdpPort = vehicleUdpPort;
+  }
+
+  // the inbound messages
+
+  /**
+   * Process the messages received since the last call in the order in
+   * which they were received.  Only the latest of the PV updates of a
+   * vehicle is processed, in the place of the earliest one.  This
+   * function should only be called by the simulator at the beginning of a
+   * step.
+   *
+   * @param currentTime  the current time of the simulation
+   * @param timeStep     the time step
+   */
+  public void processInboundMessages(double currentTime, double timeStep) {
+    inbound.drainTo(batch);
+    for(int i = 0; i < batch.size(); i++) {
+      Real2ProxyMsg msg = batch.get(i).msg;
+      if (msg.messageType == Real2ProxyMsg.Type.PV_UPDATE) {
+        int vin = ((Real2ProxyPVUpdate)msg).vin;
+        Integer slot = vinToPVUpdateSlot.get(vin);
+        if (slot == null) {
+          vinToPVUpdateSlot.put(vin, i);
+        } else {
+          batch.set(slot, batch.get(i));
+          batch.set(i, null);
+          numOfCoalescedPVUpdates++;
+        }
+      }
+    }
+    for(Inbound in : batch) {
+      if (in != null) {
+        processReal2ProxyMsg(in.sa, in.msg);
+      }
+    }
+    batch.clear();
+    vinToPVUpdateSlot.clear();
+    // the messages received from now on are processed in the next step
+    receivedTime = currentTime + timeStep;
+  }
+
+  /**
+   * Get the number of messages waiting for the next step.
+   *
+   * @return the number of messages waiting for the next step
+   */
+  public int getInboundDepth() {
+    return inbound.getDepth();
+  }
+
+  /**
+   * Get the number of messages dropped because too many messages were
+   * waiting for the next step.
+   *
+   * @return the number of dropped messages
+   */
+  public long getNumOfDroppedMessages() {
+    return inbound.getNumOfDrops();
+  }
+
+  /**
+   * Get the number of PV updates that were not processed because a later
+   * PV update of the same vehicle was processed in the same step.  This
+   * function should only be called by the simulation thread.
+   *
+   * @return the number of coalesced PV updates
+   */
+  public long getNumOfCoalescedPVUpdates() {
+    return numOfCoalescedPVUpdates;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -181,35 +362,39 @@ public class UdpListener implements Runnable {
    */
   @Override
   public void run() {
+    DatagramChannel ch;
     try {
-      ds = new DatagramSocket(udpPort);
-    } catch(SocketException e) {
+      ch = DatagramChannel.open();
+      ch.socket().bind(new InetSocketAddress(udpPort));
+    } catch(IOException e) {
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.println("Cannot open UDP socket.\n");
         e.printStackTrace();
       }
       return;
     }
+    synchronized(this) {
+      channel = ch;
+    }
 
-    int numBytes = UdpHeader.MAX_MESSENGE_PACKAGE_LENGTH;
     Thread thisThread = Thread.currentThread();
 
     // listen so long as the user hasn't called stop()
     while (blinker == thisThread) {
-      DatagramPacket dp = new DatagramPacket(new byte[numBytes], numBytes);
-
+      buffer.clear();
+      SocketAddress sa;
       try {
-        ds.receive(dp);   // blocks until data received
-      } catch(IOException e) {  // both IOException and NullPointerException
-        // Either stop() is called to close the socket, or
-        // something is wrong with our socket.
+        sa = ch.receive(buffer);   // blocks until data received
+      } catch(IOException e) {
+        // Either stop() is called to close the channel, or
+        // something is wrong with our channel.
         // Maybe we should distinguish the two cases and
         // inform the user about the second case since it is an
         // error.
         break;
       }
-      processIncomingDatagram(dp);
-      Thread.yield();  // give other threads a chance to execute
+      buffer.flip();
+      processIncomingDatagram(sa, buffer);
     }
 
     closeSocket();
@@ -226,113 +411,142 @@ public class UdpListener implements Runnable {
    * GUI thread close the socket at the same time.
    */
   private synchronized void closeSocket() {
-    if (ds != null) {
-      if (ds.isConnected()) {
-        ds.disconnect();
-      }
-      if (!ds.isClosed()) {
-        ds.close();
+    if (channel != null) {
+      try {
+        channel.close();
+      } catch(IOException e) {
+        System.err.println("Error: cannot close the UDP socket.");
       }
-      ds = null;
+      channel = null;
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.println("The UDP socket is closed.");
       }
     }
+    sender.close();
   }
 
 
   /**
-   * The main function for processing the incoming datagram.
+   * Decode an incoming datagram and queue the message for the next step.
    *
-   * @param dp  the datagram.
+   * @param sa   the socket address of the sender of the datagram
+   * @param buf  the buffer holding the datagram
    */
-  private void processIncomingDatagram(DatagramPacket dp) {
-    synchronized(sim) {
-      SocketAddress sa = dp.getSocketAddress();
-      Real2ProxyMsg msg = convertDatagramToReal2ProxyMsg(dp);
-
-      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-        if (Debug.SHOW_PROXY_VEHICLE_PVUPDATE_MSG ||
-            !(msg instanceof Real2ProxyPVUpdate)) {
-          System.err.printf("Proxy vehicle received a Real2Proxy msg: %s\n",
-                            msg);
-        }
+  private void processIncomingDatagram(SocketAddress sa, ByteBuffer buf) {
+    Real2ProxyMsg msg = convertDatagramToReal2ProxyMsg(buf);
+
+    if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+      if (Debug.SHOW_PROXY_VEHICLE_PVUPDATE_MSG ||
+          !(msg instanceof Real2ProxyPVUpdate)) {
+        System.err.printf("Proxy vehicle received a Real2Proxy msg: %s\n",
+                          msg);
       }
+    }
+
+    if (msg == null) {
+      System.err.println("Error: cannot parse the datagram package.");
+      return;
+    }
 
-      if (msg == null) {
-        System.err.println("Error: cannot parse the datagram package.");
-        return;
+    if (!inbound.offer(new Inbound(sa, msg))) {
+      if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+        System.err.println("Warning: the inbound queue is full; the " +
+                           "message is dropped.");
       }
+    }
+  }
 
-      if (sa2ProxyVehicle.containsKey(sa)) {
-        // The datagram came from a real vehicle we're already tracking.
-        // Simply forward the datagram to the corresponding proxy vehicle
-        sa2ProxyVehicle.get(sa).processReal2ProxyMsg(msg);
-      } else {
-        // We haven't seem this SA before. This must be coming from
-        // a new real vehicle that we're not tracking
-
-        // If it is a PV_UPDATE message, instantiate the proxy vehicle and
-        // associate the socket address to this proxy vehicle.
-        // If not, ignore the message.
-        if (msg.messageType == Real2ProxyMsg.Type.PV_UPDATE) {
-          Real2ProxyPVUpdate pvUpdateMsg = (Real2ProxyPVUpdate)msg;
-          // create a proxy vehicle for this real vehicle
-          ProxyVehicleSimView vehicle = makeProxyVehicle(pvUpdateMsg);
-          // check the VIN number
-          if (VinRegistry.registerVehicleWithExistingVIN(vehicle,
-                                                         pvUpdateMsg.vin)) {
-            // update the socket address of the proxy vehicle
-            // pull out just the IP <xxx.xxx.xxx.xxx> from the address only
-            String address = sa.toString();
-            address = address.substring(1, address.indexOf(':'));
-            vehicle
-              .setSa(new InetSocketAddress(address, DEFAULT_VEHICLE_UDP_PORT));
-            // record the proxy vehicle
-            sa2ProxyVehicle.put(sa, vehicle);
-            // add the proxy vehicle to the simulator
-            sim.addProxyVehicle(vehicle);
-            if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-              System.err.printf("A proxy vehicle is created at time %.2f "
-                + "(vin=%d).\n", sim.getSimulationTime(), vehicle.getVIN());
-            }
-          } else {
-            System.err.println("Warning: the VIN of the UPD message has " +
-                               "already been used by other vehicles.");
-            // don't add the proxy vehicle to the simulator.
-          }
-        } else {
-          // Ignore the message
+  /**
+   * The main function for processing the incoming message.
+   *
+   * @param sa   the socket address of the sender of the message
+   * @param msg  the message
+   */
+  private void processReal2ProxyMsg(SocketAddress sa, Real2ProxyMsg msg) {
+    if (sa2ProxyVehicle.containsKey(sa)) {
+      // The datagram came from a real vehicle we're already tracking.
+      // Simply forward the datagram to the corresponding proxy vehicle
+      sa2ProxyVehicle.get(sa).processReal2ProxyMsg(msg);
+    } else {
+      // We haven't seem this SA before. This must be coming from
+      // a new real vehicle that we're not tracking
+
+      // If it is a PV_UPDATE message, instantiate the proxy vehicle and
+      // associate the socket address to this proxy vehicle.
+      // If not, ignore the message.
+      if (msg.messageType == Real2ProxyMsg.Type.PV_UPDATE) {
+        Real2ProxyPVUpdate pvUpdateMsg = (Real2ProxyPVUpdate)msg;
+        // create a proxy vehicle for this real vehicle
+        ProxyVehicleSimView vehicle = makeProxyVehicle(pvUpdateMsg);
+        // check the VIN number
+        VinRegistry vinRegistry =
+          sim.getMap().getContext().getVinRegistry();
+        if (vinRegistry.registerVehicleWithExistingVIN(vehicle,
+                                                       pvUpdateMsg.vin)) {
+          // update the socket address of the proxy vehicle
+          vehicle.setSa(makeReplyAddress(sa));
+          vehicle.setUdpSender(sender);
+          // record the proxy vehicle
+          sa2ProxyVehicle.put(sa, vehicle);
+          // add the proxy vehicle to the simulator
+          sim.addProxyVehicle(vehicle);
           if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
-            System.err.println("Warning: first message from a new real " +
-                               "vehicle must be a PVUpdate.");
+            System.err.printf("A proxy vehicle is created at time %.2f "
+              + "(vin=%d).\n", sim.getSimulationTime(), vehicle.getVIN());
           }
+        } else {
+          System.err.println("Warning: the VIN of the UPD message has " +
+                             "already been used by other vehicles.");
+          // don't add the proxy vehicle to the simulator.
+        }
+      } else {
+        // Ignore the message
+        if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+          System.err.println("Warning: first message from a new real " +
+                             "vehicle must be a PVUpdate.");
         }
       }
     }
   }
 
+  /**
+   * Get the socket address to which a proxy vehicle replies.
+   *
+   * @param sa  the socket address of the real vehicle
+   * @return the socket address to which the proxy vehicle replies
+   */
+  private SocketAddress makeReplyAddress(SocketAddress sa) {
+    int port = vehicleUdpPort;
+    if (port == 0) {
+      return sa;
+    } else {
+      // pull out just the IP <xxx.xxx.xxx.xxx> from the address only
+      String address = sa.toString();
+      address = address.substring(1, address.indexOf(':'));
+      return new InetSocketAddress(address, port);
+    }
+  }
+
   /**
    * Covert a datagram to a Real2Proxy message.
    *
-   * @param dp  the datagram
+   * @param buf  the buffer holding the datagram
    * @return the Real2Proxy message
    */
-  private Real2ProxyMsg convertDatagramToReal2ProxyMsg(DatagramPacket dp) {
-    // prepare the raw data for reading
-    byte[] data = dp.getData();  // it will contain numBytes bytes.
-    ByteArrayInputStream bais = new ByteArrayInputStream(data);
-    DataInputStream dis = new DataInputStream(bais);
+  private Real2ProxyMsg convertDatagramToReal2ProxyMsg(ByteBuffer buf) {
     // read the header
     UdpHeader header = null;
     try {
-      header = new UdpHeader(dis);
-    } catch(IOException e) {
+      header = new UdpHeader(buf);
+    } catch(BufferUnderflowException e) {
+      System.err.println("Error: Datagram has a corrupted header.");
+      return null;
+    } catch(IllegalArgumentException e) {
       System.err.println("Error: Datagram has a corrupted header.");
       return null;
     }
 
-    if (header.getChecksum() != UdpHeader.computeChecksum(data)) {
+    if (header.getChecksum() != UdpHeader.computeChecksum(buf)) {
       // the datagram is corrupted, can't use it
       System.err.println("Error: Datagram has a corrupted checksum.");
       return null;
@@ -342,49 +556,39 @@ public class UdpListener implements Runnable {
     switch(header.getMessageType()) {
     case PVUpdate:
       try {
-        msg = new Real2ProxyPVUpdate(dis, sim.getSimulationTime());
-      } catch(IOException e) {
+        msg = new Real2ProxyPVUpdate(buf, receivedTime);
+      } catch(BufferUnderflowException e) {
         System.err.println("Error: Datagram has a corrupted body for " +
                            "a PV_UPDATE message.");
       }
       break;
     case V2I_Request:
       try {
-        msg = new Real2ProxyRequest(dis, sim.getSimulationTime());
-      } catch(IOException e) {
+        msg = new Real2ProxyRequest(buf, receivedTime);
+      } catch(BufferUnderflowException e) {
         System.err.println("Error: Datagram has a corrupted body for " +
                            "a REQUEST message.");
       }
       break;
     case V2I_Cancel:
       try {
-        msg = new Real2ProxyCancel(dis, sim.getSimulationTime());
-      } catch(IOException e) {
+        msg = new Real2ProxyCancel(buf, receivedTime);
+      } catch(BufferUnderflowException e) {
         System.err.println("Error: Datagram has a corrupted body for " +
                            "a CANCEL message.");
       }
       break;
     case V2I_Done:
-      try {
-        msg = new Real2ProxyDone(dis, sim.getSimulationTime());
-      } catch(IOException e) {
-        System.err.println("Error: Datagram has a corrupted body for " +
-                           "a DONE message.");
-      }
+      msg = new Real2ProxyDone(buf, receivedTime);
       break;
     default:
       System.err.println("Error: Unknown UDP message type");
     }
 
-//    try {
-//      int n = dis.available();
-//      if (n > 0) {
-//        System.err.println("Warning: processed the datagram, but there " +
-//                           "are still " + n + " bytes available.");
-//      }
-//    } catch(IOException e) {
-//      System.err.println("Error: Cannot estimate the number of remaining " +
-//                         "data in the datagram");
+//    if (buf.hasRemaining()) {
+//      System.err.println("Warning: processed the datagram, but there " +
+//                         "are still " + buf.remaining() + " bytes " +
+//                         "available.");
 //    }
 
     return msg;
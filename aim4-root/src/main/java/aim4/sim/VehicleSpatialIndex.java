@@ -0,0 +1,460 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.sim;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import aim4.map.BasicMap;
+import aim4.map.DataCollectionLine;
+import aim4.map.Road;
+import aim4.map.lane.Lane;
+import aim4.util.OrientedBox;
+import aim4.vehicle.VehicleSimView;
+
+/**
+ * A uniform grid over a map that buckets the vehicles by their bounding
+ * boxes, and the lanes and the data collection lines by their shapes, so
+ * that the simulator can answer proximity queries without scanning all
+ * vehicles, all lanes or all data collection lines.
+ * <p>
+ * The buckets of a vehicle are computed from its bounding box at the time
+ * the vehicle is added; the simulator re-adds every vehicle after it moves.
+ */
+public class VehicleSpatialIndex {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The default length of the sides of the cells. {@value} meters.
+   */
+  public static final double DEFAULT_CELL_SIZE = 20.0;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The dimensions of the map */
+  private Rectangle2D mapBoundary;
+  /** The length of the sides of the cells */
+  private double cellSize;
+  /** The number of columns of cells */
+  private int numOfColumns;
+  /** The number of rows of cells */
+  private int numOfRows;
+  /** The vehicles in each cell; null if a cell has never been used */
+  private List<List<VehicleSimView>> vehicleCells;
+  /** The indices of the cells that currently contain vehicles */
+  private List<Integer> occupiedCells;
+  /**
+   * The vehicles whose bounding boxes are not entirely inside the map
+   * boundary
+   */
+  private List<VehicleSimView> boundaryVehicles;
+  /** The lanes whose shapes overlap each cell */
+  private List<List<Lane>> laneCells;
+  /** All lanes of the map */
+  private List<Lane> lanes;
+  /** The data collection lines of the map */
+  private List<DataCollectionLine> dataCollectionLines;
+  /**
+   * The indices of the data collection lines whose bounding boxes overlap
+   * each cell, in ascending order; null if no line overlaps a cell
+   */
+  private int[][] lineCells;
+  /**
+   * The indices of the data collection lines found by a query that covers
+   * more than one cell
+   */
+  private int[] lineCandidates;
+  /** The last query that found each data collection line */
+  private int[] lineQueryStamps;
+  /** The number of queries that cover more than one cell */
+  private int numOfLineQueries;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a spatial index for a map with the default cell size.
+   *
+   * @param basicMap  the map
+   */
+  public VehicleSpatialIndex(BasicMap basicMap) {
+    this(basicMap, DEFAULT_CELL_SIZE);
+  }
+
+  /**
+   * Create a spatial index for a map.
+   *
+   * @param basicMap  the map
+   * @param cellSize  the length of the sides of the cells
+   */
+  public VehicleSpatialIndex(BasicMap basicMap, double cellSize) {
+    if (cellSize <= 0.0) {
+      throw new IllegalArgumentException("The cell size must be positive");
+    }
+    this.mapBoundary = basicMap.getDimensions();
+    this.cellSize = cellSize;
+    this.numOfColumns =
+      Math.max(1, (int)Math.ceil(mapBoundary.getWidth() / cellSize));
+    this.numOfRows =
+      Math.max(1, (int)Math.ceil(mapBoundary.getHeight() / cellSize));
+    int numOfCells = numOfColumns * numOfRows;
+
+    vehicleCells = new ArrayList<List<VehicleSimView>>(numOfCells);
+    laneCells = new ArrayList<List<Lane>>(numOfCells);
+    for(int i = 0; i < numOfCells; i++) {
+      vehicleCells.add(null);
+      laneCells.add(null);
+    }
+    occupiedCells = new ArrayList<Integer>();
+    boundaryVehicles = new ArrayList<VehicleSimView>();
+
+    lanes = new ArrayList<Lane>();
+    for(Road road : basicMap.getRoads()) {
+      for(Lane lane : road.getLanes()) {
+        lanes.add(lane);
+        addLane(lane);
+      }
+    }
+
+    dataCollectionLines = basicMap.getDataCollectionLines();
+    lineCells = new int[numOfCells][];
+    for(int i = 0; i < dataCollectionLines.size(); i++) {
+      addDataCollectionLine(i);
+    }
+    lineCandidates = new int[dataCollectionLines.size()];
+    lineQueryStamps = new int[dataCollectionLines.size()];
+    numOfLineQueries = 0;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Remove all vehicles from the index.
+   */
+  public void clear() {
+    for(int i : occupiedCells) {
+      vehicleCells.get(i).clear();
+    }
+    occupiedCells.clear();
+    boundaryVehicles.clear();
+  }
+
+  /**
+   * Add a vehicle to the index according to its current bounding box.
+   *
+   * @param vehicle  the vehicle
+   */
+  public void add(VehicleSimView vehicle) {
+    OrientedBox box = vehicle.getBox();
+    int minCol = column(box.getMinX());
+    int maxCol = column(box.getMaxX());
+    int minRow = row(box.getMinY());
+    int maxRow = row(box.getMaxY());
+    for(int col = minCol; col <= maxCol; col++) {
+      for(int row = minRow; row <= maxRow; row++) {
+        int i = row * numOfColumns + col;
+        List<VehicleSimView> cell = vehicleCells.get(i);
+        if (cell == null) {
+          cell = new ArrayList<VehicleSimView>(4);
+          vehicleCells.set(i, cell);
+        }
+        if (cell.isEmpty()) {
+          occupiedCells.add(i);
+        }
+        cell.add(vehicle);
+      }
+    }
+    if (!box.isBoundsInside(mapBoundary)) {
+      boundaryVehicles.add(vehicle);
+    }
+  }
+
+  /**
+   * Remove a vehicle from the index.  The vehicle must not have moved since
+   * it was added.
+   *
+   * @param vehicle  the vehicle
+   */
+  public void remove(VehicleSimView vehicle) {
+    OrientedBox box = vehicle.getBox();
+    int minCol = column(box.getMinX());
+    int maxCol = column(box.getMaxX());
+    int minRow = row(box.getMinY());
+    int maxRow = row(box.getMaxY());
+    for(int col = minCol; col <= maxCol; col++) {
+      for(int row = minRow; row <= maxRow; row++) {
+        List<VehicleSimView> cell = vehicleCells.get(row * numOfColumns + col);
+        if (cell != null) {
+          cell.remove(vehicle);
+        }
+      }
+    }
+    boundaryVehicles.remove(vehicle);
+  }
+
+  /**
+   * Whether the shape of any vehicle in the index intersects the given
+   * rectangle.
+   *
+   * @param zone  the rectangle
+   * @return whether the shape of any vehicle intersects the rectangle
+   */
+  public boolean isAnyVehicleIn(Rectangle2D zone) {
+    int minCol = column(zone.getMinX());
+    int maxCol = column(zone.getMaxX());
+    int minRow = row(zone.getMinY());
+    int maxRow = row(zone.getMaxY());
+    for(int col = minCol; col <= maxCol; col++) {
+      for(int row = minRow; row <= maxRow; row++) {
+        List<VehicleSimView> cell = vehicleCells.get(row * numOfColumns + col);
+        if (cell != null) {
+          for(VehicleSimView vehicle : cell) {
+            if (vehicle.getBox().intersects(zone)) {
+              return true;
+            }
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Get the vehicles whose bounding boxes are not entirely inside the map
+   * boundary.  The shapes of all other vehicles in the index intersect the
+   * map boundary.
+   *
+   * @return the vehicles whose bounding boxes are not entirely inside the
+   *         map boundary
+   */
+  public List<VehicleSimView> getBoundaryVehicles() {
+    return boundaryVehicles;
+  }
+
+  /**
+   * Find the lane that is the nearest to a given point.
+   *
+   * @param pos  the point
+   * @return the nearest lane; null if the map has no lane
+   */
+  public Lane findNearestLane(Point2D pos) {
+    if (!mapBoundary.contains(pos)) {
+      return findNearestLaneByScan(pos);
+    }
+    int col0 = column(pos.getX());
+    int row0 = row(pos.getY());
+    int maxRing = Math.max(numOfColumns, numOfRows);
+    Lane minLane = null;
+    double minDistance = -1.0;
+    for(int ring = 0; ring <= maxRing; ring++) {
+      for(int col = col0 - ring; col <= col0 + ring; col++) {
+        for(int row = row0 - ring; row <= row0 + ring; row++) {
+          if (col < 0 || col >= numOfColumns || row < 0 || row >= numOfRows
+              || Math.max(Math.abs(col - col0), Math.abs(row - row0)) != ring)
+          {
+            continue;
+          }
+          List<Lane> cell = laneCells.get(row * numOfColumns + col);
+          if (cell != null) {
+            for(Lane lane : cell) {
+              double d = lane.nearestDistance(pos);
+              if (minLane == null || d < minDistance) {
+                minLane = lane;
+                minDistance = d;
+              }
+            }
+          }
+        }
+      }
+      // any lane in the outer rings is at least ring * cellSize away
+      if (minLane != null && minDistance <= ring * cellSize) {
+        return minLane;
+      }
+    }
+    return (minLane != null) ? minLane : findNearestLaneByScan(pos);
+  }
+
+  /**
+   * Test a vehicle that has moved from one point to another against the
+   * data collection lines whose bounding boxes share a cell with the
+   * bounding box of the movement.  The lines are tested in the order of the
+   * data collection lines of the map, as if all of them were tested.
+   *
+   * @param vehicle  the vehicle
+   * @param time     the current time
+   * @param p1       the position of the vehicle before it moved
+   * @param p2       the position of the vehicle after it moved
+   */
+  public void intersectDataCollectionLines(VehicleSimView vehicle, double time,
+                                           Point2D p1, Point2D p2) {
+    int minCol = column(Math.min(p1.getX(), p2.getX()));
+    int maxCol = column(Math.max(p1.getX(), p2.getX()));
+    int minRow = row(Math.min(p1.getY(), p2.getY()));
+    int maxRow = row(Math.max(p1.getY(), p2.getY()));
+    if (minCol == maxCol && minRow == maxRow) {
+      int[] cell = lineCells[minRow * numOfColumns + minCol];
+      if (cell != null) {
+        for(int i : cell) {
+          dataCollectionLines.get(i).intersect(vehicle, time, p1, p2);
+        }
+      }
+    } else {
+      // the movement crosses a cell border; collect the lines of all its
+      // cells without duplicates
+      numOfLineQueries++;
+      int numOfCandidates = 0;
+      for(int col = minCol; col <= maxCol; col++) {
+        for(int row = minRow; row <= maxRow; row++) {
+          int[] cell = lineCells[row * numOfColumns + col];
+          if (cell != null) {
+            for(int i : cell) {
+              if (lineQueryStamps[i] != numOfLineQueries) {
+                lineQueryStamps[i] = numOfLineQueries;
+                lineCandidates[numOfCandidates++] = i;
+              }
+            }
+          }
+        }
+      }
+      Arrays.sort(lineCandidates, 0, numOfCandidates);
+      for(int j = 0; j < numOfCandidates; j++) {
+        dataCollectionLines.get(lineCandidates[j])
+          .intersect(vehicle, time, p1, p2);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Add a data collection line to the cells its bounding box overlaps.
+   *
+   * @param index  the index of the line in the data collection lines
+   */
+  private void addDataCollectionLine(int index) {
+    Rectangle2D box =
+      dataCollectionLines.get(index).getShape().getBounds2D();
+    int minCol = column(box.getMinX());
+    int maxCol = column(box.getMaxX());
+    int minRow = row(box.getMinY());
+    int maxRow = row(box.getMaxY());
+    for(int col = minCol; col <= maxCol; col++) {
+      for(int row = minRow; row <= maxRow; row++) {
+        int i = row * numOfColumns + col;
+        if (lineCells[i] == null) {
+          lineCells[i] = new int[] { index };
+        } else {
+          lineCells[i] = Arrays.copyOf(lineCells[i], lineCells[i].length + 1);
+          lineCells[i][lineCells[i].length - 1] = index;
+        }
+      }
+    }
+  }
+
+  /**
+   * Add a lane to the cells its shape overlaps.
+   *
+   * @param lane  the lane
+   */
+  private void addLane(Lane lane) {
+    Rectangle2D box = lane.getShape().getBounds2D();
+    int minCol = column(box.getMinX());
+    int maxCol = column(box.getMaxX());
+    int minRow = row(box.getMinY());
+    int maxRow = row(box.getMaxY());
+    for(int col = minCol; col <= maxCol; col++) {
+      for(int row = minRow; row <= maxRow; row++) {
+        int i = row * numOfColumns + col;
+        if (laneCells.get(i) == null) {
+          laneCells.set(i, new ArrayList<Lane>(4));
+        }
+        laneCells.get(i).add(lane);
+      }
+    }
+  }
+
+  /**
+   * Find the lane that is the nearest to a given point by checking all
+   * lanes.
+   *
+   * @param pos  the point
+   * @return the nearest lane; null if the map has no lane
+   */
+  private Lane findNearestLaneByScan(Point2D pos) {
+    Lane minLane = null;
+    double minDistance = -1.0;
+    for(Lane lane : lanes) {
+      double d = lane.nearestDistance(pos);
+      if (minLane == null || d < minDistance) {
+        minLane = lane;
+        minDistance = d;
+      }
+    }
+    return minLane;
+  }
+
+  /**
+   * Get the column of the cells that contains an x-coordinate.  The
+   * coordinates outside the map are clamped to the border cells.
+   *
+   * @param x  the x-coordinate
+   * @return the column
+   */
+  private int column(double x) {
+    int col = (int)Math.floor((x - mapBoundary.getMinX()) / cellSize);
+    return Math.min(Math.max(col, 0), numOfColumns - 1);
+  }
+
+  /**
+   * Get the row of the cells that contains a y-coordinate.  The
+   * coordinates outside the map are clamped to the border cells.
+   *
+   * @param y  the y-coordinate
+   * @return the row
+   */
+  private int row(double y) {
+    int row = (int)Math.floor((y - mapBoundary.getMinY()) / cellSize);
+    return Math.min(Math.max(row, 0), numOfRows - 1);
+  }
+}
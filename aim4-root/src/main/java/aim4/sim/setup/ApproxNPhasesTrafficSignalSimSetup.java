@@ -32,11 +32,11 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -50,6 +50,8 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
   private String trafficSignalPhaseFileName;
   /** The name of the file containing the traffic volume information */
   private String trafficVolumeFileName;
+  /** The name of the file of the arrival trace to replay */
+  private String arrivalTraceFileName;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -69,6 +71,7 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
 
     this.trafficSignalPhaseFileName = trafficSignalPhaseFileName;
     this.trafficVolumeFileName = null;
+    this.arrivalTraceFileName = null;
   }
 
 //  public ApproxNPhasesTrafficSignalSimSetup(int columns, int rows,
@@ -97,13 +100,24 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
     this.trafficVolumeFileName = trafficVolumeFileName;
   }
 
+  /**
+   * Replay the arrivals in an arrival trace instead of generating the
+   * traffic.
+   *
+   * @param arrivalTraceFileName  the name of the file of the arrival trace
+   */
+  public void setArrivalTrace(String arrivalTraceFileName) {
+    this.arrivalTraceFileName = arrivalTraceFileName;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
-  public Simulator getSimulator() {
+  public Simulator getSimulator(SimContext context) {
     double currentTime = 0.0;
-    GridMap layout = new GridMap(currentTime,
+    GridMap layout = new GridMap(context,
+                                       currentTime,
                                        numOfColumns,
                                        numOfRows,
                                        laneWidth,
@@ -126,16 +140,17 @@ public class ApproxNPhasesTrafficSignalSimSetup extends BasicSimSetup
     GridMapUtil.setApproxNPhasesTrafficLightManagers(
         layout, currentTime, gridConfig, trafficSignalPhaseFileName);
 
-    if (numOfColumns == 1 && numOfRows == 1) {
+    if (arrivalTraceFileName != null) {
+      GridMapUtil.setArrivalTraceSpawnPoints(layout, arrivalTraceFileName);
+    } else if (numOfColumns == 1 && numOfRows == 1) {
       GridMapUtil.setUniformRatioSpawnPoints(layout, trafficVolumeFileName);
       // GridLayoutUtil.setUniformTurnBasedSpawnPoints(layout, trafficLevel);
     } else {
       GridMapUtil.setUniformRandomSpawnPoints(layout, trafficLevel);
     }
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
+    context.setStopDistBeforeIntersection(stopDistBeforeIntersection);
 
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, stepThreads);
   }
 }
@@ -32,11 +32,11 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -119,9 +119,10 @@ public class ApproxSimpleTrafficSignalSimSetup extends BasicSimSetup
    * {@inheritDoc}
    */
   @Override
-  public Simulator getSimulator() {
+  public Simulator getSimulator(SimContext context) {
     double currentTime = 0.0;
-    GridMap layout = new GridMap(currentTime,
+    GridMap layout = new GridMap(context,
+                                       currentTime,
                                        numOfColumns,
                                        numOfRows,
                                        laneWidth,
@@ -153,9 +154,8 @@ public class ApproxSimpleTrafficSignalSimSetup extends BasicSimSetup
       GridMapUtil.setUniformRandomSpawnPoints(layout, trafficLevel);
     }
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
+    context.setStopDistBeforeIntersection(stopDistBeforeIntersection);
 
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, stepThreads);
   }
 }
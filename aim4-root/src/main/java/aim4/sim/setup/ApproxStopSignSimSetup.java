@@ -32,11 +32,11 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -48,6 +48,8 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
 
   /** The name of the file containing the traffic volume data */
   private String trafficVolumeFileName = null;
+  /** The name of the file of the arrival trace to replay */
+  private String arrivalTraceFileName = null;
 
 
   /////////////////////////////////
@@ -103,13 +105,24 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
     this.trafficVolumeFileName = trafficVolumeFileName;
   }
 
+  /**
+   * Replay the arrivals in an arrival trace instead of generating the
+   * traffic.
+   *
+   * @param arrivalTraceFileName  the name of the file of the arrival trace
+   */
+  public void setArrivalTrace(String arrivalTraceFileName) {
+    this.arrivalTraceFileName = arrivalTraceFileName;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
-  public Simulator getSimulator() {
+  public Simulator getSimulator(SimContext context) {
     double currentTime = 0.0;
-    GridMap layout = new GridMap(currentTime,
+    GridMap layout = new GridMap(context,
+                                       currentTime,
                                        numOfColumns,
                                        numOfRows,
                                        laneWidth,
@@ -127,13 +140,15 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
                                         true,
                                         1.0);
 
-    SimConfig.MUST_STOP_BEFORE_INTERSECTION = true;
+    context.setMustStopBeforeIntersection(true);
     Debug.SHOW_VEHICLE_COLOR_BY_MSG_STATE = false;
 
     GridMapUtil.setApproxStopSignManagers(layout, currentTime,
                                              gridConfig);
 
-    if (trafficVolumeFileName == null) {
+    if (arrivalTraceFileName != null) {
+      GridMapUtil.setArrivalTraceSpawnPoints(layout, arrivalTraceFileName);
+    } else if (trafficVolumeFileName == null) {
       if (numOfColumns == 1 && numOfRows == 1) {
         GridMapUtil.setUniformTurnBasedSpawnPoints(layout, trafficLevel);
       } else {
@@ -143,9 +158,8 @@ public class ApproxStopSignSimSetup extends BasicSimSetup
       GridMapUtil.setUniformRatioSpawnPoints(layout, trafficVolumeFileName);
     }
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
+    context.setStopDistBeforeIntersection(stopDistBeforeIntersection);
 
-    return new AutoDriverOnlySimulator(layout);
+    return new AutoDriverOnlySimulator(layout, stepThreads);
   }
 }
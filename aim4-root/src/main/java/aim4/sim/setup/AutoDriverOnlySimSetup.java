@@ -32,13 +32,15 @@ package aim4.sim.setup;
 
 import aim4.config.Debug;
 import aim4.config.SimConfig;
-import aim4.driver.pilot.V2IPilot;
 import aim4.im.v2i.batch.RoadBasedReordering;
+import aim4.im.v2i.reservation.FootprintCache;
 import aim4.im.v2i.reservation.ReservationGridManager;
 import aim4.map.GridMap;
 import aim4.map.GridMapUtil;
 import aim4.sim.AutoDriverOnlySimulator;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
+import aim4.util.Util;
 
 /**
  * The setup for the simulator in which all vehicles are autonomous.
@@ -57,6 +59,7 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     UNIFORM_TURNBASED,
     HVDIRECTIONAL_RANDOM,
     FILE,
+    TRACE,
   }
 
   /////////////////////////////////
@@ -83,10 +86,25 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
   private boolean isEdgeTileTimeBufferEnabled = true;
   /** The granularity of the reservation grid */
   private double granularity = 1.0;
+  /** The maximum number of footprints in the footprint cache */
+  private int footprintCacheSize = FootprintCache.DEFAULT_CAPACITY;
+  /** The quantum of the arrival velocity in the footprint cache */
+  private double footprintVelocityQuantum =
+    FootprintCache.DEFAULT_VELOCITY_QUANTUM;
+  /** The quantum of the phase of the arrival time in the footprint cache */
+  private double footprintPhaseQuantum =
+    FootprintCache.DEFAULT_PHASE_QUANTUM;
+  /** The method of finding the footprints of the test vehicles */
+  private ReservationGridManager.FootprintMethod footprintMethod =
+    ReservationGridManager.FootprintMethod.SIMULATION;
+  /** The number of threads that evaluate the proposals of a request */
+  private int proposalThreads = 1;
   /** The processing interval for the batch mode */
   private double processingInterval = RoadBasedReordering.DEFAULT_PROCESSING_INTERVAL;
   /** The name of the file about the traffic volume */
   private String trafficVolumeFileName = null;
+  /** The name of the file of the arrival trace to replay */
+  private String arrivalTraceFileName = null;
 
   /////////////////////////////////
   // CONSTRUCTORS
@@ -203,6 +221,17 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     this.trafficVolumeFileName = trafficVolumeFileName;
   }
 
+  /**
+   * Replay the arrivals in an arrival trace instead of generating the
+   * traffic.
+   *
+   * @param arrivalTraceFileName  the name of the file of the arrival trace
+   */
+  public void setArrivalTrace(String arrivalTraceFileName) {
+    this.trafficType = TrafficType.TRACE;
+    this.arrivalTraceFileName = arrivalTraceFileName;
+  }
+
   /**
    * Set the buffer sizes.
    *
@@ -225,13 +254,55 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     this.granularity = granularity;
   }
 
+  /**
+   * Set up the footprint caches of the reservation grid managers.  The
+   * caches are not used unless at least one of the quanta is positive, in
+   * which case the reservations cover the whole buckets of the quanta.
+   *
+   * @param size             the maximum number of footprints; zero disables
+   *                         the cache
+   * @param velocityQuantum  the quantum of the arrival velocity; zero for no
+   *                         quantization
+   * @param phaseQuantum     the quantum of the phase of the arrival time;
+   *                         zero for no quantization
+   */
+  public void setFootprintCache(int size, double velocityQuantum,
+                                double phaseQuantum) {
+    this.footprintCacheSize = size;
+    this.footprintVelocityQuantum = velocityQuantum;
+    this.footprintPhaseQuantum = phaseQuantum;
+  }
+
+  /**
+   * Set the method of finding the footprints of the test vehicles of the
+   * reservation grid managers.
+   *
+   * @param footprintMethod  the method of finding the footprints
+   */
+  public void setFootprintMethod(
+                ReservationGridManager.FootprintMethod footprintMethod) {
+    this.footprintMethod = footprintMethod;
+  }
+
+  /**
+   * Set the number of threads that evaluate the proposals of a request
+   * at each intersection manager.
+   *
+   * @param proposalThreads  the number of threads; one if the proposals
+   *                         should be evaluated one after another
+   */
+  public void setProposalThreads(int proposalThreads) {
+    this.proposalThreads = proposalThreads;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
-  public Simulator getSimulator() {
+  public Simulator getSimulator(SimContext context) {
     double currentTime = 0.0;
-    GridMap layout = new GridMap(currentTime,
+    GridMap layout = new GridMap(context,
+                                       currentTime,
                                        numOfColumns,
                                        numOfRows,
                                        laneWidth,
@@ -248,6 +319,10 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
                                         edgeTileTimeBufferSize,
                                         isEdgeTileTimeBufferEnabled,
                                         granularity);  // granularity
+    gridConfig.setFootprintCache(footprintCacheSize,
+                                 footprintVelocityQuantum,
+                                 footprintPhaseQuantum);
+    gridConfig.setFootprintMethod(footprintMethod);
 
 /* for demo */
 /*
@@ -282,6 +357,10 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
       } else {
         GridMapUtil.setFCFSManagers(layout, currentTime, gridConfig);
       }
+      if (proposalThreads > 1) {
+        GridMapUtil.setProposalExecutor(
+          layout, Util.newDaemonThreadPool(proposalThreads, "proposal"));
+      }
 
       switch(trafficType) {
       case UNIFORM_RANDOM:
@@ -298,6 +377,9 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
       case FILE:
         GridMapUtil.setUniformRatioSpawnPoints(layout, trafficVolumeFileName);
         break;
+      case TRACE:
+        GridMapUtil.setArrivalTraceSpawnPoints(layout, arrivalTraceFileName);
+        break;
       }
     } else {
       GridMapUtil.setFCFSManagers(layout, currentTime, gridConfig);
@@ -305,8 +387,7 @@ public class AutoDriverOnlySimSetup extends BasicSimSetup implements SimSetup {
     }
 
 
-    V2IPilot.DEFAULT_STOP_DISTANCE_BEFORE_INTERSECTION =
-      stopDistBeforeIntersection;
-    return new AutoDriverOnlySimulator(layout);
+    context.setStopDistBeforeIntersection(stopDistBeforeIntersection);
+    return new AutoDriverOnlySimulator(layout, stepThreads);
   }
 }
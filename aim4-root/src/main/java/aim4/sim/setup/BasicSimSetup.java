@@ -30,6 +30,7 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim.setup;
 
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -54,6 +55,11 @@ public class BasicSimSetup implements SimSetup {
   protected double trafficLevel;
   /** The stopping distance before intersection */
   protected double stopDistBeforeIntersection;
+  /**
+   * The number of threads that execute the driver and the intersection
+   * manager phases of a simulation step
+   */
+  protected int stepThreads = 1;
 
   /**
    * Create a copy of a given basic simulator setup.
@@ -70,6 +76,7 @@ public class BasicSimSetup implements SimSetup {
     this.distanceBetween = basicSimSetup.distanceBetween;
     this.trafficLevel = basicSimSetup.trafficLevel;
     this.stopDistBeforeIntersection = basicSimSetup.stopDistBeforeIntersection;
+    this.stepThreads = basicSimSetup.stepThreads;
   }
 
   /**
@@ -108,7 +115,7 @@ public class BasicSimSetup implements SimSetup {
    * {@inheritDoc}
    */
   @Override
-  public Simulator getSimulator() {
+  public Simulator getSimulator(SimContext context) {
     // TODO: think how to avoid using the following assertation.
     assert false : ("Cannot instantiate BasicSimSetup");
     return null;
@@ -250,6 +257,27 @@ public class BasicSimSetup implements SimSetup {
     this.lanesPerRoad = lanesPerRoad;
   }
 
+  /**
+   * Get the number of threads that execute the driver and the intersection
+   * manager phases of a simulation step.
+   *
+   * @return the number of threads
+   */
+  public int getStepThreads() {
+    return stepThreads;
+  }
+
+  /**
+   * Set the number of threads that execute the driver and the intersection
+   * manager phases of a simulation step.
+   *
+   * @param stepThreads  the number of threads; one if the phases should be
+   *                     executed by the simulation thread
+   */
+  public void setStepThreads(int stepThreads) {
+    this.stepThreads = stepThreads;
+  }
+
 
 
 }
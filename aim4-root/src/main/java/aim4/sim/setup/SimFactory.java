@@ -30,8 +30,10 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim.setup;
 
+import aim4.config.Debug;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
-import aim4.vehicle.VinRegistry;
+import aim4.util.Util;
 
 // TODO: probably remove this class
 
@@ -41,15 +43,30 @@ import aim4.vehicle.VinRegistry;
 public class SimFactory {
 
   /**
-   * Create a simulator.
+   * Create a simulator with a new random seed.
    *
    * @param simSetup  the simulation setup
    * @return a simulator
    */
   public static Simulator makeSimulator(SimSetup simSetup) {
-    VinRegistry.reset();   // TODO: should make it part of the simulator
-    System.gc();
-    return simSetup.getSimulator();
+    long randSeed = Util.makeRandomSeed();
+    if (Debug.IS_PRINT_RANDOM_SEED) {
+      System.err.println("randSeed = " + randSeed + "L");
+    }
+    return makeSimulator(simSetup, randSeed);
+  }
+
+  /**
+   * Create a simulator with the given random seed.  Each simulator has its
+   * own context, so simulators created by this function can run
+   * concurrently.
+   *
+   * @param simSetup  the simulation setup
+   * @param randSeed  the random seed
+   * @return a simulator
+   */
+  public static Simulator makeSimulator(SimSetup simSetup, long randSeed) {
+    return simSetup.getSimulator(new SimContext(randSeed));
   }
 
 }
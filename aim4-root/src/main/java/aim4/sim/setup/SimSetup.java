@@ -30,6 +30,8 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.sim.setup;
 
+import aim4.sim.SimContext;
+import aim4.sim.SimContext;
 import aim4.sim.Simulator;
 
 /**
@@ -54,7 +56,8 @@ public interface SimSetup {
   /**
    * Get the simulator.
    *
+   * @param context  the context of the simulation
    * @return the simulator
    */
-  Simulator getSimulator();
+  Simulator getSimulator(SimContext context);
 }
@@ -0,0 +1,194 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.geom.Point2D;
+import java.util.Arrays;
+
+/**
+ * A key that identifies a geometry up to a translation.  The coordinates
+ * are given relative to an origin that moves with the geometry, such as a
+ * corner of its bounding box, and are rounded to micrometers so that
+ * geometries that differ only by a translation have equal keys despite
+ * rounding errors.  Geometry keys are used to share the results of
+ * expensive geometric computations between identical parts of a map.
+ */
+public class GeometryKey {
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A builder of geometry keys.
+   */
+  public static class Builder {
+    /** The values of the key */
+    private long[] values = new long[64];
+    /** The number of values */
+    private int size = 0;
+
+    /**
+     * Add an integer, such as a count or an index.
+     *
+     * @param value  the integer
+     * @return this builder
+     */
+    public Builder add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+      return this;
+    }
+
+    /**
+     * Add a length, rounded to micrometers.
+     *
+     * @param length  the length
+     * @return this builder
+     */
+    public Builder addLength(double length) {
+      return add(Math.round(length * LENGTH_SCALE));
+    }
+
+    /**
+     * Add a component of a unit vector, rounded to nine decimal places.
+     *
+     * @param x  the component
+     * @return this builder
+     */
+    public Builder addDirection(double x) {
+      return add(Math.round(x * DIRECTION_SCALE));
+    }
+
+    /**
+     * Add the coordinates of a point relative to an origin, rounded to
+     * micrometers.
+     *
+     * @param p   the point
+     * @param x0  the x-coordinate of the origin
+     * @param y0  the y-coordinate of the origin
+     * @return this builder
+     */
+    public Builder addPoint(Point2D p, double x0, double y0) {
+      return addPoint(p.getX(), p.getY(), x0, y0);
+    }
+
+    /**
+     * Add the coordinates of a point relative to an origin, rounded to
+     * micrometers.
+     *
+     * @param x   the x-coordinate of the point
+     * @param y   the y-coordinate of the point
+     * @param x0  the x-coordinate of the origin
+     * @param y0  the y-coordinate of the origin
+     * @return this builder
+     */
+    public Builder addPoint(double x, double y, double x0, double y0) {
+      addLength(x - x0);
+      return addLength(y - y0);
+    }
+
+    /**
+     * Add a number exactly.
+     *
+     * @param value  the number
+     * @return this builder
+     */
+    public Builder addExact(double value) {
+      return add(Double.doubleToLongBits(value));
+    }
+
+    /**
+     * Build the geometry key.
+     *
+     * @return the geometry key
+     */
+    public GeometryKey build() {
+      return new GeometryKey(Arrays.copyOf(values, size));
+    }
+  }
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of units of a rounded length in a meter. {@value} */
+  private static final double LENGTH_SCALE = 1e6;
+
+  /** The number of units of a rounded direction in one. {@value} */
+  private static final double DIRECTION_SCALE = 1e9;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The values of the key */
+  private final long[] values;
+  /** The hash code */
+  private final int hashCode;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a geometry key.
+   *
+   * @param values  the values of the key
+   */
+  private GeometryKey(long[] values) {
+    this.values = values;
+    this.hashCode = Arrays.hashCode(values);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof GeometryKey
+           && Arrays.equals(values, ((GeometryKey)obj).values);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int hashCode() {
+    return hashCode;
+  }
+}
@@ -0,0 +1,148 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue with many producers and a single consumer.
+ * The producers never block: an element offered to a full queue is
+ * dropped and counted.  The consumer takes all queued elements at once.
+ *
+ * @param <E>  the type of the elements
+ */
+public class MpscQueue<E> {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The maximum number of queued elements */
+  private final int capacity;
+  /** The elements */
+  private final ConcurrentLinkedQueue<E> queue;
+  /**
+   * The number of queued elements; ConcurrentLinkedQueue.size() would
+   * traverse the queue.
+   */
+  private final AtomicInteger depth;
+  /** The number of elements dropped because the queue was full */
+  private final AtomicLong numOfDrops;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty queue.
+   *
+   * @param capacity  the maximum number of queued elements
+   */
+  public MpscQueue(int capacity) {
+    if (capacity < 1) {
+      throw new IllegalArgumentException("The capacity must be positive");
+    }
+    this.capacity = capacity;
+    this.queue = new ConcurrentLinkedQueue<E>();
+    this.depth = new AtomicInteger(0);
+    this.numOfDrops = new AtomicLong(0);
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Add an element to the end of the queue unless the queue is full.  It
+   * can be called by any thread.
+   *
+   * @param e  the element
+   * @return whether the element is added; false if it is dropped
+   */
+  public boolean offer(E e) {
+    if (depth.incrementAndGet() > capacity) {
+      depth.decrementAndGet();
+      numOfDrops.incrementAndGet();
+      return false;
+    }
+    queue.offer(e);
+    return true;
+  }
+
+  /**
+   * Move the queued elements to a collection in the order in which they
+   * were added.  It must be called by one thread at a time.  The elements
+   * added while the queue is being drained may or may not be moved.
+   *
+   * @param c  the collection
+   * @return the number of elements moved
+   */
+  public int drainTo(Collection<? super E> c) {
+    int n = 0;
+    for(E e = queue.poll(); e != null; e = queue.poll()) {
+      c.add(e);
+      n++;
+    }
+    depth.addAndGet(-n);
+    return n;
+  }
+
+  /**
+   * Get the maximum number of queued elements.
+   *
+   * @return the maximum number of queued elements
+   */
+  public int getCapacity() {
+    return capacity;
+  }
+
+  /**
+   * Get the number of queued elements.
+   *
+   * @return the number of queued elements
+   */
+  public int getDepth() {
+    return depth.get();
+  }
+
+  /**
+   * Get the number of elements dropped because the queue was full.
+   *
+   * @return the number of dropped elements
+   */
+  public long getNumOfDrops() {
+    return numOfDrops.get();
+  }
+
+}
@@ -0,0 +1,278 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import java.awt.Shape;
+import java.awt.geom.GeneralPath;
+import java.awt.geom.Line2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A mutable quadrilateral given by its four corners in order, such as the
+ * outline of a vehicle.  Unlike a {@link Shape}, a box can be updated in
+ * place and its tests allocate no memory, so that a vehicle can keep a
+ * single box for its whole life.
+ *
+ * <p>The corners are rounded to float precision, as in the shapes made by
+ * {@link GeomUtil#convertPointsToShape(java.awt.geom.Point2D[])}, so that
+ * the tests of a box agree with those of the corresponding shape.  The box
+ * must be convex.</p>
+ */
+public class OrientedBox {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The x-coordinates of the corners */
+  private final double[] xs = new double[4];
+  /** The y-coordinates of the corners */
+  private final double[] ys = new double[4];
+  /** The smallest x-coordinate of the corners */
+  private double minX;
+  /** The largest x-coordinate of the corners */
+  private double maxX;
+  /** The smallest y-coordinate of the corners */
+  private double minY;
+  /** The largest y-coordinate of the corners */
+  private double maxY;
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create a box whose corners are all at the origin.
+   */
+  public OrientedBox() {
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Set the corners of the box.
+   *
+   * @param cornerXs  the x-coordinates of the four corners, in order
+   * @param cornerYs  the y-coordinates of the four corners, in order
+   */
+  public void setCorners(double[] cornerXs, double[] cornerYs) {
+    for(int i = 0; i < 4; i++) {
+      xs[i] = (float)cornerXs[i];
+      ys[i] = (float)cornerYs[i];
+    }
+    minX = Math.min(Math.min(xs[0], xs[1]), Math.min(xs[2], xs[3]));
+    maxX = Math.max(Math.max(xs[0], xs[1]), Math.max(xs[2], xs[3]));
+    minY = Math.min(Math.min(ys[0], ys[1]), Math.min(ys[2], ys[3]));
+    maxY = Math.max(Math.max(ys[0], ys[1]), Math.max(ys[2], ys[3]));
+  }
+
+  /**
+   * Get the x-coordinate of a corner.
+   *
+   * @param i  the index of the corner
+   * @return the x-coordinate of the corner
+   */
+  public double getCornerX(int i) {
+    return xs[i];
+  }
+
+  /**
+   * Get the y-coordinate of a corner.
+   *
+   * @param i  the index of the corner
+   * @return the y-coordinate of the corner
+   */
+  public double getCornerY(int i) {
+    return ys[i];
+  }
+
+  /**
+   * Get the smallest x-coordinate of the box.
+   *
+   * @return the smallest x-coordinate of the box
+   */
+  public double getMinX() {
+    return minX;
+  }
+
+  /**
+   * Get the largest x-coordinate of the box.
+   *
+   * @return the largest x-coordinate of the box
+   */
+  public double getMaxX() {
+    return maxX;
+  }
+
+  /**
+   * Get the smallest y-coordinate of the box.
+   *
+   * @return the smallest y-coordinate of the box
+   */
+  public double getMinY() {
+    return minY;
+  }
+
+  /**
+   * Get the largest y-coordinate of the box.
+   *
+   * @return the largest y-coordinate of the box
+   */
+  public double getMaxY() {
+    return maxY;
+  }
+
+  /**
+   * Whether the bounding box of this box intersects a rectangle.
+   *
+   * @param r  the rectangle
+   * @return whether the bounding box intersects the rectangle
+   */
+  public boolean boundsIntersect(Rectangle2D r) {
+    return minX <= r.getMaxX() && r.getMinX() <= maxX
+           && minY <= r.getMaxY() && r.getMinY() <= maxY;
+  }
+
+  /**
+   * Whether the bounding box of this box is inside a rectangle.
+   *
+   * @param r  the rectangle
+   * @return whether the bounding box is inside the rectangle
+   */
+  public boolean isBoundsInside(Rectangle2D r) {
+    return r.getMinX() <= minX && maxX <= r.getMaxX()
+           && r.getMinY() <= minY && maxY <= r.getMaxY();
+  }
+
+  /**
+   * Whether a point is inside the box.  A point on the boundary is inside
+   * under the same rule as {@link Shape#contains(double, double)}: an edge
+   * is crossed by the ray to the left of the point if the point is at or
+   * above its lower end and below its upper end.
+   *
+   * @param x  the x-coordinate of the point
+   * @param y  the y-coordinate of the point
+   * @return whether the point is inside the box
+   */
+  public boolean contains(double x, double y) {
+    boolean isInside = false;
+    for(int i = 0, j = 3; i < 4; j = i++) {
+      double x0 = xs[j];
+      double y0 = ys[j];
+      double x1 = xs[i];
+      double y1 = ys[i];
+      if ((y < y0 && y < y1) || (y >= y0 && y >= y1)
+          || (x >= x0 && x >= x1)) {
+        continue;
+      }
+      if ((x < x0 && x < x1)
+          || x < x0 + (y - y0) * (x1 - x0) / (y1 - y0)) {
+        isInside = !isInside;
+      }
+    }
+    return isInside;
+  }
+
+  /**
+   * Whether the interior of the box intersects a rectangle.  Since both
+   * are convex, they intersect unless one of the axes of the rectangle or
+   * one of the edge normals of the box separates them.
+   *
+   * @param r  the rectangle
+   * @return whether the box intersects the rectangle
+   */
+  public boolean intersects(Rectangle2D r) {
+    if (r.isEmpty()
+        || maxX <= r.getMinX() || r.getMaxX() <= minX
+        || maxY <= r.getMinY() || r.getMaxY() <= minY) {
+      return false;
+    }
+    double cx = r.getCenterX();
+    double cy = r.getCenterY();
+    double halfWidth = r.getWidth() / 2;
+    double halfHeight = r.getHeight() / 2;
+    for(int i = 0, j = 3; i < 4; j = i++) {
+      // the normal of the edge from corner j to corner i
+      double nx = ys[i] - ys[j];
+      double ny = xs[j] - xs[i];
+      double boxMin = Double.POSITIVE_INFINITY;
+      double boxMax = Double.NEGATIVE_INFINITY;
+      for(int k = 0; k < 4; k++) {
+        double p = nx * xs[k] + ny * ys[k];
+        boxMin = Math.min(boxMin, p);
+        boxMax = Math.max(boxMax, p);
+      }
+      double rectCenter = nx * cx + ny * cy;
+      double rectExtent = Math.abs(nx) * halfWidth + Math.abs(ny) * halfHeight;
+      if (boxMax <= rectCenter - rectExtent
+          || rectCenter + rectExtent <= boxMin) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Get the distance from a point to the nearest edge of the box.
+   *
+   * @param x  the x-coordinate of the point
+   * @param y  the y-coordinate of the point
+   * @return the distance from the point to the nearest edge
+   */
+  public double edgeDistance(double x, double y) {
+    double distance = Double.MAX_VALUE;
+    for(int i = 0; i < 4; i++) {
+      int j = (i + 1) % 4;
+      distance =
+        Math.min(distance,
+                 Line2D.ptSegDist(xs[i], ys[i], xs[j], ys[j], x, y));
+    }
+    return distance;
+  }
+
+  /**
+   * Make a shape with the same outline as the box.
+   *
+   * @return the shape
+   */
+  public Shape toShape() {
+    GeneralPath result = new GeneralPath();
+    result.moveTo((float)xs[0], (float)ys[0]);
+    for(int i = 1; i < 4; i++) {
+      result.lineTo((float)xs[i], (float)ys[i]);
+    }
+    result.closePath();
+    return result;
+  }
+
+}
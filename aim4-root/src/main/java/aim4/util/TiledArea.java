@@ -32,9 +32,12 @@ package aim4.util;
 
 import java.awt.Shape;
 import java.awt.geom.Area;
+import java.awt.geom.PathIterator;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * A tiled area - a subdivision of an area into a grid of small rectangles.
@@ -110,6 +113,38 @@ public class TiledArea {
     }
   }
 
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /**
+   * The tolerance for rounding errors in the range of y-coordinates a
+   * polygon spans within a column of tiles. {@value} meters.
+   */
+  private static final double COLUMN_MARGIN = 1e-6;
+
+  /**
+   * The maximum number of occupancy patterns shared between tiled areas.
+   * {@value}
+   */
+  private static final int MAX_SHARED_OCCUPANCIES = 64;
+
+  /**
+   * The tiles that exist in the tiled areas seen so far, indexed by
+   * <code>x * yNum + y</code>, in the order of access.  Which tiles exist
+   * depends only on the shape of the area relative to its bounding box, so
+   * that the intersections of a grid map compute it only once.
+   */
+  private static final Map<GeometryKey, boolean[]> sharedOccupancies =
+    new LinkedHashMap<GeometryKey, boolean[]>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+      @Override
+      protected boolean removeEldestEntry(
+          Map.Entry<GeometryKey, boolean[]> eldest) {
+        return size() > MAX_SHARED_OCCUPANCIES;
+      }
+    };
+
   /////////////////////////////////
   // PRIVATE FIELDS
   /////////////////////////////////
@@ -171,6 +206,15 @@ public class TiledArea {
    * Create the tiles
    */
   private void createTiles() {
+    GeometryKey key = makeOccupancyKey();
+    boolean[] occupancy;
+    synchronized(sharedOccupancies) {
+      occupancy = sharedOccupancies.get(key);
+    }
+    boolean isShared = (occupancy != null);
+    if (!isShared) {
+      occupancy = new boolean[xNum * yNum];
+    }
     numberOfTiles = 0;
     for(int x = 0; x < xNum; x++) {
       for(int y = 0; y < yNum; y++) {
@@ -190,7 +234,10 @@ public class TiledArea {
                                  width, height);
         // Now that we have a rectangle for the tile, we can figure out
         // whether it is actually in the area
-        if(area.intersects(tileRect)) {
+        if (!isShared) {
+          occupancy[x * yNum + y] = area.intersects(tileRect);
+        }
+        if(occupancy[x * yNum + y]) {
           // If it is in the area, let's make a new tile
           tiles[x][y] = new Tile(tileRect, x, y, numberOfTiles);
           idToTiles.add(tiles[x][y]);
@@ -198,6 +245,40 @@ public class TiledArea {
         }
       }
     }
+    if (!isShared) {
+      synchronized(sharedOccupancies) {
+        sharedOccupancies.put(key, occupancy);
+      }
+    }
+  }
+
+  /**
+   * Make the key of the tiles that exist in this tiled area.  The key
+   * consists of the size of the tiles and the outline of the area relative
+   * to the corner of its bounding box.
+   *
+   * @return the key of the tiles that exist in this tiled area
+   */
+  private GeometryKey makeOccupancyKey() {
+    GeometryKey.Builder key = new GeometryKey.Builder();
+    key.addExact(xLength);
+    key.addExact(yLength);
+    key.add(xNum);
+    key.add(yNum);
+    double[] coords = new double[6];
+    for(PathIterator it = area.getPathIterator(null); !it.isDone();
+        it.next()) {
+      int type = it.currentSegment(coords);
+      key.add(type);
+      int n = (type == PathIterator.SEG_QUADTO) ? 2
+            : (type == PathIterator.SEG_CUBICTO) ? 3
+            : (type == PathIterator.SEG_CLOSE) ? 0 : 1;
+      for(int i = 0; i < n; i++) {
+        key.addPoint(coords[2 * i], coords[2 * i + 1],
+                     rectangle.getMinX(), rectangle.getMinY());
+      }
+    }
+    return key.build();
   }
 
   /**
@@ -376,4 +457,185 @@ public class TiledArea {
     return occupiedTiles;
   }
 
+  /**
+   * Find the IDs of the tiles that are occupied by a convex quadrilateral,
+   * such as the footprint of a vehicle.  Unlike
+   * {@link #findOccupiedTiles(Shape)}, this method allocates no memory:
+   * the quadrilateral is tested against each candidate tile with the
+   * separating axis theorem and the IDs are written into a buffer given by
+   * the caller.  A tile is occupied if its interior overlaps the interior of
+   * the quadrilateral.
+   *
+   * @param xs       the x-coordinates of the four vertices of the
+   *                 quadrilateral, in order around the quadrilateral
+   * @param ys       the y-coordinates of the four vertices
+   * @param tileIds  the buffer in which to store the IDs of the occupied
+   *                 tiles; it must be able to hold
+   *                 {@link #getNumberOfTiles()} IDs
+   * @return the number of occupied tiles
+   */
+  public int findOccupiedTiles(double[] xs, double[] ys, int[] tileIds) {
+    double minX = Math.min(Math.min(xs[0], xs[1]), Math.min(xs[2], xs[3]));
+    double maxX = Math.max(Math.max(xs[0], xs[1]), Math.max(xs[2], xs[3]));
+    double minY = Math.min(Math.min(ys[0], ys[1]), Math.min(ys[2], ys[3]));
+    double maxY = Math.max(Math.max(ys[0], ys[1]), Math.max(ys[2], ys[3]));
+    // The normals of the edges and the projections of the quadrilateral on
+    // them, which are the same for all tiles
+    double n0x = ys[1] - ys[0];
+    double n0y = xs[0] - xs[1];
+    double p0Min = projectionMin(n0x, n0y, xs, ys);
+    double p0Max = projectionMax(n0x, n0y, xs, ys);
+    double n1x = ys[2] - ys[1];
+    double n1y = xs[1] - xs[2];
+    double p1Min = projectionMin(n1x, n1y, xs, ys);
+    double p1Max = projectionMax(n1x, n1y, xs, ys);
+    double n2x = ys[3] - ys[2];
+    double n2y = xs[2] - xs[3];
+    double p2Min = projectionMin(n2x, n2y, xs, ys);
+    double p2Max = projectionMax(n2x, n2y, xs, ys);
+    double n3x = ys[0] - ys[3];
+    double n3y = xs[3] - xs[0];
+    double p3Min = projectionMin(n3x, n3y, xs, ys);
+    double p3Max = projectionMax(n3x, n3y, xs, ys);
+
+    // Only the tiles within the bounding box can be occupied; see
+    // findOccupiedTiles(Shape)
+    int firstColumn =
+      Math.max(0, (int)((minX - rectangle.getMinX()) / xLength));
+    int lastColumn =
+      Math.min(xNum - 1, (int)((maxX - rectangle.getMinX()) / xLength));
+    int firstRow =
+      Math.max(0, (int)((minY - rectangle.getMinY()) / yLength));
+    int lastRow =
+      Math.min(yNum - 1, (int)((maxY - rectangle.getMinY()) / yLength));
+
+    int numOfOccupiedTiles = 0;
+    for(int c = firstColumn; c <= lastColumn; c++) {
+      // Find the range of y-coordinates the quadrilateral spans within the
+      // column.  Rows well inside the range are occupied; the separating
+      // axis test decides the rows near its ends.
+      double colMinX = rectangle.getMinX() + c * xLength;
+      double colMaxX = Math.min(colMinX + xLength, rectangle.getMaxX());
+      double colMinY = Double.MAX_VALUE;
+      double colMaxY = -Double.MAX_VALUE;
+      for(int i = 0; i < 4; i++) {
+        int j = (i + 1) & 3;
+        double x0 = xs[i];
+        double y0 = ys[i];
+        double x1 = xs[j];
+        double y1 = ys[j];
+        if (Math.max(x0, x1) < colMinX || Math.min(x0, x1) > colMaxX) {
+          continue;  // the edge is outside the column
+        }
+        if (x0 == x1) {
+          colMinY = Math.min(colMinY, Math.min(y0, y1));
+          colMaxY = Math.max(colMaxY, Math.max(y0, y1));
+        } else {
+          // clip the edge to the column
+          double slope = (y1 - y0) / (x1 - x0);
+          double xa = Math.max(Math.min(x0, x1), colMinX);
+          double xb = Math.min(Math.max(x0, x1), colMaxX);
+          double ya = y0 + (xa - x0) * slope;
+          double yb = y0 + (xb - x0) * slope;
+          colMinY = Math.min(colMinY, Math.min(ya, yb));
+          colMaxY = Math.max(colMaxY, Math.max(ya, yb));
+        }
+      }
+      int firstColRow = Math.max(firstRow,
+        (int)((colMinY - COLUMN_MARGIN - rectangle.getMinY()) / yLength));
+      int lastColRow = Math.min(lastRow,
+        (int)((colMaxY + COLUMN_MARGIN - rectangle.getMinY()) / yLength));
+      // Whether the interior of the quadrilateral crosses the column, so
+      // that every row strictly inside the range overlaps it
+      boolean isCrossing = maxX > colMinX + COLUMN_MARGIN
+                           && minX < colMaxX - COLUMN_MARGIN;
+      for(int r = firstColRow; r <= lastColRow; r++) {
+        Tile tile = tiles[c][r];
+        if (tile == null) {
+          continue;
+        }
+        Rectangle2D rect = tile.getRectangle();
+        double ry0 = rect.getMinY();
+        double ry1 = rect.getMaxY();
+        if (isCrossing && ry0 > colMinY + COLUMN_MARGIN
+                       && ry1 < colMaxY - COLUMN_MARGIN) {
+          tileIds[numOfOccupiedTiles++] = tile.getId();
+          continue;
+        }
+        double rx0 = rect.getMinX();
+        double rx1 = rect.getMaxX();
+        if (maxX > rx0 && minX < rx1 && maxY > ry0 && minY < ry1
+            && overlaps(n0x, n0y, p0Min, p0Max, rx0, rx1, ry0, ry1)
+            && overlaps(n1x, n1y, p1Min, p1Max, rx0, rx1, ry0, ry1)
+            && overlaps(n2x, n2y, p2Min, p2Max, rx0, rx1, ry0, ry1)
+            && overlaps(n3x, n3y, p3Min, p3Max, rx0, rx1, ry0, ry1)) {
+          tileIds[numOfOccupiedTiles++] = tile.getId();
+        }
+      }
+    }
+    return numOfOccupiedTiles;
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get the minimum projection of the vertices of a quadrilateral on an
+   * axis.
+   *
+   * @param nx  the x-component of the axis
+   * @param ny  the y-component of the axis
+   * @param xs  the x-coordinates of the vertices
+   * @param ys  the y-coordinates of the vertices
+   * @return the minimum projection
+   */
+  private static double projectionMin(double nx, double ny,
+                                      double[] xs, double[] ys) {
+    return Math.min(Math.min(nx * xs[0] + ny * ys[0], nx * xs[1] + ny * ys[1]),
+                    Math.min(nx * xs[2] + ny * ys[2], nx * xs[3] + ny * ys[3]));
+  }
+
+  /**
+   * Get the maximum projection of the vertices of a quadrilateral on an
+   * axis.
+   *
+   * @param nx  the x-component of the axis
+   * @param ny  the y-component of the axis
+   * @param xs  the x-coordinates of the vertices
+   * @param ys  the y-coordinates of the vertices
+   * @return the maximum projection
+   */
+  private static double projectionMax(double nx, double ny,
+                                      double[] xs, double[] ys) {
+    return Math.max(Math.max(nx * xs[0] + ny * ys[0], nx * xs[1] + ny * ys[1]),
+                    Math.max(nx * xs[2] + ny * ys[2], nx * xs[3] + ny * ys[3]));
+  }
+
+  /**
+   * Whether the open intervals of the projections of a polygon and a
+   * rectangle on an axis overlap.
+   *
+   * @param nx    the x-component of the axis
+   * @param ny    the y-component of the axis
+   * @param pMin  the minimum projection of the polygon
+   * @param pMax  the maximum projection of the polygon
+   * @param rx0   the minimum x-coordinate of the rectangle
+   * @param rx1   the maximum x-coordinate of the rectangle
+   * @param ry0   the minimum y-coordinate of the rectangle
+   * @param ry1   the maximum y-coordinate of the rectangle
+   * @return whether the projections overlap; true if the axis is degenerate
+   */
+  private static boolean overlaps(double nx, double ny,
+                                  double pMin, double pMax,
+                                  double rx0, double rx1,
+                                  double ry0, double ry1) {
+    if (nx == 0.0 && ny == 0.0) {
+      return true;  // a degenerate edge has no normal
+    }
+    double rMin = Math.min(nx * rx0, nx * rx1) + Math.min(ny * ry0, ny * ry1);
+    double rMax = Math.max(nx * rx0, nx * rx1) + Math.max(ny * ry0, ny * ry1);
+    return pMax > rMin && pMin < rMax;
+  }
+
 }
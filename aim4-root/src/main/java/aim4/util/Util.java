@@ -38,11 +38,17 @@ import aim4.config.Condor;
 import aim4.config.Constants;
 import java.io.BufferedReader;
 import java.io.DataInputStream;
+import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides helper methods that are used throughout the code.
@@ -50,32 +56,40 @@ import java.util.LinkedList;
 public class Util {
 
   /////////////////////////////////
-  // PUBLIC METHODS
+  // PUBLIC STATIC METHODS
   /////////////////////////////////
 
-  /** The random seed for all random number generators in the simulation */
-  public static long randSeed = (new Random()).nextLong();
-  // public static final long randSeed = -6397397808339168785L;
-
-  /** The global random number generator */
-  public static final Random random = new Random(randSeed);
-
-  static {
+  /**
+   * Generate a new random seed for a simulation.  On Condor, different
+   * processes receive different random seeds.
+   *
+   * @return a new random seed
+   */
+  public static long makeRandomSeed() {
+    long randSeed = (new Random()).nextLong();
     if (Condor.IS_CONDOR_EXIST) {
-      // To make sure different processes on Condor receives different random
-      // seeds, different processes sleep for a different time.
-      try{
-        Thread.sleep(Condor.CONDOR_ID * 10);
-      } catch(InterruptedException e){
-        // ignore the interruption by another thread
-      }
-      randSeed = Util.random.nextLong() + Condor.CONDOR_ID;
-      Util.random.setSeed(randSeed);
+      randSeed += Condor.CONDOR_ID;
     }
+    return randSeed;
+  }
 
-//    if (Debug.IS_PRINT_RANDOM_SEED) {
-//      System.err.println("randSeed = " + Util.randSeed + "L");
-//    }
+  /**
+   * Derive the seed of a child random stream from the seed of its parent
+   * stream.  Different keys give statistically independent seeds, and the
+   * seed of a child depends only on the seed of its parent and its key,
+   * not on the order in which the children are created.
+   *
+   * @param seed  the seed of the parent stream
+   * @param key   the key of the child stream
+   * @return the seed of the child stream
+   */
+  public static long splitSeed(long seed, long key) {
+    // the finalizer of SplitMix64 over the key-th element of the Weyl
+    // sequence that starts at the seed
+    long z = seed + (key + 1) * 0x9E3779B97F4A7C15L;
+    z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    return z ^ (z >>> 31);
   }
 
 
@@ -274,16 +288,34 @@ public class Util {
     return sum;
   }
 
+  /**
+   * The percentile of the first n values of an array by the nearest-rank
+   * method.  The array is not modified.
+   *
+   * @param values  an array of values
+   * @param n       the number of values to consider
+   * @param p       the percentile, between 0 and 100
+   * @return the percentile of the values
+   */
+  public static long percentile(long[] values, int n, double p) {
+    assert n > 0;
+    long[] sorted = Arrays.copyOf(values, n);
+    Arrays.sort(sorted);
+    int rank = (int)Math.ceil(p / 100.0 * n) - 1;
+    return sorted[Math.max(0, Math.min(n - 1, rank))];
+  }
+
 
   /**
    * Choose a number according to a finite probability distribution.
    *
+   * @param random        the random number generator
    * @param distribution  the probability distribution
    * @return an index of the distribution that is randomly chosen according
    *         to the distribution
    */
-  public static int randomIndex(double[] distribution) {
-    double a = Util.random.nextDouble();
+  public static int randomIndex(Random random, double[] distribution) {
+    double a = random.nextDouble();
     for(int i=0; i<distribution.length; i++) {
       a -= distribution[i];
       if (a<0.0) {
@@ -296,12 +328,13 @@ public class Util {
   /**
    * Choose a number according to a finite probability distribution.
    *
+   * @param random        the random number generator
    * @param distribution  the probability distribution
    * @return an index of the distribution that is randomly chosen according
    *         to the distribution
    */
-  public static int randomIndex(List<Double> distribution) {
-    double a = Util.random.nextDouble();
+  public static int randomIndex(Random random, List<Double> distribution) {
+    double a = random.nextDouble();
     for(int i=0; i<distribution.size(); i++) {
       a -= distribution.get(i);
       if (a<0.0) {
@@ -342,7 +375,8 @@ public class Util {
   }
 
   /**
-   * Read the content of a file into a list of strings.
+   * Read the content of a file into a list of strings.  The file is first
+   * looked up as a class path resource and then in the file system.
    *
    * @param inFileName  the name of the file
    * @return the list of strings
@@ -351,9 +385,11 @@ public class Util {
   public static List<String> readFileToStrArray(String inFileName) throws
       IOException {
     List<String> result = new LinkedList<String>();
-    // FileInputStream fstream = new FileInputStream(inFileName);
     InputStream fstream = Util.class.getResourceAsStream(inFileName);
-    if (fstream == null) { System.err.printf("Fuck this: %s\n", inFileName); }
+    if (fstream == null) {
+      // not a resource; let it throw FileNotFoundException if it is missing
+      fstream = new FileInputStream(inFileName);
+    }
     DataInputStream in = new DataInputStream(fstream);
     BufferedReader br = new BufferedReader(new InputStreamReader(in));
     while (true) {
@@ -367,6 +403,37 @@ public class Util {
     return new ArrayList<String>(result);
   }
 
+  /**
+   * Create a thread pool of daemon threads that terminate when they are
+   * idle.  The owner of the pool should shut it down when it is done with
+   * it (see {@link aim4.sim.Simulator#close()}); the idle timeout only
+   * bounds how long the threads of a pool that is not shut down linger.
+   *
+   * @param numOfThreads  the maximum number of threads
+   * @param name          the name of the threads
+   * @return the thread pool
+   */
+  public static ExecutorService newDaemonThreadPool(int numOfThreads,
+                                                    final String name) {
+    ThreadPoolExecutor executor =
+      new ThreadPoolExecutor(numOfThreads, numOfThreads,
+                             1L, TimeUnit.SECONDS,
+                             new LinkedBlockingQueue<Runnable>(),
+                             new ThreadFactory() {
+                               private int count = 0;
+                               @Override
+                               public synchronized Thread newThread(
+                                                            Runnable r) {
+                                 Thread thread =
+                                   new Thread(r, name + "-" + (count++));
+                                 thread.setDaemon(true);
+                                 return thread;
+                               }
+                             });
+    executor.allowCoreThreadTimeOut(true);
+    return executor;
+  }
+
   /////////////////////////////////
   // CLASS CONSTRUCTORS
   /////////////////////////////////
@@ -0,0 +1,166 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import java.util.Arrays;
+
+import aim4.config.Constants;
+
+/**
+ * The acceleration profile that an intersection manager confirms, a
+ * sequence of acceleration-duration pairs that a vehicle follows one after
+ * another.  The pairs are kept in a single array of doubles, and a vehicle
+ * consumes the profile from the front as it follows it.
+ */
+public class AccelProfileQueue {
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /**
+   * The acceleration-duration pairs; the acceleration of the i-th pair is
+   * at 2*i and its duration is at 2*i+1.
+   */
+  private double[] pairs;
+  /** The index of the first pair that has not been consumed */
+  private int first;
+  /** The index after the last pair */
+  private int end;
+
+  /////////////////////////////////
+  // CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty acceleration profile.
+   *
+   * @param capacity  the expected number of pairs
+   */
+  public AccelProfileQueue(int capacity) {
+    this.pairs = new double[2 * Math.max(capacity, 1)];
+    this.first = 0;
+    this.end = 0;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Append an acceleration-duration pair to the profile.
+   *
+   * @param acceleration  the acceleration
+   * @param duration      the duration
+   */
+  public void add(double acceleration, double duration) {
+    if (2 * end == pairs.length) {
+      pairs = Arrays.copyOf(pairs, 2 * pairs.length);
+    }
+    pairs[2 * end] = acceleration;
+    pairs[2 * end + 1] = duration;
+    end++;
+  }
+
+  /**
+   * Get the number of pairs that have not been consumed.
+   *
+   * @return the number of pairs that have not been consumed
+   */
+  public int size() {
+    return end - first;
+  }
+
+  /**
+   * Whether all pairs have been consumed.
+   *
+   * @return whether all pairs have been consumed
+   */
+  public boolean isEmpty() {
+    return first == end;
+  }
+
+  /**
+   * Get the acceleration of the first pair that has not been consumed.
+   *
+   * @return the acceleration of the first pair
+   */
+  public double getFirstAcceleration() {
+    assert !isEmpty();
+    return pairs[2 * first];
+  }
+
+  /**
+   * Get the remaining duration of the first pair that has not been
+   * consumed.
+   *
+   * @return the remaining duration of the first pair
+   */
+  public double getFirstDuration() {
+    assert !isEmpty();
+    return pairs[2 * first + 1];
+  }
+
+  /**
+   * Consume part of the duration of the first pair.
+   *
+   * @param duration  the duration to consume
+   */
+  public void consumeFirst(double duration) {
+    assert !isEmpty();
+    pairs[2 * first + 1] -= duration;
+  }
+
+  /**
+   * Consume the whole first pair.
+   */
+  public void removeFirst() {
+    assert !isEmpty();
+    first++;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("[");
+    for(int i = first; i < end; i++) {
+      if (i > first) {
+        sb.append(" ");
+      }
+      sb.append("(" + Constants.TWO_DEC.format(pairs[2 * i]) + ","
+                + Constants.TWO_DEC.format(pairs[2 * i + 1]) + ")");
+    }
+    return sb.append("]").toString();
+  }
+
+}
@@ -33,6 +33,7 @@ package aim4.vehicle;
 import java.awt.Shape;
 import java.awt.geom.Line2D;
 import java.awt.geom.Point2D;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 
@@ -43,6 +44,7 @@ import aim4.map.track.TrackPosition;
 import aim4.noise.DoubleGauge;
 import aim4.util.GeomMath;
 import aim4.util.GeomUtil;
+import aim4.util.OrientedBox;
 import aim4.util.Util;
 
 /**
@@ -1139,7 +1141,23 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   private DoubleGauge speedometer = new DoubleGauge();
 
-  // memoization
+  /**
+   * The outline of the vehicle, which is updated in place after every move.
+   */
+  private OrientedBox box = new OrientedBox();
+  /**
+   * The x-coordinates of the corners of the vehicle, used while the box is
+   * updated.
+   */
+  private double[] cornerXs = new double[4];
+  /**
+   * The y-coordinates of the corners of the vehicle, used while the box is
+   * updated.
+   */
+  private double[] cornerYs = new double[4];
+
+  // memoization; the memos are cleared after every move and recomputed
+  // only when they are requested
 
   /**
    * Memoization cache for {@link #gaugePosition()}.
@@ -1199,23 +1217,6 @@ public abstract class BasicVehicle implements VehicleSimView {
     clock.record(currentTime);
   }
 
-  /////////////////////////////////
-  // FINALIZE
-  /////////////////////////////////
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  protected void finalize() throws Throwable {
-    super.finalize();
-    // Make sure that the vehicle is unregistered from the Vehicle Registry.
-    if (vin >= 0) {
-      VinRegistry.unregisterVehicle(vin);
-      vin = -1;
-    }
-  }
-
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -1347,6 +1348,9 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Point2D gaugePosition() {
+    if (memoGaugePosition == null) {
+      memoGaugePosition = new Point2D.Double(xometer.read(), yometer.read());
+    }
     return memoGaugePosition;
   }
 
@@ -1378,14 +1382,28 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Shape getShape() {
+    if (memoGetShape == null) {
+      memoGetShape = box.toShape();
+    }
     return memoGetShape;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public OrientedBox getBox() {
+    return box;
+  }
+
   /**
    * {@inheritDoc}
    */
   @Override
   public Shape gaugeShape() {
+    if (memoGaugeShape == null) {
+      memoGaugeShape = GeomUtil.convertPointsToShape(gaugeCornerPoints());
+    }
     return memoGaugeShape;
   }
 
@@ -1405,7 +1423,13 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public List<Line2D> getEdges() {
-    return GeomMath.polygonalShapePerimeterSegments(getShape());
+    List<Line2D> edges = new ArrayList<Line2D>(4);
+    for(int i = 0; i < 4; i++) {
+      int j = (i + 1) % 4;
+      edges.add(new Line2D.Double(box.getCornerX(i), box.getCornerY(i),
+                                  box.getCornerX(j), box.getCornerY(j)));
+    }
+    return edges;
   }
 
   /**
@@ -1438,6 +1462,10 @@ public abstract class BasicVehicle implements VehicleSimView {
    */
   @Override
   public Point2D gaugePointBetweenFrontWheels() {
+    if (memoGaugePointBetweenFrontWheels == null) {
+      memoGaugePointBetweenFrontWheels =
+        spec.getPointBetweenFrontWheels(gaugePosition(), gaugeHeading());
+    }
     return memoGaugePointBetweenFrontWheels;
   }
 
@@ -1547,7 +1575,7 @@ public abstract class BasicVehicle implements VehicleSimView {
     }
     // Get the angle to the point, relative to the angle the vehicle is
     // already facing
-    double angle = GeomMath.angleToPoint(p, memoGaugePointBetweenFrontWheels);
+    double angle = GeomMath.angleToPoint(p, gaugePointBetweenFrontWheels());
     // Need to recenter this value to [-pi, pi]
     double newSteeringAngle =
         Util.recenter(angle - movement.getHeading(), -1.0 * Math.PI, Math.PI);
@@ -1708,11 +1736,14 @@ public abstract class BasicVehicle implements VehicleSimView {
     compass.record(movement.getHeading());
     speedometer.record(movement.getVelocity());
 
-    memoGaugePosition = new Point2D.Double(xometer.read(), yometer.read());
-    memoGetShape = GeomUtil.convertPointsToShape(getCornerPoints());
-    memoGaugeShape = GeomUtil.convertPointsToShape(gaugeCornerPoints());
-    memoGaugePointBetweenFrontWheels =
-        spec.getPointBetweenFrontWheels(gaugePosition(), gaugeHeading());
+    spec.getCornerPoints(movement.getPosition(), movement.getHeading(),
+                         cornerXs, cornerYs);
+    box.setCorners(cornerXs, cornerYs);
+
+    memoGaugePosition = null;
+    memoGetShape = null;
+    memoGaugeShape = null;
+    memoGaugePointBetweenFrontWheels = null;
   }
 
   /////////////////////////////////
@@ -36,7 +36,6 @@ import java.util.List;
 import java.lang.Math;
 
 import aim4.msg.v2i.Done;
-import aim4.msg.udp.Proxy2RealAdapter;
 import aim4.msg.udp.Real2ProxyCancel;
 import aim4.msg.udp.Real2ProxyMsg;
 import aim4.msg.udp.Real2ProxyRequest;
@@ -50,12 +49,11 @@ import aim4.msg.v2i.Cancel;
 import aim4.config.Debug;
 import aim4.driver.ProxyDriver;
 import aim4.msg.udp.Real2ProxyPVUpdate;
+import aim4.msg.udp.UdpSender;
 import aim4.msg.v2i.V2IMessage;
 import aim4.msg.v2i.Request.Proposal;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
 import java.net.SocketAddress;
 
 /**
@@ -93,6 +91,8 @@ public class ProxyVehicle extends BasicAutoVehicle
   ProxyDriver driver;
   /** The socket address */
   SocketAddress sa;
+  /** The sender of the datagrams to the real vehicle */
+  private UdpSender sender;
   /** The last time stamp */
   private double lastTimeStamp;
   /** The next request Id */
@@ -128,6 +128,7 @@ public class ProxyVehicle extends BasicAutoVehicle
           steeringAngle, velocity, targetVelocity, acceleration, currentTime);
     driver = null;
     sa = null;
+    sender = null;
     lastTimeStamp = Double.MIN_VALUE;
     nextRequestId = 0;
     pvUpdate = null;
@@ -178,6 +179,14 @@ public class ProxyVehicle extends BasicAutoVehicle
     this.sa = sa;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void setUdpSender(UdpSender sender) {
+    this.sender = sender;
+  }
+
   /////////////////////////////////
   // PUBLIC METHODS
   /////////////////////////////////
@@ -244,45 +253,36 @@ public class ProxyVehicle extends BasicAutoVehicle
     // super.receive(msg);  // do not call this!
     bitsReceived += msg.getSize();
 
-    DatagramPacket dp = null;
+    assert sender != null;
     switch(msg.getMessageType()) {
     case CONFIRM:
-      try {
-        dp = Proxy2RealAdapter.toDatagramPacket((Confirm)msg, sa, gaugeTime());
-      } catch (IOException e) {
-        System.err.println("Failed to convert confirm message to a datagram");
-        e.printStackTrace();
-      }
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.printf("Sending a confirm message to real vehicle: %s\n",
                           (Confirm)msg);
       }
-      break;
-    case REJECT:
       try {
-        dp = Proxy2RealAdapter.toDatagramPacket((Reject)msg, sa, gaugeTime());
+        sender.send((Confirm)msg, sa, gaugeTime());
       } catch (IOException e) {
-        System.err.println("Failed to convert reject message to a datagram");
+        System.err.println("Failed to send a datagram to a real vehicle.");
         e.printStackTrace();
       }
+      break;
+    case REJECT:
       if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
         System.err.printf("Sending a reject message to real vehicle: %s\n",
                           (Reject)msg);
       }
+      try {
+        sender.send((Reject)msg, sa, gaugeTime());
+      } catch (IOException e) {
+        System.err.println("Failed to send a datagram to a real vehicle.");
+        e.printStackTrace();
+      }
       break;
     default:
       assert (false):("Cannot create the UdpAdaptor for a I2VMessage because " +
                       "the adaptor message has not been implemented yet");
     }
-
-    try {
-      DatagramSocket ds = new DatagramSocket();
-      ds.send(dp);
-      ds.close();
-    } catch (IOException e) {
-      System.err.println("Failed to send a datagram to a real vehicle.");
-      e.printStackTrace();
-    }
   }
 
   /////////////////////////////////
@@ -300,19 +300,9 @@ public class ProxyVehicle extends BasicAutoVehicle
       if (currentTime >= nextIntervalometerReadingTime) {
         System.err.printf("Try sending the intervalometer reading %.2f to " +
         		  "Marvin...\n", getIntervalometer().read());
-        DatagramPacket dp = null;
-        try {
-          dp = Proxy2RealAdapter.toDatagramPacket(getIntervalometer().read(),
-                                                  sa, gaugeTime());
-        } catch (IOException e) {
-          System.err.println("Failed to convert getIntervalometer().read() " +
-          		         "message to a datagram");
-          e.printStackTrace();
-        }
         try {
-          DatagramSocket ds = new DatagramSocket();
-          ds.send(dp);
-          ds.close();
+          sender.sendDistToFrontVehicle(getIntervalometer().read(),
+                                        sa, gaugeTime());
           System.err.printf("intervalometer reading sent.\n");
         } catch (IOException e) {
           System.err.println("Failed to send a datagram to a real vehicle.");
@@ -399,8 +389,11 @@ public class ProxyVehicle extends BasicAutoVehicle
                                //msg.arrivalVelocity,
                                maxTurnVelocity));
 
-    System.err.printf("msg.arrivalVelocity = %.5f\n", msg.arrivalVelocity);
-    System.err.printf("this.velocity       = %.5f\n\n", movement.getVelocity());
+    if (Debug.SHOW_PROXY_VEHICLE_DEBUG_MSG) {
+      System.err.printf("msg.arrivalVelocity = %.5f\n", msg.arrivalVelocity);
+      System.err.printf("this.velocity       = %.5f\n\n",
+                        movement.getVelocity());
+    }
 
     Request request =
       new Request(vin, // sourceID
@@ -34,6 +34,7 @@ import java.net.SocketAddress;
 
 import aim4.driver.ProxyDriver;
 import aim4.msg.udp.Real2ProxyMsg;
+import aim4.msg.udp.UdpSender;
 
 /**
  * The interface of a proxy vehicle from the viewpoint of a simulator.
@@ -63,6 +64,14 @@ public interface ProxyVehicleSimView extends AutoVehicleSimView {
    */
   void setSa(SocketAddress sa);
 
+  /**
+   * Set the sender through which this proxy vehicle sends datagrams to the
+   * real vehicle.
+   *
+   * @param sender  the sender
+   */
+  void setUdpSender(UdpSender sender);
+
   /**
    * Process the incoming Real2Proxy message
    *
@@ -38,6 +38,7 @@ import java.util.Queue;
 
 import aim4.driver.AutoDriver;
 import aim4.msg.v2i.V2IMessage;
+import aim4.util.OrientedBox;
 
 /**
  * The interface of a vehicle from the viewpoint of a simulator.
@@ -113,6 +114,15 @@ public interface VehicleSimView extends VehicleDriverView {
    */
   Shape getShape();
 
+  /**
+   * Get the outline of the Vehicle.  The box is updated in place when the
+   * Vehicle moves, so it should not be kept across moves; use
+   * {@link #getShape()} for a Shape that does not change.
+   *
+   * @return the outline of this Vehicle
+   */
+  OrientedBox getBox();
+
   /**
    * Get a {link Shape} describing this Vehicle, if it were larger in each
    * dimension.
@@ -476,6 +476,34 @@ public class VehicleSpec {
   }
 
 
+  /**
+   * Compute the current global coordinates of the corners of this Vehicle
+   * without allocating any point.  The corners are the same as those
+   * returned by {@link #getCornerPoints(Point2D, double)}.
+   *
+   * @param pos      the position of the vehicle
+   * @param heading  the heading of the vehicle
+   * @param xs       an array of length at least four in which to store the
+   *                 x-coordinates of the corners
+   * @param ys       an array of length at least four in which to store the
+   *                 y-coordinates of the corners
+   */
+  public void getCornerPoints(Point2D pos, double heading,
+                              double[] xs, double[] ys) {
+    // First point, counterclockwise
+    xs[0] = pos.getX() + halfWidth * Math.cos(heading + Math.PI/2);
+    ys[0] = pos.getY() + halfWidth * Math.sin(heading + Math.PI/2);
+    // Second point
+    xs[1] = xs[0] + length * Math.cos(heading + Math.PI);
+    ys[1] = ys[0] + length * Math.sin(heading + Math.PI);
+    // Fourth point
+    xs[3] = pos.getX() + halfWidth * Math.cos(heading - Math.PI/2);
+    ys[3] = pos.getY() + halfWidth * Math.sin(heading - Math.PI/2);
+    // Third point
+    xs[2] = xs[3] + length * Math.cos(heading - Math.PI);
+    ys[2] = ys[3] + length * Math.sin(heading - Math.PI);
+  }
+
   /**
    * Get the current global coordinates of the corners of the Vehicle,
    * assuming it is larger in each dimension by a fixed amount.
@@ -512,6 +540,40 @@ public class VehicleSpec {
     return result;
   }
 
+  /**
+   * Compute the global coordinates of the corners of the Vehicle, assuming
+   * it is larger in each dimension by a fixed amount, without allocating
+   * any point.  The corners are in the same order as those returned by
+   * {@link #getCornerPoints(double, Point2D, double)}.
+   *
+   * @param extra    the fixed amount to add to each dimension of the Vehicle.
+   * @param pos      the position of the vehicle
+   * @param heading  the heading of the vehicle
+   * @param xs       an array of length at least four in which to store the
+   *                 x-coordinates of the corners
+   * @param ys       an array of length at least four in which to store the
+   *                 y-coordinates of the corners
+   */
+  public void getCornerPoints(double extra, Point2D pos, double heading,
+                              double[] xs, double[] ys) {
+    // First point, counterclockwise
+    xs[0] = pos.getX() + (extra/2) * Math.cos(heading) +
+            ((width + extra)/2) * Math.cos(heading + Math.PI/2);
+    ys[0] = pos.getY() + (extra/2) * Math.sin(heading) +
+            ((width + extra)/2) * Math.sin(heading + Math.PI/2);
+    // Second point
+    xs[1] = xs[0] + (length + extra) * Math.cos(heading + Math.PI);
+    ys[1] = ys[0] + (length + extra) * Math.sin(heading + Math.PI);
+    // Fourth point
+    xs[3] = pos.getX() + (extra/2) * Math.cos(heading) +
+            ((width + extra)/2) * Math.cos(heading - Math.PI/2);
+    ys[3] = pos.getY() + (extra/2) * Math.sin(heading) +
+            ((width + extra)/2) * Math.sin(heading - Math.PI/2);
+    // Third point
+    xs[2] = xs[3] + (length + extra) * Math.cos(heading - Math.PI);
+    ys[2] = ys[3] + (length + extra) * Math.sin(heading - Math.PI);
+  }
+
 
   /**
    * Get the point between the rear wheels.
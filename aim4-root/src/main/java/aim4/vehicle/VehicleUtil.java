@@ -32,9 +32,11 @@ package aim4.vehicle;
 
 import java.awt.geom.Area;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import aim4.config.SimConfig;
 import aim4.driver.CrashTestDummy;
@@ -96,10 +98,20 @@ public class VehicleUtil {
 
   /**
    * Memoization caches for max turn velocities for various vehicle
-   * specification.
+   * specification at each intersection manager.  The caches are keyed by
+   * the intersection manager objects, rather than their IDs, so that
+   * simulations in the same JVM do not share their caches; the caches of
+   * an intersection manager are discarded when the manager is no longer
+   * used.  The lock of this map is only held to find the cache of an
+   * intersection manager; the max turn velocities are computed outside of
+   * it and published in the concurrent cache, so that the simulations and
+   * the driver threads do not wait for each other's turn simulations.
    */
-  private static Map<String,Map<List<Integer>, Double>>
-    memoMaxTurnVelocity = new HashMap<String,Map<List<Integer>,Double>>();
+  private static final
+    Map<IntersectionManager,ConcurrentMap<List<Object>,Double>>
+      memoMaxTurnVelocity =
+        new WeakHashMap<IntersectionManager,
+                        ConcurrentMap<List<Object>,Double>>();
 
 
   /////////////////////////////////
@@ -128,29 +140,37 @@ public class VehicleUtil {
                                        Lane departureLane,
                                        IntersectionManager im) {
 
-    // check to see if the spec has been seem before.
-    if (!memoMaxTurnVelocity.containsKey(spec.getName())) {
-      // if not, create a map for it
-      memoMaxTurnVelocity.put(spec.getName(),
-                              new HashMap<List<Integer>,Double>());
+    // check to see if the intersection manager has been seem before.
+    ConcurrentMap<List<Object>,Double> mmtvs;
+    synchronized (memoMaxTurnVelocity) {
+      mmtvs = memoMaxTurnVelocity.get(im);
+      if (mmtvs == null) {
+        // if not, create a map for it
+        mmtvs = new ConcurrentHashMap<List<Object>,Double>();
+        memoMaxTurnVelocity.put(im, mmtvs);
+      }
     }
 
     // check to see if the max turn velocity has been stored in the cache
-    Map<List<Integer>, Double> mmtvs = memoMaxTurnVelocity.get(spec.getName());
-    List<Integer> key = Arrays.asList(arrivalLane.getId(),
-                                      departureLane.getId(),
-                                      im.getId());
-    if (!mmtvs.containsKey(key)) {
-      // if not, calculate it and store it in the cache
-      double mtv = calculateMaxTurnVelocity(spec,
-                                            arrivalLane,
-                                            departureLane,
-                                            im);
-      mmtvs.put(key, mtv);
+    List<Object> key = Arrays.<Object>asList(spec.getName(),
+                                             arrivalLane.getId(),
+                                             departureLane.getId());
+    Double mtv = mmtvs.get(key);
+    if (mtv == null) {
+      // if not, calculate it and store it in the cache.  Two threads may
+      // both calculate it, but they get the same value.
+      mtv = calculateMaxTurnVelocity(spec,
+                                     arrivalLane,
+                                     departureLane,
+                                     im);
+      Double otherMtv = mmtvs.putIfAbsent(key, mtv);
+      if (otherMtv != null) {
+        mtv = otherMtv;
+      }
     }
 
     // FIXME try to see why we need this hack
-    return Math.max(mmtvs.get(key), MIN_MAX_TURN_VELOCITY);
+    return Math.max(mtv, MIN_MAX_TURN_VELOCITY);
   }
 
 
@@ -195,7 +215,8 @@ public class VehicleUtil {
       0.0);
 
     // Create a dummy driver to steer it
-    Driver dummy = new CrashTestDummy(testVehicle, arrivalLane, departureLane);
+    Driver dummy = new CrashTestDummy(testVehicle, im.getIntersection(),
+                                      arrivalLane, departureLane);
     // Use this to ensure that we don't abort before we actually get into
     // the intersection
     boolean enteredIntersection = false;
@@ -561,6 +582,9 @@ public class VehicleUtil {
     // Most of the time this should work
     if (area.contains(v.getPosition()) || area.contains(v.getPointAtRear())) {
       return true;
+    } else if (!v.getBox().boundsIntersect(area.getBounds2D())) {
+      // the vehicle is too far away to overlap the area
+      return false;
     } else {
       // We actually have to check to see if the Area of the
       // Vehicle and the Area of the IntersectionManager have a nonempty
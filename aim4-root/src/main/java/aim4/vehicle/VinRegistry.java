@@ -30,15 +30,31 @@ OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
 */
 package aim4.vehicle;
 
-import java.lang.ref.WeakReference;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
 
 import aim4.map.Road;
 import aim4.map.SpawnPoint;
 
 /**
- * The Vehicle Registry, the class that issues VIN to vehicles.
+ * The Vehicle Registry, the class that issues VIN to vehicles.  Each
+ * simulation has its own registry.
+ *
+ * <p>The vehicles that are in the simulation are held in an open-addressing
+ * table keyed by their VINs, so that a lookup neither boxes the VIN nor
+ * allocates.  The vehicle specification, the spawn point and the
+ * destination road of every VIN that has been issued are kept in an archive
+ * of three integer columns, whose values are the indices of the objects in
+ * small dictionaries; a vehicle leaves the table when it leaves the
+ * simulation, but its archive row stays so that the data collection lines
+ * can still be printed at the end of the simulation.  If the data
+ * collection lines write their data as the vehicles pass through them, the
+ * archive need not be retained, and the row of a vehicle is retired when
+ * the vehicle leaves, so that the archive only grows with the number of
+ * vehicles in the simulation.</p>
  */
 public class VinRegistry {
 
@@ -46,51 +62,187 @@ public class VinRegistry {
   // PRIVATE FIELDS
   /////////////////////////////////
 
+  /** The initial capacity of the hash tables; must be a power of two */
+  private static final int INITIAL_TABLE_CAPACITY = 256;
+
+  /** The initial capacity of the columns of the archive */
+  private static final int INITIAL_ARCHIVE_CAPACITY = 256;
+
+  /** The key of an empty slot in the hash tables; VINs are non-negative */
+  private static final int NO_VIN = -1;
+
+  /** The code of a null object in a dictionary */
+  private static final int NO_CODE = -1;
+
   /**
    * This generates a unique identifier for each vehicle, starting with 1000.
    */
-  private static int vinGenerator = 1000;
+  private int vinGenerator;
+
+  /**
+   * The VINs of the vehicles in the simulation, in an open-addressing hash
+   * table with linear probing.
+   */
+  private int[] activeVins;
+
+  /**
+   * The vehicles in the simulation, in the slots of their VINs.
+   */
+  private VehicleSimView[] activeVehicles;
+
+  /**
+   * The number of vehicles in the simulation.
+   */
+  private int numOfActiveVehicles;
+
+  /**
+   * The VINs that have been issued, in an open-addressing hash table with
+   * linear probing.
+   */
+  private int[] archivedVins;
+
+  /**
+   * The rows of the archive, in the slots of their VINs.
+   */
+  private int[] archiveRows;
 
   /**
-   * A map from VINs to Vehicles.
+   * The number of rows of the archive.
    */
-  private static Map<Integer,WeakReference<VehicleSimView>> vinToVehicle =
-    new HashMap<Integer,WeakReference<VehicleSimView>>();
+  private int numOfArchiveRows;
 
   /**
-   * A map from VINs to VehicleSpec.
+   * The VINs of the rows of the archive.
    */
-  private static Map<Integer,VehicleSpec> vinToVehicleSpec =
-    new HashMap<Integer,VehicleSpec>();
+  private int[] rowVins;
+
+  /**
+   * The codes of the vehicle specifications in the archive.
+   */
+  private int[] specCodes;
 
   // TODO: remove the following in the future
 
   /**
-   * A map from VINs to spawn points.
+   * The codes of the spawn points in the archive.
    */
-  private static Map<Integer,SpawnPoint> vinToSpawnPoint =
-    new HashMap<Integer,SpawnPoint>();
+  private int[] spawnPointCodes;
 
   /**
-   * A map from VINs to destination roads.
+   * The codes of the destination roads in the archive.
    */
-  private static Map<Integer,Road> vinToDestRoad =
-    new HashMap<Integer,Road>();
+  private int[] destRoadCodes;
+
+  /**
+   * The vehicle specifications in the archive.
+   */
+  private Dictionary<VehicleSpec> specs;
+
+  /**
+   * The spawn points in the archive.
+   */
+  private Dictionary<SpawnPoint> spawnPoints;
+
+  /**
+   * The destination roads in the archive.
+   */
+  private Dictionary<Road> destRoads;
+
+  /**
+   * Whether the archive rows of the vehicles that have left the simulation
+   * are retained.
+   */
+  private boolean isArchiveRetained;
 
 
   /////////////////////////////////
-  // PUBLIC METHODS
+  // NESTED CLASSES
   /////////////////////////////////
 
   /**
-   * Reset the registry.
+   * A dictionary that gives the objects of a column of the archive small
+   * integer codes.
+   *
+   * @param <T>  the type of the objects
    */
-  public static void reset() {
+  private static final class Dictionary<T> {
+    /** The objects, in the order of their codes */
+    private List<T> objects = new ArrayList<T>();
+    /** The codes of the objects */
+    private Map<T,Integer> codes = new IdentityHashMap<T,Integer>();
+
+    /**
+     * Get the code of an object, giving it a new code if it has none.
+     *
+     * @param obj  the object
+     * @return the code of the object; NO_CODE if the object is null
+     */
+    int encode(T obj) {
+      if (obj == null) {
+        return NO_CODE;
+      }
+      Integer code = codes.get(obj);
+      if (code == null) {
+        code = objects.size();
+        objects.add(obj);
+        codes.put(obj, code);
+      }
+      return code;
+    }
+
+    /**
+     * Get the object of a code.
+     *
+     * @param code  the code
+     * @return the object; null if the code is NO_CODE
+     */
+    T decode(int code) {
+      return (code == NO_CODE) ? null : objects.get(code);
+    }
+  }
+
+
+  /////////////////////////////////
+  // CLASS CONSTRUCTORS
+  /////////////////////////////////
+
+  /**
+   * Create an empty VIN registry.
+   */
+  public VinRegistry() {
     vinGenerator = 1000;
-    vinToVehicle = new HashMap<Integer,WeakReference<VehicleSimView>>();
-    vinToVehicleSpec = new HashMap<Integer,VehicleSpec>();
-    vinToSpawnPoint = new HashMap<Integer,SpawnPoint>();
-    vinToDestRoad = new HashMap<Integer,Road>();
+    activeVins = makeEmptyTable(INITIAL_TABLE_CAPACITY);
+    activeVehicles = new VehicleSimView[INITIAL_TABLE_CAPACITY];
+    numOfActiveVehicles = 0;
+    archivedVins = makeEmptyTable(INITIAL_TABLE_CAPACITY);
+    archiveRows = new int[INITIAL_TABLE_CAPACITY];
+    numOfArchiveRows = 0;
+    rowVins = new int[INITIAL_ARCHIVE_CAPACITY];
+    specCodes = new int[INITIAL_ARCHIVE_CAPACITY];
+    spawnPointCodes = new int[INITIAL_ARCHIVE_CAPACITY];
+    destRoadCodes = new int[INITIAL_ARCHIVE_CAPACITY];
+    specs = new Dictionary<VehicleSpec>();
+    spawnPoints = new Dictionary<SpawnPoint>();
+    destRoads = new Dictionary<Road>();
+    isArchiveRetained = true;
+  }
+
+  /////////////////////////////////
+  // PUBLIC METHODS
+  /////////////////////////////////
+
+  /**
+   * Set whether the archive rows of the vehicles that have left the
+   * simulation are retained.  They are needed by the data collection lines
+   * that record the VINs of the vehicles and look up the data of the
+   * vehicles when the data are printed; they can be retired if the data
+   * collection lines write their data as the vehicles pass through them.
+   *
+   * @param isArchiveRetained  whether the archive rows of the vehicles that
+   *                           have left the simulation are retained
+   */
+  public void setArchiveRetained(boolean isArchiveRetained) {
+    this.isArchiveRetained = isArchiveRetained;
   }
 
   /**
@@ -99,13 +251,14 @@ public class VinRegistry {
    * @param vehicle  the vehicle
    * @return  a new VIN for the vehicle
    */
-  public static int registerVehicle(VehicleSimView vehicle) {
-    assert vinToVehicle.get(vinGenerator) == null;
+  public int registerVehicle(VehicleSimView vehicle) {
+    assert findSlot(activeVins, vinGenerator) < 0;
     int vin = vinGenerator;
-    vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
-    vinToVehicleSpec.put(vin, vehicle.getSpec());
-    vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
-    vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+    addActiveVehicle(vin, vehicle);
+    archive(vin,
+            vehicle.getSpec(),
+            vehicle.getDriver().getSpawnPoint(),
+            vehicle.getDriver().getDestination());
 
     vehicle.setVIN(vin);
 
@@ -121,23 +274,23 @@ public class VinRegistry {
    * @return true if the VIN has not been issued to other vehicle; false if
    *         the VIN has been used by other vehicle.
    */
-  public static boolean registerVehicleWithExistingVIN(VehicleSimView vehicle,
+  public boolean registerVehicleWithExistingVIN(VehicleSimView vehicle,
                                                        int vin) {
     assert vin >= 0;
-    if (vinToVehicle.containsKey(vin)) {
+    if (findSlot(activeVins, vin) >= 0) {
       return false;  // the VIN has been used by some other vehicle
     } else {
       assert vehicle.getVIN() < 0;
 
-      vinToVehicle.put(vin, new WeakReference<VehicleSimView>(vehicle));
-      vinToVehicleSpec.put(vin, vehicle.getSpec());
+      addActiveVehicle(vin, vehicle);
       // TODO: think how to resolve the problem.
       if (vehicle.getDriver() != null) {
-        vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
-        vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+        archive(vin,
+                vehicle.getSpec(),
+                vehicle.getDriver().getSpawnPoint(),
+                vehicle.getDriver().getDestination());
       } else {
-        vinToSpawnPoint.put(vin, null);
-        vinToDestRoad.put(vin, null);
+        archive(vin, vehicle.getSpec(), null, null);
       }
 
       vehicle.setVIN(vin);
@@ -150,17 +303,20 @@ public class VinRegistry {
 
   /**
    * Remove the vehicle from the registry.
-   * This function should only be used by BasicVehicle.java
+   * This function should only be used by the simulator when the vehicle
+   * leaves the simulation.  The archive keeps the vehicle specification,
+   * the spawn point and the destination road of the vehicle, unless the
+   * archive is not retained.
    *
    * @param vin  the VIN of the vehicle
    */
-  public static void unregisterVehicle(int vin) {
-    if (vinToVehicle.containsKey(vin)) {
-      vinToVehicle.remove(vin);
-      // do not remove the following
-//      vinToVehicleSpec.remove(vin);
-//      vinToSpawnPoint.remove(vin);
-//      vinToDestRoad.remove(vin);
+  public void unregisterVehicle(int vin) {
+    int slot = findSlot(activeVins, vin);
+    if (slot >= 0) {
+      removeActiveVehicle(slot);
+      if (!isArchiveRetained) {
+        retireArchiveRow(vin);
+      }
     } else {
       throw new RuntimeException("VehicleRegistry:unregisterVehicle: " +
                                  "Cannot unregister a vehicle twice");
@@ -173,29 +329,20 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    * @return whether of not the VIN has been issued.
    */
-  public static boolean isVINexist(int vin) {
-    return vinToVehicleSpec.containsKey(vin);
+  public boolean isVINexist(int vin) {
+    return findSlot(archivedVins, vin) >= 0;
   }
 
   /**
    * Given a VIN, get the vehicle with that VIN.
    *
    * @param vin the VIN of the desired vehicle
-   * @return the corresponding vehicle object; null if the vehicle object
-   *         has been destroyed.
+   * @return the corresponding vehicle object; null if the vehicle has left
+   *         the simulation.
    */
-  public static VehicleSimView getVehicleFromVIN(int vin) {
-    WeakReference<VehicleSimView> wr = vinToVehicle.get(vin);
-    if(wr == null) {
-      return null;
-    }
-    // Unwrap the reference
-    VehicleSimView v = wr.get();
-    // If it's null, then the Vehicle no longer exists
-    if(v == null) {
-      vinToVehicle.remove(vin);
-    }
-    return v;
+  public VehicleSimView getVehicleFromVIN(int vin) {
+    int slot = findSlot(activeVins, vin);
+    return (slot >= 0) ? activeVehicles[slot] : null;
   }
 
   /**
@@ -204,8 +351,9 @@ public class VinRegistry {
    * @param vin  the VIN of the desired vehicle
    * @return the corresponding vehicle specification
    */
-  public static VehicleSpec getVehicleSpecFromVIN(int vin) {
-    return vinToVehicleSpec.get(vin);
+  public VehicleSpec getVehicleSpecFromVIN(int vin) {
+    int row = findArchiveRow(vin);
+    return (row >= 0) ? specs.decode(specCodes[row]) : null;
   }
 
   /**
@@ -214,8 +362,9 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    * @return the spawn point
    */
-  public static SpawnPoint getSpawnPointFromVIN(int vin) {
-    return vinToSpawnPoint.get(vin);
+  public SpawnPoint getSpawnPointFromVIN(int vin) {
+    int row = findArchiveRow(vin);
+    return (row >= 0) ? spawnPoints.decode(spawnPointCodes[row]) : null;
   }
 
   /**
@@ -224,17 +373,217 @@ public class VinRegistry {
    * @param vin  the VIN of the vehicle
    * @return the destination road
    */
-  public static Road getDestRoadFromVIN(int vin) {
-    return vinToDestRoad.get(vin);
+  public Road getDestRoadFromVIN(int vin) {
+    int row = findArchiveRow(vin);
+    return (row >= 0) ? destRoads.decode(destRoadCodes[row]) : null;
   }
 
   /////////////////////////////////
-  // CONSTRUCTORS
+  // PRIVATE METHODS
   /////////////////////////////////
 
   /**
-   * This class should never be instantiated.
+   * Create an empty hash table of VINs.
+   *
+   * @param capacity  the capacity of the table; a power of two
+   * @return the table
+   */
+  private static int[] makeEmptyTable(int capacity) {
+    int[] table = new int[capacity];
+    Arrays.fill(table, NO_VIN);
+    return table;
+  }
+
+  /**
+   * Get the home slot of a VIN in a hash table.
+   *
+   * @param vin   the VIN
+   * @param mask  the capacity of the table minus one
+   * @return the home slot of the VIN
+   */
+  private static int homeSlot(int vin, int mask) {
+    int h = vin * 0x9E3779B9;
+    return (h ^ (h >>> 16)) & mask;
+  }
+
+  /**
+   * Find the slot of a VIN in a hash table.
+   *
+   * @param table  the table
+   * @param vin    the VIN
+   * @return the slot of the VIN; -1 if the VIN is not in the table
+   */
+  private static int findSlot(int[] table, int vin) {
+    int mask = table.length - 1;
+    for(int i = homeSlot(vin, mask); table[i] != NO_VIN; i = (i + 1) & mask) {
+      if (table[i] == vin) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  /**
+   * Find the free slot for a VIN that is not in a hash table.
+   *
+   * @param table  the table
+   * @param vin    the VIN
+   * @return the slot at which the VIN should be put
    */
-  private VinRegistry(){};
+  private static int findFreeSlot(int[] table, int vin) {
+    int mask = table.length - 1;
+    int i = homeSlot(vin, mask);
+    while (table[i] != NO_VIN) {
+      i = (i + 1) & mask;
+    }
+    return i;
+  }
+
+  /**
+   * Add a vehicle to the table of the vehicles in the simulation.
+   *
+   * @param vin      the VIN of the vehicle
+   * @param vehicle  the vehicle
+   */
+  private void addActiveVehicle(int vin, VehicleSimView vehicle) {
+    if (2 * (numOfActiveVehicles + 1) > activeVins.length) {
+      int[] oldVins = activeVins;
+      VehicleSimView[] oldVehicles = activeVehicles;
+      activeVins = makeEmptyTable(2 * oldVins.length);
+      activeVehicles = new VehicleSimView[2 * oldVins.length];
+      for(int i = 0; i < oldVins.length; i++) {
+        if (oldVins[i] != NO_VIN) {
+          int slot = findFreeSlot(activeVins, oldVins[i]);
+          activeVins[slot] = oldVins[i];
+          activeVehicles[slot] = oldVehicles[i];
+        }
+      }
+    }
+    int slot = findFreeSlot(activeVins, vin);
+    activeVins[slot] = vin;
+    activeVehicles[slot] = vehicle;
+    numOfActiveVehicles++;
+  }
+
+  /**
+   * Remove a vehicle from the table of the vehicles in the simulation.  The
+   * entries after the slot in the same probe sequence are shifted back so
+   * that the table never needs tombstones.
+   *
+   * @param slot  the slot of the vehicle
+   */
+  private void removeActiveVehicle(int slot) {
+    int mask = activeVins.length - 1;
+    int hole = slot;
+    for(int i = (slot + 1) & mask;
+        activeVins[i] != NO_VIN;
+        i = (i + 1) & mask) {
+      int home = homeSlot(activeVins[i], mask);
+      // move the entry into the hole unless the hole comes before its home
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        activeVins[hole] = activeVins[i];
+        activeVehicles[hole] = activeVehicles[i];
+        hole = i;
+      }
+    }
+    activeVins[hole] = NO_VIN;
+    activeVehicles[hole] = null;
+    numOfActiveVehicles--;
+  }
+
+  /**
+   * Remove the row of a VIN from the archive.  The last row of the archive
+   * is moved into the place of the row, so that the rows stay contiguous,
+   * and the VIN is removed from the table of the archive in the same way as
+   * in {@link #removeActiveVehicle(int)}.
+   *
+   * @param vin  the VIN
+   */
+  private void retireArchiveRow(int vin) {
+    int slot = findSlot(archivedVins, vin);
+    if (slot < 0) {
+      return;
+    }
+    int row = archiveRows[slot];
+    int mask = archivedVins.length - 1;
+    int hole = slot;
+    for(int i = (slot + 1) & mask;
+        archivedVins[i] != NO_VIN;
+        i = (i + 1) & mask) {
+      int home = homeSlot(archivedVins[i], mask);
+      // move the entry into the hole unless the hole comes before its home
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        archivedVins[hole] = archivedVins[i];
+        archiveRows[hole] = archiveRows[i];
+        hole = i;
+      }
+    }
+    archivedVins[hole] = NO_VIN;
+
+    int lastRow = --numOfArchiveRows;
+    if (row != lastRow) {
+      rowVins[row] = rowVins[lastRow];
+      specCodes[row] = specCodes[lastRow];
+      spawnPointCodes[row] = spawnPointCodes[lastRow];
+      destRoadCodes[row] = destRoadCodes[lastRow];
+      archiveRows[findSlot(archivedVins, rowVins[row])] = row;
+    }
+  }
+
+  /**
+   * Find the row of a VIN in the archive.
+   *
+   * @param vin  the VIN
+   * @return the row of the VIN; -1 if the VIN has not been issued
+   */
+  private int findArchiveRow(int vin) {
+    int slot = findSlot(archivedVins, vin);
+    return (slot >= 0) ? archiveRows[slot] : -1;
+  }
+
+  /**
+   * Record the vehicle specification, the spawn point and the destination
+   * road of a VIN in the archive.  The row of the VIN is overwritten if the
+   * VIN has been issued before.
+   *
+   * @param vin         the VIN
+   * @param spec        the vehicle specification
+   * @param spawnPoint  the spawn point; null if the vehicle has none
+   * @param destRoad    the destination road; null if the vehicle has none
+   */
+  private void archive(int vin, VehicleSpec spec, SpawnPoint spawnPoint,
+                       Road destRoad) {
+    int row = findArchiveRow(vin);
+    if (row < 0) {
+      if (2 * (numOfArchiveRows + 1) > archivedVins.length) {
+        int[] oldVins = archivedVins;
+        int[] oldRows = archiveRows;
+        archivedVins = makeEmptyTable(2 * oldVins.length);
+        archiveRows = new int[2 * oldVins.length];
+        for(int i = 0; i < oldVins.length; i++) {
+          if (oldVins[i] != NO_VIN) {
+            int slot = findFreeSlot(archivedVins, oldVins[i]);
+            archivedVins[slot] = oldVins[i];
+            archiveRows[slot] = oldRows[i];
+          }
+        }
+      }
+      if (numOfArchiveRows == specCodes.length) {
+        int capacity = 2 * specCodes.length;
+        rowVins = Arrays.copyOf(rowVins, capacity);
+        specCodes = Arrays.copyOf(specCodes, capacity);
+        spawnPointCodes = Arrays.copyOf(spawnPointCodes, capacity);
+        destRoadCodes = Arrays.copyOf(destRoadCodes, capacity);
+      }
+      row = numOfArchiveRows++;
+      rowVins[row] = vin;
+      int slot = findFreeSlot(archivedVins, vin);
+      archivedVins[slot] = vin;
+      archiveRows[slot] = row;
+    }
+    specCodes[row] = specs.encode(spec);
+    spawnPointCodes[row] = spawnPoints.encode(spawnPoint);
+    destRoadCodes[row] = destRoads.encode(destRoad);
+  }
 
 }
@@ -0,0 +1,339 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.im.v2i.reservation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import aim4.im.v2i.reservation.ReservationArray.TimeTile;
+
+/**
+ * Check a {@link ReservationArray} against a model of the array kept in
+ * tree maps, as the array was before it had a ring buffer, on random
+ * sequences of reservations, cancellations, clean-ups and queries.
+ */
+public class ReservationArrayTest {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of tiles */
+  private static final int NUM_OF_TILES = 40;
+
+  /** The number of simulated time steps */
+  private static final int NUM_OF_STEPS = 20000;
+
+  /** The number of operations per time step */
+  private static final int NUM_OF_OPERATIONS_PER_STEP = 5;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The random number generator */
+  private Random random;
+
+  /** The array under test */
+  private ReservationArray array;
+
+  /** The discrete times of the grids in the model */
+  private NavigableSet<Integer> gridDts;
+
+  /** The reservation IDs of the reserved time-tiles in the model */
+  private Map<TimeTileKey,Integer> timeTileToRid;
+
+  /** The time-tiles of the reservations in the model */
+  private Map<Integer,NavigableMap<Integer,Set<Integer>>> ridToTimeToTid;
+
+  /** The next new reservation ID */
+  private int nextRid;
+
+  /////////////////////////////////
+  // NESTED CLASSES
+  /////////////////////////////////
+
+  /**
+   * A time-tile that can be the key of a hash map.
+   */
+  private static final class TimeTileKey {
+    /** The discrete time */
+    private final int dt;
+    /** The tile ID */
+    private final int tid;
+
+    /**
+     * Create a time-tile key.
+     *
+     * @param dt   the discrete time
+     * @param tid  the tile ID
+     */
+    TimeTileKey(int dt, int tid) {
+      this.dt = dt;
+      this.tid = tid;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof TimeTileKey)) {
+        return false;
+      }
+      TimeTileKey key = (TimeTileKey) obj;
+      return dt == key.dt && tid == key.tid;
+    }
+
+    @Override
+    public int hashCode() {
+      return dt * 31 + tid;
+    }
+  }
+
+  /////////////////////////////////
+  // SET UP
+  /////////////////////////////////
+
+  /**
+   * Create an empty array and an empty model.
+   */
+  @Before
+  public void setUp() {
+    random = new Random(1);
+    array = new ReservationArray(NUM_OF_TILES);
+    gridDts = new TreeSet<Integer>();
+    timeTileToRid = new HashMap<TimeTileKey,Integer>();
+    ridToTimeToTid = new HashMap<Integer,NavigableMap<Integer,Set<Integer>>>();
+    nextRid = 0;
+  }
+
+  /////////////////////////////////
+  // TESTS
+  /////////////////////////////////
+
+  /**
+   * The array agrees with the model on random operations, with
+   * reservations in and out of the order of time, far into the future and
+   * partly in the past, and reservations added to existing ones.
+   */
+  @Test
+  public void testAgreesWithModel() {
+    for(int now = 0; now < NUM_OF_STEPS; now++) {
+      for(int i = 0; i < NUM_OF_OPERATIONS_PER_STEP; i++) {
+        int op = random.nextInt(10);
+        if (op < 4) {
+          reserve(now);
+        } else if (op < 5) {
+          cancel();
+        } else {
+          checkQueries(now + random.nextInt(400) - 50);
+        }
+      }
+      if (random.nextInt(3) == 0) {
+        array.cleanUp(now);
+        cleanUpModel(now);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Reserve a random working list with a new or an existing reservation
+   * ID and check whether the reservation succeeds.
+   *
+   * @param now  the current discrete time
+   */
+  private void reserve(int now) {
+    int rid;
+    if (nextRid > 0 && random.nextInt(10) == 0) {
+      rid = random.nextInt(nextRid);
+    } else {
+      rid = nextRid++;
+    }
+    int startDt = now - 2 + random.nextInt(100);
+    if (random.nextInt(50) == 0) {
+      startDt += 1000 + random.nextInt(2000);  // grow the ring buffer
+    }
+    int numOfDts = 1 + random.nextInt(30);
+    int firstTid = random.nextInt(NUM_OF_TILES);
+    List<TimeTile> workingList = new ArrayList<TimeTile>();
+    for(int dt = startDt; dt < startDt + numOfDts; dt++) {
+      int numOfTids = 1 + random.nextInt(4);
+      for(int k = 0; k < numOfTids; k++) {
+        workingList.add(new TimeTile(dt, (firstTid + k) % NUM_OF_TILES));
+      }
+      firstTid = (firstTid + random.nextInt(2)) % NUM_OF_TILES;
+    }
+    if (random.nextInt(5) == 0) {
+      Collections.shuffle(workingList, random);
+    }
+    assertEquals(reserveInModel(rid, workingList),
+                 array.reserve(rid, workingList));
+  }
+
+  /**
+   * Cancel a random reservation ID, which may not exist, and check whether
+   * the cancellation succeeds.
+   */
+  private void cancel() {
+    int rid = random.nextInt(nextRid + 1);
+    assertEquals(cancelInModel(rid), array.cancel(rid));
+  }
+
+  /**
+   * Check the queries of the array at a discrete time.
+   *
+   * @param dt  the discrete time
+   */
+  private void checkQueries(int dt) {
+    assertEquals(gridDts.isEmpty() ? -1 : gridDts.last(),
+                 array.getLastReservedDiscreteTime());
+    List<Integer> tids = new ArrayList<Integer>();
+    Set<Integer> rids = new HashSet<Integer>();
+    for(int tid = 0; tid < NUM_OF_TILES; tid++) {
+      Integer rid = timeTileToRid.get(new TimeTileKey(dt, tid));
+      int expectedRid = (rid != null) ? rid : -1;
+      assertEquals(expectedRid, array.getReservationId(dt, tid));
+      assertEquals(rid != null, array.isReserved(dt, tid));
+      if (rid != null) {
+        tids.add(tid);
+        rids.add(rid);
+      }
+    }
+    assertEquals(tids, array.getReservedTilesAtTime(dt));
+    assertEquals(rids, array.getVinOfReservedTilesAtTime(dt));
+    if (nextRid > 0) {
+      int rid = random.nextInt(nextRid);
+      NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
+      assertEquals(timeToTid != null, array.hasReservation(rid));
+      assertEquals(timeToTid != null ? timeToTid.lastKey() : -1,
+                   array.getLastReservedDiscreteTime(rid));
+    }
+  }
+
+  /**
+   * Reserve a working list in the model.
+   *
+   * @param rid          the reservation ID
+   * @param workingList  the time-tiles to be reserved
+   * @return whether the reservation succeeds
+   */
+  private boolean reserveInModel(int rid, List<TimeTile> workingList) {
+    for(TimeTile tt : workingList) {
+      TimeTileKey key = new TimeTileKey(tt.getDiscreteTime(), tt.getTileId());
+      if (timeTileToRid.containsKey(key)) {
+        return false;
+      }
+    }
+    int timeBegin = gridDts.isEmpty() ? 0 : gridDts.first();
+    for(TimeTile tt : workingList) {
+      int dt = tt.getDiscreteTime();
+      if (dt >= timeBegin) {
+        gridDts.add(dt);
+        timeTileToRid.put(new TimeTileKey(dt, tt.getTileId()), rid);
+        NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.get(rid);
+        if (timeToTid == null) {
+          timeToTid = new TreeMap<Integer,Set<Integer>>();
+          ridToTimeToTid.put(rid, timeToTid);
+        }
+        Set<Integer> tids = timeToTid.get(dt);
+        if (tids == null) {
+          tids = new HashSet<Integer>();
+          timeToTid.put(dt, tids);
+        }
+        tids.add(tt.getTileId());
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Cancel a reservation in the model.
+   *
+   * @param rid  the reservation ID
+   * @return whether the cancellation succeeds
+   */
+  private boolean cancelInModel(int rid) {
+    NavigableMap<Integer,Set<Integer>> timeToTid = ridToTimeToTid.remove(rid);
+    if (timeToTid == null) {
+      return false;
+    }
+    for(Map.Entry<Integer,Set<Integer>> entry : timeToTid.entrySet()) {
+      for(int tid : entry.getValue()) {
+        timeTileToRid.remove(new TimeTileKey(entry.getKey(), tid));
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Remove the time-tiles before a discrete time from the model.
+   *
+   * @param dt  the discrete time
+   */
+  private void cleanUpModel(int dt) {
+    while(!gridDts.isEmpty() && gridDts.first() < dt) {
+      int dt1 = gridDts.pollFirst();
+      for(int tid = 0; tid < NUM_OF_TILES; tid++) {
+        timeTileToRid.remove(new TimeTileKey(dt1, tid));
+      }
+    }
+    List<Integer> emptyRids = new ArrayList<Integer>();
+    for(Map.Entry<Integer,NavigableMap<Integer,Set<Integer>>> entry
+          : ridToTimeToTid.entrySet()) {
+      NavigableMap<Integer,Set<Integer>> timeToTid = entry.getValue();
+      timeToTid.headMap(dt).clear();
+      if (timeToTid.isEmpty()) {
+        emptyRids.add(entry.getKey());
+      }
+    }
+    for(int rid : emptyRids) {
+      ridToTimeToTid.remove(rid);
+    }
+  }
+
+}
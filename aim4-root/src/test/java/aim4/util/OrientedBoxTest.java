@@ -0,0 +1,214 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.Shape;
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import aim4.vehicle.VehicleSpec;
+
+/**
+ * Check that the tests of an {@link OrientedBox} agree with the same tests
+ * on the shape built from the corner points of a vehicle, which the box
+ * replaced.
+ */
+public class OrientedBoxTest {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of random poses */
+  private static final int NUM_OF_POSES = 20000;
+
+  /** The number of random points and rectangles per pose */
+  private static final int NUM_OF_QUERIES = 50;
+
+  /** The largest difference between the bounds of a box and its shape */
+  private static final double BOUNDS_TOLERANCE = 1e-4;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The random number generator */
+  private Random random;
+
+  /** The vehicle specification whose outline is tested */
+  private VehicleSpec spec;
+
+  /////////////////////////////////
+  // SET UP
+  /////////////////////////////////
+
+  /**
+   * Create the random number generator and the vehicle specification.
+   */
+  @Before
+  public void setUp() {
+    random = new Random(1);
+    spec = new VehicleSpec("TEST",
+                           2.5,         // maxAcceleration (m/s/s)
+                          -4.5,         // maxDeceleration (m/s/s)
+                          25.0,         // maxVelocity (m/s)
+                          -5.0,         // minVelocity (m/s)
+                           4.8,         // length (meters)
+                           1.7,         // width (meters)
+                           1.0,         // frontAxleDisplacement (meters)
+                           3.5,         // rearAxleDisplacement (meters)
+                           0.0,         // wheelSpan (meters)
+                           0.3,         // wheelRadius (meters)
+                           0.25,        // wheelWidth (meters)
+                           Math.PI/3,   // maxSteeringAngle (radian)
+                           Math.PI/2);  // maxTurnPerSecond (radian)
+  }
+
+  /////////////////////////////////
+  // TESTS
+  /////////////////////////////////
+
+  /**
+   * The bounds, the point containment, the rectangle intersection and the
+   * edge distance of the box of a vehicle are those of its shape.
+   */
+  @Test
+  public void testAgreesWithShape() {
+    OrientedBox box = new OrientedBox();
+    double[] xs = new double[4];
+    double[] ys = new double[4];
+    for(int i = 0; i < NUM_OF_POSES; i++) {
+      Point2D pos = new Point2D.Double(random.nextDouble() * 300.0,
+                                       random.nextDouble() * 300.0);
+      double heading = randomHeading();
+      spec.getCornerPoints(pos, heading, xs, ys);
+      box.setCorners(xs, ys);
+      Shape shape =
+        GeomUtil.convertPointsToShape(spec.getCornerPoints(pos, heading));
+
+      // the bounds of a shape keep their width and height as floats, so
+      // their maximums can be a float rounding away from the corners
+      Rectangle2D bounds = shape.getBounds2D();
+      assertEquals(bounds.getMinX(), box.getMinX(), 0.0);
+      assertEquals(bounds.getMaxX(), box.getMaxX(), BOUNDS_TOLERANCE);
+      assertEquals(bounds.getMinY(), box.getMinY(), 0.0);
+      assertEquals(bounds.getMaxY(), box.getMaxY(), BOUNDS_TOLERANCE);
+
+      for(int j = 0; j < NUM_OF_QUERIES; j++) {
+        double x = pos.getX() + (random.nextDouble() - 0.5) * 12.0;
+        double y = pos.getY() + (random.nextDouble() - 0.5) * 12.0;
+        assertEquals(shape.contains(x, y), box.contains(x, y));
+        if (!shape.contains(x, y)) {
+          assertEquals(edgeDistance(shape, new Point2D.Double(x, y)),
+                       box.edgeDistance(x, y), 0.0);
+        }
+        Rectangle2D r =
+          new Rectangle2D.Double(x, y,
+                                 random.nextDouble() * 4.0,
+                                 random.nextDouble() * 4.0);
+        assertEquals(shape.intersects(r), box.intersects(r));
+        // the bounds only reject rectangles that miss the shape
+        assertTrue(!shape.intersects(r) || box.boundsIntersect(r));
+      }
+    }
+  }
+
+  /**
+   * The corners of a box are touched by the rectangles that start at them
+   * and by the points that lie on them, as for its shape.
+   */
+  @Test
+  public void testAgreesWithShapeOnCorners() {
+    OrientedBox box = new OrientedBox();
+    double[] xs = new double[4];
+    double[] ys = new double[4];
+    for(int i = 0; i < NUM_OF_POSES; i++) {
+      Point2D pos = new Point2D.Double(random.nextDouble() * 300.0,
+                                       random.nextDouble() * 300.0);
+      // axis-aligned headings put edges exactly on the rectangle sides
+      double heading = random.nextInt(4) * Math.PI / 2;
+      spec.getCornerPoints(pos, heading, xs, ys);
+      box.setCorners(xs, ys);
+      Shape shape =
+        GeomUtil.convertPointsToShape(spec.getCornerPoints(pos, heading));
+      for(int k = 0; k < 4; k++) {
+        double x = box.getCornerX(k);
+        double y = box.getCornerY(k);
+        assertEquals(shape.contains(x, y), box.contains(x, y));
+        Rectangle2D r = new Rectangle2D.Double(x, y, 1.0, 1.0);
+        assertEquals(shape.intersects(r), box.intersects(r));
+        r = new Rectangle2D.Double(x - 1.0, y - 1.0, 1.0, 1.0);
+        assertEquals(shape.intersects(r), box.intersects(r));
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Get a random heading.
+   *
+   * @return a random heading
+   */
+  private double randomHeading() {
+    return random.nextDouble() * 2 * Math.PI;
+  }
+
+  /**
+   * Get the distance from a point to the nearest edge of a shape, as the
+   * simulator computed it before the vehicles had boxes.
+   *
+   * @param shape  the shape
+   * @param p      the point
+   * @return the distance from the point to the nearest edge
+   */
+  private static double edgeDistance(Shape shape, Point2D p) {
+    double distance = Double.MAX_VALUE;
+    for(Line2D edge : GeomMath.polygonalShapePerimeterSegments(shape)) {
+      double d = edge.ptSegDist(p);
+      if (d < distance) {
+        distance = d;
+      }
+    }
+    return distance;
+  }
+
+}
@@ -0,0 +1,197 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.util;
+
+import static org.junit.Assert.assertEquals;
+
+import java.awt.Shape;
+import java.awt.geom.Area;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import aim4.vehicle.VehicleSpec;
+
+/**
+ * Check that the tiles occupied by the corners of a footprint are the
+ * tiles occupied by the shape built from the same corners, which the
+ * corner version replaced.
+ */
+public class TiledAreaTest {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The granularities of the tiled areas */
+  private static final double[] GRANULARITIES = { 1.0, 0.5, 0.25, 0.1 };
+
+  /** The number of random poses per granularity */
+  private static final int NUM_OF_POSES = 20000;
+
+  /** The size of the square that contains the tiled area */
+  private static final double AREA_SIZE = 40.0;
+
+  /** The static buffer added to the vehicle, as by the grid managers */
+  private static final double STATIC_BUFFER_SIZE = 0.25;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The random number generator */
+  private Random random;
+
+  /** The vehicle specification whose footprints are tiled */
+  private VehicleSpec spec;
+
+  /////////////////////////////////
+  // SET UP
+  /////////////////////////////////
+
+  /**
+   * Create the random number generator and the vehicle specification.
+   */
+  @Before
+  public void setUp() {
+    random = new Random(1);
+    spec = new VehicleSpec("TEST",
+                           2.5,         // maxAcceleration (m/s/s)
+                          -4.5,         // maxDeceleration (m/s/s)
+                          25.0,         // maxVelocity (m/s)
+                          -5.0,         // minVelocity (m/s)
+                           4.8,         // length (meters)
+                           1.7,         // width (meters)
+                           1.0,         // frontAxleDisplacement (meters)
+                           3.5,         // rearAxleDisplacement (meters)
+                           0.0,         // wheelSpan (meters)
+                           0.3,         // wheelRadius (meters)
+                           0.25,        // wheelWidth (meters)
+                           Math.PI/3,   // maxSteeringAngle (radian)
+                           Math.PI/2);  // maxTurnPerSecond (radian)
+  }
+
+  /////////////////////////////////
+  // TESTS
+  /////////////////////////////////
+
+  /**
+   * The two methods find the same tiles in the same order for footprints
+   * at random positions and headings, including footprints that are
+   * partly outside the area.
+   */
+  @Test
+  public void testRandomFootprints() {
+    for(double granularity : GRANULARITIES) {
+      TiledArea tiledArea = makeTiledArea(granularity);
+      for(int i = 0; i < NUM_OF_POSES; i++) {
+        Point2D pos =
+          new Point2D.Double(random.nextDouble() * (AREA_SIZE + 10) - 5,
+                             random.nextDouble() * (AREA_SIZE + 10) - 5);
+        checkFootprint(tiledArea, pos, random.nextDouble() * 2 * Math.PI);
+      }
+    }
+  }
+
+  /**
+   * The two methods find the same tiles in the same order for footprints
+   * whose edges lie on the edges of the tiles.
+   */
+  @Test
+  public void testGridAlignedFootprints() {
+    for(double granularity : GRANULARITIES) {
+      TiledArea tiledArea = makeTiledArea(granularity);
+      int numOfTiles = (int)(AREA_SIZE / granularity);
+      for(int i = 0; i < NUM_OF_POSES; i++) {
+        Point2D pos =
+          new Point2D.Double(random.nextInt(numOfTiles) * granularity,
+                             random.nextInt(numOfTiles) * granularity);
+        checkFootprint(tiledArea, pos, random.nextInt(4) * Math.PI / 2);
+      }
+    }
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Make a tiled area shaped like the cross of an intersection, so that
+   * the tiles in its corners do not exist.
+   *
+   * @param granularity  the length of the tiles
+   * @return the tiled area
+   */
+  private static TiledArea makeTiledArea(double granularity) {
+    double third = AREA_SIZE / 3;
+    Area area =
+      new Area(new Rectangle2D.Double(third, 0, third, AREA_SIZE));
+    area.add(new Area(new Rectangle2D.Double(0, third, AREA_SIZE, third)));
+    return new TiledArea(area, granularity);
+  }
+
+  /**
+   * Check that the two methods find the same tiles for the footprint of
+   * a vehicle.
+   *
+   * @param tiledArea  the tiled area
+   * @param pos        the position of the vehicle
+   * @param heading    the heading of the vehicle
+   */
+  private void checkFootprint(TiledArea tiledArea, Point2D pos,
+                              double heading) {
+    double[] xs = new double[4];
+    double[] ys = new double[4];
+    spec.getCornerPoints(STATIC_BUFFER_SIZE, pos, heading, xs, ys);
+    // the grid managers round the corners as the shape does
+    for(int i = 0; i < 4; i++) {
+      xs[i] = (float)xs[i];
+      ys[i] = (float)ys[i];
+    }
+    int[] tileIds = new int[tiledArea.getNumberOfTiles()];
+    int numOfTiles = tiledArea.findOccupiedTiles(xs, ys, tileIds);
+
+    Shape shape =
+      GeomUtil.convertPointsToShape(
+        spec.getCornerPoints(STATIC_BUFFER_SIZE, pos, heading));
+    List<TiledArea.Tile> tiles = tiledArea.findOccupiedTiles(shape);
+
+    assertEquals(tiles.size(), numOfTiles);
+    for(int i = 0; i < numOfTiles; i++) {
+      assertEquals(tiles.get(i).getId(), tileIds[i]);
+    }
+  }
+
+}
@@ -0,0 +1,302 @@
+/*
+Copyright (c) 2011 Tsz-Chiu Au, Peter Stone
+University of Texas at Austin
+All rights reserved.
+
+Redistribution and use in source and binary forms, with or without
+modification, are permitted provided that the following conditions are met:
+
+1. Redistributions of source code must retain the above copyright notice, this
+list of conditions and the following disclaimer.
+
+2. Redistributions in binary form must reproduce the above copyright notice,
+this list of conditions and the following disclaimer in the documentation
+and/or other materials provided with the distribution.
+
+3. Neither the name of the University of Texas at Austin nor the names of its
+contributors may be used to endorse or promote products derived from this
+software without specific prior written permission.
+
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE LIABLE
+FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL
+DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY,
+OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+*/
+package aim4.vehicle;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import aim4.driver.AutoDriver;
+import aim4.map.Road;
+import aim4.map.SpawnPoint;
+
+/**
+ * Check a {@link VinRegistry} against a model of the registry kept in hash
+ * maps, as the registry was before it had primitive tables, on random
+ * sequences of registrations, unregistrations and lookups.
+ */
+public class VinRegistryTest {
+
+  /////////////////////////////////
+  // CONSTANTS
+  /////////////////////////////////
+
+  /** The number of random operations */
+  private static final int NUM_OF_OPERATIONS = 200000;
+
+  /** The number of specifications, spawn points and roads to choose from */
+  private static final int NUM_OF_CHOICES = 5;
+
+  /////////////////////////////////
+  // PRIVATE FIELDS
+  /////////////////////////////////
+
+  /** The random number generator */
+  private Random random;
+
+  /** The vehicle specifications */
+  private List<VehicleSpec> specs;
+
+  /** The spawn points */
+  private List<SpawnPoint> spawnPoints;
+
+  /** The destination roads */
+  private List<Road> roads;
+
+  /** The registry under test */
+  private VinRegistry registry;
+
+  /** The VIN that the model expects the registry to issue next */
+  private int nextVin;
+
+  /** The vehicles in the model */
+  private Map<Integer,VehicleSimView> vinToVehicle;
+
+  /** The vehicle specifications of the VINs issued in the model */
+  private Map<Integer,VehicleSpec> vinToSpec;
+
+  /** The spawn points of the VINs issued in the model */
+  private Map<Integer,SpawnPoint> vinToSpawnPoint;
+
+  /** The destination roads of the VINs issued in the model */
+  private Map<Integer,Road> vinToDestRoad;
+
+  /** Whether the registry retains the archive rows of the vehicles */
+  private boolean isArchiveRetained;
+
+  /////////////////////////////////
+  // SET UP
+  /////////////////////////////////
+
+  /**
+   * Create an empty registry, an empty model and the objects the vehicles
+   * are made of.
+   */
+  @Before
+  public void setUp() {
+    random = new Random(1);
+    specs = new ArrayList<VehicleSpec>();
+    spawnPoints = new ArrayList<SpawnPoint>();
+    roads = new ArrayList<Road>();
+    for(int i = 0; i < NUM_OF_CHOICES; i++) {
+      specs.add(new VehicleSpec("SPEC" + i, 2.5, -4.5, 25.0, -5.0,
+                                4.0 + i * 0.1, 1.7, 1.0, 3.0, 0.0, 0.3,
+                                0.25, Math.PI / 3, Math.PI / 2));
+      spawnPoints.add(new SpawnPoint(0.0, new Point2D.Double(i, 0.0),
+                                     0.0, 0.0, 0.0, null,
+                                     new Rectangle2D.Double(i, 0, 1, 1)));
+      roads.add(new Road("ROAD" + i, null));
+    }
+    registry = new VinRegistry();
+    nextVin = 1000;
+    vinToVehicle = new HashMap<Integer,VehicleSimView>();
+    vinToSpec = new HashMap<Integer,VehicleSpec>();
+    vinToSpawnPoint = new HashMap<Integer,SpawnPoint>();
+    vinToDestRoad = new HashMap<Integer,Road>();
+    isArchiveRetained = true;
+  }
+
+  /////////////////////////////////
+  // TESTS
+  /////////////////////////////////
+
+  /**
+   * The registry agrees with the model on random operations, including
+   * registrations with existing VINs and unregistrations of vehicles that
+   * have left.
+   */
+  @Test
+  public void testAgreesWithModel() {
+    runRandomOperations();
+  }
+
+  /**
+   * The registry agrees with the model on random operations when the
+   * archive rows of the vehicles are retired as the vehicles leave.
+   */
+  @Test
+  public void testAgreesWithModelWithoutArchive() {
+    registry.setArchiveRetained(false);
+    isArchiveRetained = false;
+    runRandomOperations();
+  }
+
+  /////////////////////////////////
+  // PRIVATE METHODS
+  /////////////////////////////////
+
+  /**
+   * Run random operations on the registry and the model, checking the
+   * lookups of random VINs in between and of all VINs at the end.
+   */
+  private void runRandomOperations() {
+    for(int i = 0; i < NUM_OF_OPERATIONS; i++) {
+      int op = random.nextInt(10);
+      if (op < 3) {
+        registerVehicle();
+      } else if (op < 4) {
+        registerVehicleWithExistingVIN();
+      } else if (op < 6) {
+        unregisterVehicle();
+      } else {
+        checkLookups(randomVin());
+      }
+    }
+    for(int vin = 0; vin < nextVin + 10; vin++) {
+      checkLookups(vin);
+    }
+  }
+
+  /**
+   * Register a new vehicle and check its VIN.
+   */
+  private void registerVehicle() {
+    VehicleSimView vehicle = makeVehicle(true);
+    int vin = registry.registerVehicle(vehicle);
+    assertEquals(nextVin, vin);
+    assertEquals(vin, vehicle.getVIN());
+    putInModel(vin, vehicle);
+    nextVin++;
+  }
+
+  /**
+   * Register a vehicle with a random VIN, which may be in use, and check
+   * whether the registration succeeds.
+   */
+  private void registerVehicleWithExistingVIN() {
+    VehicleSimView vehicle = makeVehicle(random.nextBoolean());
+    int vin = randomVin();
+    boolean isRegistered = registry.registerVehicleWithExistingVIN(vehicle,
+                                                                   vin);
+    assertEquals(!vinToVehicle.containsKey(vin), isRegistered);
+    if (isRegistered) {
+      assertEquals(vin, vehicle.getVIN());
+      putInModel(vin, vehicle);
+      if (vin >= nextVin) {
+        nextVin = vin + 1;
+      }
+    }
+  }
+
+  /**
+   * Unregister a random VIN, which may not be in use, and check whether
+   * the unregistration succeeds.
+   */
+  private void unregisterVehicle() {
+    int vin = randomVin();
+    try {
+      registry.unregisterVehicle(vin);
+      assertTrue(vinToVehicle.containsKey(vin));
+      vinToVehicle.remove(vin);
+      if (!isArchiveRetained) {
+        vinToSpec.remove(vin);
+        vinToSpawnPoint.remove(vin);
+        vinToDestRoad.remove(vin);
+      }
+    } catch(RuntimeException e) {
+      assertFalse(vinToVehicle.containsKey(vin));
+    }
+  }
+
+  /**
+   * Check the lookups of a VIN.
+   *
+   * @param vin  the VIN
+   */
+  private void checkLookups(int vin) {
+    assertEquals(vinToSpec.containsKey(vin), registry.isVINexist(vin));
+    assertSame(vinToVehicle.get(vin), registry.getVehicleFromVIN(vin));
+    assertSame(vinToSpec.get(vin), registry.getVehicleSpecFromVIN(vin));
+    assertSame(vinToSpawnPoint.get(vin), registry.getSpawnPointFromVIN(vin));
+    assertSame(vinToDestRoad.get(vin), registry.getDestRoadFromVIN(vin));
+  }
+
+  /**
+   * Record a registered vehicle in the model.
+   *
+   * @param vin      the VIN of the vehicle
+   * @param vehicle  the vehicle
+   */
+  private void putInModel(int vin, VehicleSimView vehicle) {
+    vinToVehicle.put(vin, vehicle);
+    vinToSpec.put(vin, vehicle.getSpec());
+    if (vehicle.getDriver() != null) {
+      vinToSpawnPoint.put(vin, vehicle.getDriver().getSpawnPoint());
+      vinToDestRoad.put(vin, vehicle.getDriver().getDestination());
+    } else {
+      vinToSpawnPoint.put(vin, null);
+      vinToDestRoad.put(vin, null);
+    }
+  }
+
+  /**
+   * Get a random VIN around the VINs that have been issued.
+   *
+   * @return a random VIN
+   */
+  private int randomVin() {
+    return random.nextInt(nextVin + 10);
+  }
+
+  /**
+   * Make a vehicle with a random specification, spawn point and
+   * destination road.
+   *
+   * @param hasDriver  whether the vehicle has a driver
+   * @return the vehicle
+   */
+  private VehicleSimView makeVehicle(boolean hasDriver) {
+    BasicAutoVehicle vehicle =
+      new BasicAutoVehicle(specs.get(random.nextInt(NUM_OF_CHOICES)),
+                           new Point2D.Double(0.0, 0.0),
+                           0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+    if (hasDriver) {
+      AutoDriver driver = new AutoDriver(vehicle, null);
+      driver.setSpawnPoint(spawnPoints.get(random.nextInt(NUM_OF_CHOICES)));
+      driver.setDestination(roads.get(random.nextInt(NUM_OF_CHOICES)));
+      vehicle.setDriver(driver);
+    }
+    return vehicle;
+  }
+
+}